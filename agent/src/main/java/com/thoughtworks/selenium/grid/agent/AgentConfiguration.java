@@ -1,5 +1,7 @@
 package com.thoughtworks.selenium.grid.agent;
 
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
+
 /**
  * Selenium Grid Agent Configuration.
  */
@@ -13,11 +15,13 @@ public class AgentConfiguration {
     private int port;
     private String remoteControlWrapperJarPath;
     private String remoteControlJarPath;
+    private HttpServerConfiguration httpServer;
 
     public AgentConfiguration() {
         this.port = DEFAULT_PORT_NUMBER;
         this.remoteControlWrapperJarPath = DEFAULT_RC_WRAPPER_JAR_PATH;
         this.remoteControlJarPath = DEFAULT_RC_JAR_PATH;
+        this.httpServer = new HttpServerConfiguration();
     }
 
     public void setPort(int newPortNumber) {
@@ -44,5 +48,16 @@ public class AgentConfiguration {
     public void setRemoteControlJar(String newRemoteControlJarPath) {
         this.remoteControlJarPath = newRemoteControlJarPath;
     }
-    
+
+    /**
+     * Tuning of the embedded HTTP server accepting agent requests.
+     */
+    public HttpServerConfiguration getHttpServer() {
+        return httpServer;
+    }
+
+    public void setHttpServer(HttpServerConfiguration httpServer) {
+        this.httpServer = httpServer;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.thoughtworks.selenium.grid.agent;
 
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
 import com.thoughtworks.selenium.grid.webserver.WebServer;
 
 /**
@@ -7,14 +8,14 @@ import com.thoughtworks.selenium.grid.webserver.WebServer;
  */
 public class AgentServer extends WebServer {
 
-    public AgentServer(int port) {
-        super(port, RouteResolver.class);
+    public AgentServer(int port, HttpServerConfiguration httpServerConfiguration) {
+        super(port, RouteResolver.class, httpServerConfiguration);
     }
 
     public static void main(String[] args) throws Exception {
         final AgentServer server;
 
-        server = new AgentServer(4443);
+        server = new AgentServer(4443, AgentRegistry.registry().agentConfiguration().getHttpServer());
         server.launch();
     }
 
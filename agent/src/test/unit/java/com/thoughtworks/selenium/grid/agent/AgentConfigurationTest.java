@@ -1,6 +1,8 @@
 package com.thoughtworks.selenium.grid.agent;
 
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 import org.junit.Test;
 
 public class AgentConfigurationTest {
@@ -43,4 +45,18 @@ public class AgentConfigurationTest {
         assertEquals("./a/new/file.jar", configuration.remoteControlJarPath());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void httpServerUsesTheSelectChannelConnectorByDefault() {
+        assertEquals(HttpServerConfiguration.SELECT_CHANNEL_CONNECTOR,
+                     new AgentConfiguration().getHttpServer().getConnector());
+    }
+
+    @Test
+    public void httpServerCanBeSetToASpecificConfiguration() {
+        final AgentConfiguration configuration = new AgentConfiguration();
+        final HttpServerConfiguration httpServer = new HttpServerConfiguration();
+        configuration.setHttpServer(httpServer);
+        assertSame(httpServer, configuration.getHttpServer());
+    }
+
+}
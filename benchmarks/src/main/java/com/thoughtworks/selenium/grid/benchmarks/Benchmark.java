@@ -0,0 +1,63 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operation measured by the benchmark runner, called in a loop by as many threads as requested.
+ */
+public abstract class Benchmark {
+
+    private final String name;
+    private final int threads;
+    private final Map<String, String> params;
+
+    protected Benchmark(String name, int threads) {
+        this.name = name;
+        this.threads = threads;
+        this.params = new LinkedHashMap<String, String>();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public Map<String, String> params() {
+        return Collections.unmodifiableMap(params);
+    }
+
+    /**
+     * Called once before the warmup iterations.
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Run the operation once. Called concurrently when the benchmark has more than one thread.
+     *
+     * @param invocation Number of times the calling thread already ran the operation.
+     * @return Result of the operation, kept by the runner so that it cannot be optimized away.
+     */
+    public abstract Object run(long invocation) throws Exception;
+
+    /**
+     * Called once after the last measurement iteration.
+     */
+    public void tearDown() {
+    }
+
+    protected Benchmark param(String name, Object value) {
+        params.put(name, String.valueOf(value));
+        return this;
+    }
+
+    public String toString() {
+        return params.isEmpty() ? name : name + params;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Basic option parser for the hub benchmarks.
+ */
+public class BenchmarkOptionParser {
+
+    public static class Options {
+
+        private int warmupIterations;
+        private int iterations;
+        private long iterationTimeInMilliseconds;
+        private String results;
+        private final List<String> filters;
+
+        protected Options() {
+            this.warmupIterations = 3;
+            this.iterations = 5;
+            this.iterationTimeInMilliseconds = 1000;
+            this.results = "target/benchmarks/results.json";
+            this.filters = new ArrayList<String>();
+        }
+
+        public int warmupIterations() {
+            return warmupIterations;
+        }
+
+        public int iterations() {
+            return iterations;
+        }
+
+        public long iterationTimeInMilliseconds() {
+            return iterationTimeInMilliseconds;
+        }
+
+        /**
+         * @return Path of the JSON file the results are written to.
+         */
+        public String results() {
+            return results;
+        }
+
+        /**
+         * @return Whether the benchmark should run: all do when no filter is given, otherwise only
+         *         the ones whose name contains one of the filters.
+         */
+        public boolean selects(Benchmark benchmark) {
+            if (filters.isEmpty()) {
+                return true;
+            }
+            for (String filter : filters) {
+                if (benchmark.name().contains(filter)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    protected Options parseOptions(String[] args) {
+        final Options options = new Options();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--help".equalsIgnoreCase(args[i])) {
+                usage(null);
+                System.exit(1);
+            } else if ("-warmupIterations".equalsIgnoreCase(args[i])) {
+                options.warmupIterations = Integer.parseInt(args[++i]);
+            } else if ("-iterations".equalsIgnoreCase(args[i])) {
+                options.iterations = Integer.parseInt(args[++i]);
+            } else if ("-iterationTimeInMilliseconds".equalsIgnoreCase(args[i])) {
+                options.iterationTimeInMilliseconds = Long.parseLong(args[++i]);
+            } else if ("-results".equalsIgnoreCase(args[i])) {
+                options.results = args[++i];
+            } else if (args[i].startsWith("-")) {
+                usage("Unknown option '" + args[i] + "'");
+                throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+            } else {
+                options.filters.add(args[i]);
+            }
+        }
+        return options;
+    }
+
+    protected void usage(String msg) {
+        if (msg != null) {
+            println(msg + ":");
+        }
+        println("Usage: java com.thoughtworks.selenium.grid.benchmarks.BenchmarkRunner [options] [name filters]\n");
+        println("-warmupIterations <n>: iterations run before measuring (default 3)");
+        println("-iterations <n>: measured iterations (default 5)");
+        println("-iterationTimeInMilliseconds <n>: duration of each iteration (default 1000)");
+        println("-results <file>: JSON file the results are written to (default target/benchmarks/results.json)");
+        println("name filters: only run the benchmarks whose name contains one of them (default all)");
+    }
+
+    protected void println(String msg) {
+        System.err.println(msg);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import org.mortbay.jetty.Request;
+
+import javax.servlet.ServletInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Canned Jetty request, replayable any number of times without a connection.
+ */
+public class BenchmarkRequest extends Request {
+
+    private final Map<String, String[]> parameters;
+    private final byte[] body;
+
+    public BenchmarkRequest(String method, String uri, String body) {
+        this.parameters = new HashMap<String, String[]>();
+        this.body = body.getBytes();
+        setMethod(method);
+        setRequestURI(uri);
+    }
+
+    public BenchmarkRequest(Map<String, String[]> parameters) {
+        this("POST", "/selenium-server/driver/", "");
+        this.parameters.putAll(parameters);
+    }
+
+    public Map getParameterMap() {
+        return parameters;
+    }
+
+    public String getParameter(String name) {
+        final String[] values = parameters.get(name);
+        return (null == values) ? null : values[0];
+    }
+
+    public int getContentLength() {
+        return body.length;
+    }
+
+    public String getContentType() {
+        return "application/json; charset=utf-8";
+    }
+
+    public ServletInputStream getInputStream() {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+
+        return new ServletInputStream() {
+            public int read() {
+                return in.read();
+            }
+
+            public int read(byte[] buffer, int offset, int length) {
+                return in.read(buffer, offset, length);
+            }
+        };
+    }
+
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream()));
+    }
+
+}
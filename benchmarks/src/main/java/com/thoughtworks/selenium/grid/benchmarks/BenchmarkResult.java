@@ -0,0 +1,109 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measurement iterations of a benchmark: average time per operation and throughput.
+ */
+public class BenchmarkResult {
+
+    private final Benchmark benchmark;
+    private final List<Double> nanosecondsPerOperation;
+    private final List<Double> operationsPerMillisecond;
+
+    public BenchmarkResult(Benchmark benchmark) {
+        this.benchmark = benchmark;
+        this.nanosecondsPerOperation = new ArrayList<Double>();
+        this.operationsPerMillisecond = new ArrayList<Double>();
+    }
+
+    /**
+     * @param operations       Operations run by all threads during the iteration.
+     * @param threadNanoseconds Sum of the time each thread spent running them.
+     * @param throughput       Operations per millisecond, summed over the threads.
+     */
+    public void addIteration(long operations, long threadNanoseconds, double throughput) {
+        nanosecondsPerOperation.add(0 == operations ? 0 : (double) threadNanoseconds / operations);
+        operationsPerMillisecond.add(throughput);
+    }
+
+    public Benchmark benchmark() {
+        return benchmark;
+    }
+
+    public List<Double> nanosecondsPerOperation() {
+        return nanosecondsPerOperation;
+    }
+
+    public List<Double> operationsPerMillisecond() {
+        return operationsPerMillisecond;
+    }
+
+    public static double mean(List<Double> samples) {
+        double sum = 0;
+
+        for (double sample : samples) {
+            sum += sample;
+        }
+        return samples.isEmpty() ? 0 : sum / samples.size();
+    }
+
+    public static double standardDeviation(List<Double> samples) {
+        final double mean;
+        double squares = 0;
+
+        if (samples.size() < 2) {
+            return 0;
+        }
+        mean = mean(samples);
+        for (double sample : samples) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        return Math.sqrt(squares / (samples.size() - 1));
+    }
+
+    public void write(JSONWriter json, int warmupIterations, long iterationTimeInMilliseconds) throws JSONException {
+        json.object();
+        json.key("benchmark").value(benchmark.name());
+        json.key("threads").value(benchmark.threads());
+        json.key("warmupIterations").value(warmupIterations);
+        json.key("measurementIterations").value(nanosecondsPerOperation.size());
+        json.key("measurementTime").value(iterationTimeInMilliseconds + " ms");
+        json.key("params").object();
+        for (Map.Entry<String, String> param : benchmark.params().entrySet()) {
+            json.key(param.getKey()).value(param.getValue());
+        }
+        json.endObject();
+        json.key("primaryMetric");
+        writeMetric(json, nanosecondsPerOperation, "ns/op");
+        json.key("secondaryMetrics").object();
+        json.key("throughput");
+        writeMetric(json, operationsPerMillisecond, "ops/ms");
+        json.endObject();
+        json.endObject();
+    }
+
+    protected static void writeMetric(JSONWriter json, List<Double> samples, String unit) throws JSONException {
+        json.object();
+        json.key("score").value(mean(samples));
+        json.key("scoreError").value(standardDeviation(samples));
+        json.key("scoreUnit").value(unit);
+        json.key("rawData").array();
+        for (double sample : samples) {
+            json.value(sample);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    public String toString() {
+        return String.format("%-70s %12.1f ns/op %12.1f ops/ms", benchmark,
+                mean(nanosecondsPerOperation), mean(operationsPerMillisecond));
+    }
+
+}
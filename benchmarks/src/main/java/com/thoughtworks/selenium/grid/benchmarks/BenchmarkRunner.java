@@ -0,0 +1,183 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the hub micro-benchmarks and writes their results as JSON.
+ * <p/>
+ * Each benchmark runs a few warmup iterations, so that the JIT compiles the code under test,
+ * then measured iterations of a fixed duration, during which every benchmark thread calls the
+ * operation in a loop. Timing relies on System.nanoTime() only and, unlike JMH, all benchmarks
+ * share the same JVM: compare runs of the same selection of benchmarks with each other.
+ */
+public class BenchmarkRunner {
+
+    private final BenchmarkOptionParser.Options options;
+
+    public BenchmarkRunner(BenchmarkOptionParser.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final BenchmarkOptionParser.Options options;
+        final List<BenchmarkResult> results;
+        final BenchmarkRunner runner;
+
+        options = new BenchmarkOptionParser().parseOptions(args);
+        runner = new BenchmarkRunner(options);
+        results = runner.run(allBenchmarks());
+        runner.writeResults(new File(options.results()), results);
+        System.out.println("Benchmark results written to " + options.results());
+    }
+
+    public static List<Benchmark> allBenchmarks() {
+        final List<Benchmark> benchmarks;
+
+        benchmarks = new ArrayList<Benchmark>();
+        benchmarks.addAll(RemoteControlProvisionerBenchmark.benchmarks());
+        benchmarks.addAll(GlobalRemoteControlPoolBenchmark.benchmarks());
+        benchmarks.addAll(CommandParsingBenchmark.benchmarks());
+        benchmarks.addAll(ConsoleTemplateBenchmark.benchmarks());
+        return benchmarks;
+    }
+
+    public List<BenchmarkResult> run(List<Benchmark> benchmarks) throws Exception {
+        final List<BenchmarkResult> results;
+
+        results = new ArrayList<BenchmarkResult>();
+        for (Benchmark benchmark : benchmarks) {
+            if (options.selects(benchmark)) {
+                results.add(measure(benchmark));
+                System.out.println(results.get(results.size() - 1));
+            }
+        }
+        return results;
+    }
+
+    public BenchmarkResult measure(Benchmark benchmark) throws Exception {
+        final BenchmarkResult result;
+
+        result = new BenchmarkResult(benchmark);
+        benchmark.setUp();
+        try {
+            for (int i = 0; i < options.warmupIterations(); i++) {
+                iteration(benchmark, null);
+            }
+            for (int i = 0; i < options.iterations(); i++) {
+                iteration(benchmark, result);
+            }
+        } finally {
+            benchmark.tearDown();
+        }
+        return result;
+    }
+
+    public void writeResults(File file, List<BenchmarkResult> results) throws IOException, JSONException {
+        final Writer writer;
+        final JSONWriter json;
+
+        if (null != file.getParentFile()) {
+            file.getParentFile().mkdirs();
+        }
+        writer = new FileWriter(file);
+        try {
+            json = new JSONWriter(writer);
+            json.array();
+            for (BenchmarkResult result : results) {
+                result.write(json, options.warmupIterations(), options.iterationTimeInMilliseconds());
+            }
+            json.endArray();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Run the benchmark on all its threads for the duration of an iteration.
+     *
+     * @param result Where to record the iteration. Null for a warmup iteration.
+     */
+    protected void iteration(Benchmark benchmark, BenchmarkResult result) throws Exception {
+        final CountDownLatch start;
+        final Worker[] workers;
+        long operations = 0;
+        long threadNanoseconds = 0;
+        double throughput = 0;
+
+        start = new CountDownLatch(1);
+        workers = new Worker[benchmark.threads()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(benchmark, start);
+            workers[i].start();
+        }
+        start.countDown();
+        Thread.sleep(options.iterationTimeInMilliseconds());
+        for (Worker worker : workers) {
+            worker.finish();
+        }
+        for (Worker worker : workers) {
+            worker.join();
+            if (null != worker.failure) {
+                throw new IllegalStateException(benchmark + " failed", worker.failure);
+            }
+            operations += worker.operations;
+            threadNanoseconds += worker.elapsedNanoseconds;
+            throughput += worker.operations / (worker.elapsedNanoseconds / 1000000.0);
+        }
+        if (null != result) {
+            result.addIteration(operations, threadNanoseconds, throughput);
+        }
+    }
+
+    protected static class Worker extends Thread {
+
+        private final Benchmark benchmark;
+        private final CountDownLatch start;
+        private volatile boolean finished;
+        private long operations;
+        private long elapsedNanoseconds;
+        private Exception failure;
+        private Object lastResult;
+
+        public Worker(Benchmark benchmark, CountDownLatch start) {
+            super("Benchmark " + benchmark.name());
+            this.benchmark = benchmark;
+            this.start = start;
+            setDaemon(true);
+        }
+
+        public void finish() {
+            finished = true;
+        }
+
+        public void run() {
+            final long startedAt;
+            Object last = null;
+            long count = 0;
+
+            try {
+                start.await();
+                startedAt = System.nanoTime();
+                while (!finished) {
+                    last = benchmark.run(count++);
+                }
+                elapsedNanoseconds = System.nanoTime() - startedAt;
+                operations = count;
+                lastResult = last;
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import com.thoughtworks.selenium.grid.GridRequestWrapper;
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.EnvironmentManager;
+import com.thoughtworks.selenium.grid.hub.HttpCommandParser;
+import com.thoughtworks.selenium.grid.hub.WebDriverHttpCommandParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-request overhead of turning an HTTP request into a driver command.
+ */
+public abstract class CommandParsingBenchmark extends Benchmark {
+
+    private static final String NEW_SESSION_BODY =
+            "{\"desiredCapabilities\":{\"browserName\":\"firefox\",\"platform\":\"WINDOWS\","
+            + "\"javascriptEnabled\":true,\"version\":\"\"}}";
+
+    protected EnvironmentManager environmentManager;
+    protected BenchmarkRequest seleneseNewSession;
+    protected BenchmarkRequest seleneseCommand;
+    protected BenchmarkRequest webDriverNewSession;
+    protected BenchmarkRequest webDriverCommand;
+    protected BenchmarkRequest webDriverTestComplete;
+
+    public CommandParsingBenchmark(String operation) {
+        super("CommandParsingBenchmark." + operation, 1);
+    }
+
+    public static List<Benchmark> benchmarks() {
+        final List<Benchmark> benchmarks;
+
+        benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new CommandParsingBenchmark("parseSeleneseNewSession") {
+            public Object run(long invocation) {
+                return new HttpCommandParser(seleneseNewSession).parse(environmentManager);
+            }
+        });
+        benchmarks.add(new CommandParsingBenchmark("parseSeleneseCommand") {
+            public Object run(long invocation) {
+                return new HttpCommandParser(seleneseCommand).parse(environmentManager);
+            }
+        });
+        benchmarks.add(new CommandParsingBenchmark("parseWebDriverNewSession") {
+            public Object run(long invocation) throws Exception {
+                return new WebDriverHttpCommandParser(new GridRequestWrapper(webDriverNewSession)).parse(environmentManager);
+            }
+        });
+        benchmarks.add(new CommandParsingBenchmark("parseWebDriverCommand") {
+            public Object run(long invocation) throws Exception {
+                return new WebDriverHttpCommandParser(new GridRequestWrapper(webDriverCommand)).parse(environmentManager);
+            }
+        });
+        benchmarks.add(new CommandParsingBenchmark("parseWebDriverTestComplete") {
+            public Object run(long invocation) throws Exception {
+                return new WebDriverHttpCommandParser(new GridRequestWrapper(webDriverTestComplete)).parse(environmentManager);
+            }
+        });
+        benchmarks.add(new CommandParsingBenchmark("wrapWebDriverNewSessionRequest") {
+            public Object run(long invocation) throws Exception {
+                return new GridRequestWrapper(webDriverNewSession);
+            }
+        });
+        return benchmarks;
+    }
+
+    public void setUp() {
+        environmentManager = new EnvironmentManager();
+        environmentManager.addEnvironment(new Environment("*firefox", "*firefox"));
+        environmentManager.addEnvironment(new Environment("firefox on windows", "Firefox"));
+
+        seleneseNewSession = new BenchmarkRequest(parameters(
+                "cmd", "getNewBrowserSession", "1", "*firefox", "2", "http://www.google.com"));
+        seleneseCommand = new BenchmarkRequest(parameters(
+                "cmd", "click", "1", "link=Selenium Grid", "sessionId", "1234567890"));
+        webDriverNewSession = new BenchmarkRequest("POST", "/wd/hub/session", NEW_SESSION_BODY);
+        webDriverCommand = new BenchmarkRequest("POST", "/wd/hub/session/1234567890/element",
+                "{\"using\":\"id\",\"value\":\"q\"}");
+        webDriverTestComplete = new BenchmarkRequest("DELETE", "/wd/hub/session/1234567890", "");
+    }
+
+    protected static Map<String, String[]> parameters(String... namesAndValues) {
+        final Map<String, String[]> parameters = new HashMap<String, String[]>();
+
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            parameters.put(namesAndValues[i], new String[]{namesAndValues[i + 1]});
+        }
+        return parameters;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.management.console.ConsoleController;
+import com.thoughtworks.selenium.grid.hub.management.console.mvc.Template;
+import com.thoughtworks.selenium.grid.hub.management.console.mvc.TemplateResolver;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.NewSessionQueueStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rendering of the hub console page for farms of increasing size.
+ */
+public class ConsoleTemplateBenchmark extends Benchmark {
+
+    private final int remoteControlCount;
+    private Template template;
+    private Map<String, Object> assigns;
+
+    public ConsoleTemplateBenchmark(int remoteControlCount) {
+        super("ConsoleTemplateBenchmark.render", 1);
+        this.remoteControlCount = remoteControlCount;
+        param("remoteControlCount", remoteControlCount);
+    }
+
+    public static List<Benchmark> benchmarks() {
+        return Arrays.<Benchmark>asList(new ConsoleTemplateBenchmark(10), new ConsoleTemplateBenchmark(1000));
+    }
+
+    public void setUp() {
+        final List<Environment> environments;
+        final List<IRemoteControlProxy> availableRemoteControls;
+        final List<IRemoteControlProxy> reservedRemoteControls;
+        final List<RemoteControlStatus> remoteControlStatuses;
+
+        template = new TemplateResolver(ConsoleController.class).get("index.html");
+        environments = new ArrayList<Environment>();
+        environments.add(new Environment("*firefox", "*firefox"));
+        environments.add(new Environment("firefox on windows", "Firefox"));
+        availableRemoteControls = new ArrayList<IRemoteControlProxy>();
+        reservedRemoteControls = new ArrayList<IRemoteControlProxy>();
+        remoteControlStatuses = new ArrayList<RemoteControlStatus>();
+        for (int i = 0; i < remoteControlCount; i++) {
+            final IRemoteControlProxy remoteControl = new FakeRemoteControl(5000 + i, "*firefox");
+            if (i % 2 == 0) {
+                availableRemoteControls.add(remoteControl);
+            } else {
+                reservedRemoteControls.add(remoteControl);
+            }
+            remoteControlStatuses.add(new RemoteControlStatus("localhost", 5000 + i, 0.5, System.nanoTime()));
+        }
+        assigns = new HashMap<String, Object>();
+        assigns.put("environments", environments);
+        assigns.put("availableRemoteControls", availableRemoteControls);
+        assigns.put("reservedRemoteControls", reservedRemoteControls);
+        assigns.put("newSessionQueues", Arrays.asList(
+                new NewSessionQueueStatus("*firefox", 2, 1200, remoteControlCount / 2, remoteControlCount / 2,
+                                          5, 1, 3000, 400, 900)));
+        assigns.put("remoteControlStatuses", remoteControlStatuses);
+    }
+
+    public Object run(long invocation) {
+        return template.render(assigns);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+
+/**
+ * Remote control that is always healthy and never talks to the network, so that
+ * benchmarks only measure the hub's own bookkeeping.
+ */
+public class FakeRemoteControl extends RemoteControlProxy {
+
+    public FakeRemoteControl(int port, String environment) {
+        super("localhost", port, environment, null);
+    }
+
+    public boolean unreliable() {
+        return false;
+    }
+
+    public boolean failsPreFlightCheck(int timeoutInMilliseconds) {
+        return false;
+    }
+
+    public void terminateSession(String sessionId) {
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full session life cycle through the pool (reserve, associate, retrieve, release), and
+ * session lookup alone, which is what every single command goes through.
+ */
+public abstract class GlobalRemoteControlPoolBenchmark extends Benchmark {
+
+    protected static final Environment ENVIRONMENT = new Environment("*firefox", "*firefox");
+    private final int remoteControlCount;
+    protected final AtomicLong sessionIds;
+    protected GlobalRemoteControlPool pool;
+    protected String[] activeSessionIds;
+
+    public GlobalRemoteControlPoolBenchmark(String operation, int remoteControlCount) {
+        super("GlobalRemoteControlPoolBenchmark." + operation, 8);
+        this.remoteControlCount = remoteControlCount;
+        this.sessionIds = new AtomicLong();
+        param("remoteControlCount", remoteControlCount);
+    }
+
+    public static List<Benchmark> benchmarks() {
+        final List<Benchmark> benchmarks;
+
+        benchmarks = new ArrayList<Benchmark>();
+        for (int remoteControlCount : new int[]{16, 1024}) {
+            benchmarks.add(new GlobalRemoteControlPoolBenchmark("sessionLifeCycle", remoteControlCount) {
+                public Object run(long invocation) {
+                    final IRemoteControlProxy remoteControl;
+                    final String sessionId;
+
+                    sessionId = Long.toString(sessionIds.incrementAndGet());
+                    remoteControl = pool.reserve(ENVIRONMENT);
+                    pool.associateWithSession(remoteControl, sessionId);
+                    pool.retrieve(sessionId);
+                    pool.releaseForSession(sessionId);
+                    return remoteControl;
+                }
+            });
+            benchmarks.add(new GlobalRemoteControlPoolBenchmark("retrieve", remoteControlCount) {
+                public Object run(long invocation) {
+                    return pool.retrieve(activeSessionIds[(int) (invocation % activeSessionIds.length)]);
+                }
+            });
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Register the remote controls, with one session in progress on half of them.
+     */
+    public void setUp() {
+        pool = new GlobalRemoteControlPool();
+        for (int i = 0; i < remoteControlCount; i++) {
+            pool.register(new FakeRemoteControl(5000 + i, ENVIRONMENT.name()));
+        }
+        activeSessionIds = new String[remoteControlCount / 2];
+        for (int i = 0; i < activeSessionIds.length; i++) {
+            activeSessionIds[i] = "active-" + i;
+            pool.associateWithSession(pool.reserve(ENVIRONMENT), activeSessionIds[i]);
+        }
+    }
+
+    public void tearDown() {
+        pool.healthSweep().shutdown();
+    }
+
+}
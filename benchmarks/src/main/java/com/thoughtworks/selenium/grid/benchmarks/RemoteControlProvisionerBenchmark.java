@@ -0,0 +1,50 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProvisioner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reserve then release a remote control, alone and with many threads fighting for
+ * a farm that is smaller, as large or larger than the number of threads.
+ */
+public class RemoteControlProvisionerBenchmark extends Benchmark {
+
+    private final int remoteControlCount;
+    private RemoteControlProvisioner provisioner;
+
+    public RemoteControlProvisionerBenchmark(String operation, int threads, int remoteControlCount) {
+        super("RemoteControlProvisionerBenchmark." + operation, threads);
+        this.remoteControlCount = remoteControlCount;
+        param("remoteControlCount", remoteControlCount);
+    }
+
+    public static List<Benchmark> benchmarks() {
+        final List<Benchmark> benchmarks;
+
+        benchmarks = new ArrayList<Benchmark>();
+        for (int remoteControlCount : new int[]{1, 16, 256}) {
+            benchmarks.add(new RemoteControlProvisionerBenchmark("reserveAndRelease", 1, remoteControlCount));
+            benchmarks.add(new RemoteControlProvisionerBenchmark("reserveAndReleaseUnderContention", 16, remoteControlCount));
+        }
+        return benchmarks;
+    }
+
+    public void setUp() {
+        provisioner = new RemoteControlProvisioner();
+        for (int i = 0; i < remoteControlCount; i++) {
+            provisioner.add(new FakeRemoteControl(5000 + i, "*firefox"));
+        }
+    }
+
+    public Object run(long invocation) {
+        final IRemoteControlProxy remoteControl;
+
+        remoteControl = provisioner.reserve();
+        provisioner.release(remoteControl);
+        return remoteControl;
+    }
+
+}
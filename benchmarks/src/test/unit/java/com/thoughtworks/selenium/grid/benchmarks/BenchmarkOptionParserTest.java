@@ -0,0 +1,65 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import org.junit.Test;
+
+public class BenchmarkOptionParserTest {
+
+    @Test
+    public void defaultsRunEveryBenchmarkForThreeWarmupAndFiveMeasuredIterationsOfOneSecond() {
+        final BenchmarkOptionParser.Options options;
+
+        options = new BenchmarkOptionParser().parseOptions(new String[0]);
+        assertEquals(3, options.warmupIterations());
+        assertEquals(5, options.iterations());
+        assertEquals(1000, options.iterationTimeInMilliseconds());
+        assertEquals("target/benchmarks/results.json", options.results());
+        assertTrue(options.selects(new NullBenchmark("AnyBenchmark.run")));
+    }
+
+    @Test
+    public void optionsCanBeOverridden() {
+        final BenchmarkOptionParser.Options options;
+
+        options = new BenchmarkOptionParser().parseOptions(new String[]{
+                "-warmupIterations", "1", "-iterations", "2", "-iterationTimeInMilliseconds", "50",
+                "-results", "results.json"});
+        assertEquals(1, options.warmupIterations());
+        assertEquals(2, options.iterations());
+        assertEquals(50, options.iterationTimeInMilliseconds());
+        assertEquals("results.json", options.results());
+    }
+
+    @Test
+    public void argumentsThatAreNotOptionsSelectTheBenchmarksWhoseNameContainsThem() {
+        final BenchmarkOptionParser.Options options;
+
+        options = new BenchmarkOptionParser().parseOptions(new String[]{"Provisioner", "parseSelenese"});
+        assertTrue(options.selects(new NullBenchmark("RemoteControlProvisionerBenchmark.reserveAndRelease")));
+        assertTrue(options.selects(new NullBenchmark("CommandParsingBenchmark.parseSeleneseCommand")));
+        assertFalse(options.selects(new NullBenchmark("ConsoleTemplateBenchmark.render")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOptionsAreRejected() {
+        new BenchmarkOptionParser() {
+            protected void println(String msg) {
+            }
+        }.parseOptions(new String[]{"-unknown"});
+    }
+
+    protected static class NullBenchmark extends Benchmark {
+
+        public NullBenchmark(String name) {
+            super(name, 1);
+        }
+
+        public Object run(long invocation) {
+            return null;
+        }
+
+    }
+
+}
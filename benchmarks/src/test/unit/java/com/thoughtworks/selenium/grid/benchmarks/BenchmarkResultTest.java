@@ -0,0 +1,59 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import static junit.framework.Assert.assertEquals;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BenchmarkResultTest {
+
+    @Test
+    public void iterationsRecordTheAverageTimePerOperationAndTheThroughput() {
+        final BenchmarkResult result;
+
+        result = new BenchmarkResult(new BenchmarkOptionParserTest.NullBenchmark("NullBenchmark.run"));
+        result.addIteration(1000, 2000000, 500);
+        result.addIteration(0, 0, 0);
+        assertEquals(Arrays.asList(2000.0, 0.0), result.nanosecondsPerOperation());
+        assertEquals(Arrays.asList(500.0, 0.0), result.operationsPerMillisecond());
+    }
+
+    @Test
+    public void meanAndStandardDeviationOfSamples() {
+        assertEquals(0.0, BenchmarkResult.mean(Collections.<Double>emptyList()));
+        assertEquals(0.0, BenchmarkResult.standardDeviation(Arrays.asList(3.0)));
+        assertEquals(5.0, BenchmarkResult.mean(Arrays.asList(2.0, 4.0, 4.0, 4.0, 5.0, 5.0, 7.0, 9.0)));
+        assertEquals(2.0, BenchmarkResult.standardDeviation(Arrays.asList(1.0, 3.0, 5.0)));
+    }
+
+    @Test
+    public void writeDescribesTheBenchmarkAndItsMetrics() throws Exception {
+        final BenchmarkResult result;
+        final JSONStringer json;
+        final JSONObject written;
+
+        result = new BenchmarkResult(new BenchmarkOptionParserTest.NullBenchmark("NullBenchmark.run")
+                .param("remoteControlCount", 16));
+        result.addIteration(1000, 2000000, 500);
+        result.addIteration(1000, 4000000, 250);
+        json = new JSONStringer();
+        result.write(json, 3, 1000);
+        written = new JSONObject(json.toString());
+
+        assertEquals("NullBenchmark.run", written.getString("benchmark"));
+        assertEquals(1, written.getInt("threads"));
+        assertEquals(3, written.getInt("warmupIterations"));
+        assertEquals(2, written.getInt("measurementIterations"));
+        assertEquals("1000 ms", written.getString("measurementTime"));
+        assertEquals("16", written.getJSONObject("params").getString("remoteControlCount"));
+        assertEquals(3000.0, written.getJSONObject("primaryMetric").getDouble("score"));
+        assertEquals("ns/op", written.getJSONObject("primaryMetric").getString("scoreUnit"));
+        assertEquals(2, written.getJSONObject("primaryMetric").getJSONArray("rawData").length());
+        assertEquals(375.0, written.getJSONObject("secondaryMetrics").getJSONObject("throughput").getDouble("score"));
+        assertEquals("ops/ms", written.getJSONObject("secondaryMetrics").getJSONObject("throughput").getString("scoreUnit"));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.thoughtworks.selenium.grid.benchmarks;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import org.json.JSONArray;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BenchmarkRunnerTest {
+
+    @Test
+    public void measureRunsTheBenchmarkOnAllItsThreadsBetweenSetUpAndTearDown() throws Exception {
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountingBenchmark benchmark;
+        final BenchmarkResult result;
+
+        benchmark = new CountingBenchmark(4, invocations);
+        result = new BenchmarkRunner(options("-warmupIterations", "1", "-iterations", "2",
+                                             "-iterationTimeInMilliseconds", "20")).measure(benchmark);
+
+        assertEquals(1, benchmark.setUps);
+        assertEquals(1, benchmark.tearDowns);
+        assertEquals(2, result.nanosecondsPerOperation().size());
+        assertEquals(2, result.operationsPerMillisecond().size());
+        assertTrue(invocations.get() > 0);
+        assertTrue(result.operationsPerMillisecond().get(0) > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void measureFailsWhenTheBenchmarkThrows() throws Exception {
+        new BenchmarkRunner(options("-warmupIterations", "0", "-iterationTimeInMilliseconds", "10")).measure(
+                new Benchmark("FailingBenchmark.run", 1) {
+                    public Object run(long invocation) {
+                        throw new RuntimeException("simulated failure");
+                    }
+                });
+    }
+
+    @Test
+    public void runOnlyMeasuresTheSelectedBenchmarks() throws Exception {
+        final List<BenchmarkResult> results;
+
+        results = new BenchmarkRunner(options("-warmupIterations", "0", "-iterations", "1",
+                                              "-iterationTimeInMilliseconds", "10", "Selected")).run(Arrays.<Benchmark>asList(
+                new CountingBenchmark("SelectedBenchmark.run", new AtomicInteger()),
+                new CountingBenchmark("OtherBenchmark.run", new AtomicInteger())));
+        assertEquals(1, results.size());
+        assertEquals("SelectedBenchmark.run", results.get(0).benchmark().name());
+    }
+
+    @Test
+    public void writeResultsWritesAJsonArrayWithOneEntryPerBenchmark() throws Exception {
+        final BenchmarkRunner runner;
+        final BenchmarkResult result;
+        final JSONArray json;
+        final File file;
+
+        file = File.createTempFile("benchmark", ".json");
+        file.deleteOnExit();
+        runner = new BenchmarkRunner(options("-warmupIterations", "2", "-iterationTimeInMilliseconds", "10"));
+        result = new BenchmarkResult(new CountingBenchmark(1, new AtomicInteger()));
+        result.addIteration(1000, 2000000, 500);
+        runner.writeResults(file, Arrays.asList(result));
+
+        json = new JSONArray(new org.json.JSONTokener(new FileReader(file)));
+        assertEquals(1, json.length());
+        assertEquals("CountingBenchmark.run", json.getJSONObject(0).getString("benchmark"));
+        assertEquals(2, json.getJSONObject(0).getInt("warmupIterations"));
+        assertEquals(1, json.getJSONObject(0).getInt("threads"));
+    }
+
+    @Test
+    public void allBenchmarksCoverTheHubHotPaths() {
+        final StringBuilder names = new StringBuilder();
+
+        for (Benchmark benchmark : BenchmarkRunner.allBenchmarks()) {
+            names.append(benchmark.name()).append(' ');
+        }
+        assertTrue(names.toString().contains("RemoteControlProvisionerBenchmark.reserveAndReleaseUnderContention"));
+        assertTrue(names.toString().contains("GlobalRemoteControlPoolBenchmark.sessionLifeCycle"));
+        assertTrue(names.toString().contains("CommandParsingBenchmark.parseSeleneseCommand"));
+        assertTrue(names.toString().contains("CommandParsingBenchmark.parseWebDriverCommand"));
+        assertTrue(names.toString().contains("CommandParsingBenchmark.wrapWebDriverNewSessionRequest"));
+        assertTrue(names.toString().contains("ConsoleTemplateBenchmark.render"));
+    }
+
+    protected static BenchmarkOptionParser.Options options(String... args) {
+        return new BenchmarkOptionParser().parseOptions(args);
+    }
+
+    protected static class CountingBenchmark extends Benchmark {
+
+        private final AtomicInteger invocations;
+        private int setUps;
+        private int tearDowns;
+
+        public CountingBenchmark(int threads, AtomicInteger invocations) {
+            super("CountingBenchmark.run", threads);
+            this.invocations = invocations;
+        }
+
+        public CountingBenchmark(String name, AtomicInteger invocations) {
+            super(name, 1);
+            this.invocations = invocations;
+        }
+
+        public void setUp() {
+            setUps++;
+        }
+
+        public Object run(long invocation) {
+            return invocations.incrementAndGet();
+        }
+
+        public void tearDown() {
+            tearDowns++;
+        }
+
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.thoughtworks.selenium.grid.hub;
+
+import com.thoughtworks.selenium.grid.Response;
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import com.thoughtworks.selenium.grid.hub.metrics.CommandTiming;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.ReservationListener;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.ReservedRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.IDriverCommand;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mortbay.util.ajax.Continuation;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs commands off the Jetty threads, so that a request waiting for a remote control
+ * or for its reply is suspended instead of holding a Jetty thread.
+ * <p/>
+ * New session requests run on their own threads so that they can never starve commands
+ * for sessions in progress (which are the ones eventually freeing remote controls).
+ * They wait for a remote control without holding any thread: the command only gets a
+ * thread once a remote control has been handed over to it, so a busy environment
+ * cannot starve new sessions for the other environments either.
+ */
+public class CommandExecutor {
+
+    private static final Log LOGGER = LogFactory.getLog(CommandExecutor.class);
+    private final ThreadPoolExecutor sessionCommandExecutor;
+    private final ScheduledThreadPoolExecutor newSessionExecutor;
+    private final AtomicInteger newSessionCommands;
+    private final int maxNewSessionCommands;
+
+    public CommandExecutor(HubConfiguration configuration) {
+        this(configuration.getCommandExecutorThreads(),
+             configuration.getNewSessionExecutorThreads(),
+             configuration.getCommandExecutorQueueDepth());
+    }
+
+    /**
+     * @param queueDepth Maximum number of commands queued for a session command thread, and of new
+     *                   session commands waiting for a remote control or a thread.
+     */
+    public CommandExecutor(int threads, int newSessionThreads, int queueDepth) {
+        this.sessionCommandExecutor = threadPool("Hub Command", threads, queueDepth);
+        this.newSessionExecutor = new ScheduledThreadPoolExecutor(newSessionThreads, threadFactory("Hub New Session"));
+        this.newSessionCommands = new AtomicInteger(0);
+        this.maxNewSessionCommands = newSessionThreads + queueDepth;
+    }
+
+    /**
+     * Work of a command, run against the pool it should reserve remote controls from.
+     */
+    public interface Work {
+
+        Response execute(RemoteControlPool pool) throws Exception;
+
+    }
+
+    /**
+     * Run a command asynchronously, resuming the continuation when done.
+     *
+     * @return The pending command. Already complete with an error message if the hub is overloaded.
+     */
+    public PendingCommand submit(IDriverCommand command, Callable<Response> work, Continuation continuation) {
+        return submit(command, work, continuation, new CommandTiming());
+    }
+
+    /**
+     * Run a command asynchronously, resuming the continuation when done.
+     *
+     * @param timing Timing of the command, already parsed.
+     * @return The pending command. Already complete with an error message if the hub is overloaded.
+     */
+    public PendingCommand submit(IDriverCommand command, Callable<Response> work, Continuation continuation, CommandTiming timing) {
+        final PendingCommand pendingCommand;
+
+        pendingCommand = new PendingCommand(work, continuation, timing);
+        if (null != command.sessionId()) {
+            try {
+                sessionCommandExecutor.execute(pendingCommand);
+            } catch (RejectedExecutionException e) {
+                return tooBusy(sessionCommandExecutor.getQueue().size());
+            }
+            return pendingCommand;
+        }
+        if (!admitNewSessionCommand()) {
+            return tooBusy(newSessionCommands.get());
+        }
+        try {
+            newSessionExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        pendingCommand.run();
+                    } finally {
+                        newSessionCommands.decrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            newSessionCommands.decrementAndGet();
+            return tooBusy(newSessionCommands.get());
+        }
+        return pendingCommand;
+    }
+
+    /**
+     * Run a command asynchronously, resuming the continuation when done. A new session command first
+     * queues up for a remote control without holding a thread, then runs with the remote control
+     * handed over to it.
+     *
+     * @param pool  Pool to reserve remote controls from.
+     * @param timing Timing of the command, already parsed.
+     * @return The pending command. Already complete with an error message if the hub is overloaded.
+     */
+    public PendingCommand submit(IDriverCommand command, final DynamicRemoteControlPool pool, final Work work,
+                                 Continuation continuation, CommandTiming timing) {
+        final ReservedRemoteControlPool reservedPool;
+        final PendingCommand pendingCommand;
+
+        if (null != command.sessionId() || !reservesARemoteControl(command)) {
+            return submit(command, callable(work, pool), continuation, timing);
+        }
+        if (!admitNewSessionCommand()) {
+            return tooBusy(newSessionCommands.get());
+        }
+        reservedPool = new ReservedRemoteControlPool(pool);
+        pendingCommand = new PendingCommand(callable(work, reservedPool), continuation, timing);
+        try {
+            reserve(command, pool, new ReservationListener() {
+                public void reserved(IRemoteControlProxy remoteControl) {
+                    reservedPool.hold(remoteControl);
+                    try {
+                        pendingCommand.run();
+                    } finally {
+                        newSessionCommands.decrementAndGet();
+                    }
+                }
+            });
+        } catch (NoSuchEnvironmentException e) {
+            // Let the command report it like any other error
+            newSessionCommands.decrementAndGet();
+            return submit(command, callable(work, pool), continuation, timing);
+        }
+        return pendingCommand;
+    }
+
+    /**
+     * @return Commands running on a thread.
+     */
+    public int activeCommands() {
+        return sessionCommandExecutor.getActiveCount() + newSessionExecutor.getActiveCount();
+    }
+
+    /**
+     * @return Commands waiting for a thread, or for a remote control for new session commands.
+     */
+    public int queuedCommands() {
+        return sessionCommandExecutor.getQueue().size()
+                + Math.max(0, newSessionCommands.get() - newSessionExecutor.getActiveCount());
+    }
+
+    public void shutdown() {
+        sessionCommandExecutor.shutdownNow();
+        newSessionExecutor.shutdownNow();
+    }
+
+    protected void reserve(IDriverCommand command, DynamicRemoteControlPool pool, ReservationListener listener) {
+        final com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand newSession;
+
+        if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand) {
+            pool.reserve(((com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand) command).environment(),
+                         listener, newSessionExecutor);
+            return;
+        }
+        newSession = (com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand) command;
+        if (null == newSession.environment()) {
+            pool.reserve(newSession.capabilities(), listener, newSessionExecutor);
+        } else {
+            pool.reserve(newSession.environment(), listener, newSessionExecutor);
+        }
+    }
+
+    protected static boolean reservesARemoteControl(IDriverCommand command) {
+        return command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand
+                || command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand;
+    }
+
+    protected boolean admitNewSessionCommand() {
+        if (newSessionCommands.incrementAndGet() > maxNewSessionCommands) {
+            newSessionCommands.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    protected static PendingCommand tooBusy(int queuedCommands) {
+        LOGGER.warn("Rejecting command, " + queuedCommands + " commands already queued");
+        return PendingCommand.completed(new Response("Hub is too busy, please retry later"));
+    }
+
+    protected static Callable<Response> callable(final Work work, final RemoteControlPool pool) {
+        return new Callable<Response>() {
+            public Response call() throws Exception {
+                return work.execute(pool);
+            }
+        };
+    }
+
+    protected static ThreadPoolExecutor threadPool(String name, int threads, int queueDepth) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueDepth), threadFactory(name));
+    }
+
+    protected static ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger(0);
+
+            public Thread newThread(Runnable runnable) {
+                final Thread thread;
+
+                thread = new Thread(runnable, name + " " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+}
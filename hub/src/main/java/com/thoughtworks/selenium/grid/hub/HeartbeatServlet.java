@@ -1,7 +1,9 @@
 package com.thoughtworks.selenium.grid.hub;
 
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HeartbeatMonitor;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -12,6 +14,9 @@ import java.io.IOException;
 /**
  * Provides feedback that the Hub is still up and running
  * with minimal performance impact on other Hub operations.
+ * <p/>
+ * Remote controls can also POST their status here, in which case the hub
+ * stops polling them and relies on them pushing it regularly instead.
  */
 public class HeartbeatServlet extends HttpServlet {
 
@@ -21,9 +26,30 @@ public class HeartbeatServlet extends HttpServlet {
         reply(request.getParameter("host"), request.getParameter("port"), response);
     }
 
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        final String host;
+        final String port;
+        final boolean registered;
+
+        host = request.getParameter("host");
+        port = request.getParameter("port");
+        registered = registeredRemoteControl(host, port);
+        if (registered) {
+            heartbeatMonitor().heartbeat(new RemoteControlStatus(
+                    host, Integer.parseInt(port), doubleParameter(request, "load"), System.nanoTime()));
+        }
+        reply(registered, response);
+    }
+
     protected void reply(String host, String port, HttpServletResponse response) throws IOException {
+        reply(registeredRemoteControl(host, port), response);
+    }
+
+    protected void reply(boolean registered, HttpServletResponse response) throws IOException {
         response.setContentType("text/plain");
-        if (registeredRemoteControl(host, port)) {
+        if (registered) {
             response.getWriter().write("Hub : OK");
         } else {
             response.getWriter().write("Hub : Not Registered");
@@ -45,4 +71,25 @@ public class HeartbeatServlet extends HttpServlet {
         return HubRegistry.registry().remoteControlPool();
     }
 
+    protected HeartbeatMonitor heartbeatMonitor() {
+        return HubRegistry.registry().heartbeatMonitor();
+    }
+
+    /**
+     * @return -1 if the parameter is missing or invalid.
+     */
+    protected static double doubleParameter(HttpServletRequest request, String name) {
+        final String value;
+
+        value = request.getParameter(name);
+        if (null == value) {
+            return -1;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
 }
@@ -1,16 +1,33 @@
 package com.thoughtworks.selenium.grid.hub;
 
+import com.thoughtworks.selenium.grid.HttpConnectionPool;
 import com.thoughtworks.selenium.grid.configuration.EnvironmentConfiguration;
 import com.thoughtworks.selenium.grid.configuration.GridConfiguration;
 import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
 import com.thoughtworks.selenium.grid.configuration.ResourceLocator;
+import com.thoughtworks.selenium.grid.hub.cluster.ClusterHeartbeat;
+import com.thoughtworks.selenium.grid.hub.cluster.ClusterStoreFactory;
+import com.thoughtworks.selenium.grid.hub.cluster.ClusteredRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.journal.SessionJournal;
 import com.thoughtworks.selenium.grid.hub.management.LifecycleManager;
+import com.thoughtworks.selenium.grid.hub.metrics.HubMetrics;
+import com.thoughtworks.selenium.grid.hub.metrics.SlowCommandLog;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
-import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HeartbeatMonitor;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IdleSessionRecycler;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.LocalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlHealthSweep;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPoller;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPoolFactory;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.StaleRemoteControlReaper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 /**
  * Hub application registry.
  * <p/>
@@ -20,11 +37,21 @@ public class HubRegistry {
 
     private static final Log LOGGER = LogFactory.getLog(HubRegistry.class);
     private static HubRegistry singleton;
-    private final DynamicRemoteControlPool pool = new GlobalRemoteControlPool();
     private final LifecycleManager lifecycleManager = new LifecycleManager();
+    private DynamicRemoteControlPool pool;
     private EnvironmentManager environmentManager;
     private GridConfiguration gridConfiguration;
     private RemoteControlPoller poller;
+    private IdleSessionRecycler idleSessionRecycler;
+    private HeartbeatMonitor heartbeatMonitor;
+    private StaleRemoteControlReaper staleRemoteControlReaper;
+    private RemoteControlHealthSweep healthSweep;
+    private ClusterHeartbeat clusterHeartbeat;
+    private HttpConnectionPool connectionPool;
+    private CommandExecutor commandExecutor;
+    private HubMetrics metrics;
+    private SlowCommandLog slowCommandLog;
+    private SessionJournal sessionJournal;
 
     public static synchronized HubRegistry registry() {
         if (null == singleton) {
@@ -33,10 +60,75 @@ public class HubRegistry {
         return singleton;
     }
 
-    public DynamicRemoteControlPool remoteControlPool() {
+    /**
+     * The pool implementation is the one configured, see {@link RemoteControlPoolFactory}.
+     * The pool is rebuilt from the session journal, if there is one, the first time it is accessed.
+     * It is shared with the other hubs of the cluster, if the hub is part of one.
+     */
+    public synchronized DynamicRemoteControlPool remoteControlPool() {
+        final LocalRemoteControlPool localPool;
+        final String clusterStore;
+
+        if (null == pool) {
+            localPool = new RemoteControlPoolFactory().create(gridConfiguration().getHub().getRemoteControlPool(),
+                    healthSweep(), sessionJournal());
+            pool = localPool;
+            clusterStore = gridConfiguration().getHub().getClusterStore();
+            if (null != clusterStore && !"".equals(clusterStore)) {
+                pool = new ClusteredRemoteControlPool(localPool, new ClusterStoreFactory().create(clusterStore),
+                        clusterHubAddress(), connectionPool().httpClient(),
+                        gridConfiguration().getHub().getClusterHubLeaseTimeoutInSeconds());
+                LOGGER.info("Hub " + clusterHubAddress() + " joined cluster " + clusterStore);
+            }
+            if (null != sessionJournal) {
+                localPool.recoverFromJournal(connectionPool().httpClient());
+                try {
+                    sessionJournal.compact();
+                } catch (IOException e) {
+                    LOGGER.warn("Could not compact session journal " + sessionJournal.file(), e);
+                }
+            }
+        }
         return pool;
     }
 
+    /**
+     * @return Address other hubs of the cluster use to reach this hub.
+     */
+    public synchronized String clusterHubAddress() {
+        final HubConfiguration hubConfiguration;
+
+        hubConfiguration = gridConfiguration().getHub();
+        if (null != hubConfiguration.getClusterHubAddress() && !"".equals(hubConfiguration.getClusterHubAddress())) {
+            return hubConfiguration.getClusterHubAddress();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + hubConfiguration.getPort();
+        } catch (UnknownHostException e) {
+            return "localhost:" + hubConfiguration.getPort();
+        }
+    }
+
+    /**
+     * @return Journal of remote control registrations and sessions. Null if disabled, or if it cannot be opened.
+     */
+    public synchronized SessionJournal sessionJournal() {
+        final HubConfiguration hubConfiguration;
+
+        hubConfiguration = gridConfiguration().getHub();
+        if (null == sessionJournal && null != hubConfiguration.getSessionJournalFile()
+                && !"".equals(hubConfiguration.getSessionJournalFile())) {
+            try {
+                sessionJournal = SessionJournal.open(new File(hubConfiguration.getSessionJournalFile()),
+                        hubConfiguration.getSessionJournalSizeInKilobytes() * 1024);
+            } catch (IOException e) {
+                LOGGER.error("Could not open session journal " + hubConfiguration.getSessionJournalFile()
+                        + ", running without it", e);
+            }
+        }
+        return sessionJournal;
+    }
+
     public synchronized EnvironmentManager environmentManager() {
         if (null == environmentManager) {
             environmentManager = new EnvironmentManager();
@@ -58,6 +150,37 @@ public class HubRegistry {
         return gridConfiguration;
     }
 
+    /**
+     * @return Connections shared by all traffic from the hub to the remote controls.
+     */
+    public synchronized HttpConnectionPool connectionPool() {
+        if (null == connectionPool) {
+            connectionPool = new HttpConnectionPool(gridConfiguration().getHub());
+        }
+        return connectionPool;
+    }
+
+    public synchronized CommandExecutor commandExecutor() {
+        if (null == commandExecutor) {
+            commandExecutor = new CommandExecutor(gridConfiguration().getHub());
+        }
+        return commandExecutor;
+    }
+
+    public synchronized HubMetrics metrics() {
+        if (null == metrics) {
+            metrics = new HubMetrics();
+        }
+        return metrics;
+    }
+
+    public synchronized SlowCommandLog slowCommandLog() {
+        if (null == slowCommandLog) {
+            slowCommandLog = new SlowCommandLog(gridConfiguration().getHub());
+        }
+        return slowCommandLog;
+    }
+
     public LifecycleManager lifecycleManager() {
         return lifecycleManager;
     }
@@ -69,11 +192,57 @@ public class HubRegistry {
             hubConfiguration = gridConfiguration().getHub();
             poller = new RemoteControlPoller(
                     remoteControlPool(),
-                    hubConfiguration.getRemoteControlPollingIntervalInSeconds(),
-                    hubConfiguration.getSessionMaxIdleTimeInSeconds()
+                    hubConfiguration.getRemoteControlPollingIntervalInSeconds()
             );
         }
         return poller;
     }
 
+    /**
+     * @return Statuses pushed by the remote controls. Disabled unless a heartbeat timeout is configured.
+     */
+    public synchronized HeartbeatMonitor heartbeatMonitor() {
+        if (null == heartbeatMonitor) {
+            heartbeatMonitor = new HeartbeatMonitor(gridConfiguration().getHub().getRemoteControlHeartbeatTimeoutInSeconds());
+        }
+        return heartbeatMonitor;
+    }
+
+    /**
+     * @return Parallel poller of the remote controls that do not push their status.
+     */
+    public synchronized RemoteControlHealthSweep healthSweep() {
+        if (null == healthSweep) {
+            healthSweep = new RemoteControlHealthSweep(gridConfiguration().getHub(), heartbeatMonitor());
+        }
+        return healthSweep;
+    }
+
+    public synchronized StaleRemoteControlReaper staleRemoteControlReaper() {
+        if (null == staleRemoteControlReaper) {
+            staleRemoteControlReaper = new StaleRemoteControlReaper(remoteControlPool(), heartbeatMonitor());
+        }
+        return staleRemoteControlReaper;
+    }
+
+    /**
+     * @return Renewal of the lease of this hub in the cluster store. Null if the hub is not part of a cluster.
+     */
+    public synchronized ClusterHeartbeat clusterHeartbeat() {
+        if (null == clusterHeartbeat && remoteControlPool() instanceof ClusteredRemoteControlPool) {
+            clusterHeartbeat = new ClusterHeartbeat((ClusteredRemoteControlPool) remoteControlPool());
+        }
+        return clusterHeartbeat;
+    }
+
+    public synchronized IdleSessionRecycler idleSessionRecycler() {
+        if (null == idleSessionRecycler) {
+            idleSessionRecycler = new IdleSessionRecycler(
+                    remoteControlPool(),
+                    gridConfiguration().getHub().getSessionMaxIdleTimeInSeconds()
+            );
+        }
+        return idleSessionRecycler;
+    }
+
 }
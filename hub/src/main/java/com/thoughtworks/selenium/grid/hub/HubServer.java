@@ -1,10 +1,13 @@
 package com.thoughtworks.selenium.grid.hub;
 
 import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import com.thoughtworks.selenium.grid.hub.management.BatchRegistrationServlet;
 import com.thoughtworks.selenium.grid.hub.management.LifecycleManagerServlet;
+import com.thoughtworks.selenium.grid.hub.management.MetricsServlet;
 import com.thoughtworks.selenium.grid.hub.management.RegistrationServlet;
 import com.thoughtworks.selenium.grid.hub.management.UnregistrationServlet;
 import com.thoughtworks.selenium.grid.hub.management.console.ConsoleServlet;
+import com.thoughtworks.selenium.grid.webserver.HttpServerFactory;
 import org.mortbay.jetty.Server;
 import org.mortbay.jetty.handler.ContextHandlerCollection;
 import org.mortbay.jetty.servlet.Context;
@@ -22,7 +25,7 @@ public class HubServer {
         final Context root;
 
         configuration = HubRegistry.registry().gridConfiguration().getHub();
-        server = new Server(configuration.getPort());
+        server = new HttpServerFactory().create("Hub", configuration.getPort(), configuration.getHttpServer());
 
         contexts = new ContextHandlerCollection();
         server.setHandler(contexts);
@@ -32,11 +35,16 @@ public class HubServer {
         root.addServlet(new ServletHolder(new HubServlet()), "/selenium-server/driver/*");
         root.addServlet(new ServletHolder(new ConsoleServlet()), "/console");
         root.addServlet(new ServletHolder(new RegistrationServlet()), "/registration-manager/register");
+        root.addServlet(new ServletHolder(new BatchRegistrationServlet()), "/registration-manager/register-batch");
         root.addServlet(new ServletHolder(new UnregistrationServlet()), "/registration-manager/unregister");
         root.addServlet(new ServletHolder(new LifecycleManagerServlet()), "/lifecycle-manager");
         root.addServlet(new ServletHolder(new HeartbeatServlet()), "/heartbeat");
+        root.addServlet(new ServletHolder(new MetricsServlet()), "/metrics");
 
         startRemoteControlPoller();
+        startIdleSessionRecycler();
+        startStaleRemoteControlReaper();
+        startClusterHeartbeat();
         ensureRemoteControlPollerStopOnShutdown();
 
         server.start();
@@ -52,10 +60,55 @@ public class HubServer {
         pollerThread.start();
     }
 
+    protected static void startIdleSessionRecycler() {
+        final Thread recyclerThread;
+
+        recyclerThread = new Thread(
+                HubRegistry.registry().idleSessionRecycler(),
+                "Idle Session Recycler");
+        recyclerThread.start();
+    }
+
+    protected static void startStaleRemoteControlReaper() {
+        final Thread reaperThread;
+
+        if (!HubRegistry.registry().heartbeatMonitor().enabled()) {
+            return;
+        }
+        reaperThread = new Thread(
+                HubRegistry.registry().staleRemoteControlReaper(),
+                "Stale RC Reaper");
+        reaperThread.start();
+    }
+
+    protected static void startClusterHeartbeat() {
+        final Thread heartbeatThread;
+
+        if (null == HubRegistry.registry().clusterHeartbeat()) {
+            return;
+        }
+        heartbeatThread = new Thread(
+                HubRegistry.registry().clusterHeartbeat(),
+                "Cluster Heartbeat");
+        heartbeatThread.start();
+    }
+
     protected static void ensureRemoteControlPollerStopOnShutdown() {
         Runtime.getRuntime().addShutdownHook(new Thread() {
             public void run() {
                 HubRegistry.registry().remoteControlPoller().stop();
+                HubRegistry.registry().idleSessionRecycler().stop();
+                if (HubRegistry.registry().heartbeatMonitor().enabled()) {
+                    HubRegistry.registry().staleRemoteControlReaper().stop();
+                }
+                if (null != HubRegistry.registry().clusterHeartbeat()) {
+                    HubRegistry.registry().clusterHeartbeat().stop();
+                }
+                HubRegistry.registry().commandExecutor().shutdown();
+                HubRegistry.registry().connectionPool().shutdown();
+                if (null != HubRegistry.registry().sessionJournal()) {
+                    HubRegistry.registry().sessionJournal().close();
+                }
             }
         });
     }
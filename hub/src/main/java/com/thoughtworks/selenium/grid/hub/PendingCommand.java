@@ -0,0 +1,130 @@
+package com.thoughtworks.selenium.grid.hub;
+
+import com.thoughtworks.selenium.grid.Response;
+import com.thoughtworks.selenium.grid.hub.metrics.CommandTiming;
+import org.mortbay.util.ajax.Continuation;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Command running on the hub command executor while the HTTP request that
+ * triggered it is suspended. The request is resumed once the command completes.
+ */
+public class PendingCommand implements Runnable {
+
+    /**
+     * Name of the request attribute holding the command while the request is suspended.
+     */
+    public static final String REQUEST_ATTRIBUTE = PendingCommand.class.getName();
+    private final Callable<Response> work;
+    private final Continuation continuation;
+    private final CommandTiming timing;
+    private volatile boolean done;
+    private Response response;
+    private Exception failure;
+
+    public PendingCommand(Callable<Response> work, Continuation continuation) {
+        this(work, continuation, new CommandTiming());
+    }
+
+    public PendingCommand(Callable<Response> work, Continuation continuation, CommandTiming timing) {
+        this.work = work;
+        this.continuation = continuation;
+        this.timing = timing;
+    }
+
+    /**
+     * @return A command that is already complete, e.g. because it could not be parsed.
+     */
+    public static PendingCommand completed(Response response) {
+        final PendingCommand command;
+
+        command = new PendingCommand(null, null, null);
+        command.complete(response, null);
+        return command;
+    }
+
+    /**
+     * The timing is finished before the command is done, since the request thread records it
+     * as soon as it sees the command done.
+     */
+    public void run() {
+        Response result = null;
+        Exception error = null;
+
+        timing.executionStarted();
+        try {
+            result = work.call();
+        } catch (Exception e) {
+            error = e;
+        }
+        timing.executionFinished();
+        complete(result, error);
+        continuation.resume();
+    }
+
+    /**
+     * @return Timing of the command. Null for commands that never ran.
+     */
+    public CommandTiming timing() {
+        return timing;
+    }
+
+    public boolean done() {
+        return done;
+    }
+
+    /**
+     * Suspend the request until the command is done.
+     * <p/>
+     * Jetty only resumes a continuation that is already suspended, so the command being done is
+     * checked while holding the continuation lock, which Jetty holds to suspend and resume it and
+     * which the command holds to complete. A command completing right before the request is
+     * suspended therefore cannot leave the request waiting for the whole timeout.
+     */
+    public void awaitCompletion(long timeoutInMilliseconds) {
+        while (!done) {
+            synchronized (continuation) {
+                if (!done) {
+                    continuation.suspend(timeoutInMilliseconds);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Response of the command, once done.
+     * @throws IOException if the command failed talking to the remote control.
+     */
+    public Response response() throws IOException {
+        synchronized (completionLock()) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (null != failure) {
+                throw new IllegalStateException(failure.getMessage());
+            }
+            return response;
+        }
+    }
+
+    protected void complete(Response response, Exception failure) {
+        synchronized (completionLock()) {
+            this.response = response;
+            this.failure = failure;
+            this.done = true;
+        }
+    }
+
+    /**
+     * @return Lock held while completing the command, see {@link #awaitCompletion(long)}.
+     */
+    protected Object completionLock() {
+        return null == continuation ? this : continuation;
+    }
+
+}
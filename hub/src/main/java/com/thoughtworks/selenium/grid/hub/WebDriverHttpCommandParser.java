@@ -1,26 +1,25 @@
 package com.thoughtworks.selenium.grid.hub;
 
+import com.thoughtworks.selenium.grid.CapturedBody;
+import com.thoughtworks.selenium.grid.GridRequestWrapper;
 import com.thoughtworks.selenium.grid.HttpParameters;
+import com.thoughtworks.selenium.grid.hub.capabilities.CapabilityScanner;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.IDriverCommand;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.TestCompleteCommand;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.WebDriverCommand;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Parse HTTP commands targeting a Remote Control
  */
 public class WebDriverHttpCommandParser {
 
-    public static final String NEW_BROWSER_SESSION = "/wd/hub/session";
-    private static final String TEST_COMPLETE = "/wd/hub/session/\\d+";
+    public static final String NEW_BROWSER_SESSION = WebDriverRoute.SESSION_PATH;
     private final HttpServletRequest request;
 
     public WebDriverHttpCommandParser(HttpServletRequest request) {
@@ -28,91 +27,97 @@ public class WebDriverHttpCommandParser {
     }
 
     public IDriverCommand parse(EnvironmentManager environmentManager) {
-        if (IsNewBrowserSessionRequest(request)) {
-            final Environment environment;
-            final String environmentName;
+        return parse(environmentManager, HubRegistry.registry().remoteControlPool());
+    }
 
-            environmentName = GetEnvironmentName(request);
-            environment = environmentManager.environment(environmentName);
-            if (null == environment) {
-                throw new CommandParsingException("ERROR: Unknown environment '" + environmentName + "'");
-            }
-            return new NewBrowserSessionCommand(environment, request);
-        } else if (IsTestCompleteRequest(request)) {
-            return new TestCompleteCommand(getSessionId(), request);
-        } else {
-            return new WebDriverCommand(getSessionId(), request);
+    /**
+     * @param pool Pool used to match new session requests on capabilities when they do not name
+     *             a configured environment.
+     */
+    public IDriverCommand parse(EnvironmentManager environmentManager, DynamicRemoteControlPool pool) {
+        final WebDriverRoute route;
+
+        route = WebDriverRoute.route(request.getMethod(), request.getRequestURI());
+        if (WebDriverRoute.Type.NEW_SESSION == route.type()) {
+            return newSessionCommand(environmentManager, pool);
+        } else if (WebDriverRoute.Type.DELETE_SESSION == route.type()) {
+            return new TestCompleteCommand(route.sessionId(), request);
+        } else if (WebDriverRoute.Type.SESSION_COMMAND == route.type()) {
+            return new WebDriverCommand(route.sessionId(), request);
         }
+        throw new CommandParsingException("ERROR: No sessionId provided. Most likely your original newBrowserSession command failed.");
     }
 
-    private String GetEnvironmentName(HttpServletRequest request) {
-        JSONObject jsonObject;
-        JSONObject parameters;
-        StringBuilder environmentName = new StringBuilder();
-        try {
-            jsonObject = new JSONObject(GetRequestBody(request));
-            parameters = jsonObject.getJSONObject("desiredCapabilities");
-            environmentName.append(parameters.getString("browserName").toLowerCase());
-            environmentName.append(" on ");
-            environmentName.append(parameters.getString("platform").toLowerCase());
-        } catch (JSONException e) {
+    /**
+     * The "browser on platform" environment is used when it is configured. Otherwise any environment
+     * offering the desired capabilities will do, as long as one does.
+     */
+    protected IDriverCommand newSessionCommand(EnvironmentManager environmentManager, DynamicRemoteControlPool pool) {
+        final DesiredCapabilities capabilities;
+        final String environmentName;
+        final Environment environment;
+
+        capabilities = desiredCapabilities(request);
+        if (null == capabilities) {
             throw new CommandParsingException("Error parsing JSON: " + GetRequestBody(request));
         }
-        return environmentName.toString();
+        environmentName = capabilities.environmentName();
+        environment = (null == environmentName) ? null : environmentManager.environment(environmentName);
+        if (null != environment) {
+            return new NewBrowserSessionCommand(environment, request);
+        }
+        if (null != pool && !pool.environmentsMatching(capabilities).isEmpty()) {
+            return new NewBrowserSessionCommand(capabilities, request);
+        }
+        if (null == environmentName) {
+            throw new CommandParsingException("ERROR: No environment matches capabilities " + capabilities.asMap());
+        }
+        throw new CommandParsingException("ERROR: Unknown environment '" + environmentName + "'");
     }
 
-    private String GetRequestBody(HttpServletRequest request) {
-        StringBuilder body = new StringBuilder();
-        String line;
-        try {
-            BufferedReader reader = request.getReader();
-            while (null != (line = reader.readLine())) {
-                body.append(line);
+    /**
+     * Extract the desired capabilities of a new session request, scanning the body only once:
+     * the outcome is cached on the request.
+     *
+     * @param request New session request. Cannot be null.
+     * @return Capabilities requested. Null if the body does not contain any.
+     * @throws CommandParsingException if the body is not valid JSON.
+     */
+    public static DesiredCapabilities desiredCapabilities(HttpServletRequest request) {
+        DesiredCapabilities capabilities;
+        String body;
+
+        capabilities = (DesiredCapabilities) request.getAttribute(DesiredCapabilities.REQUEST_ATTRIBUTE);
+        if (null == capabilities) {
+            body = GetRequestBody(request);
+            try {
+                capabilities = CapabilityScanner.scan(body);
+            } catch (IllegalArgumentException e) {
+                throw new CommandParsingException("Error parsing JSON: " + body);
+            }
+            if (null != capabilities) {
+                request.setAttribute(DesiredCapabilities.REQUEST_ATTRIBUTE, capabilities);
             }
-            reader.close();
-        } catch (IOException e) {
-            body.append("");
         }
-        return body.toString();
+        return capabilities;
     }
 
-    private boolean IsNewBrowserSessionRequest(HttpServletRequest request) {
-        if (request.getRequestURI().equals(NEW_BROWSER_SESSION)) {
-            return true;
+    /**
+     * @return Body of the request, decoded once and shared with the forwarder when it was captured up front.
+     */
+    private static String GetRequestBody(HttpServletRequest request) {
+        if (request instanceof GridRequestWrapper) {
+            return ((GridRequestWrapper) request).getBody();
         }
-        return false;
-    }
-
-    private boolean IsTestCompleteRequest(HttpServletRequest request) {
-        if (Pattern.compile(TEST_COMPLETE).matcher(request.getRequestURI()).matches() &&
-                request.getMethod().equals("DELETE")) {
-            return true;
+        try {
+            return CapturedBody.capture(request.getInputStream(), request.getContentLength(), request.getCharacterEncoding()).text();
+        } catch (IOException e) {
+            return "";
         }
-        return false;
     }
 
     public HttpParameters parameters() {
         return new HttpParameters(request.getParameterMap());
     }
 
-    protected String getSessionId() {
-        final String sessionId = GetSessionId(request);
-        if (null == sessionId) {
-            throw new CommandParsingException("ERROR: No sessionId provided. Most likely your original newBrowserSession command failed.");
-        }
-        return sessionId;
-    }
-
-    private String GetSessionId(HttpServletRequest request) {
-        String requestUri = request.getRequestURI();
-        String returnString = null;
-        Pattern pattern = Pattern.compile("/wd/hub/session/(\\d+).*", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(requestUri);
-        if (matcher.matches()) {
-            returnString = matcher.group(1);
-        }
-        return returnString;
-    }
-
-
 }
@@ -0,0 +1,82 @@
+package com.thoughtworks.selenium.grid.hub;
+
+/**
+ * Classification of a request targeting the WebDriver endpoint of the hub,
+ * computed in a single pass over the request URI without regular expressions.
+ * <p/>
+ * Recognized paths:
+ * <ul>
+ * <li><code>/wd/hub/session</code>: new session</li>
+ * <li><code>DELETE /wd/hub/session/{sessionId}</code>: delete session</li>
+ * <li><code>/wd/hub/session/{sessionId}[/...]</code>: command for a session in progress</li>
+ * </ul>
+ * Session ids are opaque: numeric ids and UUIDs are both accepted.
+ */
+public class WebDriverRoute {
+
+    public enum Type {
+        NEW_SESSION,
+        DELETE_SESSION,
+        SESSION_COMMAND,
+        UNKNOWN
+    }
+
+    public static final String SESSION_PATH = "/wd/hub/session";
+    private static final WebDriverRoute NEW_SESSION = new WebDriverRoute(Type.NEW_SESSION, null);
+    private static final WebDriverRoute UNKNOWN = new WebDriverRoute(Type.UNKNOWN, null);
+    private final Type type;
+    private final String sessionId;
+
+    protected WebDriverRoute(Type type, String sessionId) {
+        this.type = type;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * @param method HTTP method of the request, e.g. "DELETE".
+     * @param uri    Request URI, without query string. Can be null.
+     * @return Route of the request. Never null.
+     */
+    public static WebDriverRoute route(String method, String uri) {
+        final int sessionIdStart;
+        int sessionIdEnd;
+
+        if (null == uri || !uri.startsWith(SESSION_PATH)) {
+            return UNKNOWN;
+        }
+        if (uri.length() == SESSION_PATH.length()) {
+            return NEW_SESSION;
+        }
+        if ('/' != uri.charAt(SESSION_PATH.length())) {
+            return UNKNOWN;
+        }
+        sessionIdStart = SESSION_PATH.length() + 1;
+        sessionIdEnd = uri.indexOf('/', sessionIdStart);
+        if (-1 == sessionIdEnd) {
+            sessionIdEnd = uri.length();
+        }
+        if (sessionIdEnd == sessionIdStart) {
+            return UNKNOWN;
+        }
+        if (sessionIdEnd == uri.length() && "DELETE".equals(method)) {
+            return new WebDriverRoute(Type.DELETE_SESSION, uri.substring(sessionIdStart, sessionIdEnd));
+        }
+        return new WebDriverRoute(Type.SESSION_COMMAND, uri.substring(sessionIdStart, sessionIdEnd));
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * @return Session id targeted by the request. Null for new session and unknown requests.
+     */
+    public String sessionId() {
+        return sessionId;
+    }
+
+    public String toString() {
+        return "[WebDriverRoute " + type + " " + sessionId + "]";
+    }
+
+}
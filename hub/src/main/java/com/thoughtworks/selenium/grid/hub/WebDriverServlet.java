@@ -2,11 +2,18 @@ package com.thoughtworks.selenium.grid.hub;
 
 import com.thoughtworks.selenium.grid.GridRequestWrapper;
 import com.thoughtworks.selenium.grid.HttpParameters;
+import com.thoughtworks.selenium.grid.RequestBodyTooLargeException;
 import com.thoughtworks.selenium.grid.Response;
+import com.thoughtworks.selenium.grid.hub.metrics.CommandTiming;
+import com.thoughtworks.selenium.grid.hub.metrics.HubMetrics;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.IDriverCommand;
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.mortbay.util.ajax.Continuation;
+import org.mortbay.util.ajax.ContinuationSupport;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -21,6 +28,7 @@ import java.io.IOException;
 public class WebDriverServlet extends HttpServlet {
 
     private final static Log LOGGER = LogFactory.getLog(HubServer.class);
+    private static final long SUSPEND_TIMEOUT_IN_MILLISECONDS = 30 * 1000;
 
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -38,60 +46,139 @@ public class WebDriverServlet extends HttpServlet {
     }
 
     protected void process(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
-        final Response remoteControlResponse;
+        final Continuation continuation;
+        PendingCommand pendingCommand;
+
+        continuation = ContinuationSupport.getContinuation(request, null);
+        // Continuations are recycled along with connections, so keep track of the command on the request itself
+        pendingCommand = (PendingCommand) request.getAttribute(PendingCommand.REQUEST_ATTRIBUTE);
+        if (null == pendingCommand) {
+            try {
+                pendingCommand = dispatch(new GridRequestWrapper(request, maxRequestBodyLength()), continuation);
+            } catch (RequestBodyTooLargeException e) {
+                LOGGER.warn(e.getMessage());
+                response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+                return;
+            }
+            request.setAttribute(PendingCommand.REQUEST_ATTRIBUTE, pendingCommand);
+        }
+        pendingCommand.awaitCompletion(SUSPEND_TIMEOUT_IN_MILLISECONDS);
+        reply(response, pendingCommand.response());
+        if (null != pendingCommand.timing()) {
+            pendingCommand.timing().replied();
+            HubRegistry.registry().metrics().record(pendingCommand.timing());
+            HubRegistry.registry().slowCommandLog().record(pendingCommand.timing());
+        }
+    }
 
-        final HubRegistry registry;
-        final HttpParameters parameters;
+    protected int maxRequestBodyLength() {
+        return (int) Math.min(Integer.MAX_VALUE,
+                1024L * HubRegistry.registry().gridConfiguration().getHub().getMaxRequestBodySizeInKilobytes());
+    }
 
-        request = new GridRequestWrapper(request);
+    /**
+     * Parse the command right away, but run it on the command executor.
+     */
+    protected PendingCommand dispatch(HttpServletRequest request, Continuation continuation) {
+        final CommandTiming timing;
+        final HubRegistry registry;
+        final IDriverCommand command;
 
+        timing = new CommandTiming();
         registry = HubRegistry.registry();
-        remoteControlResponse = forward(request, registry.remoteControlPool(), registry.environmentManager());
-        reply(response, remoteControlResponse);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Processing '" + request.toString() + "'");
+        }
+        try {
+            command = new WebDriverHttpCommandParser(request).parse(registry.environmentManager(), registry.remoteControlPool());
+        } catch (CommandParsingException e) {
+            LOGGER.error("Failed to parse '" + request.toString() + "' : " + e.getMessage());
+            registry.metrics().error(e);
+            return PendingCommand.completed(new Response(e.getMessage()));
+        }
+        timing.parsed(HubMetrics.commandType(command), HubMetrics.environmentOf(command));
+        return registry.commandExecutor().submit(command, registry.remoteControlPool(), new CommandExecutor.Work() {
+            public Response execute(RemoteControlPool pool) throws IOException {
+                return WebDriverServlet.this.execute(command, pool);
+            }
+        }, continuation, timing);
     }
 
     protected Response forward(HttpServletRequest request, DynamicRemoteControlPool pool, EnvironmentManager environmentManager) throws IOException {
         final IDriverCommand command;
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Processing '" + request.toString() + "'");
+        }
+        try {
+            command = new WebDriverHttpCommandParser(request).parse(environmentManager, pool);
+        } catch (CommandParsingException e) {
+            LOGGER.error("Failed to parse '" + request.toString() + "' : " + e.getMessage());
+            HubRegistry.registry().metrics().error(e);
+            return new Response(e.getMessage());
+        }
+        return execute(command, pool);
+    }
+
+    protected Response execute(IDriverCommand command, RemoteControlPool pool) throws IOException {
         final Response response;
 
-        LOGGER.info("Processing '" + request.toString() + "'");
         try {
-            command = new WebDriverHttpCommandParser(request).parse(environmentManager);
             response = command.execute(pool);
         } catch (CommandParsingException e) {
-            LOGGER.error("Failed to parse '" + request.toString() + "' : " + e.getMessage());
+            LOGGER.error("Failed to parse '" + command.request() + "' : " + e.getMessage());
+            HubRegistry.registry().metrics().error(e);
             return new Response(e.getMessage());
         } catch (NoSuchEnvironmentException e) {
             LOGGER.error("Could not find any remote control providing the '" + e.environment() +
                     "' environment. Please make sure you started some remote controls which registered as offering this environment.");
+            HubRegistry.registry().metrics().error(e);
             return new Response(e.getMessage());
         } catch (NoSuchSessionException e) {
             LOGGER.error(e.getMessage());
+            HubRegistry.registry().metrics().error(e);
             return new Response(e.getMessage());
         }
 
-        final String responseBody = response.body();
+        if (LOGGER.isDebugEnabled()) {
+            logResponse(response);
+        }
+        return response;
+    }
+
+    protected void logResponse(Response response) {
+        final String responseBody;
+
+        if (response.streamed()) {
+            LOGGER.debug("Responding with " + response.statusCode() + " / [streamed]");
+            return;
+        }
+        responseBody = response.body();
         if (responseBody.length() > 256) {
-            final int truncated = responseBody.length() - 256;
-            LOGGER.info(String.format("Responding with %d / %s... [%d characters truncated]", response.statusCode(), responseBody.substring(0, 256), truncated));
+            LOGGER.debug("Responding with " + response.statusCode() + " / " + responseBody.substring(0, 256)
+                    + "... [" + (responseBody.length() - 256) + " characters truncated]");
         } else {
-            LOGGER.info(String.format("Responding with %d / %s", response.statusCode(), responseBody));
+            LOGGER.debug("Responding with " + response.statusCode() + " / " + responseBody);
         }
-
-        return response;
     }
 
     protected void reply(HttpServletResponse response, Response remoteControlResponse) throws IOException {
-        int statusCode = remoteControlResponse.statusCode();
-        String body = remoteControlResponse.body();
-        response.setStatus(statusCode);
-
-        if (statusCode != 204) {
-            response.setContentType("application/json");
-            response.setCharacterEncoding("UTF-8");
-            response.getWriter().print(body);
-        }
+        final int statusCode = remoteControlResponse.statusCode();
+        final Header contentLength = remoteControlResponse.getHeader("Content-Length");
 
+        try {
+            response.setStatus(statusCode);
+            if (statusCode != 204) {
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                if (remoteControlResponse.streamed() && null != contentLength) {
+                    response.setHeader("Content-Length", contentLength.getValue());
+                }
+                remoteControlResponse.writeTo(response.getOutputStream());
+            }
+        } finally {
+            remoteControlResponse.release();
+        }
     }
 
     @SuppressWarnings({"unchecked"})
@@ -0,0 +1,203 @@
+package com.thoughtworks.selenium.grid.hub.capabilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Inverted index of the capabilities offered by each environment, answering
+ * "which environments can satisfy these desired capabilities" without looking at
+ * every registered environment.
+ * <p/>
+ * Each capability (e.g. <code>version=3.6</code>) maps to the set of environments
+ * offering it. A lookup starts from the smallest set among the requested capabilities
+ * and only checks its members against the other sets, so its cost depends on how
+ * selective the request is, not on the size of the farm.
+ * <p/>
+ * Values are matched ignoring case. Capabilities requested with a wildcard value
+ * (null, empty, <code>*</code> or <code>ANY</code>) do not constrain the match, and
+ * neither do capabilities that no environment advertises at all (e.g.
+ * <code>javascriptEnabled</code>, sent by most clients but rarely by remote controls).
+ * An environment offers a capability as soon as one of its remote controls advertised it:
+ * remote controls registered under the same environment are expected to be equivalent.
+ * <p/>
+ * Lookups are lock-free. Updates are serialized, but only happen on registration.
+ */
+public class CapabilityIndex {
+
+    private static final String ENVIRONMENT_SEPARATOR = " on ";
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> environmentsByCapability;
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> environmentsByKey;
+    private final ConcurrentMap<String, Map<String, String>> capabilitiesByEnvironment;
+
+    public CapabilityIndex() {
+        environmentsByCapability = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+        environmentsByKey = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+        capabilitiesByEnvironment = new ConcurrentHashMap<String, Map<String, String>>();
+    }
+
+    /**
+     * Index capabilities offered by an environment, in addition to the ones it already offers.
+     *
+     * @param environment  Environment name. Should not be null.
+     * @param capabilities Capabilities offered by (a remote control of) the environment. Should not be null.
+     */
+    public synchronized void add(String environment, Map<String, String> capabilities) {
+        final Map<String, String> allCapabilities;
+        final Map<String, String> existingCapabilities;
+        ConcurrentMap<String, String> environments;
+        String term;
+
+        allCapabilities = new HashMap<String, String>();
+        existingCapabilities = capabilitiesByEnvironment.get(environment);
+        if (null != existingCapabilities) {
+            allCapabilities.putAll(existingCapabilities);
+        }
+        for (Map.Entry<String, String> capability : capabilities.entrySet()) {
+            if (null == capability.getValue()) {
+                continue;
+            }
+            term = term(capability.getKey(), capability.getValue());
+            environments = environmentsByCapability.get(term);
+            if (null == environments) {
+                environments = new ConcurrentHashMap<String, String>();
+                environmentsByCapability.put(term, environments);
+            }
+            environments.put(environment, environment);
+            environments = environmentsByKey.get(capability.getKey());
+            if (null == environments) {
+                environments = new ConcurrentHashMap<String, String>();
+                environmentsByKey.put(capability.getKey(), environments);
+            }
+            environments.put(environment, environment);
+            allCapabilities.put(capability.getKey(), capability.getValue());
+        }
+        capabilitiesByEnvironment.put(environment, Collections.unmodifiableMap(allCapabilities));
+    }
+
+    /**
+     * Drop an environment, and all the capabilities it offers, from the index.
+     */
+    public synchronized void remove(String environment) {
+        if (null == capabilitiesByEnvironment.remove(environment)) {
+            return;
+        }
+        removeFromAll(environmentsByCapability, environment);
+        removeFromAll(environmentsByKey, environment);
+    }
+
+    /**
+     * @param environment Environment name.
+     * @return Capabilities offered by the environment. Empty if the environment is not indexed.
+     */
+    public Map<String, String> capabilities(String environment) {
+        final Map<String, String> capabilities;
+
+        capabilities = capabilitiesByEnvironment.get(environment);
+        if (null == capabilities) {
+            return Collections.emptyMap();
+        }
+        return capabilities;
+    }
+
+    /**
+     * @param desired Capabilities to satisfy. Should not be null.
+     * @return Names of the environments offering all the desired capabilities that some
+     *         environment advertises. Never null.
+     */
+    public List<String> environmentsMatching(Map<String, String> desired) {
+        final List<ConcurrentMap<String, String>> candidates;
+        final List<String> matches;
+        ConcurrentMap<String, String> smallest;
+        ConcurrentMap<String, String> environments;
+
+        candidates = new ArrayList<ConcurrentMap<String, String>>(desired.size());
+        smallest = null;
+        for (Map.Entry<String, String> capability : desired.entrySet()) {
+            if (isWildcard(capability.getValue()) || !environmentsByKey.containsKey(capability.getKey())) {
+                continue;
+            }
+            environments = environmentsByCapability.get(term(capability.getKey(), capability.getValue()));
+            if (null == environments) {
+                return Collections.emptyList();
+            }
+            candidates.add(environments);
+            if (null == smallest || environments.size() < smallest.size()) {
+                smallest = environments;
+            }
+        }
+        if (null == smallest) {
+            return new ArrayList<String>(capabilitiesByEnvironment.keySet());
+        }
+
+        matches = new LinkedList<String>();
+        for (String environment : smallest.keySet()) {
+            if (offeredByAll(environment, candidates)) {
+                matches.add(environment);
+            }
+        }
+        return matches;
+    }
+
+    public List<String> environmentsMatching(DesiredCapabilities desired) {
+        return environmentsMatching(desired.asMap());
+    }
+
+    public int size() {
+        return capabilitiesByEnvironment.size();
+    }
+
+    /**
+     * Capabilities implied by environment names following the WebDriver "browser on platform"
+     * convention, e.g. <code>browserName=firefox</code> and <code>platform=linux</code> for
+     * "Firefox on Linux".
+     *
+     * @param environment Environment name. Should not be null.
+     * @return Implied capabilities. Empty if the name does not follow the convention.
+     */
+    public static Map<String, String> capabilitiesImpliedBy(String environment) {
+        final Map<String, String> capabilities;
+        final int separator;
+
+        capabilities = new HashMap<String, String>();
+        separator = environment.toLowerCase().indexOf(ENVIRONMENT_SEPARATOR);
+        if (separator > 0 && separator + ENVIRONMENT_SEPARATOR.length() < environment.length()) {
+            capabilities.put(DesiredCapabilities.BROWSER_NAME, environment.substring(0, separator).trim());
+            capabilities.put(DesiredCapabilities.PLATFORM, environment.substring(separator + ENVIRONMENT_SEPARATOR.length()).trim());
+        }
+        return capabilities;
+    }
+
+    public static boolean isWildcard(String value) {
+        return null == value || "".equals(value) || "*".equals(value) || "any".equalsIgnoreCase(value);
+    }
+
+    protected static boolean offeredByAll(String environment, List<ConcurrentMap<String, String>> candidates) {
+        for (ConcurrentMap<String, String> environments : candidates) {
+            if (!environments.containsKey(environment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static void removeFromAll(ConcurrentMap<String, ConcurrentMap<String, String>> environmentsByTerm,
+                                        String environment) {
+        for (Map.Entry<String, ConcurrentMap<String, String>> entry : environmentsByTerm.entrySet()) {
+            entry.getValue().remove(environment);
+            if (entry.getValue().isEmpty()) {
+                environmentsByTerm.remove(entry.getKey());
+            }
+        }
+    }
+
+    protected static String term(String key, String value) {
+        return key + "=" + value.toLowerCase();
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.thoughtworks.selenium.grid.hub.capabilities;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Extracts the desired capabilities of a WebDriver new session request without
+ * building a JSON object tree.
+ * <p/>
+ * The body is scanned once, left to right. Top level members other than
+ * <code>desiredCapabilities</code> are skipped, and scanning stops as soon as the
+ * capabilities object is closed. Only scalar capabilities (strings, numbers and
+ * booleans) are kept: nested objects and arrays (e.g. proxy settings, profiles)
+ * are skipped.
+ */
+public class CapabilityScanner {
+
+    public static final String DESIRED_CAPABILITIES = "desiredCapabilities";
+    private final CharSequence json;
+    private int position;
+
+    public CapabilityScanner(CharSequence json) {
+        this.json = json;
+        this.position = 0;
+    }
+
+    /**
+     * @param json Body of a new session request. Cannot be null.
+     * @return Desired capabilities of the request. Null when the body has no desiredCapabilities object.
+     * @throws IllegalArgumentException if the body is not well-formed JSON (as far as it was scanned).
+     */
+    public static DesiredCapabilities scan(CharSequence json) {
+        return new CapabilityScanner(json).desiredCapabilities();
+    }
+
+    public DesiredCapabilities desiredCapabilities() {
+        String key;
+
+        expect('{');
+        if (consume('}')) {
+            return null;
+        }
+        do {
+            key = readString();
+            expect(':');
+            if (DESIRED_CAPABILITIES.equals(key) && '{' == peek()) {
+                return new DesiredCapabilities(readScalarMembers());
+            }
+            skipValue();
+        } while (consume(','));
+        expect('}');
+        return null;
+    }
+
+    protected Map<String, String> readScalarMembers() {
+        final Map<String, String> members;
+        String key;
+        String value;
+
+        members = new HashMap<String, String>();
+        expect('{');
+        if (consume('}')) {
+            return members;
+        }
+        do {
+            key = readString();
+            expect(':');
+            value = readScalar();
+            if (null != value) {
+                members.put(key, value);
+            }
+        } while (consume(','));
+        expect('}');
+        return members;
+    }
+
+    /**
+     * @return Value as a string if it is a string, a number or a boolean, null otherwise
+     *         (the value is skipped).
+     */
+    protected String readScalar() {
+        final char c = peek();
+
+        if ('"' == c) {
+            return readString();
+        }
+        if ('{' == c || '[' == c || 'n' == c) {
+            skipValue();
+            return null;
+        }
+        return readLiteral();
+    }
+
+    protected void skipValue() {
+        final char c = peek();
+
+        if ('"' == c) {
+            skipString();
+        } else if ('{' == c || '[' == c) {
+            skipContainer();
+        } else {
+            readLiteral();
+        }
+    }
+
+    /**
+     * Skip a whole object or array, however deep, only keeping track of nesting.
+     */
+    protected void skipContainer() {
+        int depth = 0;
+        char c;
+
+        do {
+            c = next();
+            if ('"' == c) {
+                position--;
+                skipString();
+            } else if ('{' == c || '[' == c) {
+                depth++;
+            } else if ('}' == c || ']' == c) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    protected String readLiteral() {
+        final int start;
+        char c;
+
+        start = position;
+        while (position < json.length()) {
+            c = json.charAt(position);
+            if (',' == c || '}' == c || ']' == c || Character.isWhitespace(c)) {
+                break;
+            }
+            position++;
+        }
+        if (start == position) {
+            throw malformed("value expected");
+        }
+        return json.subSequence(start, position).toString();
+    }
+
+    protected void skipString() {
+        char c;
+
+        expect('"');
+        while ('"' != (c = next())) {
+            if ('\\' == c) {
+                next();
+            }
+        }
+    }
+
+    protected String readString() {
+        final StringBuilder string;
+        char c;
+
+        expect('"');
+        string = new StringBuilder();
+        while ('"' != (c = next())) {
+            if ('\\' == c) {
+                c = next();
+                switch (c) {
+                    case 'b':
+                        string.append('\b');
+                        break;
+                    case 'f':
+                        string.append('\f');
+                        break;
+                    case 'n':
+                        string.append('\n');
+                        break;
+                    case 'r':
+                        string.append('\r');
+                        break;
+                    case 't':
+                        string.append('\t');
+                        break;
+                    case 'u':
+                        string.append(readUnicodeEscape());
+                        break;
+                    default:
+                        string.append(c);
+                }
+            } else {
+                string.append(c);
+            }
+        }
+        return string.toString();
+    }
+
+    protected char readUnicodeEscape() {
+        if (position + 4 > json.length()) {
+            throw malformed("truncated unicode escape");
+        }
+        try {
+            return (char) Integer.parseInt(json.subSequence(position, position += 4).toString(), 16);
+        } catch (NumberFormatException e) {
+            throw malformed("invalid unicode escape");
+        }
+    }
+
+    protected void expect(char expected) {
+        if (expected != peek()) {
+            throw malformed("'" + expected + "' expected");
+        }
+        position++;
+    }
+
+    protected boolean consume(char expected) {
+        if (expected != peek()) {
+            return false;
+        }
+        position++;
+        return true;
+    }
+
+    /**
+     * @return Next non whitespace character, without consuming it.
+     */
+    protected char peek() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+        if (position >= json.length()) {
+            throw malformed("unexpected end of input");
+        }
+        return json.charAt(position);
+    }
+
+    protected char next() {
+        if (position >= json.length()) {
+            throw malformed("unexpected end of input");
+        }
+        return json.charAt(position++);
+    }
+
+    protected IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed JSON at position " + position + ": " + reason);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.thoughtworks.selenium.grid.hub.capabilities;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Scalar capabilities requested by a WebDriver client for a new session, e.g.
+ * <code>browserName</code>, <code>platform</code> or <code>version</code>.
+ * <p/>
+ * Extracted once per request by {@link CapabilityScanner} and cached as a request attribute.
+ */
+public class DesiredCapabilities {
+
+    public static final String REQUEST_ATTRIBUTE = DesiredCapabilities.class.getName();
+    public static final String BROWSER_NAME = "browserName";
+    public static final String PLATFORM = "platform";
+    public static final String VERSION = "version";
+    private final Map<String, String> capabilities;
+
+    public DesiredCapabilities(Map<String, String> capabilities) {
+        this.capabilities = Collections.unmodifiableMap(capabilities);
+    }
+
+    /**
+     * @param key Capability name, e.g. "browserName".
+     * @return Value of the capability. Null if it was not requested.
+     */
+    public String capability(String key) {
+        return capabilities.get(key);
+    }
+
+    public Map<String, String> asMap() {
+        return capabilities;
+    }
+
+    public String browserName() {
+        return capability(BROWSER_NAME);
+    }
+
+    public String platform() {
+        return capability(PLATFORM);
+    }
+
+    public String version() {
+        return capability(VERSION);
+    }
+
+    /**
+     * @param required Capabilities to match. Should not be null.
+     * @return Whether all required capabilities are present with the same value, ignoring case.
+     *         Required capabilities with a wildcard value always match.
+     * @see CapabilityIndex#isWildcard(String)
+     */
+    public boolean matches(Map<String, String> required) {
+        String value;
+
+        for (Map.Entry<String, String> entry : required.entrySet()) {
+            if (CapabilityIndex.isWildcard(entry.getValue())) {
+                continue;
+            }
+            value = capabilities.get(entry.getKey());
+            if (null == value || !value.equalsIgnoreCase(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Name of the environment requested, following the "browser on platform" convention.
+     *         Null if either the browser name or the platform was not requested.
+     */
+    public String environmentName() {
+        if (null == browserName() || null == platform()) {
+            return null;
+        }
+        return browserName().toLowerCase() + " on " + platform().toLowerCase();
+    }
+
+    public String toString() {
+        return "[DesiredCapabilities " + capabilities + "]";
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Renews the lease of this hub in the cluster store, so that the peer hubs keep routing
+ * requests to it, and refreshes this hub's view of its peers.
+ * <p/>
+ * Runs at a third of the lease timeout, so that a renewal that is late or fails once does not
+ * make the peer hubs drop this hub.
+ */
+public class ClusterHeartbeat implements Runnable {
+
+    private static final Log LOGGER = LogFactory.getLog(ClusterHeartbeat.class);
+    private final ClusteredRemoteControlPool pool;
+    private final long intervalInMilliseconds;
+    private volatile boolean active;
+
+    public ClusterHeartbeat(ClusteredRemoteControlPool pool) {
+        this.pool = pool;
+        this.intervalInMilliseconds = Math.max(1, pool.leaseTimeoutInMilliseconds() / 3);
+        this.active = true;
+    }
+
+    public boolean active() {
+        return active;
+    }
+
+    public void stop() {
+        active = false;
+    }
+
+    public void run() {
+        while (active) {
+            pool.renewLease();
+            pool.refreshPeers();
+            sleepForALittleWhile();
+        }
+    }
+
+    protected void sleepForALittleWhile() {
+        try {
+            Thread.sleep(intervalInMilliseconds);
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted!");
+        }
+    }
+
+    public long intervalInMilliseconds() {
+        return intervalInMilliseconds;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of remote controls and session table shared by the hubs of a cluster.
+ * <p/>
+ * Hubs are identified by the "host:port" address other hubs use to reach them. Each hub only
+ * writes its own remote controls and sessions, and reads the others' to route requests it
+ * cannot serve itself. Each hub also renews a lease periodically, so that the others stop
+ * routing requests to a hub that died without cleaning up its entries.
+ * <p/>
+ * Implementations must be thread-safe. They need not be transactional: a stale entry only
+ * sends a request to a hub that answers it cannot serve it.
+ */
+public interface ClusterStore {
+
+    void putRemoteControl(String hub, RemoteControlRegistration registration);
+
+    void removeRemoteControl(String hub, String remoteControlKey);
+
+    /**
+     * @return Remote controls registered with each hub of the cluster. Never null.
+     */
+    Map<String, List<RemoteControlRegistration>> remoteControlsByHub();
+
+    void putSession(String sessionId, String hub);
+
+    void removeSession(String sessionId);
+
+    /**
+     * @return Address of the hub owning the session. Null if no hub does.
+     */
+    String sessionOwner(String sessionId);
+
+    /**
+     * Record that the hub is still alive.
+     */
+    void renewLease(String hub);
+
+    /**
+     * @return Time each hub last renewed its lease, in milliseconds since the epoch. Never null.
+     */
+    Map<String, Long> leaseRenewals();
+
+    /**
+     * Drop all the remote controls, sessions and lease of a hub, e.g. left over by a hub that
+     * crashed before it could unregister them.
+     */
+    void forgetHub(String hub);
+
+}
@@ -0,0 +1,40 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import java.io.File;
+
+/**
+ * Creates the cluster store named in the hub configuration.
+ */
+public class ClusterStoreFactory {
+
+    public static final String LOCAL = "local";
+    public static final String FILE_PREFIX = "file:";
+
+    /**
+     * @param definition <code>local</code> for the store shared by the hubs of this JVM,
+     *                   <code>file:</code> followed by the path of a directory shared by the hubs,
+     *                   or the class name of a {@link ClusterStore} implementation with a public
+     *                   no-argument constructor.
+     * @throws IllegalArgumentException if the store cannot be created.
+     */
+    public ClusterStore create(String definition) {
+        final Object store;
+
+        if (LOCAL.equals(definition)) {
+            return LocalClusterStore.shared();
+        }
+        if (definition.startsWith(FILE_PREFIX)) {
+            return new FileClusterStore(new File(definition.substring(FILE_PREFIX.length())));
+        }
+        try {
+            store = Class.forName(definition).newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot create cluster store '" + definition + "': " + e);
+        }
+        if (!(store instanceof ClusterStore)) {
+            throw new IllegalArgumentException(definition + " is not a " + ClusterStore.class.getName());
+        }
+        return (ClusterStore) store;
+    }
+
+}
@@ -0,0 +1,465 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.capabilities.CapabilityIndex;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.LocalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.NewSessionQueueStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPoolListener;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProvisioner;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.ReservationListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Pool of a hub running as part of a cluster of hubs sharing a {@link ClusterStore}.
+ * <p/>
+ * Remote controls register with, and sessions run on, the local pool of one hub as usual; this
+ * pool publishes them to the store. Any hub accepts new session requests: the local pool serves
+ * them when it has remote controls for the request, otherwise they are forwarded to a peer hub
+ * that has some. Commands for a session owned by a peer hub are forwarded to that hub.
+ * <p/>
+ * Reservation, health checks and idle session recycling stay local to the hub owning the remote
+ * control, so there is no cross-hub locking. The remote controls of the peer hubs are not read
+ * from the store on each request either, but from a snapshot refreshed along with the lease of
+ * this hub (see {@link ClusterHeartbeat}), so a remote control registered with a peer hub is
+ * offered by this hub after at most one refresh interval. The store is only read for the owner
+ * of a session this hub does not know about.
+ * <p/>
+ * Peer hubs that have not renewed their lease within the lease timeout are ignored, along with
+ * their remote controls and sessions, until they renew it again.
+ */
+public class ClusteredRemoteControlPool implements DynamicRemoteControlPool, RemoteControlPoolListener {
+
+    public static final double DEFAULT_HUB_LEASE_TIMEOUT_IN_SECONDS = 30;
+    private static final Log LOGGER = LogFactory.getLog(ClusteredRemoteControlPool.class);
+    private final LocalRemoteControlPool localPool;
+    private final ClusterStore store;
+    private final String localHub;
+    private final HttpClient httpClient;
+    private final long leaseTimeoutInMilliseconds;
+    private volatile PeerSnapshot peers;
+
+    public ClusteredRemoteControlPool(LocalRemoteControlPool localPool, ClusterStore store, String localHub,
+                                      HttpClient httpClient) {
+        this(localPool, store, localHub, httpClient, DEFAULT_HUB_LEASE_TIMEOUT_IN_SECONDS);
+    }
+
+    /**
+     * @param localHub                  Address of this hub, as "host:port", as reachable by the other hubs.
+     * @param httpClient                Client used to forward requests to peer hubs.
+     * @param hubLeaseTimeoutInSeconds  Time after which a peer hub that did not renew its lease is ignored.
+     */
+    public ClusteredRemoteControlPool(LocalRemoteControlPool localPool, ClusterStore store, String localHub,
+                                      HttpClient httpClient, double hubLeaseTimeoutInSeconds) {
+        this.localPool = localPool;
+        this.store = store;
+        this.localHub = localHub;
+        this.httpClient = httpClient;
+        this.leaseTimeoutInMilliseconds = (long) (hubLeaseTimeoutInSeconds * 1000);
+        store.forgetHub(localHub);
+        store.renewLease(localHub);
+        refreshPeers();
+        localPool.addListener(this);
+    }
+
+    public LocalRemoteControlPool localPool() {
+        return localPool;
+    }
+
+    public String localHub() {
+        return localHub;
+    }
+
+    public long leaseTimeoutInMilliseconds() {
+        return leaseTimeoutInMilliseconds;
+    }
+
+    /**
+     * Tell the peer hubs this hub is still alive. Should be called well within the lease timeout.
+     */
+    public void renewLease() {
+        store.renewLease(localHub);
+    }
+
+    /**
+     * Read the live peer hubs and their remote controls from the store. Requests are routed
+     * according to what was read until the next refresh.
+     */
+    public void refreshPeers() {
+        final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+        final Set<String> livePeers;
+        final long oldestLiveRenewal;
+
+        livePeers = new HashSet<String>();
+        oldestLiveRenewal = System.currentTimeMillis() - leaseTimeoutInMilliseconds;
+        for (Map.Entry<String, Long> entry : store.leaseRenewals().entrySet()) {
+            if (localHub.equals(entry.getKey())) {
+                continue;
+            }
+            if (entry.getValue() >= oldestLiveRenewal) {
+                livePeers.add(entry.getKey());
+            } else if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Ignoring peer hub " + entry.getKey() + ": its lease expired");
+            }
+        }
+        remoteControlsByHub = new HashMap<String, List<RemoteControlRegistration>>(store.remoteControlsByHub());
+        remoteControlsByHub.keySet().retainAll(livePeers);
+        peers = new PeerSnapshot(livePeers, remoteControlsByHub, advertisedKeys(remoteControlsByHub.values()));
+    }
+
+    public IRemoteControlProxy reserve(Environment environment) {
+        final PeerHub peer;
+
+        if (!hasLocalRemoteControlsFor(environment.name())) {
+            peer = peerOffering(environment.name());
+            if (null != peer) {
+                LOGGER.info("Forwarding new session request for environment '" + environment.name() + "' to " + peer);
+                return peer;
+            }
+        }
+        return localPool.reserve(environment);
+    }
+
+    public IRemoteControlProxy reserve(DesiredCapabilities capabilities) {
+        final PeerHub peer;
+
+        for (String environment : localPool.environmentsMatching(capabilities)) {
+            if (hasLocalRemoteControlsFor(environment)) {
+                return localPool.reserve(capabilities);
+            }
+        }
+        peer = peerOffering(capabilities);
+        if (null != peer) {
+            LOGGER.info("Forwarding new session request for " + capabilities + " to " + peer);
+            return peer;
+        }
+        return localPool.reserve(capabilities);
+    }
+
+    public void reserve(Environment environment, ReservationListener listener, ScheduledExecutorService executor) {
+        final PeerHub peer;
+
+        if (!hasLocalRemoteControlsFor(environment.name())) {
+            peer = peerOffering(environment.name());
+            if (null != peer) {
+                LOGGER.info("Forwarding new session request for environment '" + environment.name() + "' to " + peer);
+                handOver(peer, listener, executor);
+                return;
+            }
+        }
+        localPool.reserve(environment, listener, executor);
+    }
+
+    public void reserve(DesiredCapabilities capabilities, ReservationListener listener, ScheduledExecutorService executor) {
+        final PeerHub peer;
+
+        for (String environment : localPool.environmentsMatching(capabilities)) {
+            if (hasLocalRemoteControlsFor(environment)) {
+                localPool.reserve(capabilities, listener, executor);
+                return;
+            }
+        }
+        peer = peerOffering(capabilities);
+        if (null != peer) {
+            LOGGER.info("Forwarding new session request for " + capabilities + " to " + peer);
+            handOver(peer, listener, executor);
+            return;
+        }
+        localPool.reserve(capabilities, listener, executor);
+    }
+
+    /**
+     * Peer hubs queue new session requests themselves, so they are handed over right away.
+     */
+    protected void handOver(final PeerHub peer, final ReservationListener listener, ScheduledExecutorService executor) {
+        executor.execute(new Runnable() {
+            public void run() {
+                listener.reserved(peer);
+            }
+        });
+    }
+
+    /**
+     * Sessions started on a peer hub are associated there, and published by that hub.
+     */
+    public void associateWithSession(IRemoteControlProxy remoteControl, String sessionId) {
+        if (remoteControl instanceof PeerHub) {
+            return;
+        }
+        localPool.associateWithSession(remoteControl, sessionId);
+    }
+
+    public IRemoteControlProxy retrieve(String sessionId) {
+        final String owner;
+
+        if (!localPool.hasSession(sessionId)) {
+            owner = store.sessionOwner(sessionId);
+            if (null != owner && livePeers().contains(owner)) {
+                return new PeerHub(owner, "", httpClient);
+            }
+        }
+        return localPool.retrieve(sessionId);
+    }
+
+    public void release(IRemoteControlProxy remoteControl) {
+        if (remoteControl instanceof PeerHub) {
+            return;
+        }
+        localPool.release(remoteControl);
+    }
+
+    /**
+     * Sessions owned by a peer hub are released by that hub when it forwards the command
+     * completing them.
+     */
+    public void releaseForSession(String sessionId) {
+        if (!localPool.hasSession(sessionId) && isOwnedByPeer(sessionId)) {
+            return;
+        }
+        localPool.releaseForSession(sessionId);
+    }
+
+    public void updateSessionLastActiveAt(String sessionId) {
+        if (localPool.hasSession(sessionId)) {
+            localPool.updateSessionLastActiveAt(sessionId);
+        }
+    }
+
+    public void register(IRemoteControlProxy newRemoteControl) {
+        localPool.register(newRemoteControl);
+    }
+
+    public void registerAll(Collection<IRemoteControlProxy> newRemoteControls) {
+        localPool.registerAll(newRemoteControls);
+    }
+
+    public boolean unregister(IRemoteControlProxy remoteControl) {
+        return localPool.unregister(remoteControl);
+    }
+
+    public boolean isRegistered(IRemoteControlProxy remoteControl) {
+        return localPool.isRegistered(remoteControl);
+    }
+
+    public List<IRemoteControlProxy> allRegisteredRemoteControls() {
+        return localPool.allRegisteredRemoteControls();
+    }
+
+    public List<IRemoteControlProxy> availableRemoteControls() {
+        return localPool.availableRemoteControls();
+    }
+
+    public List<IRemoteControlProxy> reservedRemoteControls() {
+        return localPool.reservedRemoteControls();
+    }
+
+    /**
+     * @return Environments matching on this hub first, then the ones only matching on peer hubs.
+     */
+    public List<String> environmentsMatching(DesiredCapabilities capabilities) {
+        final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+        final Map<String, String> required;
+        final Set<String> environments;
+
+        environments = new LinkedHashSet<String>(localPool.environmentsMatching(capabilities));
+        remoteControlsByHub = peerRemoteControls();
+        required = advertisedOnly(capabilities.asMap(), peers.advertisedKeys);
+        for (Map.Entry<String, List<RemoteControlRegistration>> entry : remoteControlsByHub.entrySet()) {
+            for (RemoteControlRegistration registration : entry.getValue()) {
+                if (offers(registration, required)) {
+                    environments.add(registration.environment());
+                }
+            }
+        }
+        return new ArrayList<String>(environments);
+    }
+
+    public List<NewSessionQueueStatus> newSessionQueueStatuses() {
+        return localPool.newSessionQueueStatuses();
+    }
+
+    public void unregisterAllUnresponsiveRemoteControls() {
+        localPool.unregisterAllUnresponsiveRemoteControls();
+    }
+
+    public void recycleAllSessionsIdleForTooLong(double maxIdleTimeInSeconds) {
+        localPool.recycleAllSessionsIdleForTooLong(maxIdleTimeInSeconds);
+    }
+
+    public void registered(IRemoteControlProxy remoteControl) {
+        store.putRemoteControl(localHub, new RemoteControlRegistration(remoteControl));
+    }
+
+    public void unregistered(IRemoteControlProxy remoteControl) {
+        store.removeRemoteControl(localHub, RemoteControlRegistration.key(remoteControl.host(), remoteControl.port()));
+    }
+
+    public void associated(String sessionId, IRemoteControlProxy remoteControl) {
+        store.putSession(sessionId, localHub);
+    }
+
+    public void released(String sessionId) {
+        store.removeSession(sessionId);
+    }
+
+    protected boolean hasLocalRemoteControlsFor(String environment) {
+        final RemoteControlProvisioner provisioner;
+
+        provisioner = localPool.getProvisioner(environment);
+        return null != provisioner && provisioner.statistics().registeredRemoteControls() > 0;
+    }
+
+    protected boolean isOwnedByPeer(String sessionId) {
+        final String owner;
+
+        owner = store.sessionOwner(sessionId);
+        return null != owner && livePeers().contains(owner);
+    }
+
+    /**
+     * @return Peer hubs that renewed their lease within the lease timeout, as of the last refresh. Never null.
+     */
+    protected Set<String> livePeers() {
+        return peers.livePeers;
+    }
+
+    /**
+     * @return Remote controls of the live peer hubs, by hub, as of the last refresh. Never null.
+     */
+    protected Map<String, List<RemoteControlRegistration>> peerRemoteControls() {
+        return peers.remoteControlsByHub;
+    }
+
+    /**
+     * @return Peer hub with the most session slots for the environment. Null if no peer hub has any.
+     */
+    protected PeerHub peerOffering(String environment) {
+        String bestHub = null;
+        int bestSlots = 0;
+        int slots;
+
+        for (Map.Entry<String, List<RemoteControlRegistration>> entry : peerRemoteControls().entrySet()) {
+            slots = 0;
+            for (RemoteControlRegistration registration : entry.getValue()) {
+                if (environment.equals(registration.environment())) {
+                    slots += registration.maxConcurrentSessions();
+                }
+            }
+            if (slots > bestSlots) {
+                bestHub = entry.getKey();
+                bestSlots = slots;
+            }
+        }
+        return null == bestHub ? null : new PeerHub(bestHub, environment, httpClient);
+    }
+
+    /**
+     * @return Peer hub with the most session slots offering the capabilities. Null if no peer hub has any.
+     */
+    protected PeerHub peerOffering(DesiredCapabilities capabilities) {
+        final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+        final Map<String, String> required;
+        String bestHub = null;
+        String bestEnvironment = null;
+        int bestSlots = 0;
+        int slots;
+        String environment;
+
+        remoteControlsByHub = peerRemoteControls();
+        required = advertisedOnly(capabilities.asMap(), peers.advertisedKeys);
+        for (Map.Entry<String, List<RemoteControlRegistration>> entry : remoteControlsByHub.entrySet()) {
+            slots = 0;
+            environment = null;
+            for (RemoteControlRegistration registration : entry.getValue()) {
+                if (offers(registration, required)) {
+                    slots += registration.maxConcurrentSessions();
+                    environment = registration.environment();
+                }
+            }
+            if (slots > bestSlots) {
+                bestHub = entry.getKey();
+                bestEnvironment = environment;
+                bestSlots = slots;
+            }
+        }
+        return null == bestHub ? null : new PeerHub(bestHub, bestEnvironment, httpClient);
+    }
+
+    protected static boolean offers(RemoteControlRegistration registration, Map<String, String> capabilities) {
+        return new DesiredCapabilities(offered(registration)).matches(capabilities);
+    }
+
+    /**
+     * Capabilities that no remote control advertises do not constrain the match, as for local
+     * remote controls.
+     *
+     * @return Desired capabilities whose key is advertised.
+     */
+    protected static Map<String, String> advertisedOnly(Map<String, String> desired, Set<String> advertisedKeys) {
+        final Map<String, String> advertised;
+
+        advertised = new HashMap<String, String>(desired);
+        advertised.keySet().retainAll(advertisedKeys);
+        return advertised;
+    }
+
+    /**
+     * @return Keys of the capabilities offered by at least one of the registrations.
+     */
+    protected static Set<String> advertisedKeys(Collection<List<RemoteControlRegistration>> registrations) {
+        final Set<String> advertisedKeys;
+
+        advertisedKeys = new HashSet<String>();
+        for (List<RemoteControlRegistration> hubRegistrations : registrations) {
+            for (RemoteControlRegistration registration : hubRegistrations) {
+                advertisedKeys.addAll(offered(registration).keySet());
+            }
+        }
+        return advertisedKeys;
+    }
+
+    /**
+     * Capabilities implied by the environment name count, as they do for local remote controls.
+     */
+    protected static Map<String, String> offered(RemoteControlRegistration registration) {
+        final Map<String, String> offered;
+
+        offered = CapabilityIndex.capabilitiesImpliedBy(registration.environment());
+        offered.putAll(registration.capabilities());
+        return offered;
+    }
+
+    /**
+     * Live peer hubs and their remote controls, read together and never modified.
+     */
+    protected static class PeerSnapshot {
+
+        private final Set<String> livePeers;
+        private final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+        private final Set<String> advertisedKeys;
+
+        public PeerSnapshot(Set<String> livePeers, Map<String, List<RemoteControlRegistration>> remoteControlsByHub,
+                            Set<String> advertisedKeys) {
+            this.livePeers = Collections.unmodifiableSet(livePeers);
+            this.remoteControlsByHub = Collections.unmodifiableMap(remoteControlsByHub);
+            this.advertisedKeys = Collections.unmodifiableSet(advertisedKeys);
+        }
+    }
+
+}
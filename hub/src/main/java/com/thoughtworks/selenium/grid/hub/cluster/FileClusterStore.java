@@ -0,0 +1,279 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cluster store kept in a directory shared by the hubs, e.g. for several hubs on the same
+ * machine. One small file per session and per remote control, each replaced atomically by
+ * a rename, so hubs never see a half-written entry. Leases are files too, renewed by
+ * rewriting them: their modification time is the time of the last renewal, so the hubs
+ * should share a clock.
+ * <p/>
+ * Failures are logged and otherwise ignored: the cluster degrades to hubs only serving
+ * their own remote controls and sessions.
+ */
+public class FileClusterStore implements ClusterStore {
+
+    private static final Log LOGGER = LogFactory.getLog(FileClusterStore.class);
+    private static final String CAPABILITY_PREFIX = "capability.";
+    private static final String NEW_FILE_SUFFIX = ".new";
+    private final File sessionsDirectory;
+    private final File remoteControlsDirectory;
+    private final File leasesDirectory;
+
+    public FileClusterStore(File directory) {
+        this.sessionsDirectory = new File(directory, "sessions");
+        this.remoteControlsDirectory = new File(directory, "remote-controls");
+        this.leasesDirectory = new File(directory, "leases");
+        sessionsDirectory.mkdirs();
+        remoteControlsDirectory.mkdirs();
+        leasesDirectory.mkdirs();
+    }
+
+    public void putRemoteControl(String hub, RemoteControlRegistration registration) {
+        final Properties properties;
+
+        properties = new Properties();
+        properties.setProperty("host", registration.host());
+        properties.setProperty("port", Integer.toString(registration.port()));
+        properties.setProperty("environment", registration.environment());
+        properties.setProperty("maxConcurrentSessions", Integer.toString(registration.maxConcurrentSessions()));
+        for (Map.Entry<String, String> capability : registration.capabilities().entrySet()) {
+            properties.setProperty(CAPABILITY_PREFIX + capability.getKey(), capability.getValue());
+        }
+        write(new File(hubDirectory(hub), encode(registration.key())), properties);
+    }
+
+    public void removeRemoteControl(String hub, String remoteControlKey) {
+        new File(hubDirectory(hub), encode(remoteControlKey)).delete();
+    }
+
+    public Map<String, List<RemoteControlRegistration>> remoteControlsByHub() {
+        final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+        final File[] hubDirectories;
+        List<RemoteControlRegistration> remoteControls;
+        RemoteControlRegistration registration;
+        File[] files;
+
+        remoteControlsByHub = new HashMap<String, List<RemoteControlRegistration>>();
+        hubDirectories = remoteControlsDirectory.listFiles();
+        if (null == hubDirectories) {
+            return remoteControlsByHub;
+        }
+        for (File hubDirectory : hubDirectories) {
+            files = hubDirectory.listFiles();
+            if (null == files) {
+                continue;
+            }
+            remoteControls = new ArrayList<RemoteControlRegistration>(files.length);
+            for (File file : files) {
+                if (file.getName().endsWith(NEW_FILE_SUFFIX)) {
+                    continue;
+                }
+                registration = readRegistration(file);
+                if (null != registration) {
+                    remoteControls.add(registration);
+                }
+            }
+            remoteControlsByHub.put(decode(hubDirectory.getName()), remoteControls);
+        }
+        return remoteControlsByHub;
+    }
+
+    public void putSession(String sessionId, String hub) {
+        final Properties properties;
+
+        properties = new Properties();
+        properties.setProperty("hub", hub);
+        write(new File(sessionsDirectory, encode(sessionId)), properties);
+    }
+
+    public void removeSession(String sessionId) {
+        new File(sessionsDirectory, encode(sessionId)).delete();
+    }
+
+    public String sessionOwner(String sessionId) {
+        final Properties properties;
+
+        properties = read(new File(sessionsDirectory, encode(sessionId)));
+        return null == properties ? null : properties.getProperty("hub");
+    }
+
+    public void renewLease(String hub) {
+        final Properties properties;
+
+        properties = new Properties();
+        properties.setProperty("hub", hub);
+        write(new File(leasesDirectory, encode(hub)), properties);
+    }
+
+    public Map<String, Long> leaseRenewals() {
+        final Map<String, Long> leaseRenewals;
+        final File[] files;
+        long renewedAt;
+
+        leaseRenewals = new HashMap<String, Long>();
+        files = leasesDirectory.listFiles();
+        if (null == files) {
+            return leaseRenewals;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(NEW_FILE_SUFFIX)) {
+                continue;
+            }
+            renewedAt = file.lastModified();
+            if (renewedAt > 0) {
+                leaseRenewals.put(decode(file.getName()), renewedAt);
+            }
+        }
+        return leaseRenewals;
+    }
+
+    public void forgetHub(String hub) {
+        final File[] files;
+
+        new File(leasesDirectory, encode(hub)).delete();
+        deleteAll(hubDirectory(hub).listFiles());
+        files = sessionsDirectory.listFiles();
+        if (null == files) {
+            return;
+        }
+        for (File file : files) {
+            if (hub.equals(sessionOwner(decode(file.getName())))) {
+                file.delete();
+            }
+        }
+    }
+
+    protected RemoteControlRegistration readRegistration(File file) {
+        final Map<String, String> capabilities;
+        final Properties properties;
+        String name;
+
+        properties = read(file);
+        if (null == properties) {
+            return null;
+        }
+        capabilities = new HashMap<String, String>();
+        for (Map.Entry<Object, Object> property : properties.entrySet()) {
+            name = (String) property.getKey();
+            if (name.startsWith(CAPABILITY_PREFIX)) {
+                capabilities.put(name.substring(CAPABILITY_PREFIX.length()), (String) property.getValue());
+            }
+        }
+        try {
+            return new RemoteControlRegistration(properties.getProperty("host"),
+                    Integer.parseInt(properties.getProperty("port")), properties.getProperty("environment"),
+                    Integer.parseInt(properties.getProperty("maxConcurrentSessions")), capabilities);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid cluster store entry " + file);
+            return null;
+        }
+    }
+
+    protected File hubDirectory(String hub) {
+        final File directory;
+
+        directory = new File(remoteControlsDirectory, encode(hub));
+        directory.mkdirs();
+        return directory;
+    }
+
+    protected void write(File file, Properties properties) {
+        final File newFile;
+        OutputStream out = null;
+
+        newFile = new File(file.getPath() + NEW_FILE_SUFFIX);
+        try {
+            out = new FileOutputStream(newFile);
+            properties.store(out, null);
+            out.close();
+            out = null;
+            if (!newFile.renameTo(file) && !(file.delete() && newFile.renameTo(file))) {
+                throw new IOException("Could not rename " + newFile + " to " + file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write cluster store entry " + file, e);
+        } finally {
+            close(out);
+        }
+    }
+
+    /**
+     * @return Entry read from the file. Null if there is no such entry, or if it cannot be read.
+     */
+    protected Properties read(File file) {
+        final Properties properties;
+        InputStream in = null;
+
+        if (!file.isFile()) {
+            return null;
+        }
+        properties = new Properties();
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+            return properties;
+        } catch (IOException e) {
+            // Removed concurrently
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    protected static void deleteAll(File[] files) {
+        if (null == files) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    protected static void close(Closeable stream) {
+        if (null == stream) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing left to do
+        }
+    }
+
+    protected static String encode(String name) {
+        try {
+            return URLEncoder.encode(name, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    protected static String decode(String name) {
+        try {
+            return URLDecoder.decode(name, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process cluster store, for hubs running in the same JVM (e.g. one hub per core, each
+ * with its own connector).
+ */
+public class LocalClusterStore implements ClusterStore {
+
+    private static final LocalClusterStore SHARED = new LocalClusterStore();
+    private final ConcurrentMap<String, ConcurrentMap<String, RemoteControlRegistration>> remoteControlsByHub;
+    private final ConcurrentMap<String, String> sessionOwners;
+    private final ConcurrentMap<String, Long> leaseRenewals;
+
+    public LocalClusterStore() {
+        remoteControlsByHub = new ConcurrentHashMap<String, ConcurrentMap<String, RemoteControlRegistration>>();
+        sessionOwners = new ConcurrentHashMap<String, String>();
+        leaseRenewals = new ConcurrentHashMap<String, Long>();
+    }
+
+    /**
+     * @return Store shared by all the hubs of this JVM.
+     */
+    public static LocalClusterStore shared() {
+        return SHARED;
+    }
+
+    public void putRemoteControl(String hub, RemoteControlRegistration registration) {
+        final ConcurrentMap<String, RemoteControlRegistration> newRemoteControls;
+        ConcurrentMap<String, RemoteControlRegistration> remoteControls;
+
+        remoteControls = remoteControlsByHub.get(hub);
+        if (null == remoteControls) {
+            newRemoteControls = new ConcurrentHashMap<String, RemoteControlRegistration>();
+            remoteControls = remoteControlsByHub.putIfAbsent(hub, newRemoteControls);
+            if (null == remoteControls) {
+                remoteControls = newRemoteControls;
+            }
+        }
+        remoteControls.put(registration.key(), registration);
+    }
+
+    public void removeRemoteControl(String hub, String remoteControlKey) {
+        final ConcurrentMap<String, RemoteControlRegistration> remoteControls;
+
+        remoteControls = remoteControlsByHub.get(hub);
+        if (null != remoteControls) {
+            remoteControls.remove(remoteControlKey);
+        }
+    }
+
+    public Map<String, List<RemoteControlRegistration>> remoteControlsByHub() {
+        final Map<String, List<RemoteControlRegistration>> snapshot;
+
+        snapshot = new HashMap<String, List<RemoteControlRegistration>>();
+        for (Map.Entry<String, ConcurrentMap<String, RemoteControlRegistration>> entry : remoteControlsByHub.entrySet()) {
+            snapshot.put(entry.getKey(), new ArrayList<RemoteControlRegistration>(entry.getValue().values()));
+        }
+        return snapshot;
+    }
+
+    public void putSession(String sessionId, String hub) {
+        sessionOwners.put(sessionId, hub);
+    }
+
+    public void removeSession(String sessionId) {
+        sessionOwners.remove(sessionId);
+    }
+
+    public String sessionOwner(String sessionId) {
+        return sessionOwners.get(sessionId);
+    }
+
+    public void renewLease(String hub) {
+        leaseRenewals.put(hub, System.currentTimeMillis());
+    }
+
+    public Map<String, Long> leaseRenewals() {
+        return new HashMap<String, Long>(leaseRenewals);
+    }
+
+    public void forgetHub(String hub) {
+        remoteControlsByHub.remove(hub);
+        sessionOwners.values().removeAll(Collections.singleton(hub));
+        leaseRenewals.remove(hub);
+    }
+
+}
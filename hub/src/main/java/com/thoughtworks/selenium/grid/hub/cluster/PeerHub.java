@@ -0,0 +1,71 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+
+/**
+ * Another hub of the cluster, seen as a remote control: hubs accept driver commands on the
+ * same paths as remote controls, so forwarding a command to the hub owning the session (or
+ * a new session request to a hub with a matching remote control) is just forwarding it to
+ * this proxy.
+ * <p/>
+ * Peer hubs are never registered in a pool: their own pool reserves, health-checks and
+ * releases the actual remote control.
+ */
+public class PeerHub extends RemoteControlProxy {
+
+    private final String address;
+
+    /**
+     * @param address     Address of the peer hub, as "host:port".
+     * @param environment Environment requested from the peer hub.
+     */
+    public PeerHub(String address, String environment, HttpClient httpClient) {
+        super(host(address), port(address), environment, httpClient);
+        this.address = address;
+    }
+
+    public String address() {
+        return address;
+    }
+
+    public boolean unreliable() {
+        return false;
+    }
+
+    public boolean unreliable(int timeoutInMilliseconds) {
+        return false;
+    }
+
+    public boolean failsPreFlightCheck(int timeoutInMilliseconds) {
+        return false;
+    }
+
+    /**
+     * The peer hub ends the session itself when it forwards the command completing it.
+     */
+    public void terminateSession(String sessionId) {
+    }
+
+    public String toString() {
+        return "[PeerHub " + address + "]";
+    }
+
+    protected static String host(String address) {
+        final int separator = address.lastIndexOf(':');
+
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Hub address should be 'host:port': '" + address + "'");
+        }
+        return address.substring(0, separator);
+    }
+
+    protected static int port(String address) {
+        try {
+            return Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Hub address should be 'host:port': '" + address + "'");
+        }
+    }
+
+}
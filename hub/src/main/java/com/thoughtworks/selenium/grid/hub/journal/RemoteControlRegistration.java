@@ -0,0 +1,71 @@
+package com.thoughtworks.selenium.grid.hub.journal;
+
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Everything the hub needs to know to register a remote control again, as recorded in
+ * a {@link SessionJournal}.
+ */
+public class RemoteControlRegistration {
+
+    private final String host;
+    private final int port;
+    private final String environment;
+    private final int maxConcurrentSessions;
+    private final Map<String, String> capabilities;
+
+    public RemoteControlRegistration(String host, int port, String environment, int maxConcurrentSessions,
+                                     Map<String, String> capabilities) {
+        this.host = host;
+        this.port = port;
+        this.environment = environment;
+        this.maxConcurrentSessions = maxConcurrentSessions;
+        this.capabilities = Collections.unmodifiableMap(new HashMap<String, String>(capabilities));
+    }
+
+    public RemoteControlRegistration(IRemoteControlProxy remoteControl) {
+        this(remoteControl.host(), remoteControl.port(), remoteControl.environment(),
+                remoteControl.maxConcurrentSessions(), remoteControl.capabilities());
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public String environment() {
+        return environment;
+    }
+
+    public int maxConcurrentSessions() {
+        return maxConcurrentSessions;
+    }
+
+    public Map<String, String> capabilities() {
+        return capabilities;
+    }
+
+    /**
+     * @return Key identifying the remote control in the journal, like remote controls are identified
+     *         in the pool: by host and port.
+     */
+    public String key() {
+        return key(host, port);
+    }
+
+    public static String key(String host, int port) {
+        return host + ":" + port;
+    }
+
+    public String toString() {
+        return "[RemoteControlRegistration " + key() + " '" + environment + "' x" + maxConcurrentSessions + "]";
+    }
+
+}
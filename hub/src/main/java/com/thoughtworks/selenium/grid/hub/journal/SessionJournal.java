@@ -0,0 +1,477 @@
+package com.thoughtworks.selenium.grid.hub.journal;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.LocalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPoolListener;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of remote control registrations and session associations, so that a
+ * restarted hub comes back with its remote controls and session routing table instead of
+ * orphaning every session in progress.
+ * <p/>
+ * The journal file is memory-mapped: recording an event is a copy into the mapping, with no
+ * system call, and survives the hub process dying as soon as the call returns (the operating
+ * system owns the dirty pages). The file is only synced on compaction and on close, so events
+ * recorded just before a machine crash can be lost.
+ * <p/>
+ * Each record is a length, a CRC32 and a payload. The length is written last and a zero length
+ * marks the end of the journal, so a record torn by a crash is never replayed. Replay also stops
+ * at the first record failing its checksum.
+ * <p/>
+ * The journal keeps the live state (registered remote controls and sessions) in memory. When
+ * the mapping is full, the live state is written to a new file, replacing the journal, with at
+ * least as much free space as live state: compaction cost is proportional to the live state,
+ * and amortized over at least as many new events. The journal is also compacted when opened.
+ * <p/>
+ * Recording methods never fail: if the journal cannot be written any more, the error is logged
+ * and the hub carries on without a journal.
+ */
+public class SessionJournal implements RemoteControlPoolListener {
+
+    private static final Log LOGGER = LogFactory.getLog(SessionJournal.class);
+    private static final int MAGIC = 0x53474a31; // "SGJ1"
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte REGISTER = 1;
+    private static final byte UNREGISTER = 2;
+    private static final byte ASSOCIATE = 3;
+    private static final byte RELEASE = 4;
+    private final File file;
+    private final int regionSize;
+    private final Map<String, RemoteControlRegistration> registrations;
+    private final Map<String, String> sessions;
+    private RandomAccessFile journalFile;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int position;
+    private int compactions;
+    private boolean closed;
+
+    protected SessionJournal(File file, int regionSize) {
+        if (regionSize < HEADER_SIZE + RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Journal region size is too small: " + regionSize);
+        }
+        this.file = file;
+        this.regionSize = regionSize;
+        this.registrations = new LinkedHashMap<String, RemoteControlRegistration>();
+        this.sessions = new LinkedHashMap<String, String>();
+        this.compactions = 0;
+        this.closed = false;
+    }
+
+    /**
+     * Open a journal, replaying the events already recorded in it if the file exists.
+     *
+     * @param file       Journal file. Created if it does not exist.
+     * @param regionSize Initial size of the mapping, in bytes. The mapping grows as needed.
+     * @throws IOException if the file cannot be mapped, or is not a session journal.
+     */
+    public static SessionJournal open(File file, int regionSize) throws IOException {
+        final SessionJournal journal;
+
+        journal = new SessionJournal(file, regionSize);
+        if (file.exists() && file.length() > 0) {
+            journal.replay();
+        }
+        journal.compact();
+        return journal;
+    }
+
+    public void registered(IRemoteControlProxy remoteControl) {
+        registered(new RemoteControlRegistration(remoteControl));
+    }
+
+    public synchronized void registered(RemoteControlRegistration registration) {
+        registrations.put(registration.key(), registration);
+        append(encodeRegister(registration));
+    }
+
+    public synchronized void unregistered(IRemoteControlProxy remoteControl) {
+        final String key;
+
+        key = RemoteControlRegistration.key(remoteControl.host(), remoteControl.port());
+        forget(key);
+        append(encodeUnregister(remoteControl.host(), remoteControl.port()));
+    }
+
+    public synchronized void associated(String sessionId, IRemoteControlProxy remoteControl) {
+        sessions.put(sessionId, RemoteControlRegistration.key(remoteControl.host(), remoteControl.port()));
+        append(encodeAssociate(sessionId, remoteControl.host(), remoteControl.port()));
+    }
+
+    public synchronized void released(String sessionId) {
+        if (null == sessions.remove(sessionId)) {
+            return;
+        }
+        append(encodeRelease(sessionId));
+    }
+
+    /**
+     * @return Remote controls registered, in registration order.
+     */
+    public synchronized List<RemoteControlRegistration> registrations() {
+        return new ArrayList<RemoteControlRegistration>(registrations.values());
+    }
+
+    /**
+     * @return Sessions in progress, mapped to the key of their remote control.
+     * @see RemoteControlRegistration#key()
+     */
+    public synchronized Map<String, String> sessions() {
+        return new HashMap<String, String>(sessions);
+    }
+
+    /**
+     * Register the remote controls and associate the sessions recorded in the journal with a pool,
+     * typically on hub startup, so that sessions started before a restart keep being routed. Each
+     * recovered session takes a slot on its remote control, and is recycled like any other session
+     * if its client never comes back.
+     *
+     * @param httpClient Client used by the recovered remote controls to talk to their actual remote control.
+     * @return Number of sessions recovered.
+     */
+    public int recoverInto(LocalRemoteControlPool pool, HttpClient httpClient) {
+        final Map<String, IRemoteControlProxy> remoteControlsByKey;
+        IRemoteControlProxy remoteControl;
+        int recovered = 0;
+
+        remoteControlsByKey = new HashMap<String, IRemoteControlProxy>();
+        for (RemoteControlRegistration registration : registrations()) {
+            remoteControl = new RemoteControlProxy(registration.host(), registration.port(), registration.environment(),
+                    registration.maxConcurrentSessions(), registration.capabilities(), httpClient);
+            pool.register(remoteControl);
+            remoteControlsByKey.put(registration.key(), remoteControl);
+        }
+        for (Map.Entry<String, String> session : sessions().entrySet()) {
+            remoteControl = remoteControlsByKey.get(session.getValue());
+            if (null == remoteControl || !pool.getProvisioner(remoteControl.environment()).reclaim(remoteControl)) {
+                LOGGER.warn("Cannot recover session id='" + session.getKey() + "' on " + session.getValue());
+                released(session.getKey());
+                continue;
+            }
+            pool.associateWithSession(remoteControl, session.getKey());
+            recovered++;
+        }
+        LOGGER.info("Recovered " + remoteControlsByKey.size() + " remote controls and " + recovered + " sessions from "
+                + file);
+        return recovered;
+    }
+
+    /**
+     * @return Bytes used in the journal file, header included.
+     */
+    public synchronized int size() {
+        return position;
+    }
+
+    public synchronized int compactions() {
+        return compactions;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Replace the journal file with a new one only recording the live state.
+     */
+    public synchronized void compact() throws IOException {
+        final ByteArrayOutputStream snapshot;
+        final DataOutputStream out;
+        final File compactedFile;
+        final RandomAccessFile compacted;
+        int newCapacity;
+
+        snapshot = new ByteArrayOutputStream();
+        out = new DataOutputStream(snapshot);
+        out.writeInt(MAGIC);
+        for (RemoteControlRegistration registration : registrations.values()) {
+            writeRecord(out, encodeRegister(registration));
+        }
+        for (Map.Entry<String, String> session : sessions.entrySet()) {
+            writeRecord(out, encodeAssociate(session.getKey(), session.getValue()));
+        }
+        out.flush();
+
+        newCapacity = regionSize;
+        while (newCapacity < 2 * snapshot.size()) {
+            newCapacity *= 2;
+        }
+        compactedFile = new File(file.getPath() + ".compacting");
+        compacted = new RandomAccessFile(compactedFile, "rw");
+        try {
+            compacted.setLength(0);
+            compacted.write(snapshot.toByteArray());
+            compacted.setLength(newCapacity);
+            compacted.getFD().sync();
+        } finally {
+            compacted.close();
+        }
+        closeFile();
+        if (!compactedFile.renameTo(file) && !(file.delete() && compactedFile.renameTo(file))) {
+            throw new IOException("Could not replace " + file + " with " + compactedFile);
+        }
+        map(newCapacity);
+        position = snapshot.size();
+        compactions++;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Compacted session journal " + file + " to " + position + " bytes");
+        }
+    }
+
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+            closeFile();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close session journal " + file, e);
+        }
+    }
+
+    protected void replay() throws IOException {
+        int replayed = 0;
+        byte[] payload;
+        int length;
+        CRC32 checksum;
+
+        map((int) file.length());
+        if (MAGIC != buffer.getInt(0)) {
+            closeFile();
+            throw new IOException(file + " is not a session journal");
+        }
+        position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            length = buffer.getInt(position);
+            if (length <= 0) {
+                break;
+            }
+            if (position + RECORD_HEADER_SIZE + length > capacity) {
+                LOGGER.warn("Ignoring truncated session journal record at " + position + " in " + file);
+                break;
+            }
+            payload = new byte[length];
+            buffer.position(position + RECORD_HEADER_SIZE);
+            buffer.get(payload);
+            checksum = new CRC32();
+            checksum.update(payload);
+            if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                LOGGER.warn("Ignoring corrupted session journal record at " + position + " in " + file);
+                break;
+            }
+            apply(payload);
+            position += RECORD_HEADER_SIZE + length;
+            replayed++;
+        }
+        LOGGER.info("Replayed " + replayed + " session journal records from " + file + ": "
+                + registrations.size() + " remote controls, " + sessions.size() + " sessions");
+    }
+
+    protected void apply(byte[] payload) throws IOException {
+        final DataInputStream in;
+        final byte type;
+
+        in = new DataInputStream(new ByteArrayInputStream(payload));
+        type = in.readByte();
+        if (REGISTER == type) {
+            final String host = in.readUTF();
+            final int port = in.readInt();
+            final String environment = in.readUTF();
+            final int maxConcurrentSessions = in.readInt();
+            final Map<String, String> capabilities = new HashMap<String, String>();
+            for (int remaining = in.readInt(); remaining > 0; remaining--) {
+                capabilities.put(in.readUTF(), in.readUTF());
+            }
+            registrations.put(RemoteControlRegistration.key(host, port),
+                    new RemoteControlRegistration(host, port, environment, maxConcurrentSessions, capabilities));
+        } else if (UNREGISTER == type) {
+            forget(RemoteControlRegistration.key(in.readUTF(), in.readInt()));
+        } else if (ASSOCIATE == type) {
+            final String sessionId = in.readUTF();
+            sessions.put(sessionId, RemoteControlRegistration.key(in.readUTF(), in.readInt()));
+        } else if (RELEASE == type) {
+            sessions.remove(in.readUTF());
+        } else {
+            throw new IOException("Unknown session journal record type " + type);
+        }
+    }
+
+    /**
+     * Drop a remote control along with its sessions.
+     */
+    protected void forget(String key) {
+        registrations.remove(key);
+        sessions.values().removeAll(Collections.singleton(key));
+    }
+
+    protected void append(byte[] payload) {
+        final CRC32 checksum;
+        final int recordSize;
+
+        if (closed) {
+            return;
+        }
+        recordSize = RECORD_HEADER_SIZE + payload.length;
+        try {
+            if (position + recordSize > capacity) {
+                makeRoomFor(recordSize);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not write to session journal " + file + ", disabling it", e);
+            closed = true;
+            return;
+        }
+        checksum = new CRC32();
+        checksum.update(payload);
+        buffer.putInt(position + 4, (int) checksum.getValue());
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(position, payload.length);
+        position += recordSize;
+    }
+
+    /**
+     * Compact the journal, and grow the mapping if the live state still leaves no room for the record.
+     */
+    protected void makeRoomFor(int recordSize) throws IOException {
+        int newCapacity;
+
+        compact();
+        if (position + recordSize <= capacity) {
+            return;
+        }
+        newCapacity = capacity;
+        while (newCapacity < position + recordSize) {
+            newCapacity *= 2;
+        }
+        buffer.force();
+        map(newCapacity);
+    }
+
+    /**
+     * Map the first bytes of the journal file, extending the file if needed. A previous mapping of
+     * the same file is simply dropped: it is released by the garbage collector.
+     */
+    protected void map(int size) throws IOException {
+        if (null == journalFile) {
+            journalFile = new RandomAccessFile(file, "rw");
+        }
+        capacity = size;
+        buffer = journalFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    protected void closeFile() throws IOException {
+        if (null != journalFile) {
+            journalFile.close();
+            journalFile = null;
+        }
+    }
+
+    protected static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        final CRC32 checksum;
+
+        checksum = new CRC32();
+        checksum.update(payload);
+        out.writeInt(payload.length);
+        out.writeInt((int) checksum.getValue());
+        out.write(payload);
+    }
+
+    protected static byte[] encodeRegister(RemoteControlRegistration registration) {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+
+        try {
+            out.writeByte(REGISTER);
+            out.writeUTF(registration.host());
+            out.writeInt(registration.port());
+            out.writeUTF(registration.environment());
+            out.writeInt(registration.maxConcurrentSessions());
+            out.writeInt(registration.capabilities().size());
+            for (Map.Entry<String, String> capability : registration.capabilities().entrySet()) {
+                out.writeUTF(capability.getKey());
+                out.writeUTF(capability.getValue());
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot journal " + registration + ": " + e.getMessage());
+        }
+        return payload.toByteArray();
+    }
+
+    protected static byte[] encodeUnregister(String host, int port) {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+
+        try {
+            out.writeByte(UNREGISTER);
+            out.writeUTF(host);
+            out.writeInt(port);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot journal unregistration of " + host + ": " + e.getMessage());
+        }
+        return payload.toByteArray();
+    }
+
+    protected static byte[] encodeAssociate(String sessionId, String host, int port) {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+
+        try {
+            out.writeByte(ASSOCIATE);
+            out.writeUTF(sessionId);
+            out.writeUTF(host);
+            out.writeInt(port);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot journal session " + sessionId + ": " + e.getMessage());
+        }
+        return payload.toByteArray();
+    }
+
+    protected static byte[] encodeAssociate(String sessionId, String key) {
+        final int separator = key.lastIndexOf(':');
+
+        return encodeAssociate(sessionId, key.substring(0, separator), Integer.parseInt(key.substring(separator + 1)));
+    }
+
+    protected static byte[] encodeRelease(String sessionId) {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(payload);
+
+        try {
+            out.writeByte(RELEASE);
+            out.writeUTF(sessionId);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot journal release of session " + sessionId + ": " + e.getMessage());
+        }
+        return payload.toByteArray();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.thoughtworks.selenium.grid.hub.management;
+
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Servlet used by agents hosting many Selenium Remote Controls to register them all to the grid
+ * in one request, e.g. when scaling up.
+ *
+ * @see RemoteControlParser#parseAll(HttpServletRequest)
+ */
+public class BatchRegistrationServlet extends RegistrationManagementServlet {
+
+    private static final Log LOGGER = LogFactory.getLog(BatchRegistrationServlet.class);
+
+    protected void process(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final List<IRemoteControlProxy> newRemoteControls;
+
+        newRemoteControls = RemoteControlParser.parseAll(request);
+        LOGGER.info("Registering " + newRemoteControls.size() + " new remote controls...");
+        registry().remoteControlPool().registerAll(newRemoteControls);
+        LOGGER.info("Registered " + newRemoteControls);
+        writeSuccessfulResponse(response);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.thoughtworks.selenium.grid.hub.management;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Exposes hub metrics in the Prometheus text format: command latencies and errors, new session
+ * queue gauges so that remote controls can be added before queues build up, the duration of
+ * the remote control health sweeps, the usage of the connections to the remote controls and
+ * the statuses remote controls push to the hub.
+ */
+public class MetricsServlet extends HubServlet {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+        registry().metrics().writePrometheus(response.getWriter(),
+                registry().remoteControlPool().newSessionQueueStatuses());
+        registry().metrics().writeHealthSweep(response.getWriter(), registry().healthSweep());
+        registry().metrics().writeConnectionPool(response.getWriter(), registry().connectionPool());
+        registry().metrics().writeRemoteControlStatuses(response.getWriter(), registry().heartbeatMonitor().statuses());
+    }
+
+}
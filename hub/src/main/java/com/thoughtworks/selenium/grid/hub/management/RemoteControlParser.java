@@ -1,37 +1,139 @@
 package com.thoughtworks.selenium.grid.hub.management;
 
 import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.hub.HubRegistry;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class RemoteControlParser {
 
     public static IRemoteControlProxy parse(HttpServletRequest request) {
-        final IRemoteControlProxy remoteControl;
-        final String portParameter;
-        final String environment;
-        final String host;
-        final int port;
+        return parse(request, HubRegistry.registry().connectionPool().httpClient());
+    }
+
+    /**
+     * @param httpClient Client used to talk to the remote control. Shared by all remote controls.
+     */
+    public static IRemoteControlProxy parse(HttpServletRequest request, HttpClient httpClient) {
+        return newRemoteControl(request.getParameter("host"), request.getParameter("port"),
+                                request.getParameter("environment"), request.getParameter("maxConcurrentSessions"),
+                                capabilities(request), httpClient);
+    }
+
+    public static List<IRemoteControlProxy> parseAll(HttpServletRequest request) {
+        return parseAll(request, HubRegistry.registry().connectionPool().httpClient());
+    }
+
+    /**
+     * Parse a batch of remote controls, submitted as repeated 'host', 'port' and 'environment'
+     * parameters (and optionally 'maxConcurrentSessions'), the n-th value of each describing the
+     * n-th remote control. Capabilities are not supported in a batch.
+     *
+     * @param httpClient Client used to talk to the remote controls. Shared by all remote controls.
+     */
+    public static List<IRemoteControlProxy> parseAll(HttpServletRequest request, HttpClient httpClient) {
+        final List<IRemoteControlProxy> remoteControls;
+        final String[] hosts;
+        final String[] ports;
+        final String[] environments;
+        final String[] maxConcurrentSessions;
 
-        host = request.getParameter("host");
+        hosts = request.getParameterValues("host");
+        if (null == hosts || 0 == hosts.length) {
+            throw new IllegalStateException("You must specify at least one 'host' parameter");
+        }
+        ports = parameterValues(request, "port", hosts.length, true);
+        environments = parameterValues(request, "environment", hosts.length, true);
+        maxConcurrentSessions = parameterValues(request, "maxConcurrentSessions", hosts.length, false);
+
+        remoteControls = new ArrayList<IRemoteControlProxy>(hosts.length);
+        for (int i = 0; i < hosts.length; i++) {
+            remoteControls.add(newRemoteControl(hosts[i], ports[i], environments[i],
+                                                null == maxConcurrentSessions ? null : maxConcurrentSessions[i],
+                                                new HashMap<String, String>(), httpClient));
+        }
+        return remoteControls;
+    }
+
+    protected static IRemoteControlProxy newRemoteControl(String host, String port, String environment,
+                                                          String maxConcurrentSessions,
+                                                          Map<String, String> capabilities, HttpClient httpClient) {
         if (null == host || "".equals(host.trim())) {
             throw new IllegalStateException("You must specify a 'host' parameter");
         }
-        portParameter = request.getParameter("port");
-        if (null == portParameter || "".equals(portParameter.trim())) {
+        if (null == port || "".equals(port.trim())) {
             throw new IllegalStateException("You must specify a 'port' parameter");
         }
-        port = Integer.parseInt(portParameter);
-        environment = request.getParameter("environment");
         if (null == environment || "".equals(environment.trim())) {
             throw new IllegalStateException("You must specify an 'environment' parameter");
         }
+        return new RemoteControlProxy(host, Integer.parseInt(port), environment,
+                                      maxConcurrentSessions(maxConcurrentSessions), capabilities, httpClient);
+    }
+
+    /**
+     * @return Values of a parameter repeated once per remote control of a batch. Null if the
+     *         parameter is optional and absent.
+     */
+    protected static String[] parameterValues(HttpServletRequest request, String name, int count, boolean required) {
+        final String[] values;
+
+        values = request.getParameterValues(name);
+        if (null == values && !required) {
+            return null;
+        }
+        if (null == values || values.length != count) {
+            throw new IllegalStateException("You must specify one '" + name + "' parameter per 'host' parameter ("
+                    + count + "), got " + (null == values ? 0 : values.length));
+        }
+        return values;
+    }
+
+    /**
+     * Optional 'maxConcurrentSessions' parameter: number of sessions the remote control can run
+     * at the same time. Defaults to 1.
+     */
+    protected static int maxConcurrentSessions(String parameter) {
+        final int maxConcurrentSessions;
+
+        if (null == parameter || "".equals(parameter.trim())) {
+            return 1;
+        }
+        maxConcurrentSessions = Integer.parseInt(parameter.trim());
+        if (maxConcurrentSessions < 1) {
+            throw new IllegalStateException("'maxConcurrentSessions' must be at least 1");
+        }
+        return maxConcurrentSessions;
+    }
 
-        remoteControl = new RemoteControlProxy(host, port, environment, new HttpClient());
+    /**
+     * Optional capabilities advertised by the remote control, as 'capability' parameters
+     * of the form 'key=value' (e.g. capability=version=3.6).
+     */
+    protected static Map<String, String> capabilities(HttpServletRequest request) {
+        final Map<String, String> capabilities;
+        final String[] values;
+        int separator;
 
-        return remoteControl;
+        capabilities = new HashMap<String, String>();
+        values = request.getParameterValues("capability");
+        if (null == values) {
+            return capabilities;
+        }
+        for (String value : values) {
+            separator = value.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalStateException("Invalid capability '" + value + "', expected 'key=value'");
+            }
+            capabilities.put(value.substring(0, separator).trim(), value.substring(separator + 1).trim());
+        }
+        return capabilities;
     }
 
 }
@@ -26,6 +26,8 @@ public class ConsoleController extends Controller {
         page.set("environments", registry().environmentManager().environments());
         page.set("availableRemoteControls", registry().remoteControlPool().availableRemoteControls());
         page.set("reservedRemoteControls", registry().remoteControlPool().reservedRemoteControls());
+        page.set("newSessionQueues", registry().remoteControlPool().newSessionQueueStatuses());
+        page.set("remoteControlStatuses", registry().heartbeatMonitor().statuses());
 
         return page;
     }
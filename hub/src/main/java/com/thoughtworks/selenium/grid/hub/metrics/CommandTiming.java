@@ -0,0 +1,98 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+/**
+ * Breakdown of the time spent handling a single hub command:
+ * <ul>
+ * <li>parse: turning the HTTP request into a command, on the Jetty thread</li>
+ * <li>rc_wait: everything until the remote control is talked to (queueing for an executor
+ * thread, reserving a remote control, session bookkeeping)</li>
+ * <li>rc_round_trip: waiting for the remote control to reply</li>
+ * <li>reply: resuming the request and sending the response back to the client</li>
+ * </ul>
+ * Remote control round trips are reported by the proxy through the timing bound to the
+ * executor thread running the command, since it does not know which command it serves.
+ * <p/>
+ * Updated from the executor thread, then read from the Jetty thread once the command is
+ * done, which the volatile completion flag of PendingCommand orders.
+ */
+public class CommandTiming {
+
+    private static final ThreadLocal<CommandTiming> CURRENT = new ThreadLocal<CommandTiming>();
+    private final long startedAt;
+    private long parsedAt;
+    private long executedAt;
+    private long repliedAt;
+    private long remoteControlRoundTripInNanoseconds;
+    private String command;
+    private String environment;
+
+    public CommandTiming() {
+        this.startedAt = System.nanoTime();
+    }
+
+    /**
+     * @param environment Null when not known before talking to a remote control.
+     */
+    public void parsed(String command, String environment) {
+        this.parsedAt = System.nanoTime();
+        this.command = command;
+        this.environment = environment;
+    }
+
+    public void executionStarted() {
+        CURRENT.set(this);
+    }
+
+    public void executionFinished() {
+        executedAt = System.nanoTime();
+        CURRENT.remove();
+    }
+
+    public void replied() {
+        repliedAt = System.nanoTime();
+    }
+
+    /**
+     * Account for a remote control round trip made by the current thread, if it is executing a command.
+     */
+    public static void remoteControlRoundTrip(String environment, long durationInNanoseconds) {
+        final CommandTiming timing = CURRENT.get();
+
+        if (null == timing) {
+            return;
+        }
+        timing.remoteControlRoundTripInNanoseconds += durationInNanoseconds;
+        if (null == timing.environment) {
+            timing.environment = environment;
+        }
+    }
+
+    public String command() {
+        return command;
+    }
+
+    public String environment() {
+        return environment;
+    }
+
+    public long parseInNanoseconds() {
+        return parsedAt - startedAt;
+    }
+
+    public long remoteControlWaitInNanoseconds() {
+        return executedAt - parsedAt - remoteControlRoundTripInNanoseconds;
+    }
+
+    public long remoteControlRoundTripInNanoseconds() {
+        return remoteControlRoundTripInNanoseconds;
+    }
+
+    public long replyInNanoseconds() {
+        return repliedAt - executedAt;
+    }
+
+    public long totalInNanoseconds() {
+        return repliedAt - startedAt;
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import com.thoughtworks.selenium.grid.HttpConnectionPool;
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.NewSessionQueueStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlHealthSweep;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.IDriverCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.SeleneseCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.WebDriverCommand;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms per environment, command type and phase, plus error counters
+ * per exception type. Exposed in the Prometheus text format.
+ */
+public class HubMetrics {
+
+    public static final String PARSE = "parse";
+    public static final String REMOTE_CONTROL_WAIT = "rc_wait";
+    public static final String REMOTE_CONTROL_ROUND_TRIP = "rc_round_trip";
+    public static final String REPLY = "reply";
+    public static final String UNKNOWN_ENVIRONMENT = "unknown";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private final ConcurrentMap<Series, LatencyHistogram> histograms;
+    private final ConcurrentMap<String, AtomicLong> errors;
+
+    public HubMetrics() {
+        this.histograms = new ConcurrentHashMap<Series, LatencyHistogram>();
+        this.errors = new ConcurrentHashMap<String, AtomicLong>();
+    }
+
+    /**
+     * @return Type of a command as reported in metrics: getNewBrowserSession, selenese or testComplete
+     *         for Selenese, and new_session, delete_session or the HTTP verb for WebDriver.
+     */
+    public static String commandType(IDriverCommand command) {
+        if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand) {
+            return "getNewBrowserSession";
+        } else if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.TestCompleteCommand) {
+            return "testComplete";
+        } else if (command instanceof SeleneseCommand) {
+            return "selenese";
+        } else if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand) {
+            return "webdriver_new_session";
+        } else if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.TestCompleteCommand) {
+            return "webdriver_delete_session";
+        } else if (command instanceof WebDriverCommand && null != command.request()) {
+            return "webdriver_" + command.request().getMethod().toLowerCase();
+        }
+        return "other";
+    }
+
+    /**
+     * @return Environment requested by a new session command, or the "browser on platform" name of the
+     *         capabilities requested when matched on capabilities. Null for any other command.
+     */
+    public static String environmentOf(IDriverCommand command) {
+        Environment environment = null;
+
+        if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand) {
+            environment = ((com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand) command).environment();
+        } else if (command instanceof com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand) {
+            final com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand newSession;
+
+            newSession = (com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand) command;
+            if (null != newSession.capabilities()) {
+                return newSession.capabilities().environmentName();
+            }
+            environment = newSession.environment();
+        }
+        return (null == environment) ? null : environment.name();
+    }
+
+    public void record(CommandTiming timing) {
+        final String environment;
+
+        environment = (null == timing.environment()) ? UNKNOWN_ENVIRONMENT : timing.environment();
+        histogram(environment, timing.command(), PARSE).record(timing.parseInNanoseconds());
+        histogram(environment, timing.command(), REMOTE_CONTROL_WAIT).record(timing.remoteControlWaitInNanoseconds());
+        histogram(environment, timing.command(), REMOTE_CONTROL_ROUND_TRIP).record(timing.remoteControlRoundTripInNanoseconds());
+        histogram(environment, timing.command(), REPLY).record(timing.replyInNanoseconds());
+    }
+
+    public void error(Exception exception) {
+        final String type = exception.getClass().getSimpleName();
+        AtomicLong counter;
+
+        counter = errors.get(type);
+        if (null == counter) {
+            errors.putIfAbsent(type, new AtomicLong(0));
+            counter = errors.get(type);
+        }
+        counter.incrementAndGet();
+    }
+
+    public long errors(Class exceptionClass) {
+        final AtomicLong counter = errors.get(exceptionClass.getSimpleName());
+        return (null == counter) ? 0 : counter.get();
+    }
+
+    public LatencyHistogram histogram(String environment, String command, String phase) {
+        final Series series = new Series(environment, command, phase);
+        LatencyHistogram histogram;
+
+        histogram = histograms.get(series);
+        if (null == histogram) {
+            histograms.putIfAbsent(series, new LatencyHistogram());
+            histogram = histograms.get(series);
+        }
+        return histogram;
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        out.write("# HELP hub_command_duration_seconds Time spent handling hub commands, by phase.\n");
+        out.write("# TYPE hub_command_duration_seconds summary\n");
+        for (Map.Entry<Series, LatencyHistogram> entry : new TreeMap<Series, LatencyHistogram>(histograms).entrySet()) {
+            final String labels = entry.getKey().labels();
+            final LatencyHistogram histogram = entry.getValue();
+
+            for (double quantile : QUANTILES) {
+                out.write("hub_command_duration_seconds{" + labels + ",quantile=\"" + quantile + "\"} "
+                        + seconds(histogram.quantileInNanoseconds(quantile)) + "\n");
+            }
+            out.write("hub_command_duration_seconds_sum{" + labels + "} " + seconds(histogram.sumInNanoseconds()) + "\n");
+            out.write("hub_command_duration_seconds_count{" + labels + "} " + histogram.count() + "\n");
+        }
+        out.write("# HELP hub_command_errors_total Hub commands that failed, by exception type.\n");
+        out.write("# TYPE hub_command_errors_total counter\n");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(errors).entrySet()) {
+            out.write("hub_command_errors_total{exception=\"" + escape(entry.getKey()) + "\"} " + entry.getValue().get() + "\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Write new session queue gauges in the Prometheus text exposition format (version 0.0.4).
+     */
+    public void writePrometheus(Writer out, List<NewSessionQueueStatus> queues) throws IOException {
+        writePrometheus(out);
+        out.write("# HELP hub_new_session_waiters New session requests waiting for a remote control.\n");
+        out.write("# TYPE hub_new_session_waiters gauge\n");
+        for (NewSessionQueueStatus queue : queues) {
+            out.write("hub_new_session_waiters{" + environmentLabel(queue) + "} " + queue.waiters() + "\n");
+        }
+        out.write("# HELP hub_new_session_oldest_wait_seconds Age of the oldest new session request waiting for a remote control.\n");
+        out.write("# TYPE hub_new_session_oldest_wait_seconds gauge\n");
+        for (NewSessionQueueStatus queue : queues) {
+            out.write("hub_new_session_oldest_wait_seconds{" + environmentLabel(queue) + "} "
+                    + milliseconds(queue.oldestWaiterAgeInMilliseconds()) + "\n");
+        }
+        out.write("# HELP hub_remote_control_slots Session slots of the registered remote controls, by state.\n");
+        out.write("# TYPE hub_remote_control_slots gauge\n");
+        for (NewSessionQueueStatus queue : queues) {
+            out.write("hub_remote_control_slots{" + environmentLabel(queue) + ",state=\"free\"} " + queue.freeSlots() + "\n");
+            out.write("hub_remote_control_slots{" + environmentLabel(queue) + ",state=\"busy\"} " + queue.busySlots() + "\n");
+        }
+        out.write("# HELP hub_new_session_reserve_seconds Time to reserve a remote control for a new session.\n");
+        out.write("# TYPE hub_new_session_reserve_seconds summary\n");
+        for (NewSessionQueueStatus queue : queues) {
+            out.write("hub_new_session_reserve_seconds{" + environmentLabel(queue) + ",quantile=\"0.5\"} "
+                    + milliseconds(queue.timeToReserveMedianInMilliseconds()) + "\n");
+            out.write("hub_new_session_reserve_seconds{" + environmentLabel(queue) + ",quantile=\"0.99\"} "
+                    + milliseconds(queue.timeToReserve99thPercentileInMilliseconds()) + "\n");
+            out.write("hub_new_session_reserve_seconds_sum{" + environmentLabel(queue) + "} "
+                    + milliseconds(queue.timeToReserveSumInMilliseconds()) + "\n");
+            out.write("hub_new_session_reserve_seconds_count{" + environmentLabel(queue) + "} " + queue.reservations() + "\n");
+        }
+        out.write("# HELP hub_new_session_timeouts_total New session requests that timed out waiting for a remote control.\n");
+        out.write("# TYPE hub_new_session_timeouts_total counter\n");
+        for (NewSessionQueueStatus queue : queues) {
+            out.write("hub_new_session_timeouts_total{" + environmentLabel(queue) + "} " + queue.timeouts() + "\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Write remote control health sweep gauges in the Prometheus text exposition format (version 0.0.4).
+     */
+    public void writeHealthSweep(Writer out, RemoteControlHealthSweep healthSweep) throws IOException {
+        out.write("# HELP hub_health_sweep_duration_seconds Duration of the last poll of the remote controls.\n");
+        out.write("# TYPE hub_health_sweep_duration_seconds gauge\n");
+        out.write("hub_health_sweep_duration_seconds " + milliseconds(healthSweep.lastSweepDurationInMilliseconds()) + "\n");
+        out.write("# HELP hub_health_sweep_probes Remote controls polled by the last sweep.\n");
+        out.write("# TYPE hub_health_sweep_probes gauge\n");
+        out.write("hub_health_sweep_probes " + healthSweep.lastSweepProbeCount() + "\n");
+        out.write("# HELP hub_health_sweep_unresponsive Remote controls found unresponsive by the last sweep.\n");
+        out.write("# TYPE hub_health_sweep_unresponsive gauge\n");
+        out.write("hub_health_sweep_unresponsive " + healthSweep.lastSweepUnresponsiveCount() + "\n");
+        out.write("# HELP hub_health_probes_in_flight Remote controls being polled right now.\n");
+        out.write("# TYPE hub_health_probes_in_flight gauge\n");
+        out.write("hub_health_probes_in_flight " + healthSweep.probesInFlight() + "\n");
+        out.flush();
+    }
+
+    /**
+     * Write hub to remote control connection pool gauges in the Prometheus text exposition format (version 0.0.4).
+     */
+    public void writeConnectionPool(Writer out, HttpConnectionPool connectionPool) throws IOException {
+        out.write("# HELP hub_rc_connections Connections from the hub to the remote controls, open or allowed.\n");
+        out.write("# TYPE hub_rc_connections gauge\n");
+        out.write("hub_rc_connections{state=\"open\"} " + connectionPool.connectionsInPool() + "\n");
+        out.write("hub_rc_connections{state=\"max\"} " + connectionPool.maxConnections() + "\n");
+        out.write("hub_rc_connections{state=\"max_per_host\"} " + connectionPool.maxConnectionsPerHost() + "\n");
+        out.flush();
+    }
+
+    public void writeRemoteControlStatuses(Writer out, List<RemoteControlStatus> statuses) throws IOException {
+        out.write("# HELP hub_rc_load System load average pushed by the remote controls.\n");
+        out.write("# TYPE hub_rc_load gauge\n");
+        for (RemoteControlStatus status : statuses) {
+            if (status.load() >= 0) {
+                out.write("hub_rc_load{" + remoteControlLabel(status) + "} " + status.load() + "\n");
+            }
+        }
+        out.write("# HELP hub_rc_heartbeat_age_seconds Time since the remote controls last pushed their status.\n");
+        out.write("# TYPE hub_rc_heartbeat_age_seconds gauge\n");
+        for (RemoteControlStatus status : statuses) {
+            out.write("hub_rc_heartbeat_age_seconds{" + remoteControlLabel(status) + "} "
+                    + milliseconds(status.ageInMilliseconds()) + "\n");
+        }
+        out.flush();
+    }
+
+    protected static String remoteControlLabel(RemoteControlStatus status) {
+        return "remote_control=\"" + escape(status.host() + ":" + status.port()) + "\"";
+    }
+
+    protected static String environmentLabel(NewSessionQueueStatus queue) {
+        return "environment=\"" + escape(queue.environment()) + "\"";
+    }
+
+    protected static String milliseconds(long milliseconds) {
+        return Double.toString(milliseconds / 1000.0);
+    }
+
+    protected static String seconds(long nanoseconds) {
+        return Double.toString(nanoseconds / 1000000000.0);
+    }
+
+    protected static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    protected static class Series implements Comparable<Series> {
+
+        private final String environment;
+        private final String command;
+        private final String phase;
+
+        public Series(String environment, String command, String phase) {
+            this.environment = environment;
+            this.command = command;
+            this.phase = phase;
+        }
+
+        public String labels() {
+            return "environment=\"" + escape(environment) + "\",command=\"" + escape(command)
+                    + "\",phase=\"" + escape(phase) + "\"";
+        }
+
+        public int compareTo(Series other) {
+            return labels().compareTo(other.labels());
+        }
+
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            final Series otherSeries = (Series) other;
+            return environment.equals(otherSeries.environment) && command.equals(otherSeries.command)
+                    && phase.equals(otherSeries.phase);
+        }
+
+        public int hashCode() {
+            return (environment + "\u0000" + command + "\u0000" + phase).hashCode();
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-size latency histogram with a high dynamic range (HDR style):
+ * values are bucketed by power of two, and each power of two is split into 16
+ * linear sub-buckets, so any quantile is accurate within ~6% from a nanosecond
+ * up to about 19 hours.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 46;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sumInNanoseconds;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong(0);
+        this.sumInNanoseconds = new AtomicLong(0);
+    }
+
+    /**
+     * @param latencyInNanoseconds Negative values are recorded as 0, values over ~19 hours as ~19 hours.
+     */
+    public void record(long latencyInNanoseconds) {
+        final long value = Math.min(Math.max(latencyInNanoseconds, 0), MAX_VALUE);
+
+        counts.incrementAndGet(bucketFor(value));
+        count.incrementAndGet();
+        sumInNanoseconds.addAndGet(value);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long sumInNanoseconds() {
+        return sumInNanoseconds.get();
+    }
+
+    /**
+     * Weakly consistent while values are being recorded.
+     *
+     * @param quantile Between 0 and 1, e.g. 0.999
+     * @return Highest value equivalent to the given quantile. 0 if nothing was recorded.
+     */
+    public long quantileInNanoseconds(double quantile) {
+        final long total;
+        long rank;
+        long seen = 0;
+
+        total = count.get();
+        if (0 == total) {
+            return 0;
+        }
+        rank = (long) Math.ceil(quantile * total);
+        rank = Math.max(1, Math.min(rank, total));
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return highestValueIn(bucket);
+            }
+        }
+        return highestValueIn(BUCKETS - 1);
+    }
+
+    protected static int bucketFor(long value) {
+        final int shift;
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+    }
+
+    protected static long highestValueIn(int bucket) {
+        final int shift;
+        final int subBucket;
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs commands slower than a threshold, with the breakdown of where the time went.
+ * <p/>
+ * Sampled so that a burst of slow commands cannot flood the log: at most one command
+ * is logged per interval, along with the number of slow commands skipped since the
+ * previous entry. Fast commands only cost a comparison.
+ */
+public class SlowCommandLog {
+
+    private static final Log LOGGER = LogFactory.getLog(SlowCommandLog.class);
+    private final long thresholdInNanoseconds;
+    private final long intervalInNanoseconds;
+    private final AtomicLong nextEntryAt;
+    private final AtomicLong skipped;
+
+    public SlowCommandLog(HubConfiguration configuration) {
+        this(configuration.getSlowCommandThresholdInSeconds(), configuration.getSlowCommandLogIntervalInSeconds());
+    }
+
+    /**
+     * @param thresholdInSeconds 0 or less to disable the log.
+     */
+    public SlowCommandLog(double thresholdInSeconds, double intervalInSeconds) {
+        this.thresholdInNanoseconds = (long) (thresholdInSeconds * 1000000000L);
+        this.intervalInNanoseconds = (long) (intervalInSeconds * 1000000000L);
+        this.nextEntryAt = new AtomicLong(System.nanoTime());
+        this.skipped = new AtomicLong(0);
+    }
+
+    /**
+     * @return Whether the command was logged.
+     */
+    public boolean record(CommandTiming timing) {
+        final long nextEntry;
+        final long now;
+
+        if (thresholdInNanoseconds <= 0 || timing.totalInNanoseconds() < thresholdInNanoseconds) {
+            return false;
+        }
+        now = System.nanoTime();
+        nextEntry = nextEntryAt.get();
+        if (now - nextEntry < 0 || !nextEntryAt.compareAndSet(nextEntry, now + intervalInNanoseconds)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        LOGGER.warn(describe(timing, skipped.getAndSet(0)));
+        return true;
+    }
+
+    /**
+     * @return Slow commands not logged since the last entry.
+     */
+    public long skipped() {
+        return skipped.get();
+    }
+
+    protected static String describe(CommandTiming timing, long skipped) {
+        return "Slow command: " + timing.command() + " on '" + timing.environment() + "' took "
+                + milliseconds(timing.totalInNanoseconds()) + " ms"
+                + " (parse " + milliseconds(timing.parseInNanoseconds())
+                + " ms, rc_wait " + milliseconds(timing.remoteControlWaitInNanoseconds())
+                + " ms, rc_round_trip " + milliseconds(timing.remoteControlRoundTripInNanoseconds())
+                + " ms, reply " + milliseconds(timing.replyInNanoseconds()) + " ms), "
+                + skipped + " other slow commands since last entry";
+    }
+
+    protected static long milliseconds(long nanoseconds) {
+        return TimeUnit.NANOSECONDS.toMillis(nanoseconds);
+    }
+
+}
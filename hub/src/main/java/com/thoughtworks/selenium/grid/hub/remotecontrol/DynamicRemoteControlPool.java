@@ -1,6 +1,11 @@
 package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Remote control pool that grows/shrinks when remote control
@@ -10,8 +15,32 @@ public interface DynamicRemoteControlPool extends RemoteControlPool {
 
     void register(IRemoteControlProxy newRemoteControl);
 
+    /**
+     * Register a batch of remote controls in one pass per environment.
+     */
+    void registerAll(Collection<IRemoteControlProxy> newRemoteControls);
+
     boolean unregister(IRemoteControlProxy remoteControl);
 
+    /**
+     * Reserve a remote control without blocking, see {@link #reserve(Environment)}.
+     *
+     * @param listener Told about the remote control reserved, on a thread of the executor.
+     * @throws com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException
+     *          if no registered remote control provides the environment.
+     * @see RemoteControlProvisioner#reserve(ReservationListener, ScheduledExecutorService)
+     */
+    void reserve(Environment environment, ReservationListener listener, ScheduledExecutorService executor);
+
+    /**
+     * Reserve a remote control without blocking, see {@link #reserve(DesiredCapabilities)}.
+     *
+     * @param listener Told about the remote control reserved, on a thread of the executor.
+     * @throws com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException
+     *          if no registered remote control offers these capabilities.
+     */
+    void reserve(DesiredCapabilities capabilities, ReservationListener listener, ScheduledExecutorService executor);
+
     boolean isRegistered(IRemoteControlProxy remoteControl);
 
     List<IRemoteControlProxy> allRegisteredRemoteControls();
@@ -20,6 +49,18 @@ public interface DynamicRemoteControlPool extends RemoteControlPool {
 
     List<IRemoteControlProxy> reservedRemoteControls();
 
+    /**
+     * @return Names of the environments whose registered remote controls offer the desired capabilities.
+     *         Never null.
+     */
+    List<String> environmentsMatching(DesiredCapabilities capabilities);
+
+    /**
+     * @return Status of the new session queue of each environment with registered remote controls,
+     *         sorted by environment name. Never null.
+     */
+    List<NewSessionQueueStatus> newSessionQueueStatuses();
+
     void unregisterAllUnresponsiveRemoteControls();
 
     void recycleAllSessionsIdleForTooLong(double maxIdleTimeInSeconds);
@@ -1,23 +1,61 @@
 package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
+import com.thoughtworks.selenium.grid.HttpClient;
 import com.thoughtworks.selenium.grid.hub.Environment;
 import com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException;
 import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.capabilities.CapabilityIndex;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.journal.SessionJournal;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Monolithic Remote Control Pool keeping track of all environment and all sessions.
+ *
+ * @see ShardedRemoteControlPool
  */
-public class GlobalRemoteControlPool implements DynamicRemoteControlPool {
+public class GlobalRemoteControlPool implements LocalRemoteControlPool {
 
     private static final Log LOGGER = LogFactory.getLog(GlobalRemoteControlPool.class);
     private final ConcurrentMap<String, RemoteControlSession> remoteControlsBySessionIds = new ConcurrentHashMap<String, RemoteControlSession>();
+    private final ConcurrentMap<IRemoteControlProxy, ConcurrentMap<String, RemoteControlSession>> sessionsByRemoteControl = new ConcurrentHashMap<IRemoteControlProxy, ConcurrentMap<String, RemoteControlSession>>();
     private final ConcurrentMap<String, RemoteControlProvisioner> provisionersByEnvironment = new ConcurrentHashMap<String, RemoteControlProvisioner>();
+    private final IdleSessionQueue idleSessions = new IdleSessionQueue();
+    private final CapabilityIndex capabilityIndex = new CapabilityIndex();
+    private final RemoteControlHealthSweep healthSweep;
+    private final SessionJournal journal;
+    private final List<RemoteControlPoolListener> listeners = new CopyOnWriteArrayList<RemoteControlPoolListener>();
+
+    public GlobalRemoteControlPool() {
+        this(new RemoteControlHealthSweep());
+    }
+
+    public GlobalRemoteControlPool(RemoteControlHealthSweep healthSweep) {
+        this(healthSweep, null);
+    }
+
+    /**
+     * @param journal Journal recording registrations and sessions as they come and go, and used to
+     *                recover them. Null for none.
+     */
+    public GlobalRemoteControlPool(RemoteControlHealthSweep healthSweep, SessionJournal journal) {
+        this.healthSweep = healthSweep;
+        this.journal = journal;
+        if (null != journal) {
+            addListener(journal);
+        }
+    }
+
+    public void addListener(RemoteControlPoolListener listener) {
+        listeners.add(listener);
+    }
 
     public void register(IRemoteControlProxy newRemoteControl) {
         final RemoteControlProvisioner provisioner;
@@ -28,61 +66,211 @@ public class GlobalRemoteControlPool implements DynamicRemoteControlPool {
             }
             provisioner = getProvisioner(newRemoteControl.environment());
             provisioner.add(newRemoteControl);
+            capabilityIndex.add(newRemoteControl.environment(), newRemoteControl.capabilities());
+        }
+        for (RemoteControlPoolListener listener : listeners) {
+            listener.registered(newRemoteControl);
         }
     }
 
-    public boolean unregister(IRemoteControlProxy remoteControl) {
-        final boolean status;
+    /**
+     * Remote controls are added to the provisioner of their environment as a batch, under a
+     * single acquisition of the pool monitor.
+     */
+    public void registerAll(Collection<IRemoteControlProxy> newRemoteControls) {
+        final Map<String, List<IRemoteControlProxy>> remoteControlsByEnvironment;
 
+        remoteControlsByEnvironment = groupByEnvironment(newRemoteControls);
         synchronized (provisionersByEnvironment) {
-            synchronized (remoteControlsBySessionIds) {
-                Set<RemoteControlSession> sessionsToRemove = new HashSet<RemoteControlSession>();
-
-                status = getProvisioner(remoteControl.environment()).remove(remoteControl);
-                for (RemoteControlSession session : remoteControlsBySessionIds.values()) {
-                    if (session.remoteControl().equals(remoteControl)) {
-                        sessionsToRemove.add(session);
-                    }
+            for (Map.Entry<String, List<IRemoteControlProxy>> entry : remoteControlsByEnvironment.entrySet()) {
+                if (null == getProvisioner(entry.getKey())) {
+                    createNewProvisionerForEnvironment(entry.getKey());
                 }
+                getProvisioner(entry.getKey()).addAll(entry.getValue());
+                for (IRemoteControlProxy newRemoteControl : entry.getValue()) {
+                    capabilityIndex.add(newRemoteControl.environment(), newRemoteControl.capabilities());
+                }
+            }
+        }
+        for (IRemoteControlProxy newRemoteControl : newRemoteControls) {
+            for (RemoteControlPoolListener listener : listeners) {
+                listener.registered(newRemoteControl);
+            }
+        }
+    }
+
+    public boolean unregister(IRemoteControlProxy remoteControl) {
+        return unregisterAll(Collections.singleton(remoteControl)) > 0;
+    }
 
-                // Remove the session separately from the loop where we found it to avoid issues with concurrent modification.
-                for (RemoteControlSession session : sessionsToRemove) {
-                    removeFromSessionMap(session);
+    /**
+     * Unregister a batch of remote controls along with their sessions, looked up
+     * through the session index of each remote control. Listeners are told about each
+     * session dropped along the way, as if it was released. Environments left without
+     * any remote control are dropped from the capability index.
+     *
+     * @return Number of remote controls that were actually registered.
+     */
+    public int unregisterAll(Collection<IRemoteControlProxy> remoteControls) {
+        final Set<String> environments;
+        ConcurrentMap<String, RemoteControlSession> sessions;
+        RemoteControlProvisioner provisioner;
+        int unregistered = 0;
+
+        environments = new HashSet<String>();
+        for (IRemoteControlProxy remoteControl : remoteControls) {
+            provisioner = getProvisioner(remoteControl.environment());
+            if (null != provisioner && provisioner.remove(remoteControl)) {
+                unregistered++;
+                environments.add(remoteControl.environment());
+                for (RemoteControlPoolListener listener : listeners) {
+                    listener.unregistered(remoteControl);
                 }
             }
+            sessions = sessionsByRemoteControl.remove(remoteControl);
+            if (null != sessions) {
+                for (RemoteControlSession session : sessions.values()) {
+                    if (remoteControlsBySessionIds.remove(session.sessionId(), session)) {
+                        for (RemoteControlPoolListener listener : listeners) {
+                            listener.released(session.sessionId());
+                        }
+                    }
+                }
+            }
+        }
+        for (String environment : environments) {
+            forgetEnvironmentIfEmpty(environment);
         }
-        return status;
+        return unregistered;
     }
 
     public IRemoteControlProxy reserve(Environment environment) {
         final RemoteControlProvisioner provisioner;
 
+        final IRemoteControlProxy remoteControl;
+
         provisioner = getProvisioner(environment.name());
         if (null == provisioner) {
             throw new NoSuchEnvironmentException(environment.name());
         }
-        return provisioner.reserve();
+        remoteControl = provisioner.reserve();
+        if (null == remoteControl) {
+            forgetEnvironmentIfEmpty(environment.name());
+        }
+        return remoteControl;
     }
 
-    public void associateWithSession(IRemoteControlProxy remoteControl, String sessionId) {
-        LOGGER.info("Associating session id='" + sessionId + "' =>" + remoteControl
-                + " for environment " + remoteControl.environment());
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Asssociating " + sessionId + " => " + remoteControl);
+    /**
+     * Reserve a remote control from any environment offering the desired capabilities. Environments
+     * with free session slots are preferred, then the ones with the shortest new session queue.
+     */
+    public IRemoteControlProxy reserve(DesiredCapabilities capabilities) {
+        final RemoteControlProvisioner provisioner;
+        final IRemoteControlProxy remoteControl;
+
+        provisioner = bestProvisionerFor(capabilities);
+        if (null == provisioner) {
+            throw new NoSuchEnvironmentException(capabilities.asMap().toString());
         }
-        synchronized (remoteControlsBySessionIds) {
-            if (remoteControlsBySessionIds.containsKey(sessionId)) {
-                throw new IllegalStateException(
-                        "Session '" + sessionId + "' is already asssociated with " + remoteControlsBySessionIds.get(sessionId));
+        remoteControl = provisioner.reserve();
+        if (null == remoteControl) {
+            for (String environment : capabilityIndex.environmentsMatching(capabilities)) {
+                forgetEnvironmentIfEmpty(environment);
+            }
+        }
+        return remoteControl;
+    }
+
+    public void reserve(final Environment environment, final ReservationListener listener,
+                        ScheduledExecutorService executor) {
+        final RemoteControlProvisioner provisioner;
+
+        provisioner = getProvisioner(environment.name());
+        if (null == provisioner) {
+            throw new NoSuchEnvironmentException(environment.name());
+        }
+        provisioner.reserve(new ReservationListener() {
+            public void reserved(IRemoteControlProxy remoteControl) {
+                if (null == remoteControl) {
+                    forgetEnvironmentIfEmpty(environment.name());
+                }
+                listener.reserved(remoteControl);
             }
+        }, executor);
+    }
+
+    public void reserve(final DesiredCapabilities capabilities, final ReservationListener listener,
+                        ScheduledExecutorService executor) {
+        final RemoteControlProvisioner provisioner;
 
-            remoteControlsBySessionIds.put(sessionId, new RemoteControlSession(sessionId, remoteControl));
+        provisioner = bestProvisionerFor(capabilities);
+        if (null == provisioner) {
+            throw new NoSuchEnvironmentException(capabilities.asMap().toString());
+        }
+        provisioner.reserve(new ReservationListener() {
+            public void reserved(IRemoteControlProxy remoteControl) {
+                if (null == remoteControl) {
+                    for (String environment : capabilityIndex.environmentsMatching(capabilities)) {
+                        forgetEnvironmentIfEmpty(environment);
+                    }
+                }
+                listener.reserved(remoteControl);
+            }
+        }, executor);
+    }
+
+    public List<String> environmentsMatching(DesiredCapabilities capabilities) {
+        return capabilityIndex.environmentsMatching(capabilities);
+    }
+
+    public CapabilityIndex capabilityIndex() {
+        return capabilityIndex;
+    }
+
+    public void associateWithSession(IRemoteControlProxy remoteControl, String sessionId) {
+        final RemoteControlSession session;
+        final RemoteControlSession existingSession;
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Associating session id='" + sessionId + "' => " + remoteControl
+                    + " for environment " + remoteControl.environment());
+        }
+        session = new RemoteControlSession(sessionId, remoteControl);
+        existingSession = remoteControlsBySessionIds.putIfAbsent(sessionId, session);
+        if (null != existingSession) {
+            throw new IllegalStateException(
+                    "Session '" + sessionId + "' is already associated with " + existingSession);
+        }
+        sessionsFor(remoteControl).put(sessionId, session);
+        idleSessions.add(session);
+        for (RemoteControlPoolListener listener : listeners) {
+            listener.associated(sessionId, remoteControl);
         }
         if (LOGGER.isDebugEnabled()) {
             logSessionMap();
         }
     }
 
+    /**
+     * Rebuild the pool from its journal, if it has one.
+     *
+     * @see SessionJournal#recoverInto(LocalRemoteControlPool, HttpClient)
+     */
+    public int recoverFromJournal(HttpClient httpClient) {
+        if (null == journal) {
+            return 0;
+        }
+        return journal.recoverInto(this, httpClient);
+    }
+
+    public SessionJournal journal() {
+        return journal;
+    }
+
+    public boolean hasSession(String sessionId) {
+        return null != getRemoteControlSession(sessionId);
+    }
+
     public IRemoteControlProxy retrieve(String sessionId) {
         return getRemoteControlForSession(sessionId);
     }
@@ -92,14 +280,21 @@ public class GlobalRemoteControlPool implements DynamicRemoteControlPool {
     }
 
     public void releaseForSession(String sessionId) {
-        LOGGER.info("Releasing pool for session id='" + sessionId + "'");
-
+        final RemoteControlSession session;
         final IRemoteControlProxy remoteControl;
-        remoteControl = getRemoteControlForSession(sessionId);
 
-        synchronized (remoteControlsBySessionIds) {
-            remoteControlsBySessionIds.remove(sessionId);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Releasing pool for session id='" + sessionId + "'");
         }
+        session = remoteControlsBySessionIds.remove(sessionId);
+        if (null == session) {
+            throw new NoSuchSessionException(sessionId);
+        }
+        removeFromSessionIndex(session);
+        for (RemoteControlPoolListener listener : listeners) {
+            listener.released(sessionId);
+        }
+        remoteControl = session.remoteControl();
         remoteControl.terminateSession(sessionId);
         getProvisioner(remoteControl.environment()).release(remoteControl);
     }
@@ -139,6 +334,16 @@ public class GlobalRemoteControlPool implements DynamicRemoteControlPool {
         return allRemoteControls;
     }
 
+    public List<NewSessionQueueStatus> newSessionQueueStatuses() {
+        final List<NewSessionQueueStatus> statuses;
+
+        statuses = new LinkedList<NewSessionQueueStatus>();
+        for (Map.Entry<String, RemoteControlProvisioner> entry : new TreeMap<String, RemoteControlProvisioner>(provisionersByEnvironment).entrySet()) {
+            statuses.add(entry.getValue().status(entry.getKey()));
+        }
+        return statuses;
+    }
+
     public boolean isRegistered(IRemoteControlProxy remoteControl) {
         for (RemoteControlProvisioner provisioner : provisionersByEnvironment.values()) {
             if (provisioner.contains(remoteControl)) {
@@ -152,6 +357,56 @@ public class GlobalRemoteControlPool implements DynamicRemoteControlPool {
         return provisionersByEnvironment.get(environment);
     }
 
+    /**
+     * @return Provisioner of the matching environment most likely to serve a new session quickly.
+     *         Null if no environment with registered remote controls matches.
+     */
+    protected RemoteControlProvisioner bestProvisionerFor(DesiredCapabilities capabilities) {
+        RemoteControlProvisioner bestProvisioner = null;
+        ReservationStatistics bestStatistics = null;
+        RemoteControlProvisioner provisioner;
+        ReservationStatistics statistics;
+
+        for (String environment : capabilityIndex.environmentsMatching(capabilities)) {
+            provisioner = getProvisioner(environment);
+            if (null == provisioner || 0 == provisioner.statistics().registeredRemoteControls()) {
+                continue;
+            }
+            statistics = provisioner.statistics();
+            if (null == bestProvisioner || isBetterCandidate(statistics, bestStatistics)) {
+                bestProvisioner = provisioner;
+                bestStatistics = statistics;
+            }
+        }
+        return bestProvisioner;
+    }
+
+    /**
+     * @return Remote controls by environment, in the order they come in.
+     */
+    protected static Map<String, List<IRemoteControlProxy>> groupByEnvironment(Collection<IRemoteControlProxy> remoteControls) {
+        final Map<String, List<IRemoteControlProxy>> remoteControlsByEnvironment;
+        List<IRemoteControlProxy> environmentRemoteControls;
+
+        remoteControlsByEnvironment = new LinkedHashMap<String, List<IRemoteControlProxy>>();
+        for (IRemoteControlProxy remoteControl : remoteControls) {
+            environmentRemoteControls = remoteControlsByEnvironment.get(remoteControl.environment());
+            if (null == environmentRemoteControls) {
+                environmentRemoteControls = new ArrayList<IRemoteControlProxy>();
+                remoteControlsByEnvironment.put(remoteControl.environment(), environmentRemoteControls);
+            }
+            environmentRemoteControls.add(remoteControl);
+        }
+        return remoteControlsByEnvironment;
+    }
+
+    protected static boolean isBetterCandidate(ReservationStatistics candidate, ReservationStatistics best) {
+        if (candidate.freeSlots() != best.freeSlots()) {
+            return candidate.freeSlots() > best.freeSlots();
+        }
+        return candidate.waiters() < best.waiters();
+    }
+
     protected IRemoteControlProxy getRemoteControlForSession(String sessionId) {
         final RemoteControlSession session;
 
@@ -168,59 +423,109 @@ public class GlobalRemoteControlPool implements DynamicRemoteControlPool {
     }
 
     protected void removeFromSessionMap(RemoteControlSession session) {
-        // Use a real iterator to avoid issues with concurrent modification.
-        for (final Iterator<Map.Entry<String, RemoteControlSession>> it = remoteControlsBySessionIds.entrySet().iterator(); it.hasNext();) {
-            final Map.Entry<String, RemoteControlSession> entry = it.next();
-
-            if (entry.getValue().equals(session)) {
-                it.remove();
+        if (remoteControlsBySessionIds.remove(session.sessionId(), session)) {
+            removeFromSessionIndex(session);
+            for (RemoteControlPoolListener listener : listeners) {
+                listener.released(session.sessionId());
             }
         }
     }
 
+    /**
+     * Sessions in progress on a remote control, indexed by session id. Entries are only
+     * dropped when the remote control is unregistered, so that a concurrent association
+     * never ends up in a discarded index.
+     */
+    protected ConcurrentMap<String, RemoteControlSession> sessionsFor(IRemoteControlProxy remoteControl) {
+        final ConcurrentMap<String, RemoteControlSession> newSessions;
+        final ConcurrentMap<String, RemoteControlSession> existingSessions;
+        final ConcurrentMap<String, RemoteControlSession> racingSessions;
+
+        existingSessions = sessionsByRemoteControl.get(remoteControl);
+        if (null != existingSessions) {
+            return existingSessions;
+        }
+        newSessions = new ConcurrentHashMap<String, RemoteControlSession>();
+        racingSessions = sessionsByRemoteControl.putIfAbsent(remoteControl, newSessions);
+        return null == racingSessions ? newSessions : racingSessions;
+    }
+
+    protected void removeFromSessionIndex(RemoteControlSession session) {
+        final ConcurrentMap<String, RemoteControlSession> sessions;
+
+        sessions = sessionsByRemoteControl.get(session.remoteControl());
+        if (null != sessions) {
+            sessions.remove(session.sessionId(), session);
+        }
+    }
+
     protected void logSessionMap() {
         for (Map.Entry<String, RemoteControlSession> entry : remoteControlsBySessionIds.entrySet()) {
             LOGGER.debug(entry.getKey() + " => " + entry.getValue());
         }
     }
 
+    /**
+     * Drop an environment from the capability index once its last remote control is gone,
+     * whether it was unregistered or torn down by its provisioner as unreliable. Serialized
+     * with registrations, so a remote control registering meanwhile keeps it indexed.
+     */
+    protected void forgetEnvironmentIfEmpty(String environment) {
+        final RemoteControlProvisioner provisioner;
+
+        synchronized (provisionersByEnvironment) {
+            provisioner = getProvisioner(environment);
+            if (null == provisioner || provisioner.isEmpty()) {
+                capabilityIndex.remove(environment);
+            }
+        }
+    }
+
     protected void createNewProvisionerForEnvironment(String environemntName) {
         provisionersByEnvironment.put(environemntName, new RemoteControlProvisioner());
     }
 
     public void unregisterAllUnresponsiveRemoteControls() {
-        for (IRemoteControlProxy rc : allRegisteredRemoteControls()) {
-            unregisterRemoteControlIfUnreliable(rc);
+        final List<IRemoteControlProxy> unresponsiveRemoteControls;
+
+        unresponsiveRemoteControls = healthSweep.unresponsiveRemoteControls(allRegisteredRemoteControls());
+        if (unresponsiveRemoteControls.isEmpty()) {
+            return;
         }
+        LOGGER.warn("Unregistering unreliable RCs " + unresponsiveRemoteControls);
+        unregisterAll(new HashSet<IRemoteControlProxy>(unresponsiveRemoteControls));
     }
 
-    protected void unregisterRemoteControlIfUnreliable(IRemoteControlProxy rc) {
-        if (rc.unreliable()) {
-            LOGGER.warn("Unregistering unreliable RC " + rc);
-            unregister(rc);
-        }
+    public RemoteControlHealthSweep healthSweep() {
+        return healthSweep;
     }
 
     public void updateSessionLastActiveAt(String sessionId) {
         getRemoteControlSession(sessionId).updateLastActiveAt();
     }
 
+    /**
+     * Release sessions idle for too long. Only sessions that may have expired are looked at.
+     */
     public void recycleAllSessionsIdleForTooLong(double maxIdleTimeInSeconds) {
-        for (RemoteControlSession session : iteratorSafeRemoteControlSessions()) {
-            recycleSessionIfIdleForTooLong(session, maxIdleTimeInSeconds);
+        final long maxIdleTimeInMilliseconds;
+
+        maxIdleTimeInMilliseconds = (long) (maxIdleTimeInSeconds * 1000);
+        for (RemoteControlSession session : idleSessions.removeInnactiveSince(System.currentTimeMillis() - maxIdleTimeInMilliseconds)) {
+            if (session != getRemoteControlSession(session.sessionId())) {
+                continue; // Already released
+            }
+            LOGGER.warn("Releasing session IDLE for more than " + maxIdleTimeInSeconds + " seconds: " + session);
+            try {
+                releaseForSession(session.sessionId());
+            } catch (NoSuchSessionException e) {
+                // Released concurrently
+            }
         }
     }
 
     public Set<RemoteControlSession> iteratorSafeRemoteControlSessions() {
-        final Set<RemoteControlSession> iteratorSafeCopy;
-
-        iteratorSafeCopy = new HashSet<RemoteControlSession>();
-        synchronized (remoteControlsBySessionIds) {
-            for (Map.Entry<String, RemoteControlSession> entry : remoteControlsBySessionIds.entrySet()) {
-                iteratorSafeCopy.add(entry.getValue());
-            }
-        }
-        return iteratorSafeCopy;
+        return new HashSet<RemoteControlSession>(remoteControlsBySessionIds.values());
     }
 
     public void recycleSessionIfIdleForTooLong(RemoteControlSession session, double maxIdleTimeInSeconds) {
@@ -0,0 +1,114 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the statuses remote controls push to the hub, so that the hub does not have to poll
+ * them: a remote control is alive as long as it keeps pushing its status within the timeout.
+ * <p/>
+ * Recording a status is a single concurrent map update. Expiring the statuses that timed out
+ * only walks the statuses, in memory, and never contacts a remote control.
+ */
+public class HeartbeatMonitor {
+
+    private static final Log LOGGER = LogFactory.getLog(HeartbeatMonitor.class);
+    private final ConcurrentMap<String, RemoteControlStatus> statusesByRemoteControl;
+    private final long timeoutInNanoseconds;
+
+    /**
+     * @param timeoutInSeconds Time after which a remote control that has not pushed its status
+     *                         is considered dead. 0 to ignore pushed statuses.
+     */
+    public HeartbeatMonitor(double timeoutInSeconds) {
+        this.statusesByRemoteControl = new ConcurrentHashMap<String, RemoteControlStatus>();
+        this.timeoutInNanoseconds = (long) (timeoutInSeconds * 1000000000L);
+    }
+
+    public boolean enabled() {
+        return timeoutInNanoseconds > 0;
+    }
+
+    public long timeoutInMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(timeoutInNanoseconds);
+    }
+
+    /**
+     * Record the status pushed by a remote control. Ignored if the monitor is not enabled.
+     */
+    public void heartbeat(RemoteControlStatus status) {
+        if (!enabled()) {
+            return;
+        }
+        if (null == statusesByRemoteControl.put(key(status.host(), status.port()), status)) {
+            LOGGER.info("Remote control " + status.host() + ":" + status.port()
+                    + " is pushing its status, no longer polling it");
+        }
+    }
+
+    /**
+     * @return Whether the liveness of the remote control is tracked from the statuses it pushes,
+     *         rather than by polling it.
+     */
+    public boolean monitors(IRemoteControlProxy remoteControl) {
+        return null != status(remoteControl);
+    }
+
+    /**
+     * @return Last status pushed by the remote control. Null if it has not pushed any since it
+     *         last expired.
+     */
+    public RemoteControlStatus status(IRemoteControlProxy remoteControl) {
+        return statusesByRemoteControl.get(key(remoteControl.host(), remoteControl.port()));
+    }
+
+    /**
+     * Forget the statuses pushed longer than the timeout ago.
+     *
+     * @return Keys ("host:port") of the remote controls whose status expired. Never null.
+     */
+    public Set<String> expire() {
+        final Set<String> expired;
+        final long now;
+
+        expired = new HashSet<String>();
+        now = System.nanoTime();
+        for (Map.Entry<String, RemoteControlStatus> entry : statusesByRemoteControl.entrySet()) {
+            if (now - entry.getValue().receivedAt() > timeoutInNanoseconds
+                    && statusesByRemoteControl.remove(entry.getKey(), entry.getValue())) {
+                expired.add(entry.getKey());
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return Last statuses pushed by the remote controls, sorted by host and port. Never null.
+     */
+    public List<RemoteControlStatus> statuses() {
+        final SortedMap<String, RemoteControlStatus> sortedStatuses;
+
+        sortedStatuses = new TreeMap<String, RemoteControlStatus>(statusesByRemoteControl);
+        return new ArrayList<RemoteControlStatus>(sortedStatuses.values());
+    }
+
+    public int size() {
+        return statusesByRemoteControl.size();
+    }
+
+    public static String key(String host, int port) {
+        return host + ":" + port;
+    }
+
+}
@@ -5,6 +5,7 @@ import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.RemoteControlMo
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * Created by IntelliJ IDEA.
@@ -20,6 +21,11 @@ public interface IRemoteControlProxy {
 
     public String environment();
 
+    /**
+     * @return Capabilities offered by the remote control, e.g. browserName, platform or version. Never null.
+     */
+    public Map<String, String> capabilities();
+
     public String remoteControlPingURL();
 
     public String remoteControlDriverURL();
@@ -34,18 +40,50 @@ public interface IRemoteControlProxy {
 
     public int hashCode();
 
+    /**
+     * @return Whether at least one session is in progress on the remote control.
+     */
     public boolean sessionInProgress();
 
+    public int sessionsInProgress();
+
+    /**
+     * @return Number of sessions the remote control can run at the same time, as advertised on registration.
+     */
+    public int maxConcurrentSessions();
+
     public void registerNewSession();
 
     public void unregisterSession();
 
     public void terminateSession(String sessionId);
 
+    /**
+     * @return Whether the remote control has a free session slot.
+     */
     public boolean canHandleNewSession();
 
     public boolean unreliable();
 
+    /**
+     * Same as unreliable(), but gives up on each heartbeat if the remote control does not
+     * reply within the specified timeout.
+     */
+    public boolean unreliable(int timeoutInMilliseconds);
+
+    /**
+     * @return Outcome of the last heartbeat check, without contacting the remote control.
+     */
+    public boolean lastKnownToBeUnreliable();
+
+    /**
+     * Single heartbeat check, giving up after the specified timeout (no retries).
+     *
+     * @param timeoutInMilliseconds Maximum time to wait for the remote control to reply.
+     * @return Whether the remote control failed to reply in time or replied with an error.
+     */
+    public boolean failsPreFlightCheck(int timeoutInMilliseconds);
+
     void setRequest(HttpServletRequest request);
 
     void setMode(RemoteControlMode webDriver);
@@ -0,0 +1,71 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Sessions ordered by the last activity recorded when they were queued, oldest first.
+ * <p/>
+ * Activity is not tracked eagerly: a session is queued once, and only re-queued with
+ * its latest activity when it reaches the head of the queue. Finding idle sessions
+ * therefore only touches sessions that may actually have expired.
+ */
+public class IdleSessionQueue {
+
+    private final PriorityBlockingQueue<Entry> entries = new PriorityBlockingQueue<Entry>();
+
+    public void add(RemoteControlSession session) {
+        entries.add(new Entry(session, session.lastActiveAt()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all sessions that have not been active since a given time. Sessions that turn out
+     * to have been active since they were queued are queued again with their latest activity.
+     *
+     * @param millisecondsSinceEpoch Sessions active at or before that time are returned.
+     * @return Idle sessions, oldest first. Never null.
+     */
+    public List<RemoteControlSession> removeInnactiveSince(long millisecondsSinceEpoch) {
+        final List<RemoteControlSession> idleSessions;
+        Entry entry;
+
+        idleSessions = new LinkedList<RemoteControlSession>();
+        while (true) {
+            entry = entries.poll();
+            if (null == entry) {
+                break;
+            }
+            if (entry.lastActiveAt > millisecondsSinceEpoch) {
+                entries.add(entry);
+                break;
+            }
+            if (entry.session.innactiveSince(millisecondsSinceEpoch)) {
+                idleSessions.add(entry.session);
+            } else {
+                add(entry.session);
+            }
+        }
+        return idleSessions;
+    }
+
+    protected static class Entry implements Comparable<Entry> {
+
+        private final RemoteControlSession session;
+        private final long lastActiveAt;
+
+        public Entry(RemoteControlSession session, long lastActiveAt) {
+            this.session = session;
+            this.lastActiveAt = lastActiveAt;
+        }
+
+        public int compareTo(Entry other) {
+            return lastActiveAt < other.lastActiveAt ? -1 : (lastActiveAt == other.lastActiveAt ? 0 : 1);
+        }
+    }
+
+}
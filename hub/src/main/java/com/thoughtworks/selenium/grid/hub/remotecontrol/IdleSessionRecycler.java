@@ -0,0 +1,60 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Releases sessions idle for too long. Runs every second, independently of the
+ * (much less frequent and potentially slow) remote control polling, so that sessions
+ * expire within a second of the configured max idle time.
+ */
+public class IdleSessionRecycler implements Runnable {
+
+    public static final long CHECK_INTERVAL_IN_MILLISECONDS = 1000;
+    private static final Log LOGGER = LogFactory.getLog(IdleSessionRecycler.class);
+    private final DynamicRemoteControlPool pool;
+    private final double sessionMaxIdleTimeInSeconds;
+    private volatile boolean active;
+
+    public IdleSessionRecycler(DynamicRemoteControlPool pool, double sessionMaxIdleTimeInSeconds) {
+        this.pool = pool;
+        this.sessionMaxIdleTimeInSeconds = sessionMaxIdleTimeInSeconds;
+        this.active = true;
+    }
+
+    public boolean active() {
+        return active;
+    }
+
+    public void stop() {
+        active = false;
+    }
+
+    public void run() {
+        while (active) {
+            sleepForALittleWhile();
+            recycleIdleSessions();
+        }
+    }
+
+    public void recycleIdleSessions() {
+        try {
+            pool.recycleAllSessionsIdleForTooLong(sessionMaxIdleTimeInSeconds);
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not recycle idle sessions", e);
+        }
+    }
+
+    protected void sleepForALittleWhile() {
+        try {
+            Thread.sleep(CHECK_INTERVAL_IN_MILLISECONDS);
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted!");
+        }
+    }
+
+    public double sessionMaxIdleTimeInSeconds() {
+        return sessionMaxIdleTimeInSeconds;
+    }
+
+}
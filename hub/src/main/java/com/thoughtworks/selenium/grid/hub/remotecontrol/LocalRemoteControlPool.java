@@ -0,0 +1,34 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+
+/**
+ * Pool of the remote controls registered with this hub, which other pools (e.g. one shared by
+ * a cluster of hubs) can observe and build on.
+ */
+public interface LocalRemoteControlPool extends DynamicRemoteControlPool {
+
+    /**
+     * Listeners should be added before remote controls register.
+     */
+    void addListener(RemoteControlPoolListener listener);
+
+    /**
+     * @return Whether the session is in progress on one of the remote controls of this pool.
+     */
+    boolean hasSession(String sessionId);
+
+    /**
+     * @return Provisioner of the environment. Null if no remote control ever registered for it.
+     */
+    RemoteControlProvisioner getProvisioner(String environment);
+
+    /**
+     * Register the remote controls and associate the sessions recorded in the journal of the pool.
+     *
+     * @param httpClient Client used by the recovered remote controls to talk to their actual remote control.
+     * @return Number of sessions recovered. 0 if the pool has no journal.
+     */
+    int recoverFromJournal(HttpClient httpClient);
+
+}
@@ -0,0 +1,87 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+/**
+ * Snapshot of the new session queue of a single environment, as shown on the console
+ * and exposed to monitoring.
+ */
+public class NewSessionQueueStatus {
+
+    private final String environment;
+    private final int waiters;
+    private final long oldestWaiterAgeInMilliseconds;
+    private final int freeSlots;
+    private final int busySlots;
+    private final long reservations;
+    private final long timeouts;
+    private final long timeToReserveSumInMilliseconds;
+    private final long timeToReserveMedianInMilliseconds;
+    private final long timeToReserve99thPercentileInMilliseconds;
+
+    public NewSessionQueueStatus(String environment, int waiters, long oldestWaiterAgeInMilliseconds,
+                                 int freeSlots, int busySlots, long reservations, long timeouts,
+                                 long timeToReserveSumInMilliseconds, long timeToReserveMedianInMilliseconds,
+                                 long timeToReserve99thPercentileInMilliseconds) {
+        this.environment = environment;
+        this.waiters = waiters;
+        this.oldestWaiterAgeInMilliseconds = oldestWaiterAgeInMilliseconds;
+        this.freeSlots = freeSlots;
+        this.busySlots = busySlots;
+        this.reservations = reservations;
+        this.timeouts = timeouts;
+        this.timeToReserveSumInMilliseconds = timeToReserveSumInMilliseconds;
+        this.timeToReserveMedianInMilliseconds = timeToReserveMedianInMilliseconds;
+        this.timeToReserve99thPercentileInMilliseconds = timeToReserve99thPercentileInMilliseconds;
+    }
+
+    public String environment() {
+        return environment;
+    }
+
+    public int waiters() {
+        return waiters;
+    }
+
+    /**
+     * @return How long the oldest pending request has been waiting for a remote control. 0 if none is waiting.
+     */
+    public long oldestWaiterAgeInMilliseconds() {
+        return oldestWaiterAgeInMilliseconds;
+    }
+
+    public int freeSlots() {
+        return freeSlots;
+    }
+
+    public int busySlots() {
+        return busySlots;
+    }
+
+    /**
+     * @return Number of successful reservations so far.
+     */
+    public long reservations() {
+        return reservations;
+    }
+
+    public long timeouts() {
+        return timeouts;
+    }
+
+    public long timeToReserveSumInMilliseconds() {
+        return timeToReserveSumInMilliseconds;
+    }
+
+    public long timeToReserveMedianInMilliseconds() {
+        return timeToReserveMedianInMilliseconds;
+    }
+
+    public long timeToReserve99thPercentileInMilliseconds() {
+        return timeToReserve99thPercentileInMilliseconds;
+    }
+
+    public String toString() {
+        return "[NewSessionQueueStatus " + environment + " waiters=" + waiters
+                + " free=" + freeSlots + " busy=" + busySlots + "]";
+    }
+
+}
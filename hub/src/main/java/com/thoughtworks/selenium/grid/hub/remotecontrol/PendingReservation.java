@@ -0,0 +1,111 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A request waiting for a remote control, queued in FIFO order by the
+ * provisioner. Released remote controls are handed over directly to the oldest
+ * pending reservation, so only the thread that actually gets the remote control
+ * is woken up.
+ * <p/>
+ * A reservation can also notify a callback instead of waking up a blocked thread,
+ * so that the request waits without holding any thread.
+ */
+public class PendingReservation {
+
+    private static final Log LOGGER = LogFactory.getLog(PendingReservation.class);
+    private final long createdAt;
+    private final ReservationListener onFulfilled;
+    private IRemoteControlProxy remoteControl;
+    private boolean cancelled;
+
+    public PendingReservation() {
+        this(null);
+    }
+
+    /**
+     * @param onFulfilled Told by the thread handing over a remote control, right after the hand over.
+     *                    Should be quick, e.g. only submit work to an executor. Null for none.
+     */
+    public PendingReservation(ReservationListener onFulfilled) {
+        this.createdAt = System.nanoTime();
+        this.onFulfilled = onFulfilled;
+    }
+
+    /**
+     * @return Time when this reservation was queued, as returned by System.nanoTime().
+     */
+    public long createdAt() {
+        return createdAt;
+    }
+
+    /**
+     * Hand over a remote control to the waiting request.
+     *
+     * @param remoteControl Remote control already reserved on behalf of the waiting request. Should not be null.
+     * @return Whether the hand over succeeded. False if the request gave up waiting in the meantime.
+     */
+    public boolean fulfil(IRemoteControlProxy remoteControl) {
+        synchronized (this) {
+            if (cancelled || null != this.remoteControl) {
+                return false;
+            }
+            this.remoteControl = remoteControl;
+            notify();
+        }
+        if (null != onFulfilled) {
+            onFulfilled.reserved(remoteControl);
+        }
+        return true;
+    }
+
+    /**
+     * Give up waiting. Never succeeds once a remote control has been handed over.
+     *
+     * @return Whether the reservation was cancelled.
+     */
+    public synchronized boolean cancel() {
+        if (null != remoteControl) {
+            return false;
+        }
+        cancelled = true;
+        return true;
+    }
+
+    public synchronized boolean cancelled() {
+        return cancelled;
+    }
+
+    public synchronized IRemoteControlProxy remoteControl() {
+        return remoteControl;
+    }
+
+    /**
+     * Block until a remote control is handed over or the deadline expires, in which case
+     * the reservation is cancelled.
+     *
+     * @param deadline Time (as returned by System.nanoTime()) when to give up. Long.MAX_VALUE to wait forever.
+     * @return The remote control handed over. Null if the reservation timed out.
+     */
+    public synchronized IRemoteControlProxy await(long deadline) {
+        while (null == remoteControl) {
+            try {
+                if (Long.MAX_VALUE == deadline) {
+                    wait();
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        cancelled = true;
+                        return null;
+                    }
+                    wait(remaining / 1000000L, (int) (remaining % 1000000L));
+                }
+            } catch (InterruptedException e) {
+                LOGGER.error("Interrupted while reserving remote control", e);
+            }
+        }
+        return remoteControl;
+    }
+
+}
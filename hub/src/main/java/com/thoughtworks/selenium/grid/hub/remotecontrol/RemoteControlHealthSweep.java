@@ -0,0 +1,233 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls remote controls in parallel to find the unresponsive ones.
+ * <p/>
+ * Heartbeats are sent from a bounded pool of threads, and each of them is given
+ * a deadline: a remote control that has not replied by then is reported as
+ * unresponsive. The heartbeat request itself times out at the same deadline,
+ * since cancelling a probe cannot interrupt a blocked socket read.
+ * <p/>
+ * The sweep as a whole also has a deadline, so that it always returns even if all
+ * the threads are busy: probes that have not started by then are dropped until
+ * the next sweep.
+ * <p/>
+ * Remote controls pushing their status to the hub are not polled: their liveness is
+ * tracked by the {@link HeartbeatMonitor} instead.
+ */
+public class RemoteControlHealthSweep {
+
+    public static final int DEFAULT_MAX_CONCURRENT_PROBES = 16;
+    public static final double DEFAULT_PROBE_TIMEOUT_IN_SECONDS = 30;
+    private static final Log LOGGER = LogFactory.getLog(RemoteControlHealthSweep.class);
+    private final ExecutorService executor;
+    private final int maxConcurrentProbes;
+    private final long probeTimeoutInNanoseconds;
+    private final AtomicInteger probesInFlight;
+    private final HeartbeatMonitor heartbeatMonitor;
+    private volatile long lastSweepDurationInMilliseconds;
+    private volatile int lastSweepProbeCount;
+    private volatile int lastSweepUnresponsiveCount;
+
+    public RemoteControlHealthSweep() {
+        this(DEFAULT_MAX_CONCURRENT_PROBES, DEFAULT_PROBE_TIMEOUT_IN_SECONDS);
+    }
+
+    public RemoteControlHealthSweep(HubConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    /**
+     * @param heartbeatMonitor Monitor of the remote controls pushing their status, which are not
+     *                         polled. Null to poll all remote controls.
+     */
+    public RemoteControlHealthSweep(HubConfiguration configuration, HeartbeatMonitor heartbeatMonitor) {
+        this(configuration.getRemoteControlPollingMaxConcurrentProbes(),
+             configuration.getRemoteControlPollingTimeoutInSeconds(), heartbeatMonitor);
+    }
+
+    public RemoteControlHealthSweep(int maxConcurrentProbes, double probeTimeoutInSeconds) {
+        this(maxConcurrentProbes, probeTimeoutInSeconds, null);
+    }
+
+    public RemoteControlHealthSweep(int maxConcurrentProbes, double probeTimeoutInSeconds,
+                                    HeartbeatMonitor heartbeatMonitor) {
+        if (maxConcurrentProbes < 1) {
+            throw new IllegalArgumentException("maxConcurrentProbes must be at least 1");
+        }
+        this.executor = Executors.newFixedThreadPool(maxConcurrentProbes, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger(0);
+
+            public Thread newThread(Runnable runnable) {
+                final Thread thread;
+
+                thread = new Thread(runnable, "RC Health Probe " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.maxConcurrentProbes = maxConcurrentProbes;
+        this.probeTimeoutInNanoseconds = (long) (probeTimeoutInSeconds * 1000000000L);
+        this.probesInFlight = new AtomicInteger(0);
+        this.heartbeatMonitor = heartbeatMonitor;
+    }
+
+    /**
+     * Poll all remote controls not pushing their status, and wait for the outcome.
+     *
+     * @param remoteControls Remote controls to poll. Should not be null.
+     * @return Remote controls that are unreliable or did not reply in time. Never null.
+     */
+    public List<IRemoteControlProxy> unresponsiveRemoteControls(Collection<IRemoteControlProxy> remoteControls) {
+        final List<IRemoteControlProxy> unresponsiveRemoteControls;
+        final List<Probe> probes;
+        final long start;
+        final long deadline;
+
+        start = System.nanoTime();
+        probes = new ArrayList<Probe>(remoteControls.size());
+        for (IRemoteControlProxy remoteControl : remoteControls) {
+            if (null != heartbeatMonitor && heartbeatMonitor.monitors(remoteControl)) {
+                continue;
+            }
+            final Probe probe = new Probe(remoteControl);
+            probe.future = executor.submit(probe);
+            probes.add(probe);
+        }
+
+        deadline = start + sweepTimeoutInNanoseconds(probes.size());
+        unresponsiveRemoteControls = new LinkedList<IRemoteControlProxy>();
+        for (Probe probe : probes) {
+            if (probe.unresponsive(deadline)) {
+                unresponsiveRemoteControls.add(probe.remoteControl);
+            }
+        }
+
+        lastSweepDurationInMilliseconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastSweepProbeCount = probes.size();
+        lastSweepUnresponsiveCount = unresponsiveRemoteControls.size();
+        LOGGER.info("Polled " + lastSweepProbeCount + " RCs in " + lastSweepDurationInMilliseconds
+                + " ms, " + lastSweepUnresponsiveCount + " unresponsive");
+        return unresponsiveRemoteControls;
+    }
+
+    /**
+     * @return Time for all the probes to run one after the other on each thread, with one extra
+     *         probe timeout for the probes that started late.
+     */
+    protected long sweepTimeoutInNanoseconds(int probeCount) {
+        return probeTimeoutInNanoseconds * ((probeCount + maxConcurrentProbes - 1) / maxConcurrentProbes + 1);
+    }
+
+    public int probesInFlight() {
+        return probesInFlight.get();
+    }
+
+    public long lastSweepDurationInMilliseconds() {
+        return lastSweepDurationInMilliseconds;
+    }
+
+    public int lastSweepProbeCount() {
+        return lastSweepProbeCount;
+    }
+
+    public int lastSweepUnresponsiveCount() {
+        return lastSweepUnresponsiveCount;
+    }
+
+    public HeartbeatMonitor heartbeatMonitor() {
+        return heartbeatMonitor;
+    }
+
+    protected int probeTimeoutInMilliseconds() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, TimeUnit.NANOSECONDS.toMillis(probeTimeoutInNanoseconds)));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Heartbeat for a single remote control. Its deadline starts when it actually
+     * starts running, not when it is queued waiting for a free thread.
+     */
+    protected class Probe implements Callable<Boolean> {
+
+        private final IRemoteControlProxy remoteControl;
+        private volatile boolean started;
+        private volatile long startedAt;
+        private Future<Boolean> future;
+
+        public Probe(IRemoteControlProxy remoteControl) {
+            this.remoteControl = remoteControl;
+        }
+
+        public Boolean call() {
+            startedAt = System.nanoTime();
+            started = true;
+            probesInFlight.incrementAndGet();
+            try {
+                return remoteControl.unreliable(probeTimeoutInMilliseconds());
+            } finally {
+                probesInFlight.decrementAndGet();
+            }
+        }
+
+        /**
+         * @param sweepDeadline Time after which a probe that has not started yet is dropped.
+         * @return Whether the remote control is unreliable or did not reply in time. False if
+         *         the probe was dropped.
+         */
+        protected boolean unresponsive(long sweepDeadline) {
+            long timeLeft;
+
+            while (true) {
+                try {
+                    if (!started) {
+                        timeLeft = sweepDeadline - System.nanoTime();
+                        if (timeLeft <= 0) {
+                            if (future.cancel(false)) {
+                                LOGGER.warn("Remote Control " + remoteControl + " could not be polled before the end of the sweep");
+                                return false;
+                            }
+                            timeLeft = probeTimeoutInNanoseconds;
+                        }
+                        return future.get(Math.min(timeLeft, probeTimeoutInNanoseconds), TimeUnit.NANOSECONDS);
+                    }
+                    return future.get(startedAt + probeTimeoutInNanoseconds - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (started && System.nanoTime() - startedAt >= probeTimeoutInNanoseconds) {
+                        LOGGER.warn("Remote Control " + remoteControl + " did not reply in time");
+                        future.cancel(true);
+                        return true;
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Failed to poll Remote Control " + remoteControl, e.getCause());
+                    return true;
+                } catch (InterruptedException e) {
+                    LOGGER.warn("Interrupted!");
+                    return false;
+                }
+            }
+        }
+    }
+
+}
@@ -5,19 +5,16 @@ import org.apache.commons.logging.LogFactory;
 
 public class RemoteControlPoller implements Runnable {
     private final long pollingIntervalInMilliseconds;
-    private final double sessionMaxIdleTimeInSeconds;
     private final DynamicRemoteControlPool pool;
     private boolean active;
 
     private static final Log LOGGER = LogFactory.getLog(RemoteControlPoller.class);
 
     public RemoteControlPoller(DynamicRemoteControlPool pool,
-                               double pollingIntervalInSeconds,
-                               double sessionMaxIdleTimeInSeconds) {
+                               double pollingIntervalInSeconds) {
         this.pollingIntervalInMilliseconds = (long) (pollingIntervalInSeconds * 1000);
         this.pool = pool;
         this.active = true;
-        this.sessionMaxIdleTimeInSeconds = sessionMaxIdleTimeInSeconds;
     }
 
     public boolean active() {
@@ -36,9 +33,8 @@ public class RemoteControlPoller implements Runnable {
 
     public void garbageCollectRemoteControls() {
         sleepForALittleWhile();
-        LOGGER.info("Garbage collecting unavailable RCs and stale sessions...");
+        LOGGER.info("Garbage collecting unavailable RCs...");
         pool.unregisterAllUnresponsiveRemoteControls();
-        pool.recycleAllSessionsIdleForTooLong(sessionMaxIdleTimeInSeconds);
     }
     
     protected void sleepForALittleWhile() {
@@ -53,9 +49,5 @@ public class RemoteControlPoller implements Runnable {
         return pollingIntervalInMilliseconds;
     }
 
-    public double sessionMaxIdleTimeInSeconds() {
-        return sessionMaxIdleTimeInSeconds;
-    }
-
 
 }
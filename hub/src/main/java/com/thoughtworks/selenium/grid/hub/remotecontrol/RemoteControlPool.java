@@ -1,6 +1,7 @@
 package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
 import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
 
 /**
  * Pool of remote controls that can be used to process Selenese requests.
@@ -17,6 +18,17 @@ public interface RemoteControlPool {
      */
     IRemoteControlProxy reserve(Environment environment);
 
+    /**
+     * Gain exclusive access to a remote control offering some capabilities, whatever its environment.
+     *
+     * @param capabilities Capabilities that the remote control must offer. Should not be null.
+     * @return Reserved remote control. Null if none became available in time.
+     * @throws com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException
+     *          if no registered remote control offers these capabilities.
+     * @see com.thoughtworks.selenium.grid.hub.capabilities.CapabilityIndex
+     */
+    IRemoteControlProxy reserve(DesiredCapabilities capabilities);
+
     /**
      * Associates a reserved remote control with a Selenese session id. Once associated
      * the remote control can easily be retrieved by session id.
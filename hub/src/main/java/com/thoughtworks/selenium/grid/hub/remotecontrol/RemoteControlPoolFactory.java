@@ -0,0 +1,43 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.hub.journal.SessionJournal;
+
+/**
+ * Creates the remote control pool named in the hub configuration.
+ */
+public class RemoteControlPoolFactory {
+
+    public static final String GLOBAL = "global";
+    public static final String SHARDED = "sharded";
+
+    /**
+     * @param definition <code>global</code> (or null or empty) for a {@link GlobalRemoteControlPool},
+     *                   <code>sharded</code> for a {@link ShardedRemoteControlPool}, or the class name
+     *                   of a {@link LocalRemoteControlPool} implementation with a public constructor
+     *                   taking a {@link RemoteControlHealthSweep} and a {@link SessionJournal}.
+     * @param journal    Journal of the pool. Null for none.
+     * @throws IllegalArgumentException if the pool cannot be created.
+     */
+    public LocalRemoteControlPool create(String definition, RemoteControlHealthSweep healthSweep, SessionJournal journal) {
+        final Object pool;
+
+        if (null == definition || "".equals(definition) || GLOBAL.equals(definition)) {
+            return new GlobalRemoteControlPool(healthSweep, journal);
+        }
+        if (SHARDED.equals(definition)) {
+            return new ShardedRemoteControlPool(healthSweep, journal);
+        }
+        try {
+            pool = Class.forName(definition)
+                    .getConstructor(RemoteControlHealthSweep.class, SessionJournal.class)
+                    .newInstance(healthSweep, journal);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot create remote control pool '" + definition + "': " + e);
+        }
+        if (!(pool instanceof LocalRemoteControlPool)) {
+            throw new IllegalArgumentException(definition + " is not a " + LocalRemoteControlPool.class.getName());
+        }
+        return (LocalRemoteControlPool) pool;
+    }
+
+}
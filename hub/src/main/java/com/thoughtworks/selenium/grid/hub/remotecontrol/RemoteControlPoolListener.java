@@ -0,0 +1,20 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+/**
+ * Notified by a {@link LocalRemoteControlPool} as remote controls and sessions come and go,
+ * e.g. to persist or share the pool state.
+ * <p/>
+ * Called on the thread changing the pool, right after the change: implementations should be
+ * quick and must not call back into the pool.
+ */
+public interface RemoteControlPoolListener {
+
+    void registered(IRemoteControlProxy remoteControl);
+
+    void unregistered(IRemoteControlProxy remoteControl);
+
+    void associated(String sessionId, IRemoteControlProxy remoteControl);
+
+    void released(String sessionId);
+
+}
@@ -5,12 +5,16 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Central authority to track registered remote controls and grant exclusive
@@ -19,114 +23,248 @@ import java.util.concurrent.locks.ReentrantLock;
  * A client will block if it attempts to reserve a remote control and none is
  * available. The call will return as soon as a remote control becomes available
  * again.
+ * <p/>
+ * Registered remote controls are kept in a concurrent map (keyed by host and port)
+ * and idle ones in a concurrent FIFO queue, so that reserving and releasing a remote
+ * control is O(1) and lock-free. Queue entries are validated lazily: entries for remote
+ * controls that have been removed, replaced or reserved in the meantime are simply
+ * discarded when polled.
+ * <p/>
+ * Health checks never block other clients: a reserved remote control is validated against
+ * the health state cached by the remote control poller, then with an optional pre-flight
+ * heartbeat bounded by a timeout, both performed by the requesting thread only.
+ * <p/>
+ * Blocked clients wait in a FIFO queue of pending reservations. A remote control that
+ * is released (or added) is handed over directly to the oldest pending reservation,
+ * so exactly one waiting thread is woken up and clients are served in arrival order.
+ * Clients can also queue up without blocking: the remote control handed over is then
+ * validated and passed on to a listener on an executor thread.
+ * <p/>
+ * Queue depth, reservation times and free/busy counts are tracked incrementally in
+ * {@link ReservationStatistics} as all of the above happens.
+ * <p/>
+ * Remote controls able to run several sessions at the same time are queued once per
+ * free session slot, so each reservation takes exactly one slot, and a released slot
+ * goes back to the queue (or to a waiting client) on its own.
  */
 public class RemoteControlProvisioner {
 
     private static final Log LOGGER = LogFactory.getLog(RemoteControlProvisioner.class);
-    private final List<IRemoteControlProxy> remoteControls;
-    private final Lock remoteControlListLock;
-    private final Condition remoteControlAvailable;
+    private final ConcurrentMap<IRemoteControlProxy, IRemoteControlProxy> remoteControls;
+    private final Queue<IRemoteControlProxy> idleRemoteControls;
+    private final Queue<PendingReservation> pendingReservations;
+    private final ReservationStatistics statistics;
 
     public RemoteControlProvisioner() {
-        remoteControls = new LinkedList<IRemoteControlProxy>();
-        remoteControlListLock = new ReentrantLock();
-        remoteControlAvailable = remoteControlListLock.newCondition();
+        remoteControls = new ConcurrentHashMap<IRemoteControlProxy, IRemoteControlProxy>();
+        idleRemoteControls = new ConcurrentLinkedQueue<IRemoteControlProxy>();
+        pendingReservations = new ConcurrentLinkedQueue<PendingReservation>();
+        statistics = new ReservationStatistics();
     }
 
     public IRemoteControlProxy reserve() {
-        remoteControlListLock.lock();
+        final long start = System.nanoTime();
+        IRemoteControlProxy remoteControl;
 
-        try {
+        while (true) {
             if (remoteControls.isEmpty()) {
                 return null;
             }
-
-            IRemoteControlProxy remoteControl = blockUntilARemoteControlIsAvailableOrRequestTimesOut();
+            remoteControl = blockUntilARemoteControlIsAvailableOrRequestTimesOut();
             if (null == remoteControl) {
                 LOGGER.info("Timed out waiting for a remote control for environment.");
+                statistics.timedOut();
                 return null;
             }
+            if (accept(remoteControl, start)) {
+                return remoteControl;
+            }
+        }
+    }
 
-            while (remoteControl.unreliable()) {
-                LOGGER.warn("Reserved RC " + remoteControl + " is detected as unreliable, unregistering it and reserving a new one...");
-                tearDownExistingRemoteControl(remoteControl);
-                if (remoteControls.isEmpty()) {
-                    return null;
-                }
-                remoteControl = blockUntilARemoteControlIsAvailableOrRequestTimesOut();
-                if (null == remoteControl) {
-                    LOGGER.info("Timed out waiting for a remote control for environment.");
-                    return null;
-                }
+    /**
+     * Reserve a remote control without blocking: if none is available the request is queued along
+     * with the blocked ones, and the listener is told once a remote control is handed over to it, or
+     * once the request times out.
+     *
+     * @param listener Always called exactly once, on a thread of the executor, which also runs the
+     *                 pre-flight check of the remote control handed over.
+     * @param executor Executor for the listener and the timeout of the request.
+     */
+    public void reserve(final ReservationListener listener, final ScheduledExecutorService executor) {
+        final long start = System.nanoTime();
+        final PendingReservation reservation;
+        final long deadline;
+        IRemoteControlProxy availableRemoteControl;
+
+        if (remoteControls.isEmpty()) {
+            deliver(null, start, listener, executor);
+            return;
+        }
+        if (pendingReservations.isEmpty()) {
+            availableRemoteControl = claimNextAvailableRemoteControl();
+            if (null != availableRemoteControl) {
+                deliver(availableRemoteControl, start, listener, executor);
+                return;
             }
-            remoteControl.registerNewSession();
-            LOGGER.info("Reserved remote control" + remoteControl);
-            return remoteControl;
-        } finally {
-            remoteControlListLock.unlock();
+        }
+
+        reservation = new PendingReservation(new ReservationListener() {
+            public void reserved(IRemoteControlProxy remoteControl) {
+                statistics.waiterLeft();
+                deliver(remoteControl, start, listener, executor);
+            }
+        });
+        pendingReservations.offer(reservation);
+        statistics.waiterQueued();
+        deadline = requestDeadline();
+        if (Long.MAX_VALUE != deadline) {
+            executor.schedule(new Runnable() {
+                public void run() {
+                    if (reservation.cancel()) {
+                        pendingReservations.remove(reservation);
+                        statistics.waiterLeft();
+                        LOGGER.info("Timed out waiting for a remote control for environment.");
+                        statistics.timedOut();
+                        listener.reserved(null);
+                    }
+                }
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        // A remote control might have been made available before we were queued and seen by no one.
+        availableRemoteControl = claimNextAvailableRemoteControl();
+        if (null != availableRemoteControl) {
+            handOverOrMakeAvailable(availableRemoteControl);
+        } else {
+            LOGGER.info("Waiting for a remote control... (" + statistics.waiters() + " requests waiting)");
         }
     }
 
     public void release(IRemoteControlProxy remoteControl) {
-        remoteControlListLock.lock();
-
-        try {
-            remoteControl.unregisterSession();
-            LOGGER.info("Released remote control" + remoteControl);
-            signalThatARemoteControlHasBeenMadeAvailable();
-        } finally {
-            remoteControlListLock.unlock();
+        unclaim(remoteControl);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Released remote control " + remoteControl);
+        }
+        if (isCurrentlyRegistered(remoteControl)) {
+            makeAvailable(remoteControl);
         }
     }
 
     public void add(IRemoteControlProxy newRemoteControl) {
-        remoteControlListLock.lock();
+        final IRemoteControlProxy oldRemoteControl;
 
-        try {
-            if (remoteControls.contains(newRemoteControl)) {
-                tearDownExistingRemoteControl(newRemoteControl);
+        oldRemoteControl = remoteControls.put(newRemoteControl, newRemoteControl);
+        if (null != oldRemoteControl) {
+            statistics.remoteControlUnregistered(oldRemoteControl.maxConcurrentSessions());
+        }
+        statistics.remoteControlRegistered(newRemoteControl.maxConcurrentSessions());
+        if (oldRemoteControl != newRemoteControl) {
+            for (int slot = 0; slot < newRemoteControl.maxConcurrentSessions(); slot++) {
+                makeAvailable(newRemoteControl);
+            }
+        }
+    }
+
+    /**
+     * Add a batch of remote controls in a single pass, e.g. when many remote controls come up at
+     * once: their slots are all parked in the idle queue first, then handed over to pending
+     * reservations in one go, so each waiting client is woken up at most once.
+     */
+    public void addAll(Collection<IRemoteControlProxy> newRemoteControls) {
+        IRemoteControlProxy oldRemoteControl;
+        IRemoteControlProxy availableRemoteControl;
+
+        for (IRemoteControlProxy newRemoteControl : newRemoteControls) {
+            oldRemoteControl = remoteControls.put(newRemoteControl, newRemoteControl);
+            if (null != oldRemoteControl) {
+                statistics.remoteControlUnregistered(oldRemoteControl.maxConcurrentSessions());
+            }
+            statistics.remoteControlRegistered(newRemoteControl.maxConcurrentSessions());
+            if (oldRemoteControl != newRemoteControl) {
+                for (int slot = 0; slot < newRemoteControl.maxConcurrentSessions(); slot++) {
+                    idleRemoteControls.offer(newRemoteControl);
+                }
             }
-            remoteControls.add(newRemoteControl);
-            signalThatARemoteControlHasBeenMadeAvailable();
-        } finally {
-            remoteControlListLock.unlock();
+        }
+        while (!pendingReservations.isEmpty() && null != (availableRemoteControl = claimNextAvailableRemoteControl())) {
+            handOverOrMakeAvailable(availableRemoteControl);
         }
     }
 
     /**
-     * Not Thread-safe
+     * Take a session slot on a specific remote control, without going through the new session
+     * queue, e.g. for a session recovered after a hub restart.
+     *
+     * @return Whether the remote control is registered and had a free slot.
      */
+    public boolean reclaim(IRemoteControlProxy remoteControl) {
+        return isCurrentlyRegistered(remoteControl) && claim(remoteControl);
+    }
+
     public boolean contains(IRemoteControlProxy remoteControl) {
-        return remoteControls.contains(remoteControl);
+        return remoteControls.containsKey(remoteControl);
     }
 
-    public void tearDownExistingRemoteControl(IRemoteControlProxy newRemoteControl) {
-        final IRemoteControlProxy oldRemoteControl;
+    /**
+     * @return Whether no remote control is registered anymore.
+     */
+    public boolean isEmpty() {
+        return remoteControls.isEmpty();
+    }
 
-        oldRemoteControl = remoteControls.get(remoteControls.indexOf(newRemoteControl));
-        remoteControls.remove(oldRemoteControl);
+    public void tearDownExistingRemoteControl(IRemoteControlProxy newRemoteControl) {
+        remove(newRemoteControl);
     }
 
     public boolean remove(IRemoteControlProxy remoteControl) {
-        remoteControlListLock.lock();
+        final IRemoteControlProxy removedRemoteControl;
 
-        try {
-            return remoteControls.remove(remoteControl);
-        } finally {
-            remoteControlListLock.unlock();
+        removedRemoteControl = remoteControls.remove(remoteControl);
+        if (null == removedRemoteControl) {
+            return false;
         }
+        statistics.remoteControlUnregistered(removedRemoteControl.maxConcurrentSessions());
+        return true;
+    }
+
+    public ReservationStatistics statistics() {
+        return statistics;
     }
 
     /**
-     * Not thread safe.
+     * Non-blocking and O(1): only looks at the head of the pending reservation queue.
      *
-     * @return All available remote controls. Never null.
+     * @return Status of the new session queue for this provisioner. Never null.
+     */
+    public NewSessionQueueStatus status(String environment) {
+        final PendingReservation oldestReservation;
+        final long oldestWaiterAgeInNanoseconds;
+
+        oldestReservation = pendingReservations.peek();
+        oldestWaiterAgeInNanoseconds = (null == oldestReservation) ? 0 : System.nanoTime() - oldestReservation.createdAt();
+        return new NewSessionQueueStatus(environment,
+                statistics.waiters(),
+                TimeUnit.NANOSECONDS.toMillis(Math.max(0, oldestWaiterAgeInNanoseconds)),
+                statistics.freeSlots(),
+                statistics.busySlots(),
+                statistics.timeToReserve().count(),
+                statistics.timeouts(),
+                TimeUnit.NANOSECONDS.toMillis(statistics.timeToReserve().sumInNanoseconds()),
+                TimeUnit.NANOSECONDS.toMillis(statistics.timeToReserve().quantileInNanoseconds(0.5)),
+                TimeUnit.NANOSECONDS.toMillis(statistics.timeToReserve().quantileInNanoseconds(0.99)));
+    }
+
+    /**
+     * Thread-safe, but only a weakly consistent snapshot.
+     *
+     * @return All remote controls with at least one free session slot. Never null.
      */
     public List<IRemoteControlProxy> availableRemoteControls() {
         final LinkedList<IRemoteControlProxy> availableremoteControls;
 
         availableremoteControls = new LinkedList<IRemoteControlProxy>();
-        for (IRemoteControlProxy remoteControl : remoteControls) {
+        for (IRemoteControlProxy remoteControl : remoteControls.values()) {
             if (remoteControl.canHandleNewSession()) {
                 availableremoteControls.add(remoteControl);
             }
@@ -135,15 +273,15 @@ public class RemoteControlProvisioner {
     }
 
     /**
-     * Not thread safe.
+     * Thread-safe, but only a weakly consistent snapshot.
      *
-     * @return All reserved remote controls. Never null.
+     * @return All remote controls with at least one session in progress. Never null.
      */
     public List<IRemoteControlProxy> reservedRemoteControls() {
         final LinkedList<IRemoteControlProxy> reservedRemoteControls;
 
         reservedRemoteControls = new LinkedList<IRemoteControlProxy>();
-        for (IRemoteControlProxy remoteControl : remoteControls) {
+        for (IRemoteControlProxy remoteControl : remoteControls.values()) {
             if (remoteControl.sessionInProgress()) {
                 reservedRemoteControls.add(remoteControl);
             }
@@ -151,33 +289,116 @@ public class RemoteControlProvisioner {
         return Arrays.asList(reservedRemoteControls.toArray(new IRemoteControlProxy[reservedRemoteControls.size()]));
     }
 
+    /**
+     * Claim the next idle remote control, or queue up behind earlier requests until one is
+     * handed over or the request times out.
+     *
+     * @return A remote control with a new session registered on it. Null if the request timed out.
+     */
     protected IRemoteControlProxy blockUntilARemoteControlIsAvailableOrRequestTimesOut() {
+        final PendingReservation reservation;
+        final IRemoteControlProxy handedOverRemoteControl;
         IRemoteControlProxy availableRemoteControl;
 
-        while (true) {
-            try {
-                availableRemoteControl = findNextAvailableRemoteControl();
-                boolean timedOut = false;
-                while ((null == availableRemoteControl) && !timedOut) {
-                    LOGGER.info("Waiting for a remote control...");
-                    timedOut = waitForARemoteControlToBeAvailable();
-                    availableRemoteControl = findNextAvailableRemoteControl();
-                }
+        if (pendingReservations.isEmpty()) {
+            availableRemoteControl = claimNextAvailableRemoteControl();
+            if (null != availableRemoteControl) {
                 return availableRemoteControl;
-            } catch (InterruptedException e) {
-                LOGGER.error("Interrupted while reserving remote control", e);
             }
         }
+
+        reservation = new PendingReservation();
+        pendingReservations.offer(reservation);
+        statistics.waiterQueued();
+        try {
+            // A remote control might have been made available before we were queued and seen by no one.
+            availableRemoteControl = claimNextAvailableRemoteControl();
+            if (null != availableRemoteControl) {
+                if (reservation.cancel()) {
+                    pendingReservations.remove(reservation);
+                    return availableRemoteControl;
+                }
+                handOverOrMakeAvailable(availableRemoteControl);
+                return reservation.remoteControl();
+            }
+
+            LOGGER.info("Waiting for a remote control... (" + statistics.waiters() + " requests waiting)");
+            handedOverRemoteControl = reservation.await(requestDeadline());
+            if (null == handedOverRemoteControl) {
+                pendingReservations.remove(reservation);
+            }
+            return handedOverRemoteControl;
+        } finally {
+            statistics.waiterLeft();
+        }
+    }
+
+    /**
+     * Pass on a claimed remote control to a listener on an executor thread, once validated. An unreliable
+     * remote control is torn down and the request queued up again.
+     */
+    protected void deliver(final IRemoteControlProxy remoteControl, final long start,
+                           final ReservationListener listener, final ScheduledExecutorService executor) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    if (null == remoteControl || accept(remoteControl, start)) {
+                        listener.reserved(remoteControl);
+                    } else {
+                        reserve(listener, executor);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Could not hand over remote control " + remoteControl + ", the hub is shutting down");
+        }
+    }
+
+    /**
+     * Check a claimed remote control before handing it out.
+     *
+     * @return Whether the remote control is reliable. If not, it has been torn down.
+     */
+    protected boolean accept(IRemoteControlProxy remoteControl, long start) {
+        if (!remoteControl.lastKnownToBeUnreliable() && !failsPreFlightCheck(remoteControl)) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Reserved remote control " + remoteControl);
+            }
+            statistics.reserved(System.nanoTime() - start);
+            return true;
+        }
+        LOGGER.warn("Reserved RC " + remoteControl + " is detected as unreliable, unregistering it and reserving a new one...");
+        tearDownExistingRemoteControl(remoteControl);
+        unclaim(remoteControl);
+        return false;
+    }
+
+    /**
+     * Non-blocking, thread-safe. Pops idle remote controls until one can be reserved,
+     * discarding stale entries on the way.
+     *
+     * @return Next available remote control, already marked as having a session in progress.
+     *         Null if none is available.
+     */
+    protected IRemoteControlProxy claimNextAvailableRemoteControl() {
+        IRemoteControlProxy remoteControl;
+
+        while (null != (remoteControl = idleRemoteControls.poll())) {
+            if (isCurrentlyRegistered(remoteControl) && claim(remoteControl)) {
+                return remoteControl;
+            }
+        }
+        return null;
     }
 
     /**
-     * Non-blocking, not thread-safe
+     * Non-blocking, does not reserve anything.
      *
      * @return Next Available remote control. Null if none is available.
      */
     protected IRemoteControlProxy findNextAvailableRemoteControl() {
-        for (IRemoteControlProxy remoteControl : remoteControls) {
-            if (remoteControl.canHandleNewSession()) {
+        for (IRemoteControlProxy remoteControl : idleRemoteControls) {
+            if (isCurrentlyRegistered(remoteControl) && remoteControl.canHandleNewSession()) {
                 return remoteControl;
             }
         }
@@ -185,34 +406,101 @@ public class RemoteControlProvisioner {
     }
 
     /**
-     * Wait for a remote control to be available or timeout while waiting.
-     *
-     * @return Indicates whether the request timed out.
-     * @throws InterruptedException
+     * Optional, bounded heartbeat check performed by the requesting thread, outside
+     * of any lock, so that a dead remote control only delays its own reservation.
      */
-    protected boolean waitForARemoteControlToBeAvailable() throws InterruptedException {
+    protected boolean failsPreFlightCheck(IRemoteControlProxy remoteControl) {
+        final double timeoutInSeconds;
+
+        timeoutInSeconds = HubRegistry.registry().gridConfiguration().getHub().getRemoteControlPreFlightCheckTimeoutInSeconds();
+        if (timeoutInSeconds <= 0) {
+            return false;
+        }
+        return remoteControl.failsPreFlightCheck((int) (timeoutInSeconds * 1000));
+    }
+
+    protected long requestDeadline() {
         final Double maxWaitTime = HubRegistry.registry().gridConfiguration().getHub().getNewSessionMaxWaitTimeInSeconds();
 
         if (maxWaitTime.isInfinite()) {
-            remoteControlAvailable.await();
-            return false;
-        } else {
-            return !remoteControlAvailable.await(maxWaitTime.longValue(), TimeUnit.SECONDS);
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(maxWaitTime.longValue());
+    }
+
+    /**
+     * Hand over a remote control to the oldest pending reservation, or park it in the idle queue
+     * if nobody is waiting.
+     */
+    protected void makeAvailable(IRemoteControlProxy remoteControl) {
+        if (claim(remoteControl)) {
+            handOverOrMakeAvailable(remoteControl);
+        }
+    }
+
+    /**
+     * @param remoteControl A remote control already claimed on behalf of whoever will get it.
+     */
+    protected void handOverOrMakeAvailable(IRemoteControlProxy remoteControl) {
+        IRemoteControlProxy claimedRemoteControl = remoteControl;
+
+        while (null != claimedRemoteControl) {
+            if (handOver(claimedRemoteControl)) {
+                return;
+            }
+            unclaim(claimedRemoteControl);
+            idleRemoteControls.offer(claimedRemoteControl);
+
+            // A request might have been queued after we checked, but before the remote control was
+            // parked: make sure it does not wait for a remote control sitting in the idle queue.
+            if (pendingReservations.isEmpty()) {
+                return;
+            }
+            claimedRemoteControl = claimNextAvailableRemoteControl();
+        }
+    }
+
+    /**
+     * @return Whether a pending reservation accepted the remote control.
+     */
+    protected boolean handOver(IRemoteControlProxy remoteControl) {
+        PendingReservation reservation;
+
+        while (null != (reservation = pendingReservations.poll())) {
+            if (reservation.fulfil(remoteControl)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    protected void signalThatARemoteControlHasBeenMadeAvailable() {
-        remoteControlAvailable.signalAll();
+    protected boolean claim(IRemoteControlProxy remoteControl) {
+        synchronized (remoteControl) {
+            if (!remoteControl.canHandleNewSession()) {
+                return false;
+            }
+            remoteControl.registerNewSession();
+            statistics.slotClaimed();
+            return true;
+        }
     }
 
+    protected void unclaim(IRemoteControlProxy remoteControl) {
+        synchronized (remoteControl) {
+            remoteControl.unregisterSession();
+            statistics.slotUnclaimed();
+        }
+    }
+
+    protected boolean isCurrentlyRegistered(IRemoteControlProxy remoteControl) {
+        return remoteControls.get(remoteControl) == remoteControl;
+    }
 
     public List<IRemoteControlProxy> allRemoteControls() {
         final LinkedList<IRemoteControlProxy> allRemoteControls;
 
         allRemoteControls = new LinkedList<IRemoteControlProxy>();
-        for (IRemoteControlProxy remoteControl : remoteControls) {
-            allRemoteControls.add(remoteControl);
-        }
+        allRemoteControls.addAll(remoteControls.values());
 
         return allRemoteControls;
     }
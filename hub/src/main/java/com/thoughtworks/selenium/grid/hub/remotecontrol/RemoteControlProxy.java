@@ -4,14 +4,18 @@ import com.thoughtworks.selenium.grid.HttpClient;
 import com.thoughtworks.selenium.grid.HttpParameters;
 import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.HubServer;
+import com.thoughtworks.selenium.grid.hub.capabilities.CapabilityIndex;
+import com.thoughtworks.selenium.grid.hub.metrics.CommandTiming;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.RemoteControlMode;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Local interface to a real remote control running somewhere in the grid.
@@ -22,17 +26,36 @@ public class RemoteControlProxy implements IRemoteControlProxy {
 
     private static final int MAX_FAILED_HEARTBEATS = 3;
 
-    private boolean sessionInProgress;
+    private final AtomicInteger sessionsInProgress;
+    private final int maxConcurrentSessions;
     private final HttpClient httpClient;
     private final String environment;
     private final String host;
     private final int port;
+    private final Map<String, String> capabilities;
     private int failedHeartbeatCount;
+    private volatile boolean lastKnownToBeUnreliable;
 
     private RemoteControlMode mode;
     private HttpServletRequest request;
 
     public RemoteControlProxy(String host, int port, String environment, HttpClient httpClient) {
+        this(host, port, environment, Collections.<String, String>emptyMap(), httpClient);
+    }
+
+    /**
+     * @param capabilities Capabilities advertised by the remote control on top of the ones implied by
+     *                     its environment name (e.g. version). Should not be null.
+     */
+    public RemoteControlProxy(String host, int port, String environment, Map<String, String> capabilities, HttpClient httpClient) {
+        this(host, port, environment, 1, capabilities, httpClient);
+    }
+
+    /**
+     * @param maxConcurrentSessions Number of sessions the remote control can run at the same time. At least 1.
+     */
+    public RemoteControlProxy(String host, int port, String environment, int maxConcurrentSessions,
+                              Map<String, String> capabilities, HttpClient httpClient) {
         if (null == host) {
             throw new IllegalArgumentException("host cannot be null");
         }
@@ -42,15 +65,25 @@ public class RemoteControlProxy implements IRemoteControlProxy {
         this.host = host;
         this.port = port;
         this.environment = environment;
-        this.sessionInProgress = false;
+        if (maxConcurrentSessions < 1) {
+            throw new IllegalArgumentException("maxConcurrentSessions must be at least 1");
+        }
+        this.sessionsInProgress = new AtomicInteger(0);
+        this.maxConcurrentSessions = maxConcurrentSessions;
         this.httpClient = httpClient;
         this.failedHeartbeatCount = 0;
+        this.capabilities = new HashMap<String, String>(CapabilityIndex.capabilitiesImpliedBy(environment));
+        this.capabilities.putAll(capabilities);
     }
 
     public String host() {
         return host;
     }
 
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
     public int port() {
         return port;
     }
@@ -59,6 +92,10 @@ public class RemoteControlProxy implements IRemoteControlProxy {
         return environment;
     }
 
+    public Map<String, String> capabilities() {
+        return capabilities;
+    }
+
     public String remoteControlPingURL() {
         return remoteControlURLFor("heartbeat");
     }
@@ -76,6 +113,16 @@ public class RemoteControlProxy implements IRemoteControlProxy {
     }
 
     public Response forward(HttpServletRequest request) throws IOException {
+        final long start = System.nanoTime();
+
+        try {
+            return sendToRemoteControl(request);
+        } finally {
+            CommandTiming.remoteControlRoundTrip(environment, System.nanoTime() - start);
+        }
+    }
+
+    protected Response sendToRemoteControl(HttpServletRequest request) throws IOException {
         if (IsWebDriverRequest(request)) {
             String requestMethod = request.getMethod();
             if (requestMethod.equals("POST")) {
@@ -88,7 +135,7 @@ public class RemoteControlProxy implements IRemoteControlProxy {
                 return httpClient.getWebDriverRequest(remoteWebDriverControlDriverURL(request.getRequestURI()), request);
             }
         } else {
-            return httpClient.post(remoteControlDriverURL(), GetHttpParametersFromHttpServletRequest(request));
+            return httpClient.streamPost(remoteControlDriverURL(), GetHttpParametersFromHttpServletRequest(request));
         }
     }
 
@@ -113,7 +160,7 @@ public class RemoteControlProxy implements IRemoteControlProxy {
 
     public String toString() {
         return "[RemoteControlProxy " + host + ":" + port + "#"
-                + sessionInProgress + "]";
+                + sessionInProgress() + "]";
     }
 
     public boolean equals(Object other) {
@@ -134,22 +181,43 @@ public class RemoteControlProxy implements IRemoteControlProxy {
     }
 
     public boolean sessionInProgress() {
-        return sessionInProgress;
+        return sessionsInProgress.get() > 0;
     }
 
+    public int sessionsInProgress() {
+        return sessionsInProgress.get();
+    }
+
+    public int maxConcurrentSessions() {
+        return maxConcurrentSessions;
+    }
+
+    /**
+     * Take one of the session slots of the remote control, atomically.
+     */
     public void registerNewSession() {
-        if (sessionInProgress) {
-            throw new IllegalStateException("Exceeded concurrent session max for " + toString());
-        }
-        sessionInProgress = true;
+        int sessions;
+
+        do {
+            sessions = sessionsInProgress.get();
+            if (sessions >= maxConcurrentSessions) {
+                throw new IllegalStateException("Exceeded concurrent session max for " + toString());
+            }
+        } while (!sessionsInProgress.compareAndSet(sessions, sessions + 1));
     }
 
+    /**
+     * Give back one of the session slots of the remote control, atomically.
+     */
     public void unregisterSession() {
-        if (!sessionInProgress) {
-            throw new IllegalStateException("Unregistering session on an idle remote control : " + toString());
-        }
+        int sessions;
 
-        sessionInProgress = false;
+        do {
+            sessions = sessionsInProgress.get();
+            if (0 == sessions) {
+                throw new IllegalStateException("Unregistering session on an idle remote control : " + toString());
+            }
+        } while (!sessionsInProgress.compareAndSet(sessions, sessions - 1));
     }
 
     public void terminateSession(String sessionId) {
@@ -162,7 +230,7 @@ public class RemoteControlProxy implements IRemoteControlProxy {
             params.put("cmd", new String[]{"testComplete"});
             params.put("sessionId", new String[]{sessionId});
 
-            forward(this.request);
+            forward(this.request).release();
         }
         catch (IOException e) {
             LOGGER.warn("Exception telling remote control to kill its session:" + e.getMessage());
@@ -170,15 +238,48 @@ public class RemoteControlProxy implements IRemoteControlProxy {
     }
 
     public boolean canHandleNewSession() {
-        return !sessionInProgress();
+        return sessionsInProgress.get() < maxConcurrentSessions;
     }
 
     public boolean unreliable() {
+        return unreliable(0);
+    }
+
+    public boolean unreliable(int timeoutInMilliseconds) {
+        lastKnownToBeUnreliable = pollHeartbeat(timeoutInMilliseconds);
+        return lastKnownToBeUnreliable;
+    }
+
+    public boolean lastKnownToBeUnreliable() {
+        return lastKnownToBeUnreliable;
+    }
+
+    public boolean failsPreFlightCheck(int timeoutInMilliseconds) {
+        final Response response;
+
+        try {
+            response = httpClient.get(remoteControlPingURL(), timeoutInMilliseconds);
+            lastKnownToBeUnreliable = (200 != response.statusCode());
+        } catch (Exception e) {
+            LOGGER.warn("Remote Control at " + host + ":" + port + " did not reply to pre-flight check");
+            lastKnownToBeUnreliable = true;
+        }
+        return lastKnownToBeUnreliable;
+    }
+
+    /**
+     * @param timeoutInMilliseconds Time to wait for each reply. 0 for the connection pool default.
+     */
+    protected boolean pollHeartbeat(int timeoutInMilliseconds) {
         final Response response;
 
         try {
             LOGGER.debug("Polling Remote Control at " + host + ":" + port);
-            response = httpClient.get(remoteControlPingURL());
+            if (timeoutInMilliseconds > 0) {
+                response = httpClient.get(remoteControlPingURL(), timeoutInMilliseconds);
+            } else {
+                response = httpClient.get(remoteControlPingURL());
+            }
         } catch (Exception e) {
             LOGGER.warn("Remote Control at " + host + ":" + port + " is unresponsive");
 
@@ -186,7 +287,7 @@ public class RemoteControlProxy implements IRemoteControlProxy {
                 LOGGER.warn(String.format("... attempt %d of %d -- trying again.", failedHeartbeatCount + 1, MAX_FAILED_HEARTBEATS));
 
                 failedHeartbeatCount++;
-                return unreliable();
+                return pollHeartbeat(timeoutInMilliseconds);
             } else {
                 failedHeartbeatCount = 0;
                 return true;
@@ -200,7 +301,7 @@ public class RemoteControlProxy implements IRemoteControlProxy {
                 LOGGER.warn(String.format("... attempt %d of %d -- trying again.", failedHeartbeatCount + 1, MAX_FAILED_HEARTBEATS));
 
                 failedHeartbeatCount++;
-                return unreliable();
+                return pollHeartbeat(timeoutInMilliseconds);
             } else {
                 failedHeartbeatCount = 0;
                 return true;
@@ -1,13 +1,11 @@
 package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
-import java.util.Date;
-
 /**
  * Selenium Session in progress
  */
 public class RemoteControlSession {
     private final IRemoteControlProxy remoteControl;
-    private long lastActiveAt;
+    private volatile long lastActiveAt;
     private final String sessionId;
 
     public RemoteControlSession(String sessionId, IRemoteControlProxy remoteControl) {
@@ -41,7 +39,7 @@ public class RemoteControlSession {
     }
 
     protected long now() {
-        return new Date().getTime();
+        return System.currentTimeMillis();
     }
 
     public boolean innactiveForMoreThan(int milliseconds) {
@@ -0,0 +1,50 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status last pushed by a remote control to the hub.
+ */
+public class RemoteControlStatus {
+
+    private final String host;
+    private final int port;
+    private final double load;
+    private final long receivedAt;
+
+    /**
+     * @param load       System load average of the remote control host. Negative if it did not report it.
+     * @param receivedAt Time when the status was received, as returned by System.nanoTime().
+     */
+    public RemoteControlStatus(String host, int port, double load, long receivedAt) {
+        this.host = host;
+        this.port = port;
+        this.load = load;
+        this.receivedAt = receivedAt;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public double load() {
+        return load;
+    }
+
+    public long receivedAt() {
+        return receivedAt;
+    }
+
+    public long ageInMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - receivedAt);
+    }
+
+    public String toString() {
+        return "[RemoteControlStatus host='" + host + "', port=" + port + ", load=" + load + "]";
+    }
+
+}
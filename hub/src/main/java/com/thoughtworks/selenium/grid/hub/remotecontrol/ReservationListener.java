@@ -0,0 +1,16 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+/**
+ * Told about the outcome of a reservation made without blocking.
+ *
+ * @see RemoteControlProvisioner#reserve(ReservationListener, java.util.concurrent.ScheduledExecutorService)
+ * @see PendingReservation#PendingReservation(ReservationListener)
+ */
+public interface ReservationListener {
+
+    /**
+     * @param remoteControl Reserved remote control. Null if none became available in time.
+     */
+    void reserved(IRemoteControlProxy remoteControl);
+
+}
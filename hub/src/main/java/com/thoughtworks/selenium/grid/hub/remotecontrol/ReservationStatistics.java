@@ -0,0 +1,104 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.hub.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing how well a provisioner keeps up with new session requests,
+ * maintained incrementally as remote controls are registered, claimed and released
+ * and as requests queue up, so that reading them never scans any list.
+ * <p/>
+ * Capacity is counted in session slots: a remote control able to run several
+ * sessions at the same time contributes one slot per session.
+ */
+public class ReservationStatistics {
+
+    private final AtomicInteger waiters;
+    private final AtomicInteger registeredRemoteControls;
+    private final AtomicInteger registeredSlots;
+    private final AtomicInteger busySlots;
+    private final AtomicLong timeouts;
+    private final LatencyHistogram timeToReserve;
+
+    public ReservationStatistics() {
+        this.waiters = new AtomicInteger(0);
+        this.registeredRemoteControls = new AtomicInteger(0);
+        this.registeredSlots = new AtomicInteger(0);
+        this.busySlots = new AtomicInteger(0);
+        this.timeouts = new AtomicLong(0);
+        this.timeToReserve = new LatencyHistogram();
+    }
+
+    public void waiterQueued() {
+        waiters.incrementAndGet();
+    }
+
+    public void waiterLeft() {
+        waiters.decrementAndGet();
+    }
+
+    public void remoteControlRegistered(int slots) {
+        registeredRemoteControls.incrementAndGet();
+        registeredSlots.addAndGet(slots);
+    }
+
+    public void remoteControlUnregistered(int slots) {
+        registeredRemoteControls.decrementAndGet();
+        registeredSlots.addAndGet(-slots);
+    }
+
+    public void slotClaimed() {
+        busySlots.incrementAndGet();
+    }
+
+    public void slotUnclaimed() {
+        busySlots.decrementAndGet();
+    }
+
+    public void reserved(long durationInNanoseconds) {
+        timeToReserve.record(durationInNanoseconds);
+    }
+
+    public void timedOut() {
+        timeouts.incrementAndGet();
+    }
+
+    public int waiters() {
+        return waiters.get();
+    }
+
+    public int registeredRemoteControls() {
+        return registeredRemoteControls.get();
+    }
+
+    public int registeredSlots() {
+        return registeredSlots.get();
+    }
+
+    /**
+     * @return Session slots in use, including the ones of remote controls being unregistered
+     *         which have not been released yet.
+     */
+    public int busySlots() {
+        return busySlots.get();
+    }
+
+    /**
+     * Weakly consistent: a remote control unregistered while busy is only accounted
+     * for once released.
+     */
+    public int freeSlots() {
+        return Math.max(0, registeredSlots.get() - busySlots.get());
+    }
+
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    public LatencyHistogram timeToReserve() {
+        return timeToReserve;
+    }
+
+}
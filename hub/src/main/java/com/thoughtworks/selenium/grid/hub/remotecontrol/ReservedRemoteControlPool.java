@@ -0,0 +1,67 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+
+/**
+ * Pool handing out a remote control reserved ahead of time, e.g. without blocking, to the
+ * first command reserving one. Everything else goes to the actual pool.
+ */
+public class ReservedRemoteControlPool implements RemoteControlPool {
+
+    private final RemoteControlPool pool;
+    private IRemoteControlProxy reservedRemoteControl;
+    private boolean handedOut;
+
+    public ReservedRemoteControlPool(RemoteControlPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param remoteControl Remote control reserved from the actual pool. Null if none became available in time.
+     */
+    public synchronized void hold(IRemoteControlProxy remoteControl) {
+        this.reservedRemoteControl = remoteControl;
+    }
+
+    public IRemoteControlProxy reserve(Environment environment) {
+        synchronized (this) {
+            if (!handedOut) {
+                handedOut = true;
+                return reservedRemoteControl;
+            }
+        }
+        return pool.reserve(environment);
+    }
+
+    public IRemoteControlProxy reserve(DesiredCapabilities capabilities) {
+        synchronized (this) {
+            if (!handedOut) {
+                handedOut = true;
+                return reservedRemoteControl;
+            }
+        }
+        return pool.reserve(capabilities);
+    }
+
+    public void associateWithSession(IRemoteControlProxy remoteControl, String sessionId) {
+        pool.associateWithSession(remoteControl, sessionId);
+    }
+
+    public IRemoteControlProxy retrieve(String sessionId) {
+        return pool.retrieve(sessionId);
+    }
+
+    public void release(IRemoteControlProxy remoteControl) {
+        pool.release(remoteControl);
+    }
+
+    public void releaseForSession(String sessionId) {
+        pool.releaseForSession(sessionId);
+    }
+
+    public void updateSessionLastActiveAt(String sessionId) {
+        pool.updateSessionLastActiveAt(sessionId);
+    }
+
+}
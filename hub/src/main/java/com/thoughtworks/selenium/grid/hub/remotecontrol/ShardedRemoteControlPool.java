@@ -0,0 +1,362 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException;
+import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.journal.SessionJournal;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Remote Control Pool sharded by environment: each environment gets its own pool, with its own
+ * provisioner, session maps, idle session queue and capability index, so that registrations,
+ * reservations and session traffic for one environment never contend with another.
+ * <p/>
+ * The only state shared across environments is the (lock-free) map of shards, written once per
+ * environment, and the (lock-free) map of the shard running each session. The latter is kept up
+ * to date by listening to the shards, so that it follows sessions released, recycled or dropped
+ * along with their remote control, and routes a command with a single lookup.
+ */
+public class ShardedRemoteControlPool implements LocalRemoteControlPool {
+
+    private static final Log LOGGER = LogFactory.getLog(ShardedRemoteControlPool.class);
+    private final ConcurrentMap<String, GlobalRemoteControlPool> shardsByEnvironment = new ConcurrentHashMap<String, GlobalRemoteControlPool>();
+    private final ConcurrentMap<String, GlobalRemoteControlPool> shardsBySession = new ConcurrentHashMap<String, GlobalRemoteControlPool>();
+    private final List<RemoteControlPoolListener> listeners = new CopyOnWriteArrayList<RemoteControlPoolListener>();
+    private final RemoteControlHealthSweep healthSweep;
+    private final SessionJournal journal;
+
+    public ShardedRemoteControlPool() {
+        this(new RemoteControlHealthSweep(), null);
+    }
+
+    /**
+     * @param healthSweep Health sweep shared by all the shards.
+     * @param journal     Journal recording registrations and sessions as they come and go, and used to
+     *                    recover them. Null for none.
+     */
+    public ShardedRemoteControlPool(RemoteControlHealthSweep healthSweep, SessionJournal journal) {
+        this.healthSweep = healthSweep;
+        this.journal = journal;
+        if (null != journal) {
+            addListener(journal);
+        }
+    }
+
+    public void addListener(RemoteControlPoolListener listener) {
+        listeners.add(listener);
+        for (GlobalRemoteControlPool shard : shardsByEnvironment.values()) {
+            shard.addListener(listener);
+        }
+    }
+
+    public void register(IRemoteControlProxy newRemoteControl) {
+        shardFor(newRemoteControl.environment()).register(newRemoteControl);
+    }
+
+    public void registerAll(Collection<IRemoteControlProxy> newRemoteControls) {
+        for (Map.Entry<String, List<IRemoteControlProxy>> entry : GlobalRemoteControlPool.groupByEnvironment(newRemoteControls).entrySet()) {
+            shardFor(entry.getKey()).registerAll(entry.getValue());
+        }
+    }
+
+    public boolean unregister(IRemoteControlProxy remoteControl) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardsByEnvironment.get(remoteControl.environment());
+        return null != shard && shard.unregister(remoteControl);
+    }
+
+    /**
+     * Heartbeats only identify a remote control by its host and port, so every shard is checked
+     * when the shard of its environment does not know it.
+     */
+    public boolean isRegistered(IRemoteControlProxy remoteControl) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardsByEnvironment.get(remoteControl.environment());
+        if (null != shard && shard.isRegistered(remoteControl)) {
+            return true;
+        }
+        for (GlobalRemoteControlPool otherShard : shardsByEnvironment.values()) {
+            if (otherShard != shard && otherShard.isRegistered(remoteControl)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public IRemoteControlProxy reserve(Environment environment) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardsByEnvironment.get(environment.name());
+        if (null == shard) {
+            throw new NoSuchEnvironmentException(environment.name());
+        }
+        return shard.reserve(environment);
+    }
+
+    /**
+     * Reserve a remote control from the shard most likely to serve a new session quickly, as
+     * {@link GlobalRemoteControlPool} does across its environments.
+     */
+    public IRemoteControlProxy reserve(DesiredCapabilities capabilities) {
+        return bestShardFor(capabilities).reserve(capabilities);
+    }
+
+    public void reserve(Environment environment, ReservationListener listener, ScheduledExecutorService executor) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardsByEnvironment.get(environment.name());
+        if (null == shard) {
+            throw new NoSuchEnvironmentException(environment.name());
+        }
+        shard.reserve(environment, listener, executor);
+    }
+
+    public void reserve(DesiredCapabilities capabilities, ReservationListener listener, ScheduledExecutorService executor) {
+        bestShardFor(capabilities).reserve(capabilities, listener, executor);
+    }
+
+    /**
+     * @throws NoSuchEnvironmentException if no shard offers the capabilities.
+     */
+    protected GlobalRemoteControlPool bestShardFor(DesiredCapabilities capabilities) {
+        GlobalRemoteControlPool bestShard = null;
+        ReservationStatistics bestStatistics = null;
+        RemoteControlProvisioner provisioner;
+        ReservationStatistics statistics;
+
+        for (Map.Entry<String, GlobalRemoteControlPool> entry : shardsByEnvironment.entrySet()) {
+            provisioner = entry.getValue().bestProvisionerFor(capabilities);
+            if (null == provisioner) {
+                continue;
+            }
+            statistics = provisioner.statistics();
+            if (null == bestShard || GlobalRemoteControlPool.isBetterCandidate(statistics, bestStatistics)) {
+                bestShard = entry.getValue();
+                bestStatistics = statistics;
+            }
+        }
+        if (null == bestShard) {
+            throw new NoSuchEnvironmentException(capabilities.asMap().toString());
+        }
+        return bestShard;
+    }
+
+    public List<String> environmentsMatching(DesiredCapabilities capabilities) {
+        final List<String> environments;
+
+        environments = new LinkedList<String>();
+        for (GlobalRemoteControlPool shard : shardsByEnvironment.values()) {
+            environments.addAll(shard.environmentsMatching(capabilities));
+        }
+        return environments;
+    }
+
+    public void associateWithSession(IRemoteControlProxy remoteControl, String sessionId) {
+        shardFor(remoteControl.environment()).associateWithSession(remoteControl, sessionId);
+    }
+
+    public int recoverFromJournal(HttpClient httpClient) {
+        if (null == journal) {
+            return 0;
+        }
+        return journal.recoverInto(this, httpClient);
+    }
+
+    public boolean hasSession(String sessionId) {
+        return null != shardWithSession(sessionId);
+    }
+
+    public IRemoteControlProxy retrieve(String sessionId) {
+        return shardRunning(sessionId).retrieve(sessionId);
+    }
+
+    public void release(IRemoteControlProxy remoteControl) {
+        shardFor(remoteControl.environment()).release(remoteControl);
+    }
+
+    public void releaseForSession(String sessionId) {
+        shardRunning(sessionId).releaseForSession(sessionId);
+    }
+
+    public void updateSessionLastActiveAt(String sessionId) {
+        shardRunning(sessionId).updateSessionLastActiveAt(sessionId);
+    }
+
+    public List<IRemoteControlProxy> availableRemoteControls() {
+        final List<IRemoteControlProxy> availableRemoteControls;
+
+        availableRemoteControls = new LinkedList<IRemoteControlProxy>();
+        for (GlobalRemoteControlPool shard : shardsByEnvironment.values()) {
+            availableRemoteControls.addAll(shard.availableRemoteControls());
+        }
+        return availableRemoteControls;
+    }
+
+    public List<IRemoteControlProxy> reservedRemoteControls() {
+        final List<IRemoteControlProxy> reservedRemoteControls;
+
+        reservedRemoteControls = new LinkedList<IRemoteControlProxy>();
+        for (GlobalRemoteControlPool shard : shardsByEnvironment.values()) {
+            reservedRemoteControls.addAll(shard.reservedRemoteControls());
+        }
+        return reservedRemoteControls;
+    }
+
+    public List<IRemoteControlProxy> allRegisteredRemoteControls() {
+        final List<IRemoteControlProxy> allRemoteControls;
+
+        allRemoteControls = new LinkedList<IRemoteControlProxy>();
+        for (GlobalRemoteControlPool shard : shardsByEnvironment.values()) {
+            allRemoteControls.addAll(shard.allRegisteredRemoteControls());
+        }
+        return allRemoteControls;
+    }
+
+    public List<NewSessionQueueStatus> newSessionQueueStatuses() {
+        final List<NewSessionQueueStatus> statuses;
+
+        statuses = new LinkedList<NewSessionQueueStatus>();
+        for (GlobalRemoteControlPool shard : new TreeMap<String, GlobalRemoteControlPool>(shardsByEnvironment).values()) {
+            statuses.addAll(shard.newSessionQueueStatuses());
+        }
+        return statuses;
+    }
+
+    public RemoteControlProvisioner getProvisioner(String environment) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardsByEnvironment.get(environment);
+        return null == shard ? null : shard.getProvisioner(environment);
+    }
+
+    /**
+     * Remote controls of all environments are probed in a single sweep, so that they are probed
+     * concurrently.
+     */
+    public void unregisterAllUnresponsiveRemoteControls() {
+        final List<IRemoteControlProxy> unresponsiveRemoteControls;
+
+        unresponsiveRemoteControls = healthSweep.unresponsiveRemoteControls(allRegisteredRemoteControls());
+        if (unresponsiveRemoteControls.isEmpty()) {
+            return;
+        }
+        LOGGER.warn("Unregistering unreliable RCs " + unresponsiveRemoteControls);
+        for (IRemoteControlProxy remoteControl : unresponsiveRemoteControls) {
+            unregister(remoteControl);
+        }
+    }
+
+    public void recycleAllSessionsIdleForTooLong(double maxIdleTimeInSeconds) {
+        for (GlobalRemoteControlPool shard : shardsByEnvironment.values()) {
+            shard.recycleAllSessionsIdleForTooLong(maxIdleTimeInSeconds);
+        }
+    }
+
+    public RemoteControlHealthSweep healthSweep() {
+        return healthSweep;
+    }
+
+    public SessionJournal journal() {
+        return journal;
+    }
+
+    /**
+     * @return Number of environments with a shard.
+     */
+    public int shards() {
+        return shardsByEnvironment.size();
+    }
+
+    /**
+     * @return Shard of the environment, created on first use. Never null.
+     */
+    protected GlobalRemoteControlPool shardFor(String environment) {
+        final GlobalRemoteControlPool existingShard;
+        final GlobalRemoteControlPool newShard;
+        final GlobalRemoteControlPool racingShard;
+
+        existingShard = shardsByEnvironment.get(environment);
+        if (null != existingShard) {
+            return existingShard;
+        }
+        newShard = new GlobalRemoteControlPool(healthSweep);
+        newShard.addListener(new SessionRouter(newShard));
+        for (RemoteControlPoolListener listener : listeners) {
+            newShard.addListener(listener);
+        }
+        racingShard = shardsByEnvironment.putIfAbsent(environment, newShard);
+        return null == racingShard ? newShard : racingShard;
+    }
+
+    /**
+     * @return Shard running the session. Null if no shard does.
+     */
+    protected GlobalRemoteControlPool shardWithSession(String sessionId) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardsBySession.get(sessionId);
+        if (null == shard || !shard.hasSession(sessionId)) {
+            return null;
+        }
+        return shard;
+    }
+
+    /**
+     * @return Number of sessions routed to a shard.
+     */
+    public int routedSessions() {
+        return shardsBySession.size();
+    }
+
+    protected GlobalRemoteControlPool shardRunning(String sessionId) {
+        final GlobalRemoteControlPool shard;
+
+        shard = shardWithSession(sessionId);
+        if (null == shard) {
+            throw new NoSuchSessionException(sessionId);
+        }
+        return shard;
+    }
+
+    /**
+     * Keeps track of the sessions running on a shard.
+     */
+    protected class SessionRouter implements RemoteControlPoolListener {
+
+        private final GlobalRemoteControlPool shard;
+
+        public SessionRouter(GlobalRemoteControlPool shard) {
+            this.shard = shard;
+        }
+
+        public void registered(IRemoteControlProxy remoteControl) {
+        }
+
+        public void unregistered(IRemoteControlProxy remoteControl) {
+        }
+
+        public void associated(String sessionId, IRemoteControlProxy remoteControl) {
+            shardsBySession.put(sessionId, shard);
+        }
+
+        public void released(String sessionId) {
+            shardsBySession.remove(sessionId, shard);
+        }
+    }
+
+}
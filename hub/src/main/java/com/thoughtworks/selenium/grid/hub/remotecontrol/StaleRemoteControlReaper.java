@@ -0,0 +1,84 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unregisters the remote controls that stopped pushing their status to the hub.
+ * <p/>
+ * Runs at half the heartbeat timeout, so that a dead remote control is unregistered at most
+ * one and a half timeouts after its last heartbeat, without the hub contacting any remote control.
+ */
+public class StaleRemoteControlReaper implements Runnable {
+
+    private static final Log LOGGER = LogFactory.getLog(StaleRemoteControlReaper.class);
+    private final DynamicRemoteControlPool pool;
+    private final HeartbeatMonitor heartbeatMonitor;
+    private final long intervalInMilliseconds;
+    private volatile boolean active;
+
+    public StaleRemoteControlReaper(DynamicRemoteControlPool pool, HeartbeatMonitor heartbeatMonitor) {
+        this.pool = pool;
+        this.heartbeatMonitor = heartbeatMonitor;
+        this.intervalInMilliseconds = Math.max(1, heartbeatMonitor.timeoutInMilliseconds() / 2);
+        this.active = true;
+    }
+
+    public boolean active() {
+        return active;
+    }
+
+    public void stop() {
+        active = false;
+    }
+
+    public void run() {
+        while (active) {
+            sleepForALittleWhile();
+            unregisterStaleRemoteControls();
+        }
+    }
+
+    /**
+     * @return Remote controls unregistered. Never null.
+     */
+    public List<IRemoteControlProxy> unregisterStaleRemoteControls() {
+        final List<IRemoteControlProxy> staleRemoteControls;
+        final Set<String> expired;
+
+        staleRemoteControls = new LinkedList<IRemoteControlProxy>();
+        expired = heartbeatMonitor.expire();
+        if (expired.isEmpty()) {
+            return staleRemoteControls;
+        }
+        for (IRemoteControlProxy remoteControl : pool.allRegisteredRemoteControls()) {
+            if (expired.contains(HeartbeatMonitor.key(remoteControl.host(), remoteControl.port()))) {
+                staleRemoteControls.add(remoteControl);
+            }
+        }
+        if (!staleRemoteControls.isEmpty()) {
+            LOGGER.warn("Unregistering RCs that stopped sending heartbeats " + staleRemoteControls);
+        }
+        for (IRemoteControlProxy remoteControl : staleRemoteControls) {
+            pool.unregister(remoteControl);
+        }
+        return staleRemoteControls;
+    }
+
+    protected void sleepForALittleWhile() {
+        try {
+            Thread.sleep(intervalInMilliseconds);
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted!");
+        }
+    }
+
+    public long intervalInMilliseconds() {
+        return intervalInMilliseconds;
+    }
+
+}
@@ -2,6 +2,7 @@ package com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver;
 
 import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.RemoteControlMode;
@@ -19,10 +20,21 @@ public class NewBrowserSessionCommand extends WebDriverCommand {
 
     private static final Log logger = LogFactory.getLog(NewBrowserSessionCommand.class);
     private final Environment environment;
+    private final DesiredCapabilities capabilities;
 
     public NewBrowserSessionCommand(Environment environment, HttpServletRequest request) {
         super(null, request);
         this.environment = environment;
+        this.capabilities = null;
+    }
+
+    /**
+     * New session on any remote control offering the desired capabilities, whatever its environment.
+     */
+    public NewBrowserSessionCommand(DesiredCapabilities capabilities, HttpServletRequest request) {
+        super(null, request);
+        this.environment = null;
+        this.capabilities = capabilities;
     }
 
     public Response execute(RemoteControlPool pool) throws IOException {
@@ -30,9 +42,9 @@ public class NewBrowserSessionCommand extends WebDriverCommand {
         final String sessionId;
         final Response response;
 
-        remoteControl = pool.reserve(environment);
+        remoteControl = (null == environment) ? pool.reserve(capabilities) : pool.reserve(environment);
         if (null == remoteControl) {
-            final String message = "No available remote control for environment '" + environment.name() + "'";
+            final String message = "No available remote control for " + describeRequest();
             logger.warn(message);
             return new Response(message);
         }
@@ -57,8 +69,25 @@ public class NewBrowserSessionCommand extends WebDriverCommand {
     }
 
 
+    /**
+     * @return Environment requested. Null when the remote control is matched on capabilities.
+     */
     public Environment environment() {
         return environment;
     }
 
+    /**
+     * @return Capabilities requested. Null when the remote control is matched on environment name.
+     */
+    public DesiredCapabilities capabilities() {
+        return capabilities;
+    }
+
+    protected String describeRequest() {
+        if (null == environment) {
+            return "capabilities " + capabilities.asMap();
+        }
+        return "environment '" + environment.name() + "'";
+    }
+
 }
@@ -11,15 +11,12 @@ import org.json.JSONObject;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.util.regex.Pattern;
 
 /**
  * Generic Selenese command
  */
 public class WebDriverCommand implements IDriverCommand {
 
-    private static final Pattern SESSION_ID_PATTERN = Pattern.compile("/wd/hub/session/(\\d+)");
-
     private final String sessionId;
     private final HttpServletRequest request;
     private final HttpParameters parameters;
@@ -4,7 +4,10 @@ import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.minimock.UsingMiniMock;
 import org.jbehave.core.mock.Mock;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 
 
@@ -31,4 +34,12 @@ public class MockHelper extends UsingClassMock {
         return (HttpServletRequest) request;
     }
 
+    public static ServletOutputStream GetServletOutputStream(final OutputStream out) {
+        return new ServletOutputStream() {
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+        };
+    }
+
 }
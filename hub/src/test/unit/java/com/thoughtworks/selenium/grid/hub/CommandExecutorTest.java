@@ -0,0 +1,161 @@
+package com.thoughtworks.selenium.grid.hub;
+
+import com.thoughtworks.selenium.grid.Response;
+import com.thoughtworks.selenium.grid.hub.metrics.CommandTiming;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HealthyRemoteControl;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.IDriverCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.SeleneseCommand;
+import org.junit.Test;
+import org.mortbay.util.ajax.Continuation;
+import org.mortbay.util.ajax.WaitingContinuation;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import static junit.framework.Assert.*;
+
+public class CommandExecutorTest {
+
+    @Test
+    public void submitRunsTheCommandAndResumesTheContinuation() throws IOException {
+        final CommandExecutor executor;
+        final PendingCommand pendingCommand;
+        final Continuation continuation;
+        final Response response;
+
+        executor = new CommandExecutor(1, 1, 1);
+        response = new Response(200, "OK");
+        continuation = new WaitingContinuation();
+        pendingCommand = executor.submit(new SeleneseCommand("a session id", null), new Callable<Response>() {
+            public Response call() {
+                return response;
+            }
+        }, continuation);
+
+        while (!pendingCommand.done()) {
+            continuation.suspend(1000);
+        }
+        assertSame(response, pendingCommand.response());
+        executor.shutdown();
+    }
+
+    @Test
+    public void newSessionRequestsDoNotStarveCommandsForSessionsInProgress() throws Exception {
+        final CountDownLatch newSessionStarted;
+        final CountDownLatch remoteControlReleased;
+        final CommandExecutor executor;
+        final PendingCommand pendingCommand;
+        final Continuation continuation;
+
+        executor = new CommandExecutor(1, 1, 1);
+        newSessionStarted = new CountDownLatch(1);
+        remoteControlReleased = new CountDownLatch(1);
+        executor.submit(newSessionCommand(), new Callable<Response>() {
+            public Response call() throws Exception {
+                newSessionStarted.countDown();
+                remoteControlReleased.await();
+                return new Response();
+            }
+        }, new WaitingContinuation());
+        newSessionStarted.await();
+
+        continuation = new WaitingContinuation();
+        pendingCommand = executor.submit(new SeleneseCommand("a session id", null), new Callable<Response>() {
+            public Response call() {
+                remoteControlReleased.countDown();
+                return new Response();
+            }
+        }, continuation);
+
+        while (!pendingCommand.done()) {
+            continuation.suspend(1000);
+        }
+        assertEquals(0, remoteControlReleased.getCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void submitRepliesWithAnErrorWhenTheQueueIsFull() throws Exception {
+        final CountDownLatch blocked;
+        final CommandExecutor executor;
+        final PendingCommand rejectedCommand;
+        final Callable<Response> blockingWork;
+
+        executor = new CommandExecutor(1, 1, 1);
+        blocked = new CountDownLatch(1);
+        blockingWork = new Callable<Response>() {
+            public Response call() throws Exception {
+                blocked.await();
+                return new Response();
+            }
+        };
+        executor.submit(new SeleneseCommand("a session id", null), blockingWork, new WaitingContinuation());
+        executor.submit(new SeleneseCommand("a session id", null), blockingWork, new WaitingContinuation());
+        rejectedCommand = executor.submit(new SeleneseCommand("a session id", null), blockingWork, new WaitingContinuation());
+
+        assertTrue(rejectedCommand.done());
+        assertEquals("ERROR: Hub is too busy, please retry later", rejectedCommand.response().body());
+        blocked.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void newSessionRequestsWaitingForARemoteControlDoNotHoldAThread() throws Exception {
+        final GlobalRemoteControlPool pool;
+        final CommandExecutor executor;
+        final IRemoteControlProxy firefox;
+        final PendingCommand waitingForFirefox;
+        final Continuation waitingContinuation;
+
+        executor = new CommandExecutor(1, 1, 10);
+        pool = new GlobalRemoteControlPool();
+        firefox = new HealthyRemoteControl("firefox", 0, "*firefox", null);
+        pool.register(firefox);
+        pool.register(new HealthyRemoteControl("chrome", 0, "*chrome", null));
+        assertEquals("firefox", awaitResponse(submitNewSession(executor, pool, "*firefox", new WaitingContinuation()),
+                                              new WaitingContinuation()));
+
+        waitingContinuation = new WaitingContinuation();
+        waitingForFirefox = submitNewSession(executor, pool, "*firefox", waitingContinuation);
+        assertEquals("chrome", awaitResponse(submitNewSession(executor, pool, "*chrome", new WaitingContinuation()),
+                                             new WaitingContinuation()));
+        assertFalse(waitingForFirefox.done());
+
+        pool.release(firefox);
+        assertEquals("firefox", awaitResponse(waitingForFirefox, waitingContinuation));
+        executor.shutdown();
+    }
+
+    protected PendingCommand submitNewSession(CommandExecutor executor, GlobalRemoteControlPool pool,
+                                              final String environment, Continuation continuation) {
+        final NewBrowserSessionCommand command;
+
+        command = new NewBrowserSessionCommand(new Environment(environment, environment), null);
+        return executor.submit(command, pool, new CommandExecutor.Work() {
+            public Response execute(RemoteControlPool pool) {
+                final IRemoteControlProxy remoteControl = pool.reserve(command.environment());
+                return new Response(200, (null == remoteControl) ? "none" : remoteControl.host());
+            }
+        }, continuation, new CommandTiming());
+    }
+
+    protected String awaitResponse(PendingCommand pendingCommand, Continuation continuation) throws IOException {
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (!pendingCommand.done() && System.currentTimeMillis() < deadline) {
+            continuation.suspend(100);
+        }
+        assertTrue(pendingCommand.done());
+        return pendingCommand.response().body();
+    }
+
+    protected IDriverCommand newSessionCommand() {
+        return new SeleneseCommand(null, null);
+    }
+
+}
@@ -1,17 +1,24 @@
 package com.thoughtworks.selenium.grid.hub;
 
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HeartbeatMonitor;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 
 
 public class HeartbeatServletTest extends UsingClassMock {
@@ -77,4 +84,82 @@ public class HeartbeatServletTest extends UsingClassMock {
         verifyMocks();
     }
 
+    @Test
+    public void postRecordsTheStatusPushedByARegisteredRemoteControl() throws IOException, ServletException {
+        final GlobalRemoteControlPool pool = new GlobalRemoteControlPool();
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+        final StringWriter writer = new StringWriter(100);
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+        final RemoteControlStatus status;
+
+        pool.register(new RemoteControlProxy("a host", 1234, "*chrome", null));
+        request = Mockito.mock(HttpServletRequest.class);
+        response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(request.getParameter("host")).thenReturn("a host");
+        Mockito.when(request.getParameter("port")).thenReturn("1234");
+        Mockito.when(request.getParameter("load")).thenReturn("0.75");
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(writer));
+
+        servletWith(pool, monitor).doPost(request, response);
+        assertEquals("Hub : OK", writer.getBuffer().toString());
+        status = monitor.status(new RemoteControlProxy("a host", 1234, "*chrome", null));
+        assertEquals("a host", status.host());
+        assertEquals(1234, status.port());
+        assertEquals(0.75, status.load());
+    }
+
+    @Test
+    public void postIgnoresTheStatusOfAnUnregisteredRemoteControl() throws IOException, ServletException {
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+        final StringWriter writer = new StringWriter(100);
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(request.getParameter("host")).thenReturn("a host");
+        Mockito.when(request.getParameter("port")).thenReturn("1234");
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(writer));
+
+        servletWith(new GlobalRemoteControlPool(), monitor).doPost(request, response);
+        assertEquals("Hub : Not Registered", writer.getBuffer().toString());
+        assertFalse(monitor.monitors(new RemoteControlProxy("a host", 1234, "*chrome", null)));
+    }
+
+    @Test
+    public void statusesMissingTheLoadAreRecordedAsUnknown() throws IOException, ServletException {
+        final GlobalRemoteControlPool pool = new GlobalRemoteControlPool();
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+        final RemoteControlStatus status;
+
+        pool.register(new RemoteControlProxy("a host", 1234, "*chrome", null));
+        request = Mockito.mock(HttpServletRequest.class);
+        response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(request.getParameter("host")).thenReturn("a host");
+        Mockito.when(request.getParameter("port")).thenReturn("1234");
+        Mockito.when(request.getParameter("load")).thenReturn("not a number");
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter(100)));
+
+        servletWith(pool, monitor).doPost(request, response);
+        status = monitor.status(new RemoteControlProxy("a host", 1234, "*chrome", null));
+        assertEquals(-1.0, status.load());
+    }
+
+    protected static HeartbeatServlet servletWith(final DynamicRemoteControlPool pool, final HeartbeatMonitor monitor) {
+        return new HeartbeatServlet() {
+            @Override
+            protected DynamicRemoteControlPool remoteControlPool() {
+                return pool;
+            }
+
+            @Override
+            protected HeartbeatMonitor heartbeatMonitor() {
+                return monitor;
+            }
+        };
+    }
+
 }
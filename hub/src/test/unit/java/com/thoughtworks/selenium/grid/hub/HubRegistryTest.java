@@ -62,9 +62,50 @@ public class HubRegistryTest {
 
         registry = new HubRegistry();
         registry.gridConfiguration().getHub().setRemoteControlPollingIntervalInSeconds(24);
-        registry.gridConfiguration().getHub().setSessionMaxIdleTimeInSeconds(33);
         assertEquals(24000, registry.remoteControlPoller().pollingIntervalInMilliseconds());
-        assertEquals(33.0, registry.remoteControlPoller().sessionMaxIdleTimeInSeconds(), 0);
+    }
+
+    @Test
+    public void idleSessionRecyclerReturnsAUniqueInstance() {
+        assertSame(HubRegistry.registry().idleSessionRecycler(),
+                   HubRegistry.registry().idleSessionRecycler());
+    }
+
+    @Test
+    public void idleSessionRecyclerUsesTheSessionMaxIdleTimeFromTheConfiguration() {
+        final HubRegistry registry;
+
+        registry = new HubRegistry();
+        registry.gridConfiguration().getHub().setSessionMaxIdleTimeInSeconds(33);
+        assertEquals(33.0, registry.idleSessionRecycler().sessionMaxIdleTimeInSeconds(), 0);
+    }
+
+    @Test
+    public void connectionPoolReturnsAUniqueInstance() {
+        assertSame(HubRegistry.registry().connectionPool(),
+                   HubRegistry.registry().connectionPool());
+    }
+
+    @Test
+    public void connectionPoolIsSizedFromTheConfiguration() {
+        final HubRegistry registry;
+
+        registry = new HubRegistry();
+        registry.gridConfiguration().getHub().setRemoteControlMaxConnectionsPerHost(7);
+        assertEquals(7, registry.connectionPool().maxConnectionsPerHost());
+        registry.connectionPool().shutdown();
+    }
+
+    @Test
+    public void metricsReturnsAUniqueInstance() {
+        assertSame(HubRegistry.registry().metrics(),
+                   HubRegistry.registry().metrics());
+    }
+
+    @Test
+    public void slowCommandLogReturnsAUniqueInstance() {
+        assertSame(HubRegistry.registry().slowCommandLog(),
+                   HubRegistry.registry().slowCommandLog());
     }
 
 }
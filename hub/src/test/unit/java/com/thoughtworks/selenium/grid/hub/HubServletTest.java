@@ -4,17 +4,17 @@ import com.thoughtworks.selenium.grid.HttpParameters;
 import com.thoughtworks.selenium.grid.MockHelper;
 import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
-import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import org.apache.commons.httpclient.Header;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,7 +32,7 @@ public class HubServletTest extends UsingClassMock {
         remoteControlResponse = new Response(123, "", new Header[]{});
         servletResponse = mock(HttpServletResponse.class);
         servletResponse.expects("setContentType").with("text/plain");
-        servletResponse.expects("getWriter").will(returnValue(new PrintWriter(new StringWriter(100))));
+        servletResponse.expects("getOutputStream").will(returnValue(MockHelper.GetServletOutputStream(new ByteArrayOutputStream())));
 
         new HubServlet().reply((HttpServletResponse) servletResponse, remoteControlResponse);
         verifyMocks();
@@ -46,7 +46,7 @@ public class HubServletTest extends UsingClassMock {
         remoteControlResponse = new Response(123, "", new Header[]{});
         servletResponse = mock(HttpServletResponse.class);
         servletResponse.expects("setCharacterEncoding").with("UTF-8");
-        servletResponse.expects("getWriter").will(returnValue(new PrintWriter(new StringWriter(100))));
+        servletResponse.expects("getOutputStream").will(returnValue(MockHelper.GetServletOutputStream(new ByteArrayOutputStream())));
 
         new HubServlet().reply((HttpServletResponse) servletResponse, remoteControlResponse);
         verifyMocks();
@@ -60,7 +60,7 @@ public class HubServletTest extends UsingClassMock {
         remoteControlResponse = new Response(123, "", new Header[]{});
         servletResponse = mock(HttpServletResponse.class);
         servletResponse.expects("setStatus").with(123);
-        servletResponse.expects("getWriter").will(returnValue(new PrintWriter(new StringWriter(100))));
+        servletResponse.expects("getOutputStream").will(returnValue(MockHelper.GetServletOutputStream(new ByteArrayOutputStream())));
 
         new HubServlet().reply((HttpServletResponse) servletResponse, remoteControlResponse);
         verifyMocks();
@@ -68,20 +68,36 @@ public class HubServletTest extends UsingClassMock {
 
     @Test
     public void replyWriteRemoteControlResponseOnServletResponseAsPlainText() throws IOException {
-        final StringWriter writer = new StringWriter(100);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
         final Response remoteControlResponse;
         final Mock servletResponse;
 
         remoteControlResponse = new Response(0, "some response message", new Header[]{});
         servletResponse = mock(HttpServletResponse.class);
-        servletResponse.expects("getWriter").will(returnValue(new PrintWriter(writer)));
+        servletResponse.expects("getOutputStream").will(returnValue(MockHelper.GetServletOutputStream(out)));
 
         new HubServlet().reply((HttpServletResponse) servletResponse, remoteControlResponse);
-        assertEquals("some response message", writer.getBuffer().toString());
+        assertEquals("some response message", out.toString("UTF-8"));
 
         verifyMocks();
     }
 
+    @Test
+    public void processRepliesWithThePendingCommandTrackedOnTheRequest() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final HttpServletResponse servletResponse;
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getAttribute(PendingCommand.REQUEST_ATTRIBUTE))
+                .thenReturn(PendingCommand.completed(new Response(200, "OK,a title")));
+        servletResponse = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(servletResponse.getOutputStream()).thenReturn(MockHelper.GetServletOutputStream(out));
+
+        new HubServlet().process(request, servletResponse);
+        assertEquals("OK,a title", out.toString("UTF-8"));
+    }
+
     @Test
     public void forwardExecuteTheSeleneseCommandOnTheAppropriateRemoteControl() throws IOException {
         final HttpParameters requestParameters;
@@ -96,7 +112,7 @@ public class HubServletTest extends UsingClassMock {
         requestParameters.put("cmd", "aSeleneseCommand");
         requestParameters.put("sessionId", "a session id");
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environmentManager = mock(EnvironmentManager.class);
         response = new Response(0, "", new Header[]{});
 
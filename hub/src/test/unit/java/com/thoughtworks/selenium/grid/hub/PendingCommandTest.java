@@ -0,0 +1,211 @@
+package com.thoughtworks.selenium.grid.hub;
+
+import com.thoughtworks.selenium.grid.Response;
+import com.thoughtworks.selenium.grid.hub.metrics.CommandTiming;
+import org.jbehave.classmock.UsingClassMock;
+import org.jbehave.core.mock.Mock;
+import org.junit.Test;
+import org.mortbay.util.ajax.Continuation;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import static junit.framework.Assert.*;
+
+public class PendingCommandTest extends UsingClassMock {
+
+    @Test
+    public void aCompletedCommandIsDoneAndReturnsItsResponse() throws IOException {
+        final Response response;
+        final PendingCommand command;
+
+        response = new Response("an error");
+        command = PendingCommand.completed(response);
+        assertTrue(command.done());
+        assertSame(response, command.response());
+    }
+
+    @Test
+    public void runCompletesTheCommandAndResumesTheContinuation() throws IOException {
+        final Response response;
+        final PendingCommand command;
+        final Mock continuation;
+
+        response = new Response(200, "OK");
+        continuation = mock(Continuation.class);
+        continuation.expects("resume");
+        command = new PendingCommand(new Callable<Response>() {
+            public Response call() {
+                return response;
+            }
+        }, (Continuation) continuation);
+
+        assertFalse(command.done());
+        command.run();
+        assertTrue(command.done());
+        assertSame(response, command.response());
+        verifyMocks();
+    }
+
+    @Test
+    public void responseRethrowsTheIOExceptionRaisedByTheCommand() {
+        final PendingCommand command;
+        final Mock continuation;
+
+        continuation = mock(Continuation.class);
+        continuation.expects("resume");
+        command = new PendingCommand(new Callable<Response>() {
+            public Response call() throws IOException {
+                throw new IOException("an error");
+            }
+        }, (Continuation) continuation);
+
+        command.run();
+        assertTrue(command.done());
+        try {
+            command.response();
+            fail("did not catch IOException as expected");
+        } catch (IOException e) {
+            assertEquals("an error", e.getMessage());
+        }
+        verifyMocks();
+    }
+
+    @Test
+    public void remoteControlRoundTripsMadeWhileRunningAreAccountedToTheCommandTiming() {
+        final CommandTiming timing;
+        final PendingCommand command;
+        final Mock continuation;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", null);
+        continuation = mock(Continuation.class);
+        continuation.expects("resume");
+        command = new PendingCommand(new Callable<Response>() {
+            public Response call() {
+                CommandTiming.remoteControlRoundTrip("Firefox on Windows", 42);
+                return new Response(200, "OK");
+            }
+        }, (Continuation) continuation, timing);
+
+        command.run();
+        assertSame(timing, command.timing());
+        assertEquals(42, timing.remoteControlRoundTripInNanoseconds());
+        assertEquals("Firefox on Windows", timing.environment());
+        verifyMocks();
+    }
+
+    @Test
+    public void executionIsTimedBeforeTheCommandIsDone() {
+        final PendingCommand[] command = new PendingCommand[1];
+        final boolean[] doneWhenExecutionFinished = new boolean[1];
+        final CommandTiming timing;
+        final Mock continuation;
+
+        timing = new CommandTiming() {
+            public void executionFinished() {
+                doneWhenExecutionFinished[0] = command[0].done();
+                super.executionFinished();
+            }
+        };
+        continuation = mock(Continuation.class);
+        continuation.expects("resume");
+        command[0] = new PendingCommand(new Callable<Response>() {
+            public Response call() {
+                return new Response(200, "OK");
+            }
+        }, (Continuation) continuation, timing);
+
+        command[0].run();
+        assertTrue(command[0].done());
+        assertFalse(doneWhenExecutionFinished[0]);
+        verifyMocks();
+    }
+
+    @Test
+    public void awaitCompletionReturnsRightAwayWhenTheCommandIsDone() {
+        final long start;
+
+        start = System.currentTimeMillis();
+        PendingCommand.completed(new Response(200, "OK")).awaitCompletion(5000);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    public void aCommandCompletingJustBeforeTheRequestIsSuspendedStillResumesIt() {
+        final ResumeOnlyWhenPendingContinuation continuation;
+        final PendingCommand command;
+        final long start;
+
+        continuation = new ResumeOnlyWhenPendingContinuation();
+        command = new PendingCommand(new Callable<Response>() {
+            public Response call() {
+                return new Response(200, "OK");
+            }
+        }, continuation);
+        continuation.runBeforeSuspending = command;
+
+        start = System.currentTimeMillis();
+        command.awaitCompletion(5000);
+        assertTrue(command.done());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    /**
+     * Like Jetty's retry continuations, ignores resume() unless already suspended.
+     */
+    protected static class ResumeOnlyWhenPendingContinuation implements Continuation {
+
+        private Runnable runBeforeSuspending;
+        private boolean pending;
+        private boolean resumed;
+
+        public boolean suspend(long timeout) {
+            final Thread racingThread;
+
+            racingThread = new Thread(runBeforeSuspending);
+            racingThread.start();
+            try {
+                racingThread.join(200);
+                synchronized (this) {
+                    pending = true;
+                    wait(timeout);
+                    pending = false;
+                    return resumed;
+                }
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        public synchronized void resume() {
+            if (pending) {
+                resumed = true;
+                notifyAll();
+            }
+        }
+
+        public void reset() {
+        }
+
+        public boolean isNew() {
+            return true;
+        }
+
+        public synchronized boolean isPending() {
+            return pending;
+        }
+
+        public synchronized boolean isResumed() {
+            return resumed;
+        }
+
+        public Object getObject() {
+            return null;
+        }
+
+        public void setObject(Object o) {
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.thoughtworks.selenium.grid.hub;
+
+import com.thoughtworks.selenium.grid.CapturedBody;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.IDriverCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.TestCompleteCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.WebDriverCommand;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static junit.framework.Assert.*;
+
+public class WebDriverHttpCommandParserTest {
+
+    @Test
+    public void deletingASessionIsParsedAsATestCompleteCommand() {
+        final IDriverCommand command;
+
+        command = new WebDriverHttpCommandParser(request("DELETE", "/wd/hub/session/1234")).parse(null);
+        assertTrue(command instanceof TestCompleteCommand);
+        assertEquals("1234", command.sessionId());
+    }
+
+    @Test
+    public void commandsForAUUIDSessionAreParsedAsWebDriverCommands() {
+        final IDriverCommand command;
+
+        command = new WebDriverHttpCommandParser(
+                request("POST", "/wd/hub/session/5f8c6a3e-2b1d-4c7a-9e0f-1a2b3c4d5e6f/url")).parse(null);
+        assertEquals(WebDriverCommand.class, command.getClass());
+        assertEquals("5f8c6a3e-2b1d-4c7a-9e0f-1a2b3c4d5e6f", command.sessionId());
+    }
+
+    @Test(expected = CommandParsingException.class)
+    public void requestsWithoutASessionIdCannotBeParsed() {
+        new WebDriverHttpCommandParser(request("GET", "/wd/hub/status")).parse(null);
+    }
+
+    @Test
+    public void newSessionRequestsAreRoutedToTheEnvironmentOfTheirDesiredCapabilities() {
+        final EnvironmentManager environmentManager;
+        final Environment environment;
+        final IDriverCommand command;
+
+        environment = new Environment("firefox on linux", "*chrome");
+        environmentManager = new EnvironmentManager();
+        environmentManager.addEnvironment(environment);
+        command = new WebDriverHttpCommandParser(newSessionRequest(
+                "{\"desiredCapabilities\": {\"browserName\": \"Firefox\", \"platform\": \"LINUX\"}}"))
+                .parse(environmentManager, new GlobalRemoteControlPool());
+        assertEquals(environment, ((NewBrowserSessionCommand) command).environment());
+    }
+
+    @Test
+    public void desiredCapabilitiesAreCachedOnTheRequest() {
+        final HttpServletRequest request;
+        final DesiredCapabilities capabilities;
+
+        request = newSessionRequest("{\"desiredCapabilities\": {\"browserName\": \"chrome\"}}");
+        capabilities = WebDriverHttpCommandParser.desiredCapabilities(request);
+        assertEquals("chrome", capabilities.browserName());
+        Mockito.verify(request).setAttribute(DesiredCapabilities.REQUEST_ATTRIBUTE, capabilities);
+
+        Mockito.when(request.getAttribute(DesiredCapabilities.REQUEST_ATTRIBUTE)).thenReturn(capabilities);
+        assertSame(capabilities, WebDriverHttpCommandParser.desiredCapabilities(request));
+        Mockito.verify(request, Mockito.times(1)).getContentLength();
+    }
+
+    @Test(expected = CommandParsingException.class)
+    public void newSessionRequestsWithoutAPlatformCannotBeParsed() {
+        new WebDriverHttpCommandParser(newSessionRequest("{\"desiredCapabilities\": {\"browserName\": \"chrome\"}}"))
+                .parse(new EnvironmentManager(), new GlobalRemoteControlPool());
+    }
+
+    @Test(expected = CommandParsingException.class)
+    public void newSessionRequestsWithAMalformedBodyCannotBeParsed() {
+        new WebDriverHttpCommandParser(newSessionRequest("{\"desiredCapabilities\": {"))
+                .parse(new EnvironmentManager(), new GlobalRemoteControlPool());
+    }
+
+    @Test
+    public void newSessionRequestsForAnEnvironmentThatIsNotConfiguredAreMatchedOnCapabilities() {
+        final GlobalRemoteControlPool pool;
+        final NewBrowserSessionCommand command;
+
+        pool = new GlobalRemoteControlPool();
+        pool.register(new RemoteControlProxy("a.host", 5555, "Firefox on Linux", null));
+        command = (NewBrowserSessionCommand) new WebDriverHttpCommandParser(newSessionRequest(
+                "{\"desiredCapabilities\": {\"browserName\": \"firefox\", \"platform\": \"ANY\"}}"))
+                .parse(new EnvironmentManager(), pool);
+        assertNull(command.environment());
+        assertEquals("firefox", command.capabilities().browserName());
+    }
+
+    @Test(expected = CommandParsingException.class)
+    public void newSessionRequestsMatchingNoRegisteredCapabilitiesCannotBeParsed() {
+        final GlobalRemoteControlPool pool;
+
+        pool = new GlobalRemoteControlPool();
+        pool.register(new RemoteControlProxy("a.host", 5555, "Firefox on Linux", null));
+        new WebDriverHttpCommandParser(newSessionRequest("{\"desiredCapabilities\": {\"browserName\": \"chrome\"}}"))
+                .parse(new EnvironmentManager(), pool);
+    }
+
+    protected HttpServletRequest newSessionRequest(String body) {
+        final HttpServletRequest request;
+
+        request = request("POST", "/wd/hub/session");
+        try {
+            Mockito.when(request.getInputStream()).thenReturn(
+                    CapturedBody.capture(new ByteArrayInputStream(body.getBytes("UTF-8")), -1, null).inputStream());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Mockito.when(request.getContentLength()).thenReturn(-1);
+        return request;
+    }
+
+    protected HttpServletRequest request(String method, String uri) {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn(method);
+        Mockito.when(request.getRequestURI()).thenReturn(uri);
+        return request;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.thoughtworks.selenium.grid.hub;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class WebDriverRouteTest {
+
+    @Test
+    public void postingToTheSessionPathIsANewSession() {
+        final WebDriverRoute route = WebDriverRoute.route("POST", "/wd/hub/session");
+
+        assertEquals(WebDriverRoute.Type.NEW_SESSION, route.type());
+        assertNull(route.sessionId());
+    }
+
+    @Test
+    public void deletingASessionIsADeleteSession() {
+        final WebDriverRoute route = WebDriverRoute.route("DELETE", "/wd/hub/session/1234");
+
+        assertEquals(WebDriverRoute.Type.DELETE_SESSION, route.type());
+        assertEquals("1234", route.sessionId());
+    }
+
+    @Test
+    public void getOnASessionIsASessionCommand() {
+        final WebDriverRoute route = WebDriverRoute.route("GET", "/wd/hub/session/1234");
+
+        assertEquals(WebDriverRoute.Type.SESSION_COMMAND, route.type());
+        assertEquals("1234", route.sessionId());
+    }
+
+    @Test
+    public void deletingAResourceOfASessionIsASessionCommand() {
+        final WebDriverRoute route = WebDriverRoute.route("DELETE", "/wd/hub/session/1234/cookie");
+
+        assertEquals(WebDriverRoute.Type.SESSION_COMMAND, route.type());
+        assertEquals("1234", route.sessionId());
+    }
+
+    @Test
+    public void sessionIdsCanBeUUIDs() {
+        final WebDriverRoute route = WebDriverRoute.route("POST", "/wd/hub/session/5f8c6a3e-2b1d-4c7a-9e0f-1a2b3c4d5e6f/element");
+
+        assertEquals(WebDriverRoute.Type.SESSION_COMMAND, route.type());
+        assertEquals("5f8c6a3e-2b1d-4c7a-9e0f-1a2b3c4d5e6f", route.sessionId());
+    }
+
+    @Test
+    public void deletingAUUIDSessionIsADeleteSession() {
+        final WebDriverRoute route = WebDriverRoute.route("DELETE", "/wd/hub/session/36d3cc124c8b4b4f8c53c5b600052da3");
+
+        assertEquals(WebDriverRoute.Type.DELETE_SESSION, route.type());
+        assertEquals("36d3cc124c8b4b4f8c53c5b600052da3", route.sessionId());
+    }
+
+    @Test
+    public void pathsOutsideOfTheSessionPathAreUnknown() {
+        assertEquals(WebDriverRoute.Type.UNKNOWN, WebDriverRoute.route("GET", "/wd/hub/status").type());
+        assertEquals(WebDriverRoute.Type.UNKNOWN, WebDriverRoute.route("GET", "/wd/hub/sessions").type());
+        assertEquals(WebDriverRoute.Type.UNKNOWN, WebDriverRoute.route("GET", null).type());
+    }
+
+    @Test
+    public void anEmptySessionIdIsUnknown() {
+        assertEquals(WebDriverRoute.Type.UNKNOWN, WebDriverRoute.route("GET", "/wd/hub/session/").type());
+        assertEquals(WebDriverRoute.Type.UNKNOWN, WebDriverRoute.route("GET", "/wd/hub/session//url").type());
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.thoughtworks.selenium.grid.hub.capabilities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.*;
+
+public class CapabilityIndexTest {
+
+    @Test
+    public void environmentsMatchingReturnsEnvironmentsOfferingAllDesiredCapabilities() {
+        final CapabilityIndex index;
+
+        index = new CapabilityIndex();
+        index.add("Firefox 3.6 on Linux", map("browserName", "firefox", "platform", "LINUX", "version", "3.6"));
+        index.add("Firefox 4 on Linux", map("browserName", "firefox", "platform", "LINUX", "version", "4.0"));
+        index.add("Firefox on Windows", map("browserName", "firefox", "platform", "WINDOWS", "version", "3.6"));
+
+        assertEquals(Arrays.asList("Firefox 4 on Linux"), index.environmentsMatching(map("browserName", "Firefox", "version", "4.0")));
+        assertEquals(new HashSet<String>(Arrays.asList("Firefox 3.6 on Linux", "Firefox on Windows")),
+                     new HashSet<String>(index.environmentsMatching(map("browserName", "firefox", "version", "3.6"))));
+        assertEquals(Arrays.asList("Firefox 3.6 on Linux"),
+                     index.environmentsMatching(map("platform", "linux", "version", "3.6")));
+    }
+
+    @Test
+    public void environmentsMatchingIsEmptyWhenADesiredCapabilityIsNotOffered() {
+        final CapabilityIndex index;
+
+        index = new CapabilityIndex();
+        index.add("Firefox on Linux", map("browserName", "firefox", "platform", "linux"));
+        index.add("Firefox on Mac", map("browserName", "firefox", "platform", "mac", "tag", "gpu"));
+        assertTrue(index.environmentsMatching(map("browserName", "firefox", "platform", "windows")).isEmpty());
+        assertTrue(index.environmentsMatching(map("browserName", "firefox", "tag", "sound")).isEmpty());
+    }
+
+    @Test
+    public void capabilitiesNoEnvironmentAdvertisesDoNotConstrainTheMatch() {
+        final CapabilityIndex index;
+
+        index = new CapabilityIndex();
+        index.add("Firefox on Linux", map("browserName", "firefox", "platform", "linux"));
+        assertEquals(Arrays.asList("Firefox on Linux"),
+                     index.environmentsMatching(map("browserName", "firefox", "javascriptEnabled", "true")));
+    }
+
+    @Test
+    public void capabilitiesOfRemovedEnvironmentsDoNotConstrainTheMatchAnymore() {
+        final CapabilityIndex index;
+
+        index = new CapabilityIndex();
+        index.add("Firefox on Linux", map("browserName", "firefox"));
+        index.add("Firefox on Mac", map("browserName", "firefox", "tag", "gpu"));
+        index.remove("Firefox on Mac");
+        assertEquals(Arrays.asList("Firefox on Linux"), index.environmentsMatching(map("browserName", "firefox", "tag", "gpu")));
+    }
+
+    @Test
+    public void wildcardCapabilitiesDoNotConstrainTheMatch() {
+        final CapabilityIndex index;
+        final List<String> matches;
+
+        index = new CapabilityIndex();
+        index.add("Firefox on Linux", map("browserName", "firefox", "platform", "linux"));
+        index.add("Firefox on Mac", map("browserName", "firefox", "platform", "mac"));
+        index.add("Chrome on Mac", map("browserName", "chrome", "platform", "mac"));
+        matches = index.environmentsMatching(map("browserName", "firefox", "platform", "ANY", "version", ""));
+        assertEquals(new HashSet<String>(Arrays.asList("Firefox on Linux", "Firefox on Mac")), new HashSet<String>(matches));
+        assertEquals(3, index.environmentsMatching(map("platform", "*")).size());
+    }
+
+    @Test
+    public void customCapabilitiesCanBeMatched() {
+        final CapabilityIndex index;
+
+        index = new CapabilityIndex();
+        index.add("Firefox on Linux", map("browserName", "firefox", "platform", "linux"));
+        index.add("Firefox on Linux", map("browserName", "firefox", "platform", "linux", "gpu", "true"));
+        assertEquals(Arrays.asList("Firefox on Linux"), index.environmentsMatching(map("gpu", "TRUE")));
+        assertEquals("true", index.capabilities("Firefox on Linux").get("gpu"));
+    }
+
+    @Test
+    public void removedEnvironmentsAreNotMatchedAnymore() {
+        final CapabilityIndex index;
+
+        index = new CapabilityIndex();
+        index.add("Firefox on Linux", map("browserName", "firefox"));
+        index.add("Firefox on Mac", map("browserName", "firefox"));
+        index.remove("Firefox on Linux");
+        assertEquals(Arrays.asList("Firefox on Mac"), index.environmentsMatching(map("browserName", "firefox")));
+        assertTrue(index.capabilities("Firefox on Linux").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void capabilitiesImpliedByAnEnvironmentNameFollowingTheBrowserOnPlatformConvention() {
+        final Map<String, String> capabilities;
+
+        capabilities = CapabilityIndex.capabilitiesImpliedBy("Firefox On Linux");
+        assertEquals("Firefox", capabilities.get("browserName"));
+        assertEquals("Linux", capabilities.get("platform"));
+    }
+
+    @Test
+    public void noCapabilitiesAreImpliedByAnEnvironmentNameNotFollowingTheConvention() {
+        assertTrue(CapabilityIndex.capabilitiesImpliedBy("*chrome").isEmpty());
+        assertTrue(CapabilityIndex.capabilitiesImpliedBy("Firefox on ").isEmpty());
+    }
+
+    protected Map<String, String> map(String... keysAndValues) {
+        final Map<String, String> map;
+
+        map = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.thoughtworks.selenium.grid.hub.capabilities;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class CapabilityScannerTest {
+
+    @Test
+    public void scanExtractsScalarDesiredCapabilities() {
+        final DesiredCapabilities capabilities;
+
+        capabilities = CapabilityScanner.scan(
+                "{\"desiredCapabilities\": {\"browserName\": \"firefox\", \"platform\": \"LINUX\", "
+                        + "\"version\": 3.6, \"javascriptEnabled\": true}}");
+        assertEquals("firefox", capabilities.browserName());
+        assertEquals("LINUX", capabilities.platform());
+        assertEquals("3.6", capabilities.version());
+        assertEquals("true", capabilities.capability("javascriptEnabled"));
+        assertEquals(4, capabilities.asMap().size());
+    }
+
+    @Test
+    public void scanSkipsNestedAndNullCapabilities() {
+        final DesiredCapabilities capabilities;
+
+        capabilities = CapabilityScanner.scan(
+                "{\"desiredCapabilities\": {\"proxy\": {\"proxyType\": \"manual\", \"list\": [1, {\"a\": \"}\"}]},"
+                        + " \"browserName\": \"chrome\", \"version\": null, \"args\": [\"--x\"]}}");
+        assertEquals("chrome", capabilities.browserName());
+        assertNull(capabilities.version());
+        assertEquals(1, capabilities.asMap().size());
+    }
+
+    @Test
+    public void scanSkipsTopLevelMembersBeforeTheDesiredCapabilities() {
+        final DesiredCapabilities capabilities;
+
+        capabilities = CapabilityScanner.scan(
+                "{\"requiredCapabilities\": {\"browserName\": \"ie\"}, \"sessionId\": null, \"n\": -1.5e3,"
+                        + " \"desiredCapabilities\": {\"browserName\": \"safari\"}}");
+        assertEquals("safari", capabilities.browserName());
+    }
+
+    @Test
+    public void scanStopsOnceTheDesiredCapabilitiesHaveBeenRead() {
+        final DesiredCapabilities capabilities;
+
+        capabilities = CapabilityScanner.scan("{\"desiredCapabilities\": {\"browserName\": \"opera\"}, this is never read");
+        assertEquals("opera", capabilities.browserName());
+    }
+
+    @Test
+    public void scanUnescapesStrings() {
+        final DesiredCapabilities capabilities;
+
+        capabilities = CapabilityScanner.scan(
+                "{\"desiredCapabilities\": {\"browserName\": \"internet \\\"explorer\\\"\\n\\u00e9\\\\\"}}");
+        assertEquals("internet \"explorer\"\n\u00e9\\", capabilities.browserName());
+    }
+
+    @Test
+    public void scanReturnsNullWhenThereAreNoDesiredCapabilities() {
+        assertNull(CapabilityScanner.scan("{}"));
+        assertNull(CapabilityScanner.scan(" {\"foo\": [\"bar\"], \"desiredCapabilities\": \"firefox\"} "));
+    }
+
+    @Test
+    public void scanReturnsEmptyCapabilitiesForAnEmptyObject() {
+        assertTrue(CapabilityScanner.scan("{\"desiredCapabilities\": {}}").asMap().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scanRejectsATruncatedBody() {
+        CapabilityScanner.scan("{\"desiredCapabilities\": {\"browserName\": \"fire");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scanRejectsABodyThatIsNotAJsonObject() {
+        CapabilityScanner.scan("browserName=firefox");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scanRejectsAnEmptyBody() {
+        CapabilityScanner.scan("");
+    }
+
+}
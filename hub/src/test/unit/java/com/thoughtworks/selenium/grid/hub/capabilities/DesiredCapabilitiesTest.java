@@ -0,0 +1,55 @@
+package com.thoughtworks.selenium.grid.hub.capabilities;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.Assert.*;
+
+public class DesiredCapabilitiesTest {
+
+    @Test
+    public void environmentNameFollowsTheBrowserOnPlatformConvention() {
+        assertEquals("firefox on linux", capabilities("browserName", "Firefox", "platform", "LINUX").environmentName());
+    }
+
+    @Test
+    public void environmentNameIsNullWhenThePlatformIsMissing() {
+        assertNull(capabilities("browserName", "firefox").environmentName());
+    }
+
+    @Test
+    public void matchesWhenAllRequiredCapabilitiesArePresentIgnoringCase() {
+        final DesiredCapabilities capabilities;
+        final Map<String, String> required;
+
+        capabilities = capabilities("browserName", "firefox", "platform", "LINUX", "version", "3.6");
+        required = new HashMap<String, String>();
+        required.put("platform", "linux");
+        required.put("version", "3.6");
+        assertTrue(capabilities.matches(required));
+        required.put("version", "4.0");
+        assertFalse(capabilities.matches(required));
+    }
+
+    @Test
+    public void doesNotMatchWhenARequiredCapabilityIsMissing() {
+        final Map<String, String> required;
+
+        required = new HashMap<String, String>();
+        required.put("version", "3.6");
+        assertFalse(capabilities("browserName", "firefox").matches(required));
+    }
+
+    protected DesiredCapabilities capabilities(String... keysAndValues) {
+        final Map<String, String> capabilities;
+
+        capabilities = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            capabilities.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return new DesiredCapabilities(capabilities);
+    }
+
+}
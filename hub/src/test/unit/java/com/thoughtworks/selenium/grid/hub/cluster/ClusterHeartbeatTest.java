@@ -0,0 +1,18 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class ClusterHeartbeatTest {
+
+    @Test
+    public void intervalIsAThirdOfTheLeaseTimeout() {
+        final ClusteredRemoteControlPool pool;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), new LocalClusterStore(), "hub1:4444", null, 30);
+        assertEquals(10000, new ClusterHeartbeat(pool).intervalInMilliseconds());
+    }
+
+}
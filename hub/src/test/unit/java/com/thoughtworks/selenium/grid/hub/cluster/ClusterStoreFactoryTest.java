@@ -0,0 +1,40 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class ClusterStoreFactoryTest {
+
+    @Test
+    public void localIsTheStoreSharedByTheHubsOfTheJVM() {
+        assertSame(LocalClusterStore.shared(), new ClusterStoreFactory().create("local"));
+    }
+
+    @Test
+    public void fileCreatesAStoreInTheDirectory() {
+        final File directory = new File(System.getProperty("java.io.tmpdir"), "cluster-store-factory-test");
+
+        assertTrue(new ClusterStoreFactory().create("file:" + directory.getPath()) instanceof FileClusterStore);
+        FileClusterStoreTest.delete(directory);
+    }
+
+    @Test
+    public void aClassNameCreatesAnInstanceOfTheClass() {
+        assertTrue(new ClusterStoreFactory().create(LocalClusterStore.class.getName()) instanceof LocalClusterStore);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anUnknownClassIsRejected() {
+        new ClusterStoreFactory().create("com.example.NoSuchStore");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aClassThatIsNotAStoreIsRejected() {
+        new ClusterStoreFactory().create(String.class.getName());
+    }
+
+}
@@ -0,0 +1,350 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.GlobalRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HealthyRemoteControl;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RecordingReservationListener;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class ClusteredRemoteControlPoolTest {
+
+    @Test
+    public void registeredRemoteControlsArePublishedUntilTheyAreUnregistered() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final HealthyRemoteControl remoteControl;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        remoteControl = new HealthyRemoteControl("rc", 5555, "*chrome", null);
+        pool.register(remoteControl);
+        assertEquals("rc:5555", store.remoteControlsByHub().get("hub1:4444").get(0).key());
+
+        pool.unregister(remoteControl);
+        assertTrue(store.remoteControlsByHub().get("hub1:4444").isEmpty());
+    }
+
+    @Test
+    public void sessionsArePublishedUntilTheyAreReleased() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.register(remoteControlEndingSessionsQuietly("rc", "*chrome"));
+        pool.associateWithSession(pool.reserve(new Environment("*chrome", "*chrome")), "a session id");
+        assertEquals("hub1:4444", store.sessionOwner("a session id"));
+
+        pool.releaseForSession("a session id");
+        assertNull(store.sessionOwner("a session id"));
+    }
+
+    @Test
+    public void staleEntriesOfTheHubAreDroppedWhenItJoinsTheCluster() {
+        final LocalClusterStore store = new LocalClusterStore();
+
+        store.putRemoteControl("hub1:4444", registration("rc", "*chrome"));
+        store.putSession("a session id", "hub1:4444");
+        new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        assertTrue(!store.remoteControlsByHub().containsKey("hub1:4444"));
+        assertNull(store.sessionOwner("a session id"));
+    }
+
+    @Test
+    public void reserveReturnsALocalRemoteControlWhenThereIsOneForTheEnvironment() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final HealthyRemoteControl remoteControl;
+
+        store.putRemoteControl("hub2:4444", registration("other", "*chrome"));
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        remoteControl = new HealthyRemoteControl("rc", 5555, "*chrome", null);
+        pool.register(remoteControl);
+
+        assertSame(remoteControl, pool.reserve(new Environment("*chrome", "*chrome")));
+    }
+
+    @Test
+    public void reserveReturnsThePeerHubWithTheMostSlotsWhenThereIsNoLocalRemoteControlForTheEnvironment() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final IRemoteControlProxy peer;
+
+        store.putRemoteControl("hub2:4444", registration("rc2", "*chrome"));
+        store.renewLease("hub2:4444");
+        store.putRemoteControl("hub3:5555", registration("rc3", "*chrome"));
+        store.putRemoteControl("hub3:5555", registration("rc4", "*chrome"));
+        store.renewLease("hub3:5555");
+        store.putRemoteControl("hub4:4444", registration("rc5", "*firefox"));
+        store.renewLease("hub4:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.register(new HealthyRemoteControl("rc", 5555, "*firefox", null));
+
+        peer = pool.reserve(new Environment("*chrome", "*chrome"));
+        assertTrue(peer instanceof PeerHub);
+        assertEquals("hub3:5555", ((PeerHub) peer).address());
+        assertEquals("hub3", peer.host());
+        assertEquals(5555, peer.port());
+        assertEquals("*chrome", peer.environment());
+    }
+
+    @Test
+    public void reserveWithAListenerHandsOverThePeerHubWhenThereIsNoLocalRemoteControlForTheEnvironment()
+            throws InterruptedException {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final RecordingReservationListener listener = new RecordingReservationListener();
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final IRemoteControlProxy peer;
+
+        store.putRemoteControl("hub2:4444", registration("rc2", "*chrome"));
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.register(new HealthyRemoteControl("rc", 5555, "*firefox", null));
+
+        pool.reserve(new Environment("*chrome", "*chrome"), listener, executor);
+        peer = listener.await();
+        assertTrue(peer instanceof PeerHub);
+        assertEquals("hub2:4444", ((PeerHub) peer).address());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reserveWithCapabilitiesForwardsToAPeerHubOfferingThem() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final Map<String, String> capabilities;
+        final IRemoteControlProxy peer;
+
+        store.putRemoteControl("hub2:4444", registration("rc2", "Firefox on Linux"));
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.register(new HealthyRemoteControl("rc", 5555, "Chrome on Linux", null));
+
+        capabilities = new HashMap<String, String>();
+        capabilities.put("browserName", "firefox");
+        peer = pool.reserve(new DesiredCapabilities(capabilities));
+        assertTrue(peer instanceof PeerHub);
+        assertEquals("hub2:4444", ((PeerHub) peer).address());
+        assertEquals("Firefox on Linux", peer.environment());
+        assertEquals(1, pool.environmentsMatching(new DesiredCapabilities(capabilities)).size());
+    }
+
+    @Test
+    public void capabilitiesNoRemoteControlAdvertisesDoNotPreventForwardingToAPeerHub() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final Map<String, String> capabilities;
+
+        store.putRemoteControl("hub2:4444", registration("rc2", "Firefox on Linux"));
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+
+        capabilities = new HashMap<String, String>();
+        capabilities.put("browserName", "firefox");
+        capabilities.put("javascriptEnabled", "true");
+        assertEquals("hub2:4444", ((PeerHub) pool.reserve(new DesiredCapabilities(capabilities))).address());
+    }
+
+    @Test
+    public void environmentsMatchingListsLocalEnvironmentsFirst() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+
+        store.putRemoteControl("hub2:4444", registration("rc2", "Firefox on Windows"));
+        store.putRemoteControl("hub2:4444", registration("rc3", "Firefox on Linux"));
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.register(new HealthyRemoteControl("rc", 5555, "Firefox on Linux", null));
+
+        assertEquals("Firefox on Linux",
+                pool.environmentsMatching(new DesiredCapabilities(Collections.singletonMap("browserName", "firefox"))).get(0));
+        assertEquals(2,
+                pool.environmentsMatching(new DesiredCapabilities(Collections.singletonMap("browserName", "firefox"))).size());
+    }
+
+    @Test
+    public void sessionsStartedOnAPeerHubAreNotAssociatedLocally() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.associateWithSession(new PeerHub("hub2:4444", "*chrome", null), "a session id");
+        assertTrue(!pool.localPool().hasSession("a session id"));
+        assertNull(store.sessionOwner("a session id"));
+    }
+
+    @Test
+    public void retrieveReturnsTheHubOwningASessionItDoesNotOwn() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+        final IRemoteControlProxy owner;
+
+        store.putSession("a session id", "hub2:4444");
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+
+        owner = pool.retrieve("a session id");
+        assertTrue(owner instanceof PeerHub);
+        assertEquals("hub2:4444", ((PeerHub) owner).address());
+    }
+
+    @Test
+    public void retrieveRaisesNoSuchSessionExceptionWhenNoHubOwnsTheSession() {
+        final ClusteredRemoteControlPool pool;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), new LocalClusterStore(), "hub1:4444", null);
+        try {
+            pool.retrieve("a session id");
+            fail("did not catch NoSuchSessionException as expected");
+        } catch (NoSuchSessionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void sessionsOwnedByAPeerHubAreLeftToThatHubOnRelease() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+
+        store.putSession("a session id", "hub2:4444");
+        store.renewLease("hub2:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        pool.updateSessionLastActiveAt("a session id");
+        pool.releaseForSession("a session id");
+        assertEquals("hub2:4444", store.sessionOwner("a session id"));
+    }
+
+    @Test
+    public void peerHubsThatStoppedRenewingTheirLeaseAreIgnored() {
+        final LocalClusterStore store;
+        final ClusteredRemoteControlPool pool;
+
+        store = new LocalClusterStore() {
+            public Map<String, Long> leaseRenewals() {
+                final Map<String, Long> leaseRenewals = super.leaseRenewals();
+
+                leaseRenewals.put("hub2:4444", System.currentTimeMillis() - 31000);
+                return leaseRenewals;
+            }
+        };
+        store.putRemoteControl("hub2:4444", registration("rc2", "*chrome"));
+        store.putRemoteControl("hub2:4444", registration("other rc2", "*chrome"));
+        store.putSession("a session id", "hub2:4444");
+        store.putRemoteControl("hub3:4444", registration("rc3", "*chrome"));
+        store.renewLease("hub3:4444");
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null, 30);
+
+        assertEquals("hub3:4444", ((PeerHub) pool.reserve(new Environment("*chrome", "*chrome"))).address());
+        try {
+            pool.retrieve("a session id");
+            fail("did not catch NoSuchSessionException as expected");
+        } catch (NoSuchSessionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void hubsRenewTheirLeaseWhenTheyJoinTheCluster() {
+        final LocalClusterStore store = new LocalClusterStore();
+
+        new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        assertTrue(store.leaseRenewals().containsKey("hub1:4444"));
+    }
+
+    @Test
+    public void peerRemoteControlsAreReadFromTheStoreOnlyWhenPeersAreRefreshed() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool pool;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        store.putRemoteControl("hub2:4444", registration("rc2", "Firefox on Linux"));
+        store.renewLease("hub2:4444");
+        assertTrue(pool.environmentsMatching(new DesiredCapabilities(Collections.singletonMap("browserName", "firefox"))).isEmpty());
+
+        pool.refreshPeers();
+        assertEquals(Collections.singletonList("Firefox on Linux"),
+                pool.environmentsMatching(new DesiredCapabilities(Collections.singletonMap("browserName", "firefox"))));
+    }
+
+    @Test
+    public void theStoreIsNotReadWhenTheLocalPoolCanServeTheRequest() {
+        final AtomicInteger reads = new AtomicInteger(0);
+        final ClusteredRemoteControlPool pool;
+        final HealthyRemoteControl remoteControl;
+
+        pool = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), new LocalClusterStore() {
+            public Map<String, List<RemoteControlRegistration>> remoteControlsByHub() {
+                reads.incrementAndGet();
+                return super.remoteControlsByHub();
+            }
+
+            public Map<String, Long> leaseRenewals() {
+                reads.incrementAndGet();
+                return super.leaseRenewals();
+            }
+
+            public String sessionOwner(String sessionId) {
+                reads.incrementAndGet();
+                return super.sessionOwner(sessionId);
+            }
+        }, "hub1:4444", null);
+        remoteControl = new HealthyRemoteControl("rc", 5555, "Firefox on Linux", null);
+        pool.register(remoteControl);
+        reads.set(0);
+
+        assertSame(remoteControl, pool.reserve(new Environment("Firefox on Linux", "*firefox")));
+        pool.release(remoteControl);
+        assertSame(remoteControl, pool.reserve(new DesiredCapabilities(Collections.singletonMap("browserName", "firefox"))));
+        pool.associateWithSession(remoteControl, "a session id");
+        assertSame(remoteControl, pool.retrieve("a session id"));
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    public void twoHubsShareTheirRemoteControlsAndSessions() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final ClusteredRemoteControlPool hub1;
+        final ClusteredRemoteControlPool hub2;
+        final HealthyRemoteControl remoteControl;
+
+        hub1 = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub1:4444", null);
+        hub2 = new ClusteredRemoteControlPool(new GlobalRemoteControlPool(), store, "hub2:4444", null);
+        remoteControl = new HealthyRemoteControl("rc", 5555, "*chrome", null);
+        hub1.register(remoteControl);
+        hub2.refreshPeers();
+
+        assertEquals("hub1:4444", ((PeerHub) hub2.reserve(new Environment("*chrome", "*chrome"))).address());
+        hub1.associateWithSession(hub1.reserve(new Environment("*chrome", "*chrome")), "a session id");
+        assertSame(remoteControl, hub1.retrieve("a session id"));
+        assertEquals("hub1:4444", ((PeerHub) hub2.retrieve("a session id")).address());
+    }
+
+    protected static HealthyRemoteControl remoteControlEndingSessionsQuietly(String host, String environment) {
+        return new HealthyRemoteControl(host, 5555, environment, null) {
+            public void terminateSession(String sessionId) {
+            }
+        };
+    }
+
+    protected static RemoteControlRegistration registration(String host, String environment) {
+        return new RemoteControlRegistration(host, 5555, environment, 1, Collections.<String, String>emptyMap());
+    }
+
+}
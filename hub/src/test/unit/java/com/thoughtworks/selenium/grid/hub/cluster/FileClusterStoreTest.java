@@ -0,0 +1,116 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class FileClusterStoreTest {
+
+    private File directory;
+
+    @Before
+    public void createStoreDirectory() throws IOException {
+        directory = File.createTempFile("cluster", "");
+        directory.delete();
+    }
+
+    @After
+    public void deleteStoreDirectory() {
+        delete(directory);
+    }
+
+    @Test
+    public void remoteControlsPutByAHubAreSeenByTheOtherHubs() {
+        final Map<String, String> capabilities;
+        final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+        final RemoteControlRegistration registration;
+
+        capabilities = new HashMap<String, String>();
+        capabilities.put("version", "3.6");
+        new FileClusterStore(directory).putRemoteControl("hub1:4444",
+                new RemoteControlRegistration("rc1", 5555, "Firefox on Linux", 2, capabilities));
+
+        remoteControlsByHub = new FileClusterStore(directory).remoteControlsByHub();
+        assertEquals(1, remoteControlsByHub.size());
+        registration = remoteControlsByHub.get("hub1:4444").get(0);
+        assertEquals("rc1", registration.host());
+        assertEquals(5555, registration.port());
+        assertEquals("Firefox on Linux", registration.environment());
+        assertEquals(2, registration.maxConcurrentSessions());
+        assertEquals(capabilities, registration.capabilities());
+    }
+
+    @Test
+    public void removedRemoteControlsAreNotListedAnyMore() {
+        final FileClusterStore store = new FileClusterStore(directory);
+
+        store.putRemoteControl("hub1:4444", LocalClusterStoreTest.registration("rc1", 5555));
+        store.putRemoteControl("hub1:4444", LocalClusterStoreTest.registration("rc2", 5555));
+        store.removeRemoteControl("hub1:4444", "rc1:5555");
+
+        assertEquals(1, store.remoteControlsByHub().get("hub1:4444").size());
+        assertEquals("rc2:5555", store.remoteControlsByHub().get("hub1:4444").get(0).key());
+    }
+
+    @Test
+    public void sessionOwnersAreSeenByTheOtherHubs() {
+        new FileClusterStore(directory).putSession("a/session:id", "hub1:4444");
+        assertEquals("hub1:4444", new FileClusterStore(directory).sessionOwner("a/session:id"));
+
+        new FileClusterStore(directory).removeSession("a/session:id");
+        assertNull(new FileClusterStore(directory).sessionOwner("a/session:id"));
+    }
+
+    @Test
+    public void forgetHubDropsAllTheEntriesOfTheHub() {
+        final FileClusterStore store = new FileClusterStore(directory);
+
+        store.putRemoteControl("hub1:4444", LocalClusterStoreTest.registration("rc1", 5555));
+        store.putRemoteControl("hub2:4444", LocalClusterStoreTest.registration("rc2", 5555));
+        store.putSession("session 1", "hub1:4444");
+        store.putSession("session 2", "hub2:4444");
+        store.renewLease("hub1:4444");
+        store.renewLease("hub2:4444");
+
+        store.forgetHub("hub1:4444");
+        assertTrue(store.remoteControlsByHub().get("hub1:4444").isEmpty());
+        assertEquals(1, store.remoteControlsByHub().get("hub2:4444").size());
+        assertNull(store.sessionOwner("session 1"));
+        assertEquals("hub2:4444", store.sessionOwner("session 2"));
+        assertEquals(Collections.singleton("hub2:4444"), store.leaseRenewals().keySet());
+    }
+
+    @Test
+    public void leaseRenewalsAreSeenByTheOtherHubs() {
+        final long before;
+
+        before = System.currentTimeMillis() - 2000;
+        new FileClusterStore(directory).renewLease("hub1:4444");
+        assertTrue(new FileClusterStore(directory).leaseRenewals().get("hub1:4444") >= before);
+    }
+
+    protected static void delete(File file) {
+        final File[] children;
+
+        children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.thoughtworks.selenium.grid.hub.cluster;
+
+import com.thoughtworks.selenium.grid.hub.journal.RemoteControlRegistration;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class LocalClusterStoreTest {
+
+    @Test
+    public void remoteControlsAreListedByHub() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final Map<String, List<RemoteControlRegistration>> remoteControlsByHub;
+
+        store.putRemoteControl("hub1:4444", registration("rc1", 5555));
+        store.putRemoteControl("hub1:4444", registration("rc2", 5555));
+        store.putRemoteControl("hub2:4444", registration("rc3", 5555));
+        store.removeRemoteControl("hub1:4444", "rc1:5555");
+
+        remoteControlsByHub = store.remoteControlsByHub();
+        assertEquals(2, remoteControlsByHub.size());
+        assertEquals("rc2:5555", remoteControlsByHub.get("hub1:4444").get(0).key());
+        assertEquals(1, remoteControlsByHub.get("hub1:4444").size());
+        assertEquals("rc3:5555", remoteControlsByHub.get("hub2:4444").get(0).key());
+    }
+
+    @Test
+    public void sessionOwnerIsTheHubThatLastPutTheSession() {
+        final LocalClusterStore store = new LocalClusterStore();
+
+        store.putSession("a session", "hub1:4444");
+        assertEquals("hub1:4444", store.sessionOwner("a session"));
+        store.removeSession("a session");
+        assertNull(store.sessionOwner("a session"));
+    }
+
+    @Test
+    public void forgetHubDropsAllTheEntriesOfTheHub() {
+        final LocalClusterStore store = new LocalClusterStore();
+
+        store.putRemoteControl("hub1:4444", registration("rc1", 5555));
+        store.putRemoteControl("hub2:4444", registration("rc2", 5555));
+        store.putSession("session 1", "hub1:4444");
+        store.putSession("session 2", "hub2:4444");
+        store.renewLease("hub1:4444");
+        store.renewLease("hub2:4444");
+
+        store.forgetHub("hub1:4444");
+        assertTrue(!store.remoteControlsByHub().containsKey("hub1:4444"));
+        assertEquals(1, store.remoteControlsByHub().get("hub2:4444").size());
+        assertNull(store.sessionOwner("session 1"));
+        assertEquals("hub2:4444", store.sessionOwner("session 2"));
+        assertEquals(Collections.singleton("hub2:4444"), store.leaseRenewals().keySet());
+    }
+
+    @Test
+    public void leaseRenewalsAreTheTimeOfTheLastRenewal() {
+        final LocalClusterStore store = new LocalClusterStore();
+        final long before;
+
+        before = System.currentTimeMillis();
+        store.renewLease("hub1:4444");
+        assertTrue(store.leaseRenewals().get("hub1:4444") >= before);
+        assertTrue(store.leaseRenewals().get("hub1:4444") <= System.currentTimeMillis());
+    }
+
+    protected static RemoteControlRegistration registration(String host, int port) {
+        return new RemoteControlRegistration(host, port, "*chrome", 1, Collections.<String, String>emptyMap());
+    }
+
+}
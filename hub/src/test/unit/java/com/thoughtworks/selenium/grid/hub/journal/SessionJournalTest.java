@@ -0,0 +1,202 @@
+package com.thoughtworks.selenium.grid.hub.journal;
+
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class SessionJournalTest {
+
+    private File file;
+
+    @Before
+    public void createJournalFile() throws IOException {
+        file = File.createTempFile("sessions", ".journal");
+        file.delete();
+    }
+
+    @After
+    public void deleteJournalFile() {
+        file.delete();
+    }
+
+    @Test
+    public void aNewJournalIsEmpty() throws IOException {
+        final SessionJournal journal;
+
+        journal = SessionJournal.open(file, 1024);
+        assertTrue(journal.registrations().isEmpty());
+        assertTrue(journal.sessions().isEmpty());
+        assertTrue(file.exists());
+        journal.close();
+    }
+
+    @Test
+    public void registrationsAreReplayedWhenTheJournalIsReopened() throws IOException {
+        final Map<String, String> capabilities;
+        final List<RemoteControlRegistration> registrations;
+        SessionJournal journal;
+
+        capabilities = new HashMap<String, String>();
+        capabilities.put("version", "3.6");
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(new RemoteControlProxy("host", 5555, "Firefox on Linux", 3, capabilities, null));
+        journal.registered(new RemoteControlProxy("other", 6666, "*chrome", null));
+
+        journal = SessionJournal.open(file, 1024);
+        registrations = journal.registrations();
+        assertEquals(2, registrations.size());
+        assertEquals("host", registrations.get(0).host());
+        assertEquals(5555, registrations.get(0).port());
+        assertEquals("Firefox on Linux", registrations.get(0).environment());
+        assertEquals(3, registrations.get(0).maxConcurrentSessions());
+        assertEquals("3.6", registrations.get(0).capabilities().get("version"));
+        assertEquals("firefox", registrations.get(0).capabilities().get("browserName").toLowerCase());
+        assertEquals("other:6666", registrations.get(1).key());
+        assertEquals(1, registrations.get(1).maxConcurrentSessions());
+        journal.close();
+    }
+
+    @Test
+    public void sessionsAreReplayedUntilTheyAreReleased() throws IOException {
+        final RemoteControlProxy remoteControl;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", 2, Collections.<String, String>emptyMap(), null);
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(remoteControl);
+        journal.associated("session 1", remoteControl);
+        journal.associated("session 2", remoteControl);
+        journal.released("session 1");
+
+        journal = SessionJournal.open(file, 1024);
+        assertEquals(1, journal.sessions().size());
+        assertEquals("host:5555", journal.sessions().get("session 2"));
+        journal.close();
+    }
+
+    @Test
+    public void unregisteringARemoteControlDropsItsSessions() throws IOException {
+        final RemoteControlProxy remoteControl;
+        final RemoteControlProxy otherRemoteControl;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", null);
+        otherRemoteControl = new RemoteControlProxy("other", 6666, "*chrome", null);
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(remoteControl);
+        journal.registered(otherRemoteControl);
+        journal.associated("session 1", remoteControl);
+        journal.associated("session 2", otherRemoteControl);
+        journal.unregistered(remoteControl);
+
+        journal = SessionJournal.open(file, 1024);
+        assertEquals(1, journal.registrations().size());
+        assertEquals("other:6666", journal.registrations().get(0).key());
+        assertEquals(Collections.singletonMap("session 2", "other:6666"), journal.sessions());
+        journal.close();
+    }
+
+    @Test
+    public void theJournalIsCompactedInsteadOfGrowingWhenTheLiveStateIsSmall() throws IOException {
+        final RemoteControlProxy remoteControl;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", null);
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(remoteControl);
+        for (int i = 0; i < 1000; i++) {
+            journal.associated("session " + i, remoteControl);
+            journal.released("session " + i);
+        }
+        journal.associated("last session", remoteControl);
+        assertTrue(journal.compactions() > 1);
+        assertEquals(1024, file.length());
+
+        journal = SessionJournal.open(file, 1024);
+        assertEquals(1, journal.registrations().size());
+        assertEquals(Collections.singletonMap("last session", "host:5555"), journal.sessions());
+        journal.close();
+    }
+
+    @Test
+    public void theJournalGrowsWhenTheLiveStateDoesNotFit() throws IOException {
+        final RemoteControlProxy remoteControl;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", 500, Collections.<String, String>emptyMap(), null);
+        journal = SessionJournal.open(file, 64);
+        journal.registered(remoteControl);
+        for (int i = 0; i < 500; i++) {
+            journal.associated("session " + i, remoteControl);
+        }
+        assertTrue(file.length() > 500 * 20);
+
+        journal = SessionJournal.open(file, 64);
+        assertEquals(500, journal.sessions().size());
+        journal.close();
+    }
+
+    @Test
+    public void replayStopsAtTheFirstCorruptedRecord() throws IOException {
+        final RemoteControlProxy remoteControl;
+        final RandomAccessFile corrupted;
+        final int lastRecordPayloadEnd;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", 2, Collections.<String, String>emptyMap(), null);
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(remoteControl);
+        journal.associated("session 1", remoteControl);
+        journal.associated("session 2", remoteControl);
+        lastRecordPayloadEnd = journal.size();
+        journal.close();
+
+        corrupted = new RandomAccessFile(file, "rw");
+        corrupted.seek(lastRecordPayloadEnd - 1);
+        corrupted.write(0xFF);
+        corrupted.close();
+
+        journal = SessionJournal.open(file, 1024);
+        assertEquals(1, journal.registrations().size());
+        assertEquals(Collections.singletonMap("session 1", "host:5555"), journal.sessions());
+        journal.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void openFailsForAFileThatIsNotASessionJournal() throws IOException {
+        final RandomAccessFile notAJournal;
+
+        notAJournal = new RandomAccessFile(file, "rw");
+        notAJournal.writeBytes("hub:\n   port: 4444\n");
+        notAJournal.close();
+        SessionJournal.open(file, 1024);
+    }
+
+    @Test
+    public void nothingIsRecordedOnceTheJournalIsClosed() throws IOException {
+        final RemoteControlProxy remoteControl;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", null);
+        journal = SessionJournal.open(file, 1024);
+        journal.close();
+        journal.registered(remoteControl);
+
+        journal = SessionJournal.open(file, 1024);
+        assertTrue(journal.registrations().isEmpty());
+        journal.close();
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.thoughtworks.selenium.grid.hub.management;
+
+import com.thoughtworks.selenium.grid.hub.HubRegistry;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchRegistrationServletTest {
+
+    @Test
+    public void registerAllSubmittedRemoteControlsAtOnce() throws IOException {
+        final DynamicRemoteControlPool pool;
+        final HttpServletRequest request;
+        final HttpServletResponse response;
+        final HubRegistry registry;
+        final BatchRegistrationServlet servlet;
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        registry = mock(HubRegistry.class);
+        pool = mock(DynamicRemoteControlPool.class);
+        servlet = new BatchRegistrationServlet() {
+
+            protected HubRegistry registry() {
+                return registry;
+            }
+
+            protected void writeSuccessfulResponse(HttpServletResponse response) {
+            }
+        };
+        when(request.getParameterValues("host")).thenReturn(new String[]{"rc1", "rc2"});
+        when(request.getParameterValues("port")).thenReturn(new String[]{"5555", "5556"});
+        when(request.getParameterValues("environment")).thenReturn(new String[]{"*chrome", "*firefox"});
+        when(registry.remoteControlPool()).thenReturn(pool);
+
+        servlet.process(request, response);
+        verify(pool).registerAll(Arrays.<IRemoteControlProxy>asList(
+                new RemoteControlProxy("rc1", 5555, "*chrome", null),
+                new RemoteControlProxy("rc2", 5556, "*firefox", null)));
+    }
+
+}
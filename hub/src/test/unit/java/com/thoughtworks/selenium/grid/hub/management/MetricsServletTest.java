@@ -0,0 +1,77 @@
+package com.thoughtworks.selenium.grid.hub.management;
+
+import com.thoughtworks.selenium.grid.HttpConnectionPool;
+import com.thoughtworks.selenium.grid.hub.HubRegistry;
+import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.metrics.HubMetrics;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.NewSessionQueueStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HeartbeatMonitor;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlHealthSweep;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static junit.framework.Assert.*;
+
+public class MetricsServletTest {
+
+    @Test
+    public void doGetWritesTheHubMetricsInThePrometheusTextFormat() throws IOException, ServletException {
+        final DynamicRemoteControlPool pool;
+        final HttpServletResponse response;
+        final MetricsServlet servlet;
+        final HubRegistry registry;
+        final HubMetrics metrics;
+        final RemoteControlHealthSweep healthSweep;
+        final HttpConnectionPool connectionPool;
+        final HeartbeatMonitor heartbeatMonitor;
+        final StringWriter body;
+
+        metrics = new HubMetrics();
+        metrics.error(new NoSuchSessionException("1234"));
+        registry = Mockito.mock(HubRegistry.class);
+        pool = Mockito.mock(DynamicRemoteControlPool.class);
+        Mockito.when(pool.newSessionQueueStatuses()).thenReturn(Arrays.asList(
+                new NewSessionQueueStatus("Firefox", 3, 0, 0, 4, 0, 0, 0, 0, 0)));
+        Mockito.when(registry.metrics()).thenReturn(metrics);
+        Mockito.when(registry.remoteControlPool()).thenReturn(pool);
+        healthSweep = Mockito.mock(RemoteControlHealthSweep.class);
+        Mockito.when(healthSweep.probesInFlight()).thenReturn(3);
+        Mockito.when(registry.healthSweep()).thenReturn(healthSweep);
+        connectionPool = Mockito.mock(HttpConnectionPool.class);
+        Mockito.when(registry.connectionPool()).thenReturn(connectionPool);
+        heartbeatMonitor = new HeartbeatMonitor(30);
+        heartbeatMonitor.heartbeat(new RemoteControlStatus("a host", 5555, 0.5, System.nanoTime()));
+        Mockito.when(registry.heartbeatMonitor()).thenReturn(heartbeatMonitor);
+        body = new StringWriter();
+        response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(body));
+        servlet = new MetricsServlet() {
+
+            protected HubRegistry registry() {
+                return registry;
+            }
+
+        };
+
+        servlet.doGet(Mockito.mock(HttpServletRequest.class), response);
+
+        Mockito.verify(response).setContentType("text/plain; version=0.0.4");
+        Mockito.verify(response).setStatus(200);
+        assertTrue(body.toString().contains("hub_command_errors_total{exception=\"NoSuchSessionException\"} 1\n"));
+        assertTrue(body.toString().contains("hub_new_session_waiters{environment=\"Firefox\"} 3\n"));
+        assertTrue(body.toString().contains("hub_health_probes_in_flight 3\n"));
+        assertTrue(body.toString().contains("hub_rc_connections{state=\"open\"} 0\n"));
+        assertTrue(body.toString().contains("hub_rc_load{remote_control=\"a host:5555\"} 0.5\n"));
+    }
+
+}
@@ -1,13 +1,18 @@
 package com.thoughtworks.selenium.grid.hub.management;
 
+import com.thoughtworks.selenium.grid.hub.HubRegistry;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 
 public class RemoteControlParserTest extends UsingClassMock {
 
@@ -18,6 +23,7 @@ public class RemoteControlParserTest extends UsingClassMock {
 
         httpRequest = mock(HttpServletRequest.class);
         httpRequest.expects("getParameter").with("host").will(returnValue("some.host.com"));
+        httpRequest.stubs("getParameter").with("maxConcurrentSessions").will(returnValue("1"));
         httpRequest.expects("getParameter").with(anything()).will(returnValue("0")).atLeastOnce();
 
         remoteControl = RemoteControlParser.parse((HttpServletRequest) httpRequest);
@@ -32,6 +38,7 @@ public class RemoteControlParserTest extends UsingClassMock {
 
         httpRequest = mock(HttpServletRequest.class);
         httpRequest.expects("getParameter").with("port").will(returnValue("1234"));
+        httpRequest.stubs("getParameter").with("maxConcurrentSessions").will(returnValue("1"));
         httpRequest.expects("getParameter").with(anything()).will(returnValue("0")).atLeastOnce();
 
         remoteControl = RemoteControlParser.parse((HttpServletRequest) httpRequest);
@@ -46,6 +53,7 @@ public class RemoteControlParserTest extends UsingClassMock {
 
         httpRequest = mock(HttpServletRequest.class);
         httpRequest.expects("getParameter").with("environment").will(returnValue("an environment"));
+        httpRequest.stubs("getParameter").with("maxConcurrentSessions").will(returnValue("1"));
         httpRequest.expects("getParameter").with(anything()).will(returnValue("0")).atLeastOnce();
 
         remoteControl = RemoteControlParser.parse((HttpServletRequest) httpRequest);
@@ -125,4 +133,118 @@ public class RemoteControlParserTest extends UsingClassMock {
         verifyMocks();
     }
 
+    @Test
+    public void parseReturnsRemoteControlsSharingTheHttpClientOfTheHub() {
+        final Mock httpRequest;
+
+        httpRequest = mock(HttpServletRequest.class);
+        httpRequest.stubs("getParameter").will(returnValue("1234"));
+
+        assertSame(HubRegistry.registry().connectionPool().httpClient(),
+                   ((RemoteControlProxy) RemoteControlParser.parse((HttpServletRequest) httpRequest)).httpClient());
+    }
+
+    @Test
+    public void parseAddsAdvertisedCapabilitiesToTheOnesImpliedByTheEnvironment() {
+        final HttpServletRequest request;
+        final IRemoteControlProxy remoteControl;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameter("host")).thenReturn("a.host");
+        Mockito.when(request.getParameter("port")).thenReturn("5555");
+        Mockito.when(request.getParameter("environment")).thenReturn("Firefox on Linux");
+        Mockito.when(request.getParameterValues("capability")).thenReturn(new String[]{"version=3.6", "gpu = true"});
+
+        remoteControl = RemoteControlParser.parse(request, null);
+        assertEquals("Firefox", remoteControl.capabilities().get("browserName"));
+        assertEquals("Linux", remoteControl.capabilities().get("platform"));
+        assertEquals("3.6", remoteControl.capabilities().get("version"));
+        assertEquals("true", remoteControl.capabilities().get("gpu"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseRejectsCapabilitiesThatAreNotKeyValuePairs() {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameter(Mockito.anyString())).thenReturn("1234");
+        Mockito.when(request.getParameterValues("capability")).thenReturn(new String[]{"3.6"});
+        RemoteControlParser.parse(request, null);
+    }
+
+    @Test
+    public void parseReturnsARemoteControlWithTheAdvertisedNumberOfSessionSlots() {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameter("host")).thenReturn("a.host");
+        Mockito.when(request.getParameter("port")).thenReturn("5555");
+        Mockito.when(request.getParameter("environment")).thenReturn("Firefox on Linux");
+        Mockito.when(request.getParameter("maxConcurrentSessions")).thenReturn("8");
+
+        assertEquals(8, RemoteControlParser.parse(request, null).maxConcurrentSessions());
+    }
+
+    @Test
+    public void parseReturnsARemoteControlWithASingleSessionSlotByDefault() {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameter("host")).thenReturn("a.host");
+        Mockito.when(request.getParameter("port")).thenReturn("5555");
+        Mockito.when(request.getParameter("environment")).thenReturn("Firefox on Linux");
+
+        assertEquals(1, RemoteControlParser.parse(request, null).maxConcurrentSessions());
+    }
+
+    @Test
+    public void parseAllReturnsOneRemoteControlPerHostInOrder() {
+        final HttpServletRequest request;
+        final List<IRemoteControlProxy> remoteControls;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameterValues("host")).thenReturn(new String[]{"rc1", "rc2"});
+        Mockito.when(request.getParameterValues("port")).thenReturn(new String[]{"5555", "5556"});
+        Mockito.when(request.getParameterValues("environment")).thenReturn(new String[]{"*chrome", "*firefox"});
+        Mockito.when(request.getParameterValues("maxConcurrentSessions")).thenReturn(new String[]{"1", "4"});
+
+        remoteControls = RemoteControlParser.parseAll(request, null);
+        assertEquals(2, remoteControls.size());
+        assertEquals("rc1", remoteControls.get(0).host());
+        assertEquals(5555, remoteControls.get(0).port());
+        assertEquals("*chrome", remoteControls.get(0).environment());
+        assertEquals("rc2", remoteControls.get(1).host());
+        assertEquals(5556, remoteControls.get(1).port());
+        assertEquals("*firefox", remoteControls.get(1).environment());
+        assertEquals(4, remoteControls.get(1).maxConcurrentSessions());
+    }
+
+    @Test
+    public void parseAllDefaultsToASingleSessionSlotPerRemoteControl() {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameterValues("host")).thenReturn(new String[]{"rc1", "rc2"});
+        Mockito.when(request.getParameterValues("port")).thenReturn(new String[]{"5555", "5556"});
+        Mockito.when(request.getParameterValues("environment")).thenReturn(new String[]{"*chrome", "*firefox"});
+
+        assertEquals(1, RemoteControlParser.parseAll(request, null).get(1).maxConcurrentSessions());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseAllRejectsABatchWithoutHosts() {
+        RemoteControlParser.parseAll(Mockito.mock(HttpServletRequest.class), null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parseAllRejectsABatchWithMissingPorts() {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getParameterValues("host")).thenReturn(new String[]{"rc1", "rc2"});
+        Mockito.when(request.getParameterValues("port")).thenReturn(new String[]{"5555"});
+        Mockito.when(request.getParameterValues("environment")).thenReturn(new String[]{"*chrome", "*firefox"});
+        RemoteControlParser.parseAll(request, null);
+    }
+
 }
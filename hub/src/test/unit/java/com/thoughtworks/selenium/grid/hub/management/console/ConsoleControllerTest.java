@@ -5,7 +5,10 @@ import com.thoughtworks.selenium.grid.hub.EnvironmentManager;
 import com.thoughtworks.selenium.grid.hub.HubRegistry;
 import com.thoughtworks.selenium.grid.hub.management.console.mvc.Page;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.HeartbeatMonitor;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.NewSessionQueueStatus;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
@@ -28,6 +31,7 @@ public class ConsoleControllerTest extends UsingClassMock {
 
         registry = mock(HubRegistry.class);
         registry.stubs("environmentManager").will(returnValue(mock(EnvironmentManager.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(new HeartbeatMonitor(0)));
         registry.stubs("remoteControlPool").will(returnValue(mock(DynamicRemoteControlPool.class)));
 
         controller = new ConsoleController((HubRegistry) registry);
@@ -46,6 +50,7 @@ public class ConsoleControllerTest extends UsingClassMock {
         registry = mock(HubRegistry.class);
         remoteControlPool = mock(DynamicRemoteControlPool.class);
         registry.stubs("environmentManager").will(returnValue(mock(EnvironmentManager.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(new HeartbeatMonitor(0)));
 
         registry.stubs("remoteControlPool").will(returnValue(remoteControlPool));
         remoteControlPool.stubs("availableRemoteControls").will(returnValue(expectedRemoteControls));
@@ -66,6 +71,7 @@ public class ConsoleControllerTest extends UsingClassMock {
         registry = mock(HubRegistry.class);
         remoteControlPool = mock(DynamicRemoteControlPool.class);
         registry.stubs("environmentManager").will(returnValue(mock(EnvironmentManager.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(new HeartbeatMonitor(0)));
 
         registry.stubs("remoteControlPool").will(returnValue(remoteControlPool));
         remoteControlPool.stubs("reservedRemoteControls").will(returnValue(expectedRemoteControls));
@@ -75,6 +81,45 @@ public class ConsoleControllerTest extends UsingClassMock {
         verifyMocks();
     }
 
+    @Test
+    public void listSetNewSessionQueuesAssignFromRegistry() {
+        final List<NewSessionQueueStatus> expectedQueues;
+        final ConsoleController controller;
+        final Mock remoteControlPool;
+        final Mock registry;
+
+        expectedQueues = Arrays.asList(new NewSessionQueueStatus("an environment", 0, 0, 1, 0, 0, 0, 0, 0, 0));
+        registry = mock(HubRegistry.class);
+        remoteControlPool = mock(DynamicRemoteControlPool.class);
+        registry.stubs("environmentManager").will(returnValue(mock(EnvironmentManager.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(new HeartbeatMonitor(0)));
+
+        registry.stubs("remoteControlPool").will(returnValue(remoteControlPool));
+        remoteControlPool.stubs("newSessionQueueStatuses").will(returnValue(expectedQueues));
+
+        controller = new ConsoleController((HubRegistry) registry);
+        assertEquals(expectedQueues, controller.list().assigns().get("newSessionQueues"));
+        verifyMocks();
+    }
+
+    @Test
+    public void listSetRemoteControlStatusesAssignFromRegistry() {
+        final HeartbeatMonitor heartbeatMonitor;
+        final ConsoleController controller;
+        final Mock registry;
+
+        heartbeatMonitor = new HeartbeatMonitor(30);
+        heartbeatMonitor.heartbeat(new RemoteControlStatus("a host", 5555, 0.5, System.nanoTime()));
+        registry = mock(HubRegistry.class);
+        registry.stubs("environmentManager").will(returnValue(mock(EnvironmentManager.class)));
+        registry.stubs("remoteControlPool").will(returnValue(mock(DynamicRemoteControlPool.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(heartbeatMonitor));
+
+        controller = new ConsoleController((HubRegistry) registry);
+        assertEquals(heartbeatMonitor.statuses(), controller.list().assigns().get("remoteControlStatuses"));
+        verifyMocks();
+    }
+
     @Test
     public void listSetEnvironmentsAssignFromRegistry() {
         final List<Environment> expectedEnvironments;
@@ -86,6 +131,7 @@ public class ConsoleControllerTest extends UsingClassMock {
         registry = mock(HubRegistry.class);
         environmentManager = mock(EnvironmentManager.class);
         registry.stubs("remoteControlPool").will(returnValue(mock(DynamicRemoteControlPool.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(new HeartbeatMonitor(0)));
 
         registry.expects("environmentManager").will(returnValue(environmentManager));
         environmentManager.expects("environments").will(returnValue(expectedEnvironments));
@@ -106,6 +152,7 @@ public class ConsoleControllerTest extends UsingClassMock {
         expectedResponse = mock(HttpServletResponse.class);
         registry = mock(HubRegistry.class);
         registry.stubs("environmentManager").will(returnValue(mock(EnvironmentManager.class)));
+        registry.stubs("heartbeatMonitor").will(returnValue(new HeartbeatMonitor(0)));
         registry.stubs("remoteControlPool").will(returnValue(mock(DynamicRemoteControlPool.class)));
 
         controller = new ConsoleController((HubRegistry) registry) {
@@ -138,6 +185,11 @@ public class ConsoleControllerTest extends UsingClassMock {
         page.set("environments", new Environment[]{new Environment("a environment", "a browser")});
         page.set("availableRemoteControls", remoteControls);
         page.set("reservedRemoteControls", remoteControls);
+        page.set("newSessionQueues", new NewSessionQueueStatus[]{
+                new NewSessionQueueStatus("an environment", 2, 1200, 0, 1, 5, 1, 3000, 400, 900)});
+        page.set("remoteControlStatuses", new RemoteControlStatus[]{
+                new RemoteControlStatus("a host", 5555, 0.5, System.nanoTime()),
+                new RemoteControlStatus("a host", 6666, -1, System.nanoTime())});
 
         controller = new ConsoleController(HubRegistry.registry());
         controller.render(page, (HttpServletResponse) response);
@@ -0,0 +1,76 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class CommandTimingTest {
+
+    @Test
+    public void parsedRecordsTheCommandTypeAndEnvironment() {
+        final CommandTiming timing;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", "Firefox on Windows");
+        assertEquals("selenese", timing.command());
+        assertEquals("Firefox on Windows", timing.environment());
+        assertTrue(timing.parseInNanoseconds() >= 0);
+    }
+
+    @Test
+    public void remoteControlRoundTripsAreAccountedToTheTimingOfTheCurrentThread() {
+        final CommandTiming timing;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", null);
+        timing.executionStarted();
+        CommandTiming.remoteControlRoundTrip("Firefox on Windows", 10);
+        CommandTiming.remoteControlRoundTrip("Firefox on Windows", 5);
+        timing.executionFinished();
+
+        assertEquals(15, timing.remoteControlRoundTripInNanoseconds());
+        assertEquals("Firefox on Windows", timing.environment());
+    }
+
+    @Test
+    public void remoteControlRoundTripsAreIgnoredOnceExecutionIsFinished() {
+        final CommandTiming timing;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", null);
+        timing.executionStarted();
+        timing.executionFinished();
+        CommandTiming.remoteControlRoundTrip("Firefox on Windows", 10);
+
+        assertEquals(0, timing.remoteControlRoundTripInNanoseconds());
+        assertNull(timing.environment());
+    }
+
+    @Test
+    public void remoteControlRoundTripDoesNotOverrideTheRequestedEnvironment() {
+        final CommandTiming timing;
+
+        timing = new CommandTiming();
+        timing.parsed("getNewBrowserSession", "*chrome");
+        timing.executionStarted();
+        CommandTiming.remoteControlRoundTrip("Firefox on Windows", 10);
+        timing.executionFinished();
+
+        assertEquals("*chrome", timing.environment());
+    }
+
+    @Test
+    public void phasesAreSequential() {
+        final CommandTiming timing;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", null);
+        timing.executionStarted();
+        timing.executionFinished();
+        timing.replied();
+
+        assertTrue(timing.remoteControlWaitInNanoseconds() >= 0);
+        assertTrue(timing.replyInNanoseconds() >= 0);
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import com.thoughtworks.selenium.grid.hub.CommandParsingException;
+import com.thoughtworks.selenium.grid.HttpConnectionPool;
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.NewSessionQueueStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlHealthSweep;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlStatus;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.NewBrowserSessionCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.SeleneseCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium.TestCompleteCommand;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.WebDriverCommand;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static junit.framework.Assert.*;
+
+public class HubMetricsTest {
+
+    @Test
+    public void commandTypeOfSeleneseCommands() {
+        assertEquals("getNewBrowserSession", HubMetrics.commandType(
+                new NewBrowserSessionCommand(new Environment("*chrome", "*chrome"), null)));
+        assertEquals("testComplete", HubMetrics.commandType(new TestCompleteCommand("1234", null)));
+        assertEquals("selenese", HubMetrics.commandType(new SeleneseCommand("1234", null)));
+    }
+
+    @Test
+    public void commandTypeOfWebDriverCommands() {
+        final HttpServletRequest request;
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("POST");
+        assertEquals("webdriver_new_session", HubMetrics.commandType(
+                new com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.NewBrowserSessionCommand(
+                        new Environment("firefox", "firefox"), request)));
+        assertEquals("webdriver_delete_session", HubMetrics.commandType(
+                new com.thoughtworks.selenium.grid.hub.remotecontrol.commands.webdriver.TestCompleteCommand("1234", request)));
+        assertEquals("webdriver_post", HubMetrics.commandType(new WebDriverCommand("1234", request)));
+    }
+
+    @Test
+    public void environmentOfNewSessionCommandsIsTheRequestedEnvironment() {
+        assertEquals("*chrome", HubMetrics.environmentOf(
+                new NewBrowserSessionCommand(new Environment("*chrome", "*chrome"), null)));
+        assertNull(HubMetrics.environmentOf(new SeleneseCommand("1234", null)));
+    }
+
+    @Test
+    public void recordFeedsOneHistogramPerPhase() {
+        final HubMetrics metrics;
+        final CommandTiming timing;
+
+        metrics = new HubMetrics();
+        timing = new CommandTiming();
+        timing.parsed("selenese", "*chrome");
+        timing.executionStarted();
+        timing.executionFinished();
+        timing.replied();
+        metrics.record(timing);
+
+        assertEquals(1, metrics.histogram("*chrome", "selenese", HubMetrics.PARSE).count());
+        assertEquals(1, metrics.histogram("*chrome", "selenese", HubMetrics.REMOTE_CONTROL_WAIT).count());
+        assertEquals(1, metrics.histogram("*chrome", "selenese", HubMetrics.REMOTE_CONTROL_ROUND_TRIP).count());
+        assertEquals(1, metrics.histogram("*chrome", "selenese", HubMetrics.REPLY).count());
+    }
+
+    @Test
+    public void recordUsesAnUnknownEnvironmentWhenNoneWasResolved() {
+        final HubMetrics metrics;
+        final CommandTiming timing;
+
+        metrics = new HubMetrics();
+        timing = new CommandTiming();
+        timing.parsed("selenese", null);
+        metrics.record(timing);
+
+        assertEquals(1, metrics.histogram(HubMetrics.UNKNOWN_ENVIRONMENT, "selenese", HubMetrics.PARSE).count());
+    }
+
+    @Test
+    public void errorsAreCountedByExceptionType() {
+        final HubMetrics metrics;
+
+        metrics = new HubMetrics();
+        metrics.error(new NoSuchSessionException("1234"));
+        metrics.error(new NoSuchSessionException("5678"));
+        metrics.error(new CommandParsingException("bad"));
+
+        assertEquals(2, metrics.errors(NoSuchSessionException.class));
+        assertEquals(1, metrics.errors(CommandParsingException.class));
+    }
+
+    @Test
+    public void writePrometheusExposesSummariesAndErrorCounters() throws IOException {
+        final StringWriter out;
+        final HubMetrics metrics;
+        final String text;
+
+        metrics = new HubMetrics();
+        metrics.histogram("*chrome", "selenese", HubMetrics.REPLY).record(1000000);
+        metrics.error(new NoSuchSessionException("1234"));
+        out = new StringWriter();
+        metrics.writePrometheus(out);
+        text = out.toString();
+
+        assertTrue(text.contains("# TYPE hub_command_duration_seconds summary\n"));
+        assertTrue(text.contains("hub_command_duration_seconds{environment=\"*chrome\",command=\"selenese\",phase=\"reply\",quantile=\"0.5\"} 0.001"));
+        assertTrue(text.contains("hub_command_duration_seconds_sum{environment=\"*chrome\",command=\"selenese\",phase=\"reply\"} 0.001\n"));
+        assertTrue(text.contains("hub_command_duration_seconds_count{environment=\"*chrome\",command=\"selenese\",phase=\"reply\"} 1\n"));
+        assertTrue(text.contains("# TYPE hub_command_errors_total counter\n"));
+        assertTrue(text.contains("hub_command_errors_total{exception=\"NoSuchSessionException\"} 1\n"));
+    }
+
+    @Test
+    public void labelValuesAreEscaped() {
+        assertEquals("a\\\"b\\\\c\\nd", HubMetrics.escape("a\"b\\c\nd"));
+    }
+
+    @Test
+    public void writePrometheusExposesNewSessionQueueGauges() throws IOException {
+        final StringWriter out;
+        final String text;
+
+        out = new StringWriter();
+        new HubMetrics().writePrometheus(out, Arrays.asList(
+                new NewSessionQueueStatus("Firefox", 3, 1500, 0, 4, 10, 2, 12000, 800, 5000)));
+        text = out.toString();
+
+        assertTrue(text.contains("hub_new_session_waiters{environment=\"Firefox\"} 3\n"));
+        assertTrue(text.contains("hub_new_session_oldest_wait_seconds{environment=\"Firefox\"} 1.5\n"));
+        assertTrue(text.contains("hub_remote_control_slots{environment=\"Firefox\",state=\"free\"} 0\n"));
+        assertTrue(text.contains("hub_remote_control_slots{environment=\"Firefox\",state=\"busy\"} 4\n"));
+        assertTrue(text.contains("hub_new_session_reserve_seconds{environment=\"Firefox\",quantile=\"0.99\"} 5.0\n"));
+        assertTrue(text.contains("hub_new_session_reserve_seconds_count{environment=\"Firefox\"} 10\n"));
+        assertTrue(text.contains("hub_new_session_timeouts_total{environment=\"Firefox\"} 2\n"));
+    }
+
+    @Test
+    public void writeHealthSweepExposesTheLastSweepAndTheProbesInFlight() throws IOException {
+        final RemoteControlHealthSweep healthSweep;
+        final StringWriter out;
+        final String text;
+
+        healthSweep = Mockito.mock(RemoteControlHealthSweep.class);
+        Mockito.when(healthSweep.lastSweepDurationInMilliseconds()).thenReturn(2500L);
+        Mockito.when(healthSweep.lastSweepProbeCount()).thenReturn(40);
+        Mockito.when(healthSweep.lastSweepUnresponsiveCount()).thenReturn(2);
+        Mockito.when(healthSweep.probesInFlight()).thenReturn(7);
+        out = new StringWriter();
+        new HubMetrics().writeHealthSweep(out, healthSweep);
+        text = out.toString();
+
+        assertTrue(text.contains("hub_health_sweep_duration_seconds 2.5\n"));
+        assertTrue(text.contains("hub_health_sweep_probes 40\n"));
+        assertTrue(text.contains("hub_health_sweep_unresponsive 2\n"));
+        assertTrue(text.contains("hub_health_probes_in_flight 7\n"));
+    }
+
+    @Test
+    public void writeConnectionPoolExposesOpenAndMaximumConnections() throws IOException {
+        final HttpConnectionPool connectionPool;
+        final StringWriter out;
+        final String text;
+
+        connectionPool = new HttpConnectionPool(200, 20, 0, 0, 0);
+        out = new StringWriter();
+        try {
+            new HubMetrics().writeConnectionPool(out, connectionPool);
+        } finally {
+            connectionPool.shutdown();
+        }
+        text = out.toString();
+
+        assertTrue(text.contains("hub_rc_connections{state=\"open\"} 0\n"));
+        assertTrue(text.contains("hub_rc_connections{state=\"max\"} 200\n"));
+        assertTrue(text.contains("hub_rc_connections{state=\"max_per_host\"} 20\n"));
+    }
+
+    @Test
+    public void writeRemoteControlStatusesExposesTheLoadAndAgeOfThePushedStatuses() throws IOException {
+        final StringWriter out;
+        final String text;
+
+        out = new StringWriter();
+        new HubMetrics().writeRemoteControlStatuses(out, Arrays.asList(
+                new RemoteControlStatus("a host", 5555, 0.5, System.nanoTime()),
+                new RemoteControlStatus("a host", 6666, -1, System.nanoTime() - 2000000000L)));
+        text = out.toString();
+
+        assertTrue(text.contains("# TYPE hub_rc_load gauge\n"));
+        assertTrue(text.contains("hub_rc_load{remote_control=\"a host:5555\"} 0.5\n"));
+        assertFalse(text.contains("hub_rc_load{remote_control=\"a host:6666\"}"));
+        assertTrue(text.contains("# TYPE hub_rc_heartbeat_age_seconds gauge\n"));
+        assertTrue(text.contains("hub_rc_heartbeat_age_seconds{remote_control=\"a host:5555\"} 0."));
+        assertTrue(text.contains("hub_rc_heartbeat_age_seconds{remote_control=\"a host:6666\"} 2."));
+    }
+
+}
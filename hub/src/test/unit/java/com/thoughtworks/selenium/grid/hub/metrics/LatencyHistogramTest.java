@@ -0,0 +1,82 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void quantilesAreZeroWhenNothingWasRecorded() {
+        assertEquals(0, new LatencyHistogram().quantileInNanoseconds(0.99));
+    }
+
+    @Test
+    public void smallValuesAreRecordedExactly() {
+        final LatencyHistogram histogram;
+
+        histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(5, histogram.quantileInNanoseconds(0.5));
+        assertEquals(10, histogram.quantileInNanoseconds(1));
+        assertEquals(10, histogram.count());
+        assertEquals(55, histogram.sumInNanoseconds());
+    }
+
+    @Test
+    public void largeValuesAreReportedWithinSevenPercent() {
+        final LatencyHistogram histogram;
+        final long value = 123456789L;
+        final long reported;
+
+        histogram = new LatencyHistogram();
+        histogram.record(value);
+        reported = histogram.quantileInNanoseconds(0.5);
+        assertTrue(reported >= value);
+        assertTrue(reported <= value * 1.07);
+    }
+
+    @Test
+    public void quantilesDistinguishTheTailFromTheMedian() {
+        final LatencyHistogram histogram;
+
+        histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(1000000L);
+        }
+        histogram.record(2000000000L);
+        assertTrue(histogram.quantileInNanoseconds(0.5) < 1100000L);
+        assertTrue(histogram.quantileInNanoseconds(0.999) < 1100000L);
+        assertTrue(histogram.quantileInNanoseconds(1) >= 2000000000L);
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero() {
+        final LatencyHistogram histogram;
+
+        histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.quantileInNanoseconds(1));
+        assertEquals(0, histogram.sumInNanoseconds());
+    }
+
+    @Test
+    public void hugeValuesAreCappedInsteadOfOverflowingTheBuckets() {
+        final LatencyHistogram histogram;
+
+        histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(1, histogram.count());
+        assertTrue(histogram.quantileInNanoseconds(1) > 0);
+    }
+
+    @Test
+    public void everyValueFallsInABucketWhoseUpperBoundIsNotSmaller() {
+        for (long value = 0; value < 100000; value += 7) {
+            assertTrue(LatencyHistogram.highestValueIn(LatencyHistogram.bucketFor(value)) >= value);
+        }
+    }
+
+}
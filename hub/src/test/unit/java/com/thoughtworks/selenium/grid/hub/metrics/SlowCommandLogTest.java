@@ -0,0 +1,84 @@
+package com.thoughtworks.selenium.grid.hub.metrics;
+
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class SlowCommandLogTest {
+
+    @Test
+    public void commandsFasterThanTheThresholdAreNotLogged() throws InterruptedException {
+        final SlowCommandLog log;
+
+        log = new SlowCommandLog(60, 0);
+        assertFalse(log.record(timingOf(0)));
+        assertEquals(0, log.skipped());
+    }
+
+    @Test
+    public void commandsSlowerThanTheThresholdAreLogged() throws InterruptedException {
+        final SlowCommandLog log;
+
+        log = new SlowCommandLog(0.001, 0);
+        assertTrue(log.record(timingOf(5)));
+    }
+
+    @Test
+    public void onlyOneSlowCommandIsLoggedPerInterval() throws InterruptedException {
+        final SlowCommandLog log;
+        final CommandTiming timing;
+
+        log = new SlowCommandLog(0.001, 60);
+        timing = timingOf(5);
+        assertTrue(log.record(timing));
+        assertFalse(log.record(timing));
+        assertFalse(log.record(timing));
+        assertEquals(2, log.skipped());
+    }
+
+    @Test
+    public void aThresholdOfZeroDisablesTheLog() throws InterruptedException {
+        assertFalse(new SlowCommandLog(0, 0).record(timingOf(5)));
+    }
+
+    @Test
+    public void settingsAreReadFromTheHubConfiguration() throws InterruptedException {
+        final HubConfiguration configuration;
+
+        configuration = new HubConfiguration();
+        configuration.setSlowCommandThresholdInSeconds(0);
+        assertFalse(new SlowCommandLog(configuration).record(timingOf(5)));
+    }
+
+    @Test
+    public void describeIncludesTheCommandAndTheTimeSpentInEachPhase() {
+        final CommandTiming timing;
+        final String description;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", "Firefox");
+        timing.executionStarted();
+        timing.executionFinished();
+        timing.replied();
+        description = SlowCommandLog.describe(timing, 3);
+
+        assertTrue(description.startsWith("Slow command: selenese on 'Firefox' took "));
+        assertTrue(description.contains(" rc_wait "));
+        assertTrue(description.contains(" rc_round_trip "));
+        assertTrue(description.endsWith("3 other slow commands since last entry"));
+    }
+
+    protected CommandTiming timingOf(long durationInMilliseconds) throws InterruptedException {
+        final CommandTiming timing;
+
+        timing = new CommandTiming();
+        timing.parsed("selenese", "Firefox");
+        timing.executionStarted();
+        Thread.sleep(durationInMilliseconds);
+        timing.executionFinished();
+        timing.replied();
+        return timing;
+    }
+
+}
@@ -2,16 +2,26 @@ package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
 import com.thoughtworks.selenium.grid.HttpClient;
 import com.thoughtworks.selenium.grid.MockHelper;
+import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.Environment;
 import com.thoughtworks.selenium.grid.hub.EnvironmentManager;
 import com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException;
 import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.journal.SessionJournal;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static junit.framework.Assert.*;
 import static org.junit.Assert.assertNotNull;
@@ -692,7 +702,7 @@ public class GlobalRemoteControlPoolTest extends UsingClassMock {
         final GlobalRemoteControlPool pool;
 
         final Mock httpClient = mock(HttpClient.class);
-        httpClient.stubs("post");
+        httpClient.stubs("streamPost").will(returnValue(new Response()));
         aRC = new HealthyRemoteControl("host", 4444, "an environment", (HttpClient) httpClient);
         aRC.setRequest(MockHelper.GetMockHttpServletRequest());
 
@@ -737,7 +747,7 @@ public class GlobalRemoteControlPoolTest extends UsingClassMock {
         final Mock session;
 
         final Mock httpClient = mock(HttpClient.class);
-        httpClient.stubs("post");
+        httpClient.stubs("streamPost").will(returnValue(new Response()));
         aRC = new HealthyRemoteControl("host", 4444, "an environment", (HttpClient) httpClient);
         aRC.setRequest(MockHelper.GetMockHttpServletRequest());
 
@@ -779,7 +789,7 @@ public class GlobalRemoteControlPoolTest extends UsingClassMock {
         final GlobalRemoteControlPool pool;
 
         final Mock httpClient = mock(HttpClient.class);
-        httpClient.stubs("post");
+        httpClient.stubs("streamPost").will(returnValue(new Response()));
         rc = new HealthyRemoteControl("host", 4444, "an environment", (HttpClient) httpClient);
         rc.setRequest(MockHelper.GetMockHttpServletRequest());
 
@@ -882,4 +892,338 @@ public class GlobalRemoteControlPoolTest extends UsingClassMock {
         assertTrue(pool.isRegistered(anotherRemoteControl));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void unregisterAllUnregistersAllRemoteControlsAndTheirSessionsInOneGo() {
+        final RemoteControlProxy aRemoteControl;
+        final RemoteControlProxy anotherRemoteControl;
+        final RemoteControlProxy aRemoteControlToKeep;
+        final GlobalRemoteControlPool pool;
+
+        aRemoteControl = new RemoteControlProxy("a", 0, "an environment", null);
+        anotherRemoteControl = new RemoteControlProxy("b", 0, "another environment", null);
+        aRemoteControlToKeep = new RemoteControlProxy("c", 0, "an environment", null);
+        pool = new GlobalRemoteControlPool();
+        pool.register(aRemoteControl);
+        pool.register(anotherRemoteControl);
+        pool.register(aRemoteControlToKeep);
+        pool.associateWithSession(aRemoteControl, "a session id");
+        pool.associateWithSession(aRemoteControlToKeep, "another session id");
+
+        assertEquals(2, pool.unregisterAll(Arrays.<IRemoteControlProxy>asList(aRemoteControl, anotherRemoteControl)));
+        assertFalse(pool.isRegistered(aRemoteControl));
+        assertFalse(pool.isRegistered(anotherRemoteControl));
+        assertTrue(pool.isRegistered(aRemoteControlToKeep));
+        assertNull(pool.getRemoteControlSession("a session id"));
+        assertSame(aRemoteControlToKeep, pool.retrieve("another session id"));
+    }
+
+    @Test
+    public void listenersAreToldAboutTheSessionsDroppedWithAnUnregisteredRemoteControl() {
+        final GlobalRemoteControlPool pool = new GlobalRemoteControlPool();
+        final List<String> released = new ArrayList<String>();
+        final RemoteControlProxy aRemoteControl;
+        final RemoteControlProxy aRemoteControlToKeep;
+
+        aRemoteControl = new RemoteControlProxy("a", 0, "an environment", 2, Collections.<String, String>emptyMap(), null);
+        aRemoteControlToKeep = new RemoteControlProxy("b", 0, "an environment", null);
+        pool.register(aRemoteControl);
+        pool.register(aRemoteControlToKeep);
+        pool.associateWithSession(aRemoteControl, "a session id");
+        pool.associateWithSession(aRemoteControl, "another session id");
+        pool.associateWithSession(aRemoteControlToKeep, "a session id to keep");
+        pool.addListener(new RemoteControlPoolListener() {
+            public void registered(IRemoteControlProxy remoteControl) {
+            }
+
+            public void unregistered(IRemoteControlProxy remoteControl) {
+            }
+
+            public void associated(String sessionId, IRemoteControlProxy remoteControl) {
+            }
+
+            public void released(String sessionId) {
+                released.add(sessionId);
+            }
+        });
+
+        pool.unregister(aRemoteControl);
+        Collections.sort(released);
+        assertEquals(Arrays.asList("a session id", "another session id"), released);
+    }
+
+    @Test
+    public void unregisteringARemoteControlDoesNotAffectASessionIdItReleasedAndThatIsNowUsedElsewhere() {
+        final RemoteControlProxy aRemoteControl;
+        final RemoteControlProxy anotherRemoteControl;
+        final GlobalRemoteControlPool pool;
+
+        aRemoteControl = new RemoteControlProxy("a", 0, "an environment", null) {
+            @Override
+            public void terminateSession(String sessionId) {
+            }
+        };
+        anotherRemoteControl = new RemoteControlProxy("b", 0, "an environment", null);
+        pool = new GlobalRemoteControlPool();
+        pool.register(aRemoteControl);
+        pool.register(anotherRemoteControl);
+        aRemoteControl.registerNewSession();
+        pool.associateWithSession(aRemoteControl, "a session id");
+        pool.releaseForSession("a session id");
+        pool.associateWithSession(anotherRemoteControl, "a session id");
+
+        assertTrue(pool.unregister(aRemoteControl));
+        assertSame(anotherRemoteControl, pool.retrieve("a session id"));
+    }
+
+    @Test
+    public void recycleAllSessionsIdleForTooLongDoesNotReleaseSessionsActiveSinceTheMaxIdleInterval() {
+        final RemoteControlProxy rc;
+        final GlobalRemoteControlPool pool;
+
+        rc = new HealthyRemoteControl("host", 4444, "an environment", null);
+        pool = new GlobalRemoteControlPool();
+        pool.register(rc);
+        pool.reserve(new Environment("an environment", "a browser"));
+        pool.associateWithSession(rc, "a session id");
+        pool.getRemoteControlSession("a session id").updateLastActiveAt(System.currentTimeMillis() + 60 * 1000);
+
+        pool.recycleAllSessionsIdleForTooLong(0.0);
+        assertSame(rc, pool.retrieve("a session id"));
+        assertTrue(pool.reservedRemoteControls().contains(rc));
+    }
+
+    @Test
+    public void newSessionQueueStatusesAreReportedPerEnvironmentSortedByName() {
+        final List<NewSessionQueueStatus> statuses;
+        final GlobalRemoteControlPool pool;
+
+        pool = new GlobalRemoteControlPool();
+        pool.register(new RemoteControlProxy("a", 0, "Safari", null));
+        pool.register(new RemoteControlProxy("b", 0, "Firefox", null));
+        pool.register(new RemoteControlProxy("c", 0, "Firefox", null));
+
+        statuses = pool.newSessionQueueStatuses();
+        assertEquals(2, statuses.size());
+        assertEquals("Firefox", statuses.get(0).environment());
+        assertEquals(2, statuses.get(0).freeSlots());
+        assertEquals("Safari", statuses.get(1).environment());
+        assertEquals(1, statuses.get(1).freeSlots());
+    }
+
+    @Test
+    public void reserveWithCapabilitiesReservesARemoteControlFromAMatchingEnvironment() {
+        final RemoteControlProxy firefox;
+        final RemoteControlProxy chrome;
+        final GlobalRemoteControlPool pool;
+
+        firefox = new HealthyRemoteControl("a", 0, "Firefox on Linux", null);
+        chrome = new HealthyRemoteControl("b", 0, "Chrome on Linux", null);
+        pool = new GlobalRemoteControlPool();
+        pool.register(firefox);
+        pool.register(chrome);
+
+        assertSame(chrome, pool.reserve(capabilities("browserName", "chrome", "platform", "ANY")));
+        assertEquals(Arrays.asList("Firefox on Linux"), pool.environmentsMatching(capabilities("browserName", "firefox")));
+    }
+
+    @Test
+    public void reserveWithCapabilitiesPrefersEnvironmentsWithIdleRemoteControls() {
+        final RemoteControlProxy busyRemoteControl;
+        final RemoteControlProxy idleRemoteControl;
+        final GlobalRemoteControlPool pool;
+
+        busyRemoteControl = new HealthyRemoteControl("a", 0, "first", capabilities("version", "3.6").asMap(), null);
+        idleRemoteControl = new HealthyRemoteControl("b", 0, "second", capabilities("version", "3.6").asMap(), null);
+        pool = new GlobalRemoteControlPool();
+        pool.register(busyRemoteControl);
+        assertSame(busyRemoteControl, pool.reserve(capabilities("version", "3.6")));
+        pool.register(idleRemoteControl);
+
+        assertSame(idleRemoteControl, pool.reserve(capabilities("version", "3.6")));
+    }
+
+    @Test
+    public void unregisteringTheLastRemoteControlOfAnEnvironmentDropsItFromTheCapabilityIndex() {
+        final RemoteControlProxy first;
+        final RemoteControlProxy second;
+        final GlobalRemoteControlPool pool;
+
+        first = new RemoteControlProxy("a", 0, "Firefox on Linux", null);
+        second = new RemoteControlProxy("b", 0, "Firefox on Linux", null);
+        pool = new GlobalRemoteControlPool();
+        pool.registerAll(Arrays.<IRemoteControlProxy>asList(first, second));
+
+        pool.unregister(first);
+        assertEquals(Arrays.asList("Firefox on Linux"), pool.environmentsMatching(capabilities("browserName", "firefox")));
+        pool.unregister(second);
+        assertTrue(pool.environmentsMatching(capabilities("browserName", "firefox")).isEmpty());
+        assertEquals(0, pool.capabilityIndex().size());
+    }
+
+    @Test
+    public void anEnvironmentWhoseLastRemoteControlIsTornDownAsUnreliableIsDroppedFromTheCapabilityIndex() {
+        final GlobalRemoteControlPool pool;
+
+        pool = new GlobalRemoteControlPool();
+        pool.register(new RemoteControlProxy("a", 0, "Firefox on Linux", null) {
+            public boolean lastKnownToBeUnreliable() {
+                return true;
+            }
+        });
+
+        assertNull(pool.reserve(capabilities("browserName", "firefox")));
+        assertTrue(pool.environmentsMatching(capabilities("browserName", "firefox")).isEmpty());
+    }
+
+    @Test
+    public void reserveWithCapabilitiesRaisesNoSuchEnvironmentExceptionWhenNoRemoteControlOffersThem() {
+        final GlobalRemoteControlPool pool;
+
+        pool = new GlobalRemoteControlPool();
+        pool.register(new RemoteControlProxy("a", 0, "Firefox on Linux", null));
+        try {
+            pool.reserve(capabilities("browserName", "firefox", "platform", "windows"));
+            fail("did not catch NoSuchEnvironmentException as expected");
+        } catch (NoSuchEnvironmentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void poolRecordsRegistrationsAndSessionsInItsJournal() throws IOException {
+        final File file = journalFile();
+        final SessionJournal journal;
+        final GlobalRemoteControlPool pool;
+        final HealthyRemoteControl remoteControl;
+
+        journal = SessionJournal.open(file, 1024);
+        pool = new GlobalRemoteControlPool(new RemoteControlHealthSweep(), journal);
+        remoteControl = new HealthyRemoteControl("host", 5555, "an environment", null) {
+            public void terminateSession(String sessionId) {
+            }
+        };
+        try {
+            pool.register(remoteControl);
+            assertEquals("host:5555", journal.registrations().get(0).key());
+
+            pool.associateWithSession(pool.reserve(new Environment("an environment", "*chrome")), "a session id");
+            assertEquals("host:5555", journal.sessions().get("a session id"));
+
+            pool.releaseForSession("a session id");
+            assertTrue(journal.sessions().isEmpty());
+
+            pool.unregister(remoteControl);
+            assertTrue(journal.registrations().isEmpty());
+        } finally {
+            journal.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void recoverFromJournalRegistersRemoteControlsAndAssociatesTheirSessionsAgain() throws IOException {
+        final File file = journalFile();
+        final RemoteControlProxy remoteControl;
+        final GlobalRemoteControlPool pool;
+        final IRemoteControlProxy recoveredRemoteControl;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "an environment", 2, Collections.<String, String>emptyMap(), null);
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(remoteControl);
+        journal.associated("a session id", remoteControl);
+        journal.close();
+
+        journal = SessionJournal.open(file, 1024);
+        pool = new GlobalRemoteControlPool(new RemoteControlHealthSweep(), journal);
+        try {
+            assertEquals(1, pool.recoverFromJournal(null));
+            assertEquals(1, pool.allRegisteredRemoteControls().size());
+            recoveredRemoteControl = pool.retrieve("a session id");
+            assertEquals(remoteControl, recoveredRemoteControl);
+            assertEquals(2, recoveredRemoteControl.maxConcurrentSessions());
+            assertEquals(1, recoveredRemoteControl.sessionsInProgress());
+            assertEquals(1, pool.getProvisioner("an environment").statistics().busySlots());
+        } finally {
+            journal.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void recoverFromJournalDropsSessionsOfRemoteControlsThatAreNotRegistered() throws IOException {
+        final File file = journalFile();
+        final RemoteControlProxy remoteControl;
+        final GlobalRemoteControlPool pool;
+        SessionJournal journal;
+
+        remoteControl = new RemoteControlProxy("host", 5555, "an environment", null);
+        journal = SessionJournal.open(file, 1024);
+        journal.associated("a session id", remoteControl);
+        journal.close();
+
+        journal = SessionJournal.open(file, 1024);
+        pool = new GlobalRemoteControlPool(new RemoteControlHealthSweep(), journal);
+        try {
+            assertEquals(0, pool.recoverFromJournal(null));
+            assertTrue(journal.sessions().isEmpty());
+        } finally {
+            journal.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void recoverFromJournalDoesNothingWithoutAJournal() {
+        assertEquals(0, new GlobalRemoteControlPool().recoverFromJournal(null));
+    }
+
+    @Test
+    public void registerAllAddsEachRemoteControlToTheProvisionerOfItsEnvironment() {
+        final GlobalRemoteControlPool pool = new GlobalRemoteControlPool();
+        final List<IRemoteControlProxy> registered = new ArrayList<IRemoteControlProxy>();
+
+        pool.addListener(new RemoteControlPoolListener() {
+            public void registered(IRemoteControlProxy remoteControl) {
+                registered.add(remoteControl);
+            }
+
+            public void unregistered(IRemoteControlProxy remoteControl) {
+            }
+
+            public void associated(String sessionId, IRemoteControlProxy remoteControl) {
+            }
+
+            public void released(String sessionId) {
+            }
+        });
+        pool.registerAll(Arrays.<IRemoteControlProxy>asList(
+                new HealthyRemoteControl("rc1", 5555, "Chrome on Linux", null),
+                new HealthyRemoteControl("rc2", 5555, "Firefox on Linux", null),
+                new HealthyRemoteControl("rc3", 5555, "Chrome on Linux", null)));
+
+        assertEquals(2, pool.getProvisioner("Chrome on Linux").statistics().registeredRemoteControls());
+        assertEquals(1, pool.getProvisioner("Firefox on Linux").statistics().registeredRemoteControls());
+        assertEquals(Arrays.asList("Firefox on Linux"), pool.environmentsMatching(capabilities("browserName", "firefox")));
+        assertEquals(3, registered.size());
+    }
+
+    protected File journalFile() throws IOException {
+        final File file;
+
+        file = File.createTempFile("sessions", ".journal");
+        file.delete();
+        return file;
+    }
+
+    protected DesiredCapabilities capabilities(String... keysAndValues) {
+        final Map<String, String> capabilities;
+
+        capabilities = new HashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            capabilities.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return new DesiredCapabilities(capabilities);
+    }
+
+}
@@ -2,14 +2,35 @@ package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
 import com.thoughtworks.selenium.grid.HttpClient;
 
+import java.util.Map;
+
 public class HealthyRemoteControl extends RemoteControlProxy {
 
     public HealthyRemoteControl(String host, int port, String environment, HttpClient httpClient) {
         super(host, port, environment, httpClient);
     }
 
+    public HealthyRemoteControl(String host, int port, String environment, Map<String, String> capabilities, HttpClient httpClient) {
+        super(host, port, environment, capabilities, httpClient);
+    }
+
+    public HealthyRemoteControl(String host, int port, String environment, int maxConcurrentSessions,
+                                Map<String, String> capabilities, HttpClient httpClient) {
+        super(host, port, environment, maxConcurrentSessions, capabilities, httpClient);
+    }
+
     @Override
     public boolean unreliable() {
         return false;
     }
+
+    @Override
+    public boolean unreliable(int timeoutInMilliseconds) {
+        return false;
+    }
+
+    @Override
+    public boolean failsPreFlightCheck(int timeoutInMilliseconds) {
+        return false;
+    }
 }
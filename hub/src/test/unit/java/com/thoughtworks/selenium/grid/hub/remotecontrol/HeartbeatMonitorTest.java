@@ -0,0 +1,76 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class HeartbeatMonitorTest {
+
+    @Test
+    public void isDisabledWhenThereIsNoTimeout() {
+        assertFalse(new HeartbeatMonitor(0).enabled());
+        assertTrue(new HeartbeatMonitor(30).enabled());
+    }
+
+    @Test
+    public void heartbeatsAreIgnoredWhenDisabled() {
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(0);
+
+        monitor.heartbeat(new RemoteControlStatus("host", 5555, 0.5, System.nanoTime()));
+        assertEquals(0, monitor.size());
+        assertFalse(monitor.monitors(new RemoteControlProxy("host", 5555, "*chrome", null)));
+    }
+
+    @Test
+    public void statusIsTheLastOnePushedByTheRemoteControl() {
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+        final RemoteControlStatus status;
+
+        status = new RemoteControlStatus("host", 5555, 1.5, System.nanoTime());
+        monitor.heartbeat(new RemoteControlStatus("host", 5555, 0.5, System.nanoTime()));
+        monitor.heartbeat(status);
+
+        assertEquals(1, monitor.size());
+        assertSame(status, monitor.status(new RemoteControlProxy("host", 5555, "*chrome", null)));
+        assertTrue(monitor.monitors(new RemoteControlProxy("host", 5555, "*chrome", null)));
+        assertNull(monitor.status(new RemoteControlProxy("host", 6666, "*chrome", null)));
+    }
+
+    @Test
+    public void expireOnlyForgetsTheStatusesOlderThanTheTimeout() {
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+
+        monitor.heartbeat(new RemoteControlStatus("host", 5555, 0.5, System.nanoTime() - TimeUnit.SECONDS.toNanos(31)));
+        monitor.heartbeat(new RemoteControlStatus("host", 6666, 0.5, System.nanoTime()));
+
+        assertEquals(Collections.singleton("host:5555"), monitor.expire());
+        assertFalse(monitor.monitors(new RemoteControlProxy("host", 5555, "*chrome", null)));
+        assertTrue(monitor.monitors(new RemoteControlProxy("host", 6666, "*chrome", null)));
+        assertTrue(monitor.expire().isEmpty());
+    }
+
+    @Test
+    public void statusesAreTheLastOnesPushedSortedByRemoteControl() {
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+        final List<RemoteControlStatus> statuses;
+
+        monitor.heartbeat(new RemoteControlStatus("host", 6666, 0.5, System.nanoTime()));
+        monitor.heartbeat(new RemoteControlStatus("host", 5555, 0.5, System.nanoTime()));
+        monitor.heartbeat(new RemoteControlStatus("host", 5555, 1.5, System.nanoTime()));
+
+        statuses = monitor.statuses();
+        assertEquals(2, statuses.size());
+        assertEquals(5555, statuses.get(0).port());
+        assertEquals(1.5, statuses.get(0).load());
+        assertEquals(6666, statuses.get(1).port());
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.*;
+
+public class IdleSessionQueueTest {
+
+    @Test
+    public void removeInnactiveSinceReturnsNothingWhenTheQueueIsEmpty() {
+        assertTrue(new IdleSessionQueue().removeInnactiveSince(System.currentTimeMillis()).isEmpty());
+    }
+
+    @Test
+    public void removeInnactiveSinceReturnsOnlySessionsInnactiveSinceTheGivenTimeOldestFirst() {
+        final IdleSessionQueue queue;
+        final RemoteControlSession oldSession;
+        final RemoteControlSession olderSession;
+        final RemoteControlSession recentSession;
+
+        oldSession = new RemoteControlSession("old", null);
+        oldSession.updateLastActiveAt(2000);
+        olderSession = new RemoteControlSession("older", null);
+        olderSession.updateLastActiveAt(1000);
+        recentSession = new RemoteControlSession("recent", null);
+        recentSession.updateLastActiveAt(5000);
+        queue = new IdleSessionQueue();
+        queue.add(oldSession);
+        queue.add(recentSession);
+        queue.add(olderSession);
+
+        assertEquals(Arrays.asList(olderSession, oldSession), queue.removeInnactiveSince(3000));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void removeInnactiveSinceQueuesAgainSessionsThatHaveBeenActiveSinceTheyWereQueued() {
+        final IdleSessionQueue queue;
+        final RemoteControlSession session;
+        final List<RemoteControlSession> idleSessions;
+
+        session = new RemoteControlSession("a session id", null);
+        session.updateLastActiveAt(1000);
+        queue = new IdleSessionQueue();
+        queue.add(session);
+        session.updateLastActiveAt(4000);
+
+        assertTrue(queue.removeInnactiveSince(3000).isEmpty());
+        assertEquals(1, queue.size());
+        idleSessions = queue.removeInnactiveSince(4000);
+        assertEquals(1, idleSessions.size());
+        assertSame(session, idleSessions.get(0));
+        assertEquals(0, queue.size());
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.jbehave.classmock.UsingClassMock;
+import org.jbehave.core.mock.Mock;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class IdleSessionRecyclerTest extends UsingClassMock {
+
+    @Test
+    public void activeIsFalseOnceStopHasBeenCalled() {
+        final IdleSessionRecycler recycler;
+
+        recycler = new IdleSessionRecycler(null, 0);
+        assertTrue(recycler.active());
+        recycler.stop();
+        assertFalse(recycler.active());
+    }
+
+    @Test
+    public void sessionMaxIdleTimeInSecondsIsTheOneProvidedInTheConstructor() {
+        assertEquals(37.2, new IdleSessionRecycler(null, 37.2).sessionMaxIdleTimeInSeconds());
+    }
+
+    @Test
+    public void recycleIdleSessionsCallsRecycleAllSessionsIdleForTooLongOnThePool() {
+        final IdleSessionRecycler recycler;
+        final Mock pool;
+
+        pool = mock(DynamicRemoteControlPool.class);
+        recycler = new IdleSessionRecycler((DynamicRemoteControlPool) pool, 37.2);
+
+        pool.expects("recycleAllSessionsIdleForTooLong").with(eq(37.2));
+        recycler.recycleIdleSessions();
+
+        verifyMocks();
+    }
+
+    @Test
+    public void recycleIdleSessionsDoesNotBombWhenThePoolThrowsAnException() {
+        final IdleSessionRecycler recycler;
+        final Mock pool;
+
+        pool = mock(DynamicRemoteControlPool.class);
+        recycler = new IdleSessionRecycler((DynamicRemoteControlPool) pool, 37.2);
+
+        pool.expects("recycleAllSessionsIdleForTooLong").will(throwException(new IllegalStateException()));
+        recycler.recycleIdleSessions();
+
+        verifyMocks();
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.hub.ConcurrentAction;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class PendingReservationTest {
+
+    @Test
+    public void fulfilHandsOverTheRemoteControl() {
+        final PendingReservation reservation = new PendingReservation();
+        final RemoteControlProxy remoteControl = new RemoteControlProxy("a", 0, "", null);
+
+        assertTrue(reservation.fulfil(remoteControl));
+        assertSame(remoteControl, reservation.remoteControl());
+    }
+
+    @Test
+    public void fulfilIsRejectedOnceARemoteControlHasBeenHandedOver() {
+        final PendingReservation reservation = new PendingReservation();
+
+        reservation.fulfil(new RemoteControlProxy("a", 0, "", null));
+        assertFalse(reservation.fulfil(new RemoteControlProxy("b", 0, "", null)));
+    }
+
+    @Test
+    public void fulfilIsRejectedOnceTheReservationIsCancelled() {
+        final PendingReservation reservation = new PendingReservation();
+
+        assertTrue(reservation.cancel());
+        assertTrue(reservation.cancelled());
+        assertFalse(reservation.fulfil(new RemoteControlProxy("a", 0, "", null)));
+        assertNull(reservation.remoteControl());
+    }
+
+    @Test
+    public void cancelFailsOnceARemoteControlHasBeenHandedOver() {
+        final PendingReservation reservation = new PendingReservation();
+
+        reservation.fulfil(new RemoteControlProxy("a", 0, "", null));
+        assertFalse(reservation.cancel());
+        assertFalse(reservation.cancelled());
+    }
+
+    @Test
+    public void awaitReturnsImmediatelyWhenARemoteControlHasAlreadyBeenHandedOver() {
+        final PendingReservation reservation = new PendingReservation();
+        final RemoteControlProxy remoteControl = new RemoteControlProxy("a", 0, "", null);
+
+        reservation.fulfil(remoteControl);
+        assertSame(remoteControl, reservation.await(System.nanoTime()));
+    }
+
+    @Test
+    public void awaitBlocksUntilARemoteControlIsHandedOver() {
+        final PendingReservation reservation = new PendingReservation();
+        final RemoteControlProxy remoteControl = new RemoteControlProxy("a", 0, "", null);
+
+        new ConcurrentAction() {
+            public void execute() {
+                reservation.fulfil(remoteControl);
+            }
+        };
+        assertSame(remoteControl, reservation.await(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void awaitCancelsTheReservationWhenTheDeadlineExpires() {
+        final PendingReservation reservation = new PendingReservation();
+
+        assertNull(reservation.await(System.nanoTime() + 1000000L));
+        assertTrue(reservation.cancelled());
+    }
+
+    @Test
+    public void fulfilTellsTheListenerAboutTheRemoteControlHandedOver() {
+        final RemoteControlProxy remoteControl = new RemoteControlProxy("a", 0, "", null);
+        final IRemoteControlProxy[] handedOver = new IRemoteControlProxy[1];
+        final PendingReservation reservation;
+
+        reservation = new PendingReservation(new ReservationListener() {
+            public void reserved(IRemoteControlProxy remoteControl) {
+                handedOver[0] = remoteControl;
+            }
+        });
+        reservation.fulfil(remoteControl);
+        assertSame(remoteControl, handedOver[0]);
+    }
+
+    @Test
+    public void aCancelledReservationDoesNotTellTheListener() {
+        final PendingReservation reservation;
+
+        reservation = new PendingReservation(new ReservationListener() {
+            public void reserved(IRemoteControlProxy remoteControl) {
+                fail("Should not be told about " + remoteControl);
+            }
+        });
+        reservation.cancel();
+        assertFalse(reservation.fulfil(new RemoteControlProxy("a", 0, "", null)));
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertTrue;
+
+public class RecordingReservationListener implements ReservationListener {
+
+    private final CountDownLatch told = new CountDownLatch(1);
+    private volatile IRemoteControlProxy remoteControl;
+
+    public void reserved(IRemoteControlProxy remoteControl) {
+        this.remoteControl = remoteControl;
+        told.countDown();
+    }
+
+    public boolean told() {
+        return 0 == told.getCount();
+    }
+
+    public IRemoteControlProxy await() throws InterruptedException {
+        assertTrue(told.await(5, TimeUnit.SECONDS));
+        return remoteControl;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.*;
+
+public class RemoteControlHealthSweepTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorThrowsIllegalArgumentExceptionWhenThereIsNoThreadToPollRemoteControls() {
+        new RemoteControlHealthSweep(0, 1);
+    }
+
+    @Test
+    public void unresponsiveRemoteControlsIsEmptyWhenThereIsNoRemoteControl() {
+        assertTrue(new RemoteControlHealthSweep().unresponsiveRemoteControls(new ArrayList<IRemoteControlProxy>()).isEmpty());
+    }
+
+    @Test
+    public void unresponsiveRemoteControlsReturnsOnlyUnreliableRemoteControls() {
+        final RemoteControlHealthSweep sweep;
+        final List<IRemoteControlProxy> unresponsive;
+        final RemoteControlProxy healthyRC;
+        final RemoteControlProxy unreliableRC;
+
+        healthyRC = new HealthyRemoteControl("host", 4444, "an environment", null);
+        unreliableRC = new UnreliableRemoteControl("host", 4445, "an environment", null);
+        sweep = new RemoteControlHealthSweep(2, 10);
+
+        unresponsive = sweep.unresponsiveRemoteControls(Arrays.<IRemoteControlProxy>asList(healthyRC, unreliableRC));
+        assertEquals(1, unresponsive.size());
+        assertTrue(unresponsive.contains(unreliableRC));
+    }
+
+    @Test
+    public void unresponsiveRemoteControlsDoesNotPollRemoteControlsPushingTheirStatus() {
+        final RemoteControlHealthSweep sweep;
+        final HeartbeatMonitor monitor;
+        final RemoteControlProxy pushingRC;
+        final RemoteControlProxy unreliableRC;
+
+        pushingRC = new UnreliableRemoteControl("host", 4444, "an environment", null);
+        unreliableRC = new UnreliableRemoteControl("host", 4445, "an environment", null);
+        monitor = new HeartbeatMonitor(30);
+        monitor.heartbeat(new RemoteControlStatus("host", 4444, 0.5, System.nanoTime()));
+        sweep = new RemoteControlHealthSweep(2, 10, monitor);
+
+        assertEquals(Arrays.<IRemoteControlProxy>asList(unreliableRC),
+                sweep.unresponsiveRemoteControls(Arrays.<IRemoteControlProxy>asList(pushingRC, unreliableRC)));
+        assertEquals(1, sweep.lastSweepProbeCount());
+    }
+
+    @Test
+    public void unresponsiveRemoteControlsReportsRemoteControlsThatDoNotReplyInTime() {
+        final RemoteControlHealthSweep sweep;
+        final List<IRemoteControlProxy> unresponsive;
+        final RemoteControlProxy slowRC;
+        final long start;
+
+        slowRC = new HealthyRemoteControl("host", 4444, "an environment", null) {
+            public boolean unreliable(int timeoutInMilliseconds) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    // Probe cancelled
+                }
+                return false;
+            }
+        };
+        sweep = new RemoteControlHealthSweep(1, 0.2);
+
+        start = System.currentTimeMillis();
+        unresponsive = sweep.unresponsiveRemoteControls(Arrays.<IRemoteControlProxy>asList(slowRC));
+        assertTrue(unresponsive.contains(slowRC));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    public void deadlineOfAProbeStartsWhenItActuallyRuns() {
+        final RemoteControlHealthSweep sweep;
+        final List<IRemoteControlProxy> remoteControls;
+
+        remoteControls = new ArrayList<IRemoteControlProxy>();
+        for (int i = 0; i < 4; i++) {
+            remoteControls.add(new HealthyRemoteControl("host", i, "an environment", null) {
+                public boolean unreliable(int timeoutInMilliseconds) {
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        // Probe cancelled
+                    }
+                    return false;
+                }
+            });
+        }
+        sweep = new RemoteControlHealthSweep(1, 1);
+
+        assertTrue(sweep.unresponsiveRemoteControls(remoteControls).isEmpty());
+    }
+
+    @Test
+    public void heartbeatsAreSentWithTheProbeTimeout() {
+        final AtomicInteger timeout = new AtomicInteger();
+        final RemoteControlProxy remoteControl;
+
+        remoteControl = new HealthyRemoteControl("host", 4444, "an environment", null) {
+            public boolean unreliable(int timeoutInMilliseconds) {
+                timeout.set(timeoutInMilliseconds);
+                return false;
+            }
+        };
+        new RemoteControlHealthSweep(1, 2.5).unresponsiveRemoteControls(Arrays.<IRemoteControlProxy>asList(remoteControl));
+        assertEquals(2500, timeout.get());
+    }
+
+    @Test
+    public void sweepReturnsEvenWhenAllProbeThreadsAreStuck() {
+        final RemoteControlHealthSweep sweep;
+        final List<IRemoteControlProxy> unresponsive;
+        final RemoteControlProxy stuckRC;
+        final RemoteControlProxy queuedRC;
+        final long start;
+
+        stuckRC = new HealthyRemoteControl("host", 4444, "an environment", null) {
+            public boolean unreliable(int timeoutInMilliseconds) {
+                final long end = System.currentTimeMillis() + 3000;
+
+                while (System.currentTimeMillis() < end) {
+                    try {
+                        Thread.sleep(Math.max(1, end - System.currentTimeMillis()));
+                    } catch (InterruptedException e) {
+                        // Like a blocked socket read, ignore the cancellation
+                    }
+                }
+                return false;
+            }
+        };
+        queuedRC = new UnreliableRemoteControl("host", 4445, "an environment", null);
+        sweep = new RemoteControlHealthSweep(1, 0.2);
+
+        start = System.currentTimeMillis();
+        unresponsive = sweep.unresponsiveRemoteControls(Arrays.<IRemoteControlProxy>asList(stuckRC, queuedRC));
+        assertEquals(Arrays.<IRemoteControlProxy>asList(stuckRC), unresponsive);
+        assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
+    @Test
+    public void sweepStatisticsReflectTheLastSweep() {
+        final RemoteControlHealthSweep sweep;
+
+        sweep = new RemoteControlHealthSweep(4, 10);
+        sweep.unresponsiveRemoteControls(Arrays.<IRemoteControlProxy>asList(
+                new HealthyRemoteControl("host", 4444, "an environment", null),
+                new UnreliableRemoteControl("host", 4445, "an environment", null),
+                new UnreliableRemoteControl("host", 4446, "an environment", null)));
+
+        assertEquals(3, sweep.lastSweepProbeCount());
+        assertEquals(2, sweep.lastSweepUnresponsiveCount());
+        assertTrue(sweep.lastSweepDurationInMilliseconds() >= 0);
+        assertEquals(0, sweep.probesInFlight());
+    }
+
+}
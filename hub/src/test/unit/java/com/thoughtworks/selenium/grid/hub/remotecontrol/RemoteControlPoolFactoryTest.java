@@ -0,0 +1,37 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertTrue;
+
+public class RemoteControlPoolFactoryTest {
+
+    @Test
+    public void globalIsTheDefault() {
+        assertTrue(new RemoteControlPoolFactory().create(null, new RemoteControlHealthSweep(), null) instanceof GlobalRemoteControlPool);
+        assertTrue(new RemoteControlPoolFactory().create("", new RemoteControlHealthSweep(), null) instanceof GlobalRemoteControlPool);
+        assertTrue(new RemoteControlPoolFactory().create("global", new RemoteControlHealthSweep(), null) instanceof GlobalRemoteControlPool);
+    }
+
+    @Test
+    public void shardedCreatesAPoolShardedByEnvironment() {
+        assertTrue(new RemoteControlPoolFactory().create("sharded", new RemoteControlHealthSweep(), null) instanceof ShardedRemoteControlPool);
+    }
+
+    @Test
+    public void aClassNameCreatesAnInstanceOfTheClass() {
+        assertTrue(new RemoteControlPoolFactory().create(ShardedRemoteControlPool.class.getName(),
+                new RemoteControlHealthSweep(), null) instanceof ShardedRemoteControlPool);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anUnknownClassIsRejected() {
+        new RemoteControlPoolFactory().create("com.example.NoSuchPool", new RemoteControlHealthSweep(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aClassThatIsNotAPoolIsRejected() {
+        new RemoteControlPoolFactory().create(String.class.getName(), new RemoteControlHealthSweep(), null);
+    }
+
+}
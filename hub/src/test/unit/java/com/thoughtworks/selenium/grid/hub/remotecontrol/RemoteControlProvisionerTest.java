@@ -1,9 +1,19 @@
 package com.thoughtworks.selenium.grid.hub.remotecontrol;
 
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
 import com.thoughtworks.selenium.grid.hub.ConcurrentAction;
 import com.thoughtworks.selenium.grid.hub.HubRegistry;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import static junit.framework.Assert.*;
 import static org.junit.Assert.assertSame;
 
@@ -424,4 +434,438 @@ public class RemoteControlProvisionerTest {
         assertTrue(provisioner.allRemoteControls().contains(remoteControl));
     }
 
+    @Test
+    public void releaseDoesNotMakeAvailableARemoteControlThatHasBeenRemovedInTheMeantime() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl = new HealthyRemoteControl("a", 0, "", null);
+
+        provisioner.add(remoteControl);
+        provisioner.reserve();
+        provisioner.remove(remoteControl);
+        provisioner.release(remoteControl);
+
+        assertFalse(provisioner.contains(remoteControl));
+        assertNull(provisioner.findNextAvailableRemoteControl());
+        assertNull(provisioner.reserve());
+    }
+
+    @Test
+    public void releaseDoesNotMakeAvailableARemoteControlThatHasBeenReplacedInTheMeantime() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy oldRC = new HealthyRemoteControl("a", 0, "", null);
+        final RemoteControlProxy newRC = new HealthyRemoteControl("a", 0, "", null);
+
+        provisioner.add(oldRC);
+        provisioner.reserve();
+        provisioner.add(newRC);
+        provisioner.release(oldRC);
+
+        assertSame(newRC, provisioner.reserve());
+        assertNull(provisioner.findNextAvailableRemoteControl());
+    }
+
+    @Test
+    public void concurrentReservationsNeverShareARemoteControl() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final Set<IRemoteControlProxy> reserved = Collections.synchronizedSet(new HashSet<IRemoteControlProxy>());
+        final Thread[] threads = new Thread[20];
+
+        for (int i = 0; i < threads.length; i++) {
+            provisioner.add(new HealthyRemoteControl("host", i, "", null));
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    reserved.add(provisioner.reserve());
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threads.length, reserved.size());
+        assertFalse(reserved.contains(null));
+        assertTrue(provisioner.availableRemoteControls().isEmpty());
+    }
+
+    @Test
+    public void releasedRemoteControlsAreHandedOverToWaitingRequestsInArrivalOrder() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl = new HealthyRemoteControl("a", 0, "", null);
+        final IRemoteControlProxy[] reserved = new IRemoteControlProxy[2];
+        final Thread firstRequest;
+        final Thread secondRequest;
+
+        provisioner.add(remoteControl);
+        provisioner.reserve();
+
+        firstRequest = new Thread() {
+            public void run() {
+                reserved[0] = provisioner.reserve();
+            }
+        };
+        secondRequest = new Thread() {
+            public void run() {
+                reserved[1] = provisioner.reserve();
+            }
+        };
+        firstRequest.start();
+        Thread.sleep(200);
+        secondRequest.start();
+        Thread.sleep(200);
+
+        provisioner.release(remoteControl);
+        firstRequest.join();
+        assertSame(remoteControl, reserved[0]);
+        assertTrue(secondRequest.isAlive());
+
+        provisioner.release(remoteControl);
+        secondRequest.join();
+        assertSame(remoteControl, reserved[1]);
+    }
+
+    @Test
+    public void releaseHandsOverTheRemoteControlDirectlyToAWaitingRequest() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl = new HealthyRemoteControl("a", 0, "", null);
+        final IRemoteControlProxy[] reserved = new IRemoteControlProxy[1];
+        final Thread waitingRequest;
+
+        provisioner.add(remoteControl);
+        provisioner.reserve();
+        waitingRequest = new Thread() {
+            public void run() {
+                reserved[0] = provisioner.reserve();
+            }
+        };
+        waitingRequest.start();
+        Thread.sleep(200);
+
+        provisioner.release(remoteControl);
+        waitingRequest.join();
+        assertSame(remoteControl, reserved[0]);
+        assertNull(provisioner.findNextAvailableRemoteControl());
+    }
+
+    @Test
+    public void reserveSkipsRemoteControlsLastKnownToBeUnreliableWithoutContactingThem() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy deadRemoteControl = new HealthyRemoteControl("a", 0, "", null) {
+            public boolean lastKnownToBeUnreliable() {
+                return true;
+            }
+
+            public boolean failsPreFlightCheck(int timeoutInMilliseconds) {
+                fail("Should not contact a remote control already known to be unreliable");
+                return true;
+            }
+        };
+        final RemoteControlProxy healthyRemoteControl = new HealthyRemoteControl("b", 0, "", null);
+
+        provisioner.add(deadRemoteControl);
+        provisioner.add(healthyRemoteControl);
+
+        assertEquals(healthyRemoteControl, provisioner.reserve());
+        assertFalse(provisioner.contains(deadRemoteControl));
+    }
+
+    @Test
+    public void reserveDoesNotPerformAPreFlightCheckWhenItIsDisabled() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl = new UnreliableRemoteControl("a", 0, "", null);
+        final HubConfiguration configuration = HubRegistry.registry().gridConfiguration().getHub();
+        final double defaultTimeout = configuration.getRemoteControlPreFlightCheckTimeoutInSeconds();
+
+        configuration.setRemoteControlPreFlightCheckTimeoutInSeconds(0);
+        try {
+            provisioner.add(remoteControl);
+            assertEquals(remoteControl, provisioner.reserve());
+        } finally {
+            configuration.setRemoteControlPreFlightCheckTimeoutInSeconds(defaultTimeout);
+        }
+    }
+
+    @Test
+    public void statisticsTrackFreeAndBusyRemoteControlsAsTheyAreReservedAndReleased() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy firstRemoteControl = new HealthyRemoteControl("a", 0, "", null);
+        final RemoteControlProxy secondRemoteControl = new HealthyRemoteControl("b", 0, "", null);
+
+        provisioner.add(firstRemoteControl);
+        provisioner.add(secondRemoteControl);
+        assertEquals(2, provisioner.statistics().freeSlots());
+        assertEquals(0, provisioner.statistics().busySlots());
+
+        provisioner.reserve();
+        assertEquals(1, provisioner.statistics().freeSlots());
+        assertEquals(1, provisioner.statistics().busySlots());
+        assertEquals(1, provisioner.statistics().timeToReserve().count());
+
+        provisioner.release(firstRemoteControl);
+        assertEquals(2, provisioner.statistics().freeSlots());
+        assertEquals(0, provisioner.statistics().busySlots());
+    }
+
+    @Test
+    public void statisticsDoNotCountAReplacedRemoteControlTwice() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+
+        provisioner.add(new RemoteControlProxy("a", 0, "", null));
+        provisioner.add(new RemoteControlProxy("a", 0, "", null));
+        assertEquals(1, provisioner.statistics().registeredRemoteControls());
+
+        provisioner.remove(new RemoteControlProxy("a", 0, "", null));
+        assertEquals(0, provisioner.statistics().registeredRemoteControls());
+        assertEquals(0, provisioner.statistics().freeSlots());
+    }
+
+    @Test
+    public void statusReportsTheRequestsWaitingForARemoteControl() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl = new HealthyRemoteControl("a", 0, "", null);
+        final Thread waiter;
+        NewSessionQueueStatus status;
+
+        provisioner.add(remoteControl);
+        provisioner.reserve();
+        waiter = new Thread() {
+            public void run() {
+                provisioner.reserve();
+            }
+        };
+        waiter.start();
+        while (0 == provisioner.statistics().waiters()) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(20);
+
+        status = provisioner.status("an environment");
+        assertEquals("an environment", status.environment());
+        assertEquals(1, status.waiters());
+        assertTrue(status.oldestWaiterAgeInMilliseconds() >= 20);
+        assertEquals(0, status.freeSlots());
+        assertEquals(1, status.busySlots());
+
+        provisioner.release(remoteControl);
+        waiter.join(5000);
+        status = provisioner.status("an environment");
+        assertEquals(0, status.waiters());
+        assertEquals(0, status.oldestWaiterAgeInMilliseconds());
+        assertEquals(2, status.reservations());
+        assertTrue(status.timeToReserve99thPercentileInMilliseconds() >= 20);
+    }
+
+    @Test
+    public void statisticsCountRequestsThatTimedOut() {
+        final HubConfiguration configuration = HubRegistry.registry().gridConfiguration().getHub();
+        final Double defaultMaxWaitTime = configuration.getNewSessionMaxWaitTimeInSeconds();
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+
+        configuration.setNewSessionMaxWaitTimeInSeconds(0.0);
+        try {
+            provisioner.add(new HealthyRemoteControl("a", 0, "", null));
+            provisioner.reserve();
+            assertNull(provisioner.reserve());
+            assertEquals(1, provisioner.statistics().timeouts());
+            assertEquals(0, provisioner.statistics().waiters());
+        } finally {
+            configuration.setNewSessionMaxWaitTimeInSeconds(defaultMaxWaitTime);
+        }
+    }
+
+    @Test
+    public void aRemoteControlWithSeveralSlotsCanBeReservedOncePerSlot() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl;
+
+        remoteControl = new HealthyRemoteControl("a", 0, "", 2, new HashMap<String, String>(), null);
+        provisioner.add(remoteControl);
+        assertEquals(1, provisioner.statistics().registeredRemoteControls());
+        assertEquals(2, provisioner.statistics().freeSlots());
+
+        assertSame(remoteControl, provisioner.reserve());
+        assertEquals(Arrays.asList(remoteControl), provisioner.availableRemoteControls());
+        assertEquals(Arrays.asList(remoteControl), provisioner.reservedRemoteControls());
+        assertSame(remoteControl, provisioner.reserve());
+        assertEquals(2, remoteControl.sessionsInProgress());
+        assertEquals(0, provisioner.statistics().freeSlots());
+        assertEquals(2, provisioner.statistics().busySlots());
+        assertTrue(provisioner.availableRemoteControls().isEmpty());
+
+        provisioner.release(remoteControl);
+        assertEquals(1, provisioner.statistics().freeSlots());
+        assertSame(remoteControl, provisioner.reserve());
+    }
+
+    @Test
+    public void aReleasedSlotIsHandedOverToAWaitingRequest() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl;
+        final IRemoteControlProxy[] reserved = new IRemoteControlProxy[1];
+        final Thread waiter;
+
+        remoteControl = new HealthyRemoteControl("a", 0, "", 2, new HashMap<String, String>(), null);
+        provisioner.add(remoteControl);
+        provisioner.reserve();
+        provisioner.reserve();
+        waiter = new Thread() {
+            public void run() {
+                reserved[0] = provisioner.reserve();
+            }
+        };
+        waiter.start();
+        while (0 == provisioner.statistics().waiters()) {
+            Thread.sleep(10);
+        }
+
+        provisioner.release(remoteControl);
+        waiter.join(5000);
+        assertSame(remoteControl, reserved[0]);
+        assertEquals(2, remoteControl.sessionsInProgress());
+    }
+
+    @Test
+    public void addAllMakesEverySlotOfTheBatchAvailable() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy firstRemoteControl;
+        final RemoteControlProxy secondRemoteControl;
+
+        firstRemoteControl = new HealthyRemoteControl("a", 0, "", null);
+        secondRemoteControl = new HealthyRemoteControl("b", 0, "", 2, new HashMap<String, String>(), null);
+        provisioner.addAll(Arrays.<IRemoteControlProxy>asList(firstRemoteControl, secondRemoteControl));
+        assertEquals(2, provisioner.statistics().registeredRemoteControls());
+        assertEquals(3, provisioner.statistics().freeSlots());
+
+        assertSame(firstRemoteControl, provisioner.reserve());
+        assertSame(secondRemoteControl, provisioner.reserve());
+        assertSame(secondRemoteControl, provisioner.reserve());
+        assertEquals(0, provisioner.statistics().freeSlots());
+    }
+
+    @Test
+    public void addAllDoesNotQueueARemoteControlListedTwiceTwice() {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final RemoteControlProxy remoteControl;
+
+        remoteControl = new HealthyRemoteControl("a", 0, "", null);
+        provisioner.addAll(Arrays.<IRemoteControlProxy>asList(remoteControl, remoteControl));
+        assertEquals(1, provisioner.statistics().registeredRemoteControls());
+        assertEquals(1, provisioner.statistics().freeSlots());
+
+        provisioner.reserve();
+        assertNull(provisioner.findNextAvailableRemoteControl());
+    }
+
+    @Test
+    public void addAllHandsOverTheNewSlotsToWaitingRequests() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final IRemoteControlProxy[] reserved = new IRemoteControlProxy[2];
+        final Thread[] waiters = new Thread[2];
+        final RemoteControlProxy firstRemoteControl;
+        final RemoteControlProxy secondRemoteControl;
+
+        provisioner.add(new HealthyRemoteControl("busy", 0, "", null));
+        provisioner.reserve();
+        for (int i = 0; i < waiters.length; i++) {
+            final int waiter = i;
+            waiters[i] = new Thread() {
+                public void run() {
+                    reserved[waiter] = provisioner.reserve();
+                }
+            };
+            waiters[i].start();
+        }
+        while (provisioner.statistics().waiters() < 2) {
+            Thread.sleep(10);
+        }
+
+        firstRemoteControl = new HealthyRemoteControl("a", 0, "", null);
+        secondRemoteControl = new HealthyRemoteControl("b", 0, "", null);
+        provisioner.addAll(Arrays.<IRemoteControlProxy>asList(firstRemoteControl, secondRemoteControl));
+        for (Thread waiter : waiters) {
+            waiter.join(5000);
+        }
+        assertEquals(new HashSet<IRemoteControlProxy>(Arrays.asList(firstRemoteControl, secondRemoteControl)),
+                     new HashSet<IRemoteControlProxy>(Arrays.asList(reserved)));
+        assertEquals(0, provisioner.statistics().freeSlots());
+        assertEquals(0, provisioner.statistics().waiters());
+    }
+
+    @Test
+    public void reserveWithAListenerHandsOverAnAvailableRemoteControlRightAway() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final RemoteControlProxy remoteControl = new HealthyRemoteControl("a", 0, "", null);
+        final RecordingReservationListener listener = new RecordingReservationListener();
+
+        provisioner.add(remoteControl);
+        provisioner.reserve(listener, executor);
+
+        assertSame(remoteControl, listener.await());
+        assertEquals(0, provisioner.statistics().freeSlots());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reserveWithAListenerWaitsForARemoteControlWithoutHoldingAThread() throws InterruptedException {
+        final RemoteControlProvisioner provisioner = new RemoteControlProvisioner();
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final RemoteControlProxy remoteControl = new HealthyRemoteControl("a", 0, "", null);
+        final RecordingReservationListener firstListener = new RecordingReservationListener();
+        final RecordingReservationListener secondListener = new RecordingReservationListener();
+        final CountDownLatch otherWorkDone = new CountDownLatch(1);
+
+        provisioner.add(remoteControl);
+        provisioner.reserve();
+        provisioner.reserve(firstListener, executor);
+        provisioner.reserve(secondListener, executor);
+        executor.execute(new Runnable() {
+            public void run() {
+                otherWorkDone.countDown();
+            }
+        });
+
+        assertTrue(otherWorkDone.await(5, TimeUnit.SECONDS));
+        assertEquals(2, provisioner.statistics().waiters());
+        provisioner.release(remoteControl);
+        assertSame(remoteControl, firstListener.await());
+        assertFalse(secondListener.told());
+        assertEquals(1, provisioner.statistics().waiters());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reserveWithAListenerTellsItAboutNoRemoteControlWhenTheRequestTimesOut() throws InterruptedException {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final RecordingReservationListener listener = new RecordingReservationListener();
+        final RemoteControlProvisioner provisioner;
+
+        provisioner = new RemoteControlProvisioner() {
+            protected long requestDeadline() {
+                return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+            }
+        };
+        provisioner.add(new HealthyRemoteControl("a", 0, "", null));
+        provisioner.reserve();
+        provisioner.reserve(listener, executor);
+
+        assertNull(listener.await());
+        assertEquals(0, provisioner.statistics().waiters());
+        assertEquals(1, provisioner.statistics().timeouts());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reserveWithAListenerTellsItAboutNoRemoteControlWhenNoneIsRegistered() throws InterruptedException {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final RecordingReservationListener listener = new RecordingReservationListener();
+
+        new RemoteControlProvisioner().reserve(listener, executor);
+
+        assertNull(listener.await());
+        executor.shutdownNow();
+    }
+
 }
@@ -9,6 +9,8 @@ import org.junit.Test;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.thoughtworks.selenium.grid.AssertionHelper.*;
 import static junit.framework.Assert.*;
@@ -123,7 +125,7 @@ public class RemoteControlProxyTest {
         parameters = new HttpParameters();
         HttpServletRequest request = MockHelper.GetMockRequestWithParameters(parameters);
         expectedResponse = new Response(0, "", new Header[]{});
-        when(client.post("http://foo:10/selenium-server/driver/", parameters)).thenReturn(expectedResponse);
+        when(client.streamPost("http://foo:10/selenium-server/driver/", parameters)).thenReturn(expectedResponse);
         proxy = new RemoteControlProxy("foo", 10, "", (HttpClient) client);
         assertEquals(expectedResponse, proxy.forward(request));
     }
@@ -276,4 +278,116 @@ public class RemoteControlProxyTest {
         assertFalse(proxy.unreliable());
     }
 
+    @Test
+    public void unreliableWithATimeoutPollsTheRemoteControlWithThatTimeout() throws IOException {
+        final RemoteControlProxy proxy;
+
+        HttpClient client = mock(HttpClient.class);
+        when(client.get("http://foo:10/selenium-server/heartbeat", 2000)).thenReturn(new Response(200, "", new Header[]{}));
+        proxy = new RemoteControlProxy("foo", 10, "", (HttpClient) client);
+        assertFalse(proxy.unreliable(2000));
+    }
+
+    @Test
+    public void lastKnownToBeUnreliableReturnsFalseByDefault() {
+        assertFalse(new RemoteControlProxy("foo", 10, "", null).lastKnownToBeUnreliable());
+    }
+
+    @Test
+    public void lastKnownToBeUnreliableReturnsTheOutcomeOfTheLastHeartbeat() throws IOException {
+        final RemoteControlProxy proxy;
+
+        HttpClient client = mock(HttpClient.class);
+        when(client.get("http://foo:10/selenium-server/heartbeat"))
+                .thenReturn(new Response(500, "", new Header[]{}))
+                .thenReturn(new Response(200, "", new Header[]{}));
+        proxy = new RemoteControlProxy("foo", 10, "", (HttpClient) client);
+        proxy.unreliable();
+        assertTrue(proxy.lastKnownToBeUnreliable());
+        proxy.unreliable();
+        assertFalse(proxy.lastKnownToBeUnreliable());
+    }
+
+    @Test
+    public void failsPreFlightCheckReturnsFalseWhenTheResponseIsSuccessful() throws IOException {
+        final RemoteControlProxy proxy;
+
+        HttpClient client = mock(HttpClient.class);
+        when(client.get("http://foo:10/selenium-server/heartbeat", 500)).thenReturn(new Response(200, "", new Header[]{}));
+        proxy = new RemoteControlProxy("foo", 10, "", (HttpClient) client);
+        assertFalse(proxy.failsPreFlightCheck(500));
+        assertFalse(proxy.lastKnownToBeUnreliable());
+    }
+
+    @Test
+    public void failsPreFlightCheckReturnsTrueWithoutRetryingWhenTheRemoteControlCannotBeReached() throws IOException {
+        final RemoteControlProxy proxy;
+
+        HttpClient client = mock(HttpClient.class);
+        when(client.get("http://foo:10/selenium-server/heartbeat", 500))
+                .thenThrow(new RuntimeException())
+                .thenReturn(new Response(200, "", new Header[]{}));
+        proxy = new RemoteControlProxy("foo", 10, "", (HttpClient) client);
+        proxy.registerNewSession();
+        assertTrue(proxy.failsPreFlightCheck(500));
+        assertTrue(proxy.lastKnownToBeUnreliable());
+    }
+
+    @Test
+    public void aRemoteControlCanRunAsManySessionsAsItHasSlots() {
+        final RemoteControlProxy remoteControl;
+
+        remoteControl = new RemoteControlProxy("host", 0, "an environment", 3, new HashMap<String, String>(), null);
+        remoteControl.registerNewSession();
+        remoteControl.registerNewSession();
+        assertTrue(remoteControl.canHandleNewSession());
+        assertEquals(2, remoteControl.sessionsInProgress());
+        remoteControl.registerNewSession();
+        assertFalse(remoteControl.canHandleNewSession());
+        assertEquals(3, remoteControl.maxConcurrentSessions());
+        try {
+            remoteControl.registerNewSession();
+            fail("Did not catch expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals(3, remoteControl.sessionsInProgress());
+        }
+        remoteControl.unregisterSession();
+        assertTrue(remoteControl.canHandleNewSession());
+        assertTrue(remoteControl.sessionInProgress());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void contructorThrowsIllegalArgumentExceptionWhenThereIsNoSessionSlot() {
+        new RemoteControlProxy("host", 0, "an environment", 0, new HashMap<String, String>(), null);
+    }
+
+    @Test
+    public void concurrentRegistrationsNeverExceedTheNumberOfSlots() throws InterruptedException {
+        final RemoteControlProxy remoteControl;
+        final AtomicInteger registered;
+        final Thread[] threads;
+
+        remoteControl = new RemoteControlProxy("host", 0, "an environment", 8, new HashMap<String, String>(), null);
+        registered = new AtomicInteger(0);
+        threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        remoteControl.registerNewSession();
+                        registered.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        // All slots taken
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8, registered.get());
+        assertEquals(8, remoteControl.sessionsInProgress());
+    }
+
 }
@@ -0,0 +1,304 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import com.thoughtworks.selenium.grid.hub.Environment;
+import com.thoughtworks.selenium.grid.hub.NoSuchEnvironmentException;
+import com.thoughtworks.selenium.grid.hub.NoSuchSessionException;
+import com.thoughtworks.selenium.grid.hub.capabilities.DesiredCapabilities;
+import com.thoughtworks.selenium.grid.hub.journal.SessionJournal;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+public class ShardedRemoteControlPoolTest {
+
+    @Test
+    public void registerCreatesOneShardPerEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+
+        pool.register(new HealthyRemoteControl("rc1", 5555, "*chrome", null));
+        pool.register(new HealthyRemoteControl("rc2", 5555, "*chrome", null));
+        pool.register(new HealthyRemoteControl("rc3", 5555, "*firefox", null));
+
+        assertEquals(2, pool.shards());
+        assertEquals(3, pool.allRegisteredRemoteControls().size());
+        assertEquals(3, pool.availableRemoteControls().size());
+        assertEquals(2, pool.getProvisioner("*chrome").statistics().registeredRemoteControls());
+        assertNull(pool.getProvisioner("*safari"));
+    }
+
+    @Test
+    public void registerAllAddsEachRemoteControlToTheShardOfItsEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+
+        pool.registerAll(Arrays.<IRemoteControlProxy>asList(
+                new HealthyRemoteControl("rc1", 5555, "*chrome", null),
+                new HealthyRemoteControl("rc2", 5555, "*firefox", null),
+                new HealthyRemoteControl("rc3", 5555, "*chrome", null)));
+
+        assertEquals(2, pool.shards());
+        assertEquals(2, pool.getProvisioner("*chrome").statistics().registeredRemoteControls());
+        assertEquals(1, pool.getProvisioner("*firefox").statistics().registeredRemoteControls());
+    }
+
+    @Test
+    public void reserveWithAListenerHandsOverARemoteControlFromTheShardOfTheEnvironment() throws InterruptedException {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        final RecordingReservationListener listener = new RecordingReservationListener();
+        final HealthyRemoteControl remoteControl;
+
+        remoteControl = new HealthyRemoteControl("rc1", 5555, "*chrome", null);
+        pool.register(remoteControl);
+        pool.register(new HealthyRemoteControl("rc2", 5555, "*firefox", null));
+        pool.reserve(new Environment("*chrome", "*chrome"), listener, executor);
+
+        assertSame(remoteControl, listener.await());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void unregisterOnlyRemovesTheRemoteControlFromItsEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final HealthyRemoteControl remoteControl;
+
+        remoteControl = new HealthyRemoteControl("rc1", 5555, "*chrome", null);
+        pool.register(remoteControl);
+        pool.register(new HealthyRemoteControl("rc2", 5555, "*firefox", null));
+
+        assertTrue(pool.isRegistered(remoteControl));
+        assertTrue(pool.unregister(remoteControl));
+        assertFalse(pool.isRegistered(remoteControl));
+        assertFalse(pool.unregister(remoteControl));
+        assertFalse(pool.unregister(new HealthyRemoteControl("rc3", 5555, "*safari", null)));
+        assertEquals(1, pool.allRegisteredRemoteControls().size());
+    }
+
+    @Test
+    public void isRegisteredFindsARemoteControlLookedUpWithoutItsEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+
+        pool.register(new RemoteControlProxy("rc1", 5555, "*chrome", null));
+
+        assertTrue(pool.isRegistered(new RemoteControlProxy("rc1", 5555, "dummy", null)));
+        assertFalse(pool.isRegistered(new RemoteControlProxy("rc1", 6666, "dummy", null)));
+    }
+
+    @Test
+    public void reserveReturnsARemoteControlOfTheRequestedEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final HealthyRemoteControl remoteControl;
+
+        remoteControl = new HealthyRemoteControl("rc1", 5555, "*chrome", null);
+        pool.register(remoteControl);
+        pool.register(new HealthyRemoteControl("rc2", 5555, "*firefox", null));
+
+        assertSame(remoteControl, pool.reserve(new Environment("*chrome", "*chrome")));
+        assertEquals(1, pool.reservedRemoteControls().size());
+    }
+
+    @Test(expected = NoSuchEnvironmentException.class)
+    public void reserveRaisesNoSuchEnvironmentExceptionForAnEnvironmentWithoutRemoteControls() {
+        new ShardedRemoteControlPool().reserve(new Environment("*chrome", "*chrome"));
+    }
+
+    @Test
+    public void reserveWithCapabilitiesReturnsARemoteControlOfAMatchingEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final HealthyRemoteControl remoteControl;
+        final DesiredCapabilities capabilities;
+
+        remoteControl = new HealthyRemoteControl("rc1", 5555, "Firefox on Linux", null);
+        pool.register(new HealthyRemoteControl("rc2", 5555, "Chrome on Linux", null));
+        pool.register(remoteControl);
+
+        capabilities = new DesiredCapabilities(Collections.singletonMap("browserName", "firefox"));
+        assertEquals(Collections.singletonList("Firefox on Linux"), pool.environmentsMatching(capabilities));
+        assertSame(remoteControl, pool.reserve(capabilities));
+    }
+
+    @Test(expected = NoSuchEnvironmentException.class)
+    public void reserveWithCapabilitiesRaisesNoSuchEnvironmentExceptionWhenNoEnvironmentMatches() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+
+        pool.register(new HealthyRemoteControl("rc1", 5555, "Chrome on Linux", null));
+        pool.reserve(new DesiredCapabilities(Collections.singletonMap("browserName", "firefox")));
+    }
+
+    @Test
+    public void sessionsAreRoutedToTheShardOfTheirRemoteControl() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final HealthyRemoteControl chrome;
+        final HealthyRemoteControl firefox;
+
+        chrome = remoteControlEndingSessionsQuietly("rc1", "*chrome");
+        firefox = remoteControlEndingSessionsQuietly("rc2", "*firefox");
+        pool.register(chrome);
+        pool.register(firefox);
+        pool.associateWithSession(pool.reserve(new Environment("*chrome", "*chrome")), "session 1");
+        pool.associateWithSession(pool.reserve(new Environment("*firefox", "*firefox")), "session 2");
+
+        assertSame(chrome, pool.retrieve("session 1"));
+        assertSame(firefox, pool.retrieve("session 2"));
+        pool.updateSessionLastActiveAt("session 1");
+
+        pool.releaseForSession("session 1");
+        assertFalse(pool.hasSession("session 1"));
+        assertTrue(pool.hasSession("session 2"));
+        assertEquals(1, pool.getProvisioner("*chrome").statistics().freeSlots());
+    }
+
+    @Test
+    public void sessionsAreNotRoutedAnymoreOnceRecycledOrDroppedWithTheirRemoteControl() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final HealthyRemoteControl chrome;
+        final HealthyRemoteControl firefox;
+
+        chrome = remoteControlEndingSessionsQuietly("rc1", "*chrome");
+        firefox = remoteControlEndingSessionsQuietly("rc2", "*firefox");
+        pool.register(chrome);
+        pool.register(firefox);
+        pool.associateWithSession(pool.reserve(new Environment("*chrome", "*chrome")), "session 1");
+        pool.associateWithSession(pool.reserve(new Environment("*firefox", "*firefox")), "session 2");
+        assertEquals(2, pool.routedSessions());
+
+        pool.unregister(firefox);
+        assertFalse(pool.hasSession("session 2"));
+        assertEquals(1, pool.routedSessions());
+
+        pool.recycleAllSessionsIdleForTooLong(0.0);
+        assertFalse(pool.hasSession("session 1"));
+        assertEquals(0, pool.routedSessions());
+    }
+
+    @Test
+    public void aSessionIdReusedInAnotherEnvironmentIsRoutedToItsNewShard() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final HealthyRemoteControl chrome;
+        final HealthyRemoteControl firefox;
+
+        chrome = remoteControlEndingSessionsQuietly("rc1", "*chrome");
+        firefox = remoteControlEndingSessionsQuietly("rc2", "*firefox");
+        pool.register(chrome);
+        pool.register(firefox);
+        pool.associateWithSession(pool.reserve(new Environment("*chrome", "*chrome")), "a session id");
+        pool.releaseForSession("a session id");
+        pool.associateWithSession(pool.reserve(new Environment("*firefox", "*firefox")), "a session id");
+
+        assertSame(firefox, pool.retrieve("a session id"));
+        assertEquals(1, pool.routedSessions());
+    }
+
+    @Test
+    public void retrieveRaisesNoSuchSessionExceptionForAnUnknownSession() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+
+        pool.register(new HealthyRemoteControl("rc1", 5555, "*chrome", null));
+        try {
+            pool.retrieve("a session id");
+            fail("did not catch NoSuchSessionException as expected");
+        } catch (NoSuchSessionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void newSessionQueueStatusesAreSortedByEnvironment() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+        final List<NewSessionQueueStatus> statuses;
+
+        pool.register(new HealthyRemoteControl("rc1", 5555, "*safari", null));
+        pool.register(new HealthyRemoteControl("rc2", 5555, "*chrome", null));
+        pool.register(new HealthyRemoteControl("rc3", 5555, "*firefox", null));
+
+        statuses = pool.newSessionQueueStatuses();
+        assertEquals(3, statuses.size());
+        assertEquals("*chrome", statuses.get(0).environment());
+        assertEquals("*firefox", statuses.get(1).environment());
+        assertEquals("*safari", statuses.get(2).environment());
+    }
+
+    @Test
+    public void unresponsiveRemoteControlsOfAllEnvironmentsAreUnregistered() {
+        final ShardedRemoteControlPool pool = new ShardedRemoteControlPool();
+
+        pool.register(new UnreliableRemoteControl("rc1", 5555, "*chrome", null));
+        pool.register(new UnreliableRemoteControl("rc2", 5555, "*firefox", null));
+        pool.register(new HealthyRemoteControl("rc3", 5555, "*firefox", null));
+
+        pool.unregisterAllUnresponsiveRemoteControls();
+        assertEquals(1, pool.allRegisteredRemoteControls().size());
+        assertEquals("rc3", pool.allRegisteredRemoteControls().get(0).host());
+    }
+
+    @Test
+    public void listenersAreNotifiedOfChangesInAnyEnvironment() throws IOException {
+        final File file = File.createTempFile("sessions", ".journal");
+        final ShardedRemoteControlPool pool;
+        final SessionJournal journal;
+
+        file.delete();
+        journal = SessionJournal.open(file, 1024);
+        pool = new ShardedRemoteControlPool(new RemoteControlHealthSweep(), journal);
+        try {
+            pool.register(remoteControlEndingSessionsQuietly("rc1", "*chrome"));
+            pool.register(remoteControlEndingSessionsQuietly("rc2", "*firefox"));
+            pool.associateWithSession(pool.reserve(new Environment("*firefox", "*firefox")), "a session id");
+            assertEquals(2, journal.registrations().size());
+            assertEquals("rc2:5555", journal.sessions().get("a session id"));
+
+            pool.releaseForSession("a session id");
+            assertTrue(journal.sessions().isEmpty());
+        } finally {
+            journal.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void recoverFromJournalRebuildsTheShards() throws IOException {
+        final File file = File.createTempFile("sessions", ".journal");
+        final RemoteControlProxy remoteControl;
+        final ShardedRemoteControlPool pool;
+        SessionJournal journal;
+
+        file.delete();
+        remoteControl = new RemoteControlProxy("host", 5555, "*chrome", null);
+        journal = SessionJournal.open(file, 1024);
+        journal.registered(remoteControl);
+        journal.registered(new RemoteControlProxy("host", 6666, "*firefox", null));
+        journal.associated("a session id", remoteControl);
+        journal.close();
+
+        journal = SessionJournal.open(file, 1024);
+        pool = new ShardedRemoteControlPool(new RemoteControlHealthSweep(), journal);
+        try {
+            assertEquals(1, pool.recoverFromJournal(null));
+            assertEquals(2, pool.shards());
+            assertEquals(remoteControl, pool.retrieve("a session id"));
+            assertEquals(1, pool.getProvisioner("*chrome").statistics().busySlots());
+        } finally {
+            journal.close();
+            file.delete();
+        }
+    }
+
+    protected static HealthyRemoteControl remoteControlEndingSessionsQuietly(String host, String environment) {
+        return new HealthyRemoteControl(host, 5555, environment, null) {
+            public void terminateSession(String sessionId) {
+            }
+        };
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.thoughtworks.selenium.grid.hub.remotecontrol;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+public class StaleRemoteControlReaperTest {
+
+    @Test
+    public void intervalIsHalfTheHeartbeatTimeout() {
+        assertEquals(15000, new StaleRemoteControlReaper(new GlobalRemoteControlPool(), new HeartbeatMonitor(30)).intervalInMilliseconds());
+    }
+
+    @Test
+    public void unregisterStaleRemoteControlsOnlyUnregistersRemoteControlsWhoseHeartbeatExpired() {
+        final GlobalRemoteControlPool pool = new GlobalRemoteControlPool();
+        final HeartbeatMonitor monitor = new HeartbeatMonitor(30);
+        final HealthyRemoteControl staleRC;
+        final HealthyRemoteControl liveRC;
+        final HealthyRemoteControl polledRC;
+
+        staleRC = new HealthyRemoteControl("host", 5555, "*chrome", null);
+        liveRC = new HealthyRemoteControl("host", 6666, "*chrome", null);
+        polledRC = new HealthyRemoteControl("host", 7777, "*chrome", null);
+        pool.register(staleRC);
+        pool.register(liveRC);
+        pool.register(polledRC);
+        monitor.heartbeat(new RemoteControlStatus("host", 5555, 0.5, System.nanoTime() - TimeUnit.SECONDS.toNanos(31)));
+        monitor.heartbeat(new RemoteControlStatus("host", 6666, 0.5, System.nanoTime()));
+
+        assertEquals(Collections.<IRemoteControlProxy>singletonList(staleRC),
+                new StaleRemoteControlReaper(pool, monitor).unregisterStaleRemoteControls());
+        assertFalse(pool.isRegistered(staleRC));
+        assertTrue(pool.isRegistered(liveRC));
+        assertTrue(pool.isRegistered(polledRC));
+    }
+
+    @Test
+    public void stopMakesTheReaperInactive() {
+        final StaleRemoteControlReaper reaper;
+
+        reaper = new StaleRemoteControlReaper(new GlobalRemoteControlPool(), new HeartbeatMonitor(30));
+        assertTrue(reaper.active());
+        reaper.stop();
+        assertFalse(reaper.active());
+    }
+
+}
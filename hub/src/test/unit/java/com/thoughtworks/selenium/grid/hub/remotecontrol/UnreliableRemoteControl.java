@@ -12,5 +12,14 @@ public class UnreliableRemoteControl extends RemoteControlProxy {
     public boolean unreliable() {
         return true;
     }
-}
 
+    @Override
+    public boolean unreliable(int timeoutInMilliseconds) {
+        return true;
+    }
+
+    @Override
+    public boolean failsPreFlightCheck(int timeoutInMilliseconds) {
+        return true;
+    }
+}
@@ -5,7 +5,7 @@ import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.Environment;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
-import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
@@ -59,7 +59,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
 
         expectedResponse = new Response(0, "OK,1234");
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.expects("forward").with(command.request()).will(returnValue(expectedResponse));
@@ -80,7 +80,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = getMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         pool.expects("reserve").with(environment).will(returnValue(remoteControl));
@@ -102,7 +102,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = getMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         pool.stubs("reserve").will(returnValue(remoteControl));
@@ -127,7 +127,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = getMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.expects("forward").with(command.request()).will(throwException(new IOException("an error message")));
@@ -156,7 +156,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = getMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.stubs("forward").will(throwException(new IOException("an error message")));
@@ -194,7 +194,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = getMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.stubs("forward").will(returnValue(new Response(0, "OK,1234")));
@@ -4,7 +4,7 @@ import com.thoughtworks.selenium.grid.HttpParameters;
 import com.thoughtworks.selenium.grid.MockHelper;
 import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
-import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
@@ -40,7 +40,7 @@ public class SeleneseCommandTest extends UsingClassMock {
 
         command = new SeleneseCommand("a session id", theRequest);
         expectedResponse = new Response(0, "");
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         pool = mock(RemoteControlPool.class);
         pool.expects("retrieve").with("a session id").will(returnValue(remoteControl));
         remoteControl.expects("forward").with(command.request()).will(returnValue(expectedResponse));
@@ -72,7 +72,7 @@ public class SeleneseCommandTest extends UsingClassMock {
 
         command = new SeleneseCommand("a session id", theRequest);
         expectedResponse = new Response(0, "");
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         pool = mock(RemoteControlPool.class);
         pool.stubs("retrieve").with("a session id").will(returnValue(remoteControl));
         remoteControl.stubs("forward").with(command.request()).will(returnValue(expectedResponse));
@@ -3,7 +3,7 @@ package com.thoughtworks.selenium.grid.hub.remotecontrol.commands.selenium;
 import com.thoughtworks.selenium.grid.MockHelper;
 import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
-import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
@@ -27,7 +27,7 @@ public class TestCompleteCommandTest extends UsingClassMock {
         command = new TestCompleteCommand("a session id", theRequest);
         expectedResponse = new Response(0, "");
         pool = mock(RemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         pool.expects("retrieve").with("a session id").will(returnValue(remoteControl));
         remoteControl.expects("forward").with(command.request()).will(returnValue(expectedResponse));
         pool.expects("releaseForSession").with("a session id");
@@ -46,7 +46,7 @@ public class TestCompleteCommandTest extends UsingClassMock {
 
         command = new TestCompleteCommand("a session id", theRequest);
         pool = mock(RemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         pool.expects("retrieve").with("a session id").will(returnValue(remoteControl));
         remoteControl.expects("forward").with(command.request()).will(throwException(new IOException()));
         pool.expects("releaseForSession").with("a session id");
@@ -6,7 +6,7 @@ import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.hub.Environment;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.DynamicRemoteControlPool;
 import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlPool;
-import com.thoughtworks.selenium.grid.hub.remotecontrol.RemoteControlProxy;
+import com.thoughtworks.selenium.grid.hub.remotecontrol.IRemoteControlProxy;
 import org.apache.commons.httpclient.Header;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
@@ -30,17 +30,17 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
 
     @Test
     public void sessionIdIsAlwaysNull() {
-        assertEquals(null, new NewBrowserSessionCommand(null, null).sessionId());
+        assertEquals(null, new NewBrowserSessionCommand((Environment) null, null).sessionId());
     }
 
     @Test
     public void parseSessionIdReturnsTheSessionIdWhenResponseIsSuccessful() {
-        assertEquals("22207", new NewBrowserSessionCommand(null, null).parseSessionId("{ sessionId: 22207 }"));
+        assertEquals("22207", new NewBrowserSessionCommand((Environment) null, null).parseSessionId("{ sessionId: 22207 }"));
     }
 
     @Test
     public void parseSessionIdReturnsNullWhenResponseIsNotSuccessful() {
-        assertEquals(null, new NewBrowserSessionCommand(null, null).parseSessionId(""));
+        assertEquals(null, new NewBrowserSessionCommand((Environment) null, null).parseSessionId(""));
     }
 
     @Test
@@ -57,7 +57,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
 
         expectedResponse = new Response(0, "{ sessionId: 1234 }", headers);
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.expects("forward").with(command.request()).will(returnValue(expectedResponse));
@@ -78,7 +78,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = MockHelper.GetMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         pool.expects("reserve").with(environment).will(returnValue(remoteControl));
@@ -100,7 +100,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = MockHelper.GetMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         pool.stubs("reserve").will(returnValue(remoteControl));
@@ -125,7 +125,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = MockHelper.GetMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.expects("forward").with(command.request()).will(throwException(new IOException("an error message")));
@@ -149,7 +149,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         HttpServletRequest theRequest = MockHelper.GetMockHttpServletRequest();
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.stubs("forward").will(throwException(new IOException("an error message")));
@@ -189,7 +189,7 @@ public class NewBrowserSessionCommandTest extends UsingClassMock {
         final Header[] headers = new Header[]{new Header("Location", "/wd/hub/session/1234")};
 
         pool = mock(DynamicRemoteControlPool.class);
-        remoteControl = mock(RemoteControlProxy.class);
+        remoteControl = mock(IRemoteControlProxy.class);
         environment = new Environment("an environment", "*browser");
         command = new NewBrowserSessionCommand(environment, theRequest);
         remoteControl.stubs("forward").will(returnValue(new Response(0, "{ sessionId: 1234 }", headers)));
@@ -0,0 +1,70 @@
+package com.thoughtworks.selenium.grid;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed-size byte buffers, so that piping request and response bodies
+ * does not allocate a new buffer for every request.
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 256;
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+    private final Queue<byte[]> buffers;
+    private final AtomicInteger pooledBuffers;
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+
+    public BufferPool(int bufferSize, int maxPooledBuffers) {
+        this.buffers = new ConcurrentLinkedQueue<byte[]>();
+        this.pooledBuffers = new AtomicInteger(0);
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public int pooledBuffers() {
+        return pooledBuffers.get();
+    }
+
+    /**
+     * @return A pooled buffer if there is one, a new one otherwise. Never null.
+     */
+    public byte[] acquire() {
+        final byte[] buffer;
+
+        buffer = buffers.poll();
+        if (null == buffer) {
+            return new byte[bufferSize];
+        }
+        pooledBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Give a buffer back to the pool. Buffers beyond the pool capacity are left to the garbage collector.
+     *
+     * @param buffer Buffer obtained from acquire(). Should not be used by the caller anymore.
+     */
+    public void release(byte[] buffer) {
+        if (bufferSize != buffer.length) {
+            return;
+        }
+        if (pooledBuffers.incrementAndGet() > maxPooledBuffers) {
+            pooledBuffers.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+}
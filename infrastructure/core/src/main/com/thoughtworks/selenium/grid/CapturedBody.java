@@ -0,0 +1,165 @@
+package com.thoughtworks.selenium.grid;
+
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Body of an incoming request, read exactly once and kept as raw bytes so that it can be
+ * parsed by the hub and forwarded to a remote control byte for byte.
+ * <p/>
+ * Bodies larger than a maximum length are rejected, whether the client announces their length
+ * or not. An announced Content-Length is not trusted to size the body up front: the array
+ * grows as bytes actually arrive, up to that length. Chunked bodies are read through a
+ * pooled buffer.
+ */
+public class CapturedBody {
+
+    /**
+     * Charset used to decode bodies that do not declare one. JSON is UTF-8 by definition.
+     */
+    public static final String DEFAULT_CHARSET = "UTF-8";
+    public static final int DEFAULT_MAX_LENGTH = 16 * 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+    private final byte[] bytes;
+    private final String charset;
+    private String text;
+
+    public CapturedBody(byte[] bytes, String charset) {
+        this.bytes = bytes;
+        this.charset = (null == charset) ? DEFAULT_CHARSET : charset;
+    }
+
+    /**
+     * Same as capture(in, contentLength, charset, DEFAULT_MAX_LENGTH).
+     */
+    public static CapturedBody capture(InputStream in, int contentLength, String charset) throws IOException {
+        return capture(in, contentLength, charset, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Read the remaining content of a stream.
+     *
+     * @param in            Stream to read from. Can be null, in which case the body is empty.
+     * @param contentLength Number of bytes announced by the client. -1 if unknown.
+     * @param charset       Character encoding declared by the client. Null if none was.
+     * @param maxLength     Largest body accepted, in bytes.
+     * @throws RequestBodyTooLargeException if the body is, or is announced to be, larger than maxLength.
+     * @throws IOException on IO error, or if the stream ends before contentLength bytes were read.
+     */
+    public static CapturedBody capture(InputStream in, int contentLength, String charset, int maxLength)
+            throws IOException {
+        if (null == in || 0 == contentLength) {
+            return new CapturedBody(EMPTY, charset);
+        }
+        if (contentLength > maxLength) {
+            throw new RequestBodyTooLargeException(contentLength, maxLength);
+        }
+        if (contentLength > 0) {
+            return new CapturedBody(readFully(in, contentLength), charset);
+        }
+        return new CapturedBody(readUntilEndOfStream(in, maxLength), charset);
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    public String charset() {
+        return charset;
+    }
+
+    /**
+     * @return Body decoded with its charset. Decoded once, then cached.
+     */
+    public synchronized String text() {
+        if (null == text) {
+            try {
+                text = new String(bytes, charset);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalArgumentException("Unsupported charset '" + charset + "'");
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @return A new stream over the body. Reading from it does not copy the body.
+     */
+    public ServletInputStream inputStream() {
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+
+        return new ServletInputStream() {
+
+            public int read() {
+                return in.read();
+            }
+
+            public int read(byte[] buffer, int offset, int length) {
+                return in.read(buffer, offset, length);
+            }
+
+            public int available() {
+                return in.available();
+            }
+
+        };
+    }
+
+    protected static byte[] readFully(InputStream in, int contentLength) throws IOException {
+        byte[] body;
+        int offset = 0;
+        int bytesRead;
+
+        body = new byte[Math.min(contentLength, BufferPool.DEFAULT_BUFFER_SIZE)];
+        while (offset < contentLength) {
+            if (offset == body.length) {
+                body = copyOf(body, offset, (int) Math.min(contentLength, 2L * body.length));
+            }
+            bytesRead = in.read(body, offset, body.length - offset);
+            if (bytesRead < 0) {
+                throw new IOException("Request body ended after " + offset + " bytes, expected " + contentLength);
+            }
+            offset += bytesRead;
+        }
+        return body;
+    }
+
+    protected static byte[] readUntilEndOfStream(InputStream in, int maxLength) throws IOException {
+        final byte[] buffer;
+        byte[] body = EMPTY;
+        int length = 0;
+        int bytesRead;
+
+        buffer = BufferPool.shared().acquire();
+        try {
+            while ((bytesRead = in.read(buffer)) >= 0) {
+                if (length + bytesRead > maxLength) {
+                    throw new RequestBodyTooLargeException(length + bytesRead, maxLength);
+                }
+                if (length + bytesRead > body.length) {
+                    body = copyOf(body, length, Math.min(maxLength, Math.max(length + bytesRead, 2 * body.length)));
+                }
+                System.arraycopy(buffer, 0, body, length, bytesRead);
+                length += bytesRead;
+            }
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        return (length == body.length) ? body : copyOf(body, length, length);
+    }
+
+    protected static byte[] copyOf(byte[] bytes, int length, int newLength) {
+        final byte[] copy = new byte[newLength];
+
+        System.arraycopy(bytes, 0, copy, 0, length);
+        return copy;
+    }
+
+}
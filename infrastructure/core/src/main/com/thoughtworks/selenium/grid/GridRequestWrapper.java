@@ -3,58 +3,57 @@ package com.thoughtworks.selenium.grid;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 
+/**
+ * Request whose body has been captured up front, so that it can be read several times:
+ * once by the hub to parse the command, once more to forward it to a remote control.
+ */
 public class GridRequestWrapper extends HttpServletRequestWrapper {
-    private final String body;
+
+    private final CapturedBody body;
 
     public GridRequestWrapper(HttpServletRequest request) throws IOException {
+        this(request, CapturedBody.DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param maxBodyLength Largest body accepted, in bytes.
+     * @throws RequestBodyTooLargeException if the body is larger than maxBodyLength.
+     */
+    public GridRequestWrapper(HttpServletRequest request, int maxBodyLength) throws IOException {
         super(request);
-        StringBuilder stringBuilder = new StringBuilder();
-        BufferedReader bufferedReader = null;
+        final ServletInputStream in = request.getInputStream();
+
         try {
-            InputStream inputStream = request.getInputStream();
-            if (inputStream != null) {
-                bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-                char[] charBuffer = new char[128];
-                int bytesRead = -1;
-                while ((bytesRead = bufferedReader.read(charBuffer)) > 0) {
-                    stringBuilder.append(charBuffer, 0, bytesRead);
-                }
-            } else {
-                stringBuilder.append("");
-            }
-        } catch (IOException ex) {
-            throw ex;
+            body = CapturedBody.capture(in, request.getContentLength(), request.getCharacterEncoding(), maxBodyLength);
         } finally {
-            if (bufferedReader != null) {
-                try {
-                    bufferedReader.close();
-                } catch (IOException ex) {
-                    throw ex;
-                }
-            }
+            IOHelper.close(in);
         }
-        body = stringBuilder.toString();
     }
 
-    @Override
     public ServletInputStream getInputStream() throws IOException {
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body.getBytes());
-        ServletInputStream servletInputStream = new ServletInputStream() {
-            public int read() throws IOException {
-                return byteArrayInputStream.read();
-            }
-        };
-        return servletInputStream;
+        return body.inputStream();
     }
 
-    @Override
     public BufferedReader getReader() throws IOException {
-        return new BufferedReader(new InputStreamReader(this.getInputStream()));
+        return new BufferedReader(new InputStreamReader(body.inputStream(), body.charset()));
+    }
+
+    public int getContentLength() {
+        return body.length();
+    }
+
+    public CapturedBody capturedBody() {
+        return body;
     }
 
+    /**
+     * @return Body decoded with the charset declared by the client (UTF-8 if none was).
+     */
     public String getBody() {
-        return this.body;
+        return body.text();
     }
-}
\ No newline at end of file
+}
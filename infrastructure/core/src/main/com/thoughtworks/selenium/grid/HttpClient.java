@@ -8,7 +8,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.Enumeration;
 
@@ -35,6 +34,17 @@ public class HttpClient {
         return request(new GetMethod(url));
     }
 
+    /**
+     * Same as get(url), but gives up if the server does not reply within the given time.
+     */
+    public Response get(String url, int timeoutInMilliseconds) throws IOException {
+        final GetMethod method;
+
+        method = new GetMethod(url);
+        method.getParams().setSoTimeout(timeoutInMilliseconds);
+        return request(method);
+    }
+
     public Response post(String url, HttpParameters parameters) throws IOException {
         return request(buildPostMethod(url, parameters));
     }
@@ -50,6 +60,14 @@ public class HttpClient {
         return postMethod;
     }
 
+    /**
+     * Same as post(url, parameters), but the body of the response is piped instead of buffered.
+     * Callers must eventually write, read or release the response.
+     */
+    public Response streamPost(String url, HttpParameters parameters) throws IOException {
+        return stream(buildPostMethod(url, parameters));
+    }
+
     protected Response request(HttpMethod method) throws IOException {
         int statusCode;
         String body;
@@ -75,6 +93,31 @@ public class HttpClient {
         }
     }
 
+    /**
+     * Execute the request, but leave the response body on the wire so that it can be piped
+     * to the client without being held in memory.
+     */
+    protected Response stream(HttpMethod method) throws IOException {
+        final int statusCode;
+        boolean streaming = false;
+
+        try {
+            statusCode = client.executeMethod(method);
+            if (statusCode == HttpStatus.SC_MOVED_PERMANENTLY || statusCode == HttpStatus.SC_MOVED_TEMPORARILY) {
+                method.releaseConnection();
+
+                method = redirectMethod((PostMethod) method);
+                client.executeMethod(method);
+            }
+            streaming = true;
+            return new StreamedResponse(method);
+        } finally {
+            if (!streaming) {
+                method.releaseConnection();
+            }
+        }
+    }
+
     private HttpMethod redirectMethod(PostMethod postMethod) {
         GetMethod method = new GetMethod(postMethod.getResponseHeader("Location").getValue());
         for (Header header : postMethod.getRequestHeaders()) {
@@ -84,23 +127,34 @@ public class HttpClient {
     }
 
     public Response postWebDriverRequest(String url, HttpServletRequest request) throws IOException {
-        return request(convertHttpServletRequestToPostMethod(url, request));
+        return stream(convertHttpServletRequestToPostMethod(url, request));
     }
 
 
     public Response deleteWebDriverRequest(String url, HttpServletRequest request) throws IOException {
-        return request(convertHttpServletRequestToDeleteMethod(url, request));
+        return stream(convertHttpServletRequestToDeleteMethod(url, request));
     }
 
     public Response putWebDriverRequest(String url, HttpServletRequest request) throws IOException {
-        return request(convertHttpServletRequestToPutMethod(url, request));
+        return stream(convertHttpServletRequestToPutMethod(url, request));
     }
 
     public Response getWebDriverRequest(String url, HttpServletRequest request) throws IOException {
-        return request(convertHttpServletRequestToGetMethod(url, request));
+        return stream(convertHttpServletRequestToGetMethod(url, request));
     }
 
-    private PostMethod convertHttpServletRequestToPostMethod(String url, HttpServletRequest request) {
+    /**
+     * Pipe the body of the incoming request to the remote control, byte for byte. Bodies
+     * already captured by the hub are sent as is, without reading them again.
+     */
+    protected RequestEntity requestEntity(HttpServletRequest request) throws IOException {
+        if (request instanceof GridRequestWrapper) {
+            return new ByteArrayRequestEntity(((GridRequestWrapper) request).capturedBody().bytes(), request.getContentType());
+        }
+        return new InputStreamRequestEntity(request.getInputStream(), request.getContentLength(), request.getContentType());
+    }
+
+    private PostMethod convertHttpServletRequestToPostMethod(String url, HttpServletRequest request) throws IOException {
         PostMethod postMethod = new PostMethod(url);
 
         for (Enumeration headers = request.getHeaderNames(); headers.hasMoreElements();) {
@@ -118,19 +172,7 @@ public class HttpClient {
             postMethod.addParameter(paramName, paramValue);
         }
 
-        StringBuilder requestBody = new StringBuilder();
-        try {
-            BufferedReader reader = request.getReader();
-            String line;
-            while (null != (line = reader.readLine())) {
-                requestBody.append(line);
-            }
-            reader.close();
-        } catch (IOException e) {
-            requestBody.append("");
-        }
-
-        postMethod.setRequestEntity(new StringRequestEntity(requestBody.toString()));
+        postMethod.setRequestEntity(requestEntity(request));
 
         return postMethod;
     }
@@ -167,7 +209,7 @@ public class HttpClient {
     }
 
 
-    private PutMethod convertHttpServletRequestToPutMethod(String url, HttpServletRequest request) {
+    private PutMethod convertHttpServletRequestToPutMethod(String url, HttpServletRequest request) throws IOException {
         PutMethod method = new PutMethod(url);
 
         for (Enumeration headers = request.getHeaderNames(); headers.hasMoreElements();) {
@@ -179,19 +221,7 @@ public class HttpClient {
         method.removeRequestHeader("Host");
         method.addRequestHeader("Host", request.getRequestURL().toString());
 
-        StringBuilder requestBody = new StringBuilder();
-        try {
-            BufferedReader reader = request.getReader();
-            String line;
-            while (null != (line = reader.readLine())) {
-                requestBody.append(line);
-            }
-            reader.close();
-        } catch (IOException e) {
-            requestBody.append("");
-        }
-
-        method.setRequestEntity(new StringRequestEntity(requestBody.toString()));
+        method.setRequestEntity(requestEntity(request));
 
         return method;
     }
@@ -0,0 +1,95 @@
+package com.thoughtworks.selenium.grid;
+
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+
+/**
+ * Keep-alive connections shared by all hub to remote control traffic.
+ * <p/>
+ * Connections are bounded per host and in total, and connections left idle for too
+ * long are closed in the background so that sockets to remote controls that went
+ * away do not pile up.
+ */
+public class HttpConnectionPool {
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+    private final IdleConnectionTimeoutThread idleConnectionEvictor;
+    private final HttpClient httpClient;
+
+    public HttpConnectionPool(HubConfiguration configuration) {
+        this(configuration.getRemoteControlMaxConnections(),
+             configuration.getRemoteControlMaxConnectionsPerHost(),
+             toMilliseconds(configuration.getRemoteControlConnectTimeoutInSeconds()),
+             toMilliseconds(configuration.getRemoteControlReadTimeoutInSeconds()),
+             toMilliseconds(configuration.getRemoteControlIdleConnectionTimeoutInSeconds()));
+    }
+
+    /**
+     * @param maxConnections               Maximum number of connections, all hosts included.
+     * @param maxConnectionsPerHost        Maximum number of connections to a single remote control.
+     * @param connectTimeoutInMilliseconds Time to wait to establish a connection. 0 means no timeout.
+     * @param readTimeoutInMilliseconds    Time to wait for data on an established connection. 0 means no timeout.
+     * @param idleTimeoutInMilliseconds    Time after which an unused connection is closed. 0 keeps idle connections open.
+     */
+    public HttpConnectionPool(int maxConnections, int maxConnectionsPerHost, int connectTimeoutInMilliseconds,
+                              int readTimeoutInMilliseconds, int idleTimeoutInMilliseconds) {
+        final HttpConnectionManagerParams params;
+
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        params = connectionManager.getParams();
+        params.setMaxTotalConnections(maxConnections);
+        params.setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+        params.setConnectionTimeout(connectTimeoutInMilliseconds);
+        params.setSoTimeout(readTimeoutInMilliseconds);
+        params.setStaleCheckingEnabled(true);
+
+        if (idleTimeoutInMilliseconds > 0) {
+            idleConnectionEvictor = new IdleConnectionTimeoutThread();
+            idleConnectionEvictor.setName("Idle RC Connection Evictor");
+            idleConnectionEvictor.setConnectionTimeout(idleTimeoutInMilliseconds);
+            idleConnectionEvictor.setTimeoutInterval(Math.max(1000, idleTimeoutInMilliseconds / 2));
+            idleConnectionEvictor.addConnectionManager(connectionManager);
+            idleConnectionEvictor.start();
+        } else {
+            idleConnectionEvictor = null;
+        }
+
+        httpClient = new HttpClient(new org.apache.commons.httpclient.HttpClient(connectionManager));
+    }
+
+    /**
+     * @return Client sharing the connections of this pool. Safe to use from several threads.
+     */
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    public int maxConnections() {
+        return connectionManager.getParams().getMaxTotalConnections();
+    }
+
+    public int maxConnectionsPerHost() {
+        return connectionManager.getParams().getDefaultMaxConnectionsPerHost();
+    }
+
+    /**
+     * @return Connections currently open, whether in use or idle.
+     */
+    public int connectionsInPool() {
+        return connectionManager.getConnectionsInPool();
+    }
+
+    public void shutdown() {
+        if (null != idleConnectionEvictor) {
+            idleConnectionEvictor.shutdown();
+        }
+        connectionManager.shutdown();
+    }
+
+    protected static int toMilliseconds(double seconds) {
+        return (int) (seconds * 1000);
+    }
+
+}
@@ -40,6 +40,32 @@ public class IOHelper {
         out.flush();
     }
 
+    /**
+     * Copy remaining stream content to another stream, byte for byte, using a pooled buffer.
+     *
+     * @param in  Input stream to copy (remaining) content from. Cannot be null.
+     * @param out Output stream to copy content to. Cannot be null.
+     * @return Number of bytes copied.
+     * @throws java.io.IOException on IO error.
+     */
+    public static long copyStream(InputStream in, OutputStream out) throws IOException {
+        final byte[] buffer;
+        long bytesCopied = 0;
+        int bytesRead;
+
+        buffer = BufferPool.shared().acquire();
+        try {
+            while ((bytesRead = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, bytesRead);
+                bytesCopied += bytesRead;
+            }
+        } finally {
+            BufferPool.shared().release(buffer);
+        }
+        out.flush();
+        return bytesCopied;
+    }
+
     /**
      * Copy remaining stream content to another stream.
      *
@@ -0,0 +1,31 @@
+package com.thoughtworks.selenium.grid;
+
+import java.io.IOException;
+
+/**
+ * Signals a request body larger than the hub accepts.
+ */
+public class RequestBodyTooLargeException extends IOException {
+
+    private final long length;
+    private final int maxLength;
+
+    /**
+     * @param length    Length of the body as announced by the client, or as read so far.
+     * @param maxLength Largest body accepted, in bytes.
+     */
+    public RequestBodyTooLargeException(long length, int maxLength) {
+        super("Request body of " + length + " bytes or more is larger than the " + maxLength + " bytes accepted");
+        this.length = length;
+        this.maxLength = maxLength;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+}
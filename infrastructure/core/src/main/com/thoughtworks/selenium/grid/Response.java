@@ -4,6 +4,7 @@ import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpMethod;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 
 public class Response {
@@ -34,6 +35,10 @@ public class Response {
         this.headers = method.getResponseHeaders();
     }
 
+    protected Response(int statusCode, Header[] headers) {
+        this(statusCode, null, headers);
+    }
+
     public Response(int statusCode, String body, Header[] headers) {
         this.statusCode = statusCode;
         this.body = body;
@@ -61,4 +66,25 @@ public class Response {
         return body;
     }
 
+    /**
+     * Whether the body is piped straight from the remote control instead of being held in memory.
+     */
+    public boolean streamed() {
+        return false;
+    }
+
+    /**
+     * Write the body as is to an output stream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(body().getBytes("UTF-8"));
+        out.flush();
+    }
+
+    /**
+     * Release any resource held to read the body. No-op for a body held in memory.
+     */
+    public void release() {
+    }
+
 }
@@ -0,0 +1,92 @@
+package com.thoughtworks.selenium.grid;
+
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Response whose body is still on the wire: it is piped to the client without
+ * ever being held in memory, unless the body is explicitly asked for.
+ * <p/>
+ * The underlying connection is held until the body is written, read or the
+ * response is released.
+ */
+public class StreamedResponse extends Response {
+
+    private final HttpMethod method;
+    private String bufferedBody;
+    private boolean consumed;
+
+    public StreamedResponse(HttpMethod method) {
+        super(method.getStatusCode(), method.getResponseHeaders());
+        this.method = method;
+    }
+
+    /**
+     * Read the whole body in memory. Only use it for small payloads.
+     *
+     * @throws IllegalStateException if the body has already been written out.
+     */
+    public synchronized String body() {
+        if (null != bufferedBody) {
+            return bufferedBody;
+        }
+        if (consumed) {
+            throw new IllegalStateException("Response body has already been streamed");
+        }
+        consumed = true;
+        try {
+            final byte[] bytes = HttpStatus.SC_NO_CONTENT == statusCode() ? null : method.getResponseBody();
+            bufferedBody = null == bytes ? "" : new String(bytes, "utf-8");
+        } catch (IOException e) {
+            bufferedBody = "";
+        } finally {
+            method.releaseConnection();
+        }
+        return bufferedBody;
+    }
+
+    public synchronized boolean streamed() {
+        return null == bufferedBody;
+    }
+
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        final InputStream in;
+
+        if (null != bufferedBody) {
+            super.writeTo(out);
+            return;
+        }
+        if (consumed) {
+            throw new IllegalStateException("Response body has already been streamed");
+        }
+        consumed = true;
+        try {
+            in = method.getResponseBodyAsStream();
+            if (null != in) {
+                IOHelper.copyStream(in, out);
+            }
+        } catch (IOException e) {
+            method.abort();
+            throw e;
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * Give the connection back. If the body was never consumed the connection is closed rather
+     * than drained, so that abandoning a large body is cheap.
+     */
+    public synchronized void release() {
+        if (!consumed) {
+            consumed = true;
+            method.abort();
+        }
+        method.releaseConnection();
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.thoughtworks.selenium.grid.configuration;
+
+/**
+ * Tuning of the embedded HTTP server (Jetty) accepting client requests (JavaBean).
+ */
+public class HttpServerConfiguration {
+
+    public static final String SELECT_CHANNEL_CONNECTOR = "select-channel";
+    public static final String SOCKET_CONNECTOR = "socket";
+
+    private String connector;
+    private int acceptors;
+    private int acceptQueueSize;
+    private double maxIdleTimeInSeconds;
+    private double lowResourcesMaxIdleTimeInSeconds;
+    private int minThreads;
+    private int maxThreads;
+
+    public HttpServerConfiguration() {
+        this.connector = SELECT_CHANNEL_CONNECTOR;
+        this.acceptors = 2;
+        this.acceptQueueSize = 1024;
+        this.maxIdleTimeInSeconds = 200;
+        this.lowResourcesMaxIdleTimeInSeconds = 5;
+        this.minThreads = 10;
+        this.maxThreads = 250;
+    }
+
+    /**
+     * Either "select-channel" (non-blocking, the default) or "socket" (one thread per connection).
+     * The hub needs a non-blocking connector for suspended requests not to hold any thread.
+     */
+    public String getConnector() {
+        return connector;
+    }
+
+    public void setConnector(String connector) {
+        this.connector = connector;
+    }
+
+    /**
+     * Number of threads accepting new connections.
+     */
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    /**
+     * Backlog of connections waiting to be accepted. 0 uses the operating system default.
+     */
+    public int getAcceptQueueSize() {
+        return acceptQueueSize;
+    }
+
+    public void setAcceptQueueSize(int acceptQueueSize) {
+        this.acceptQueueSize = acceptQueueSize;
+    }
+
+    /**
+     * Time after which an idle client connection is closed.
+     */
+    public double getMaxIdleTimeInSeconds() {
+        return maxIdleTimeInSeconds;
+    }
+
+    public void setMaxIdleTimeInSeconds(double maxIdleTimeInSeconds) {
+        this.maxIdleTimeInSeconds = maxIdleTimeInSeconds;
+    }
+
+    /**
+     * Time after which an idle client connection is closed when the thread pool is running low.
+     */
+    public double getLowResourcesMaxIdleTimeInSeconds() {
+        return lowResourcesMaxIdleTimeInSeconds;
+    }
+
+    public void setLowResourcesMaxIdleTimeInSeconds(double maxIdleTimeInSeconds) {
+        this.lowResourcesMaxIdleTimeInSeconds = maxIdleTimeInSeconds;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    public void setMinThreads(int minThreads) {
+        this.minThreads = minThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public String toString() {
+        return "[HttpServerConfiguration connector='" + connector + "', acceptors=" + acceptors
+                + ", acceptQueueSize=" + acceptQueueSize + ", maxIdleTimeInSeconds=" + maxIdleTimeInSeconds
+                + ", lowResourcesMaxIdleTimeInSeconds=" + lowResourcesMaxIdleTimeInSeconds
+                + ", minThreads=" + minThreads + ", maxThreads=" + maxThreads + "]";
+    }
+
+}
@@ -7,16 +7,60 @@ public class HubConfiguration {
 
     private int port;
     private double remoteControlPollingIntervalInSeconds;
+    private int remoteControlPollingMaxConcurrentProbes;
+    private double remoteControlPollingTimeoutInSeconds;
+    private double remoteControlHeartbeatTimeoutInSeconds;
     private double sessionMaxIdleTimeInSeconds;
     private double newSessionMaxWaitTimeInSeconds;
+    private double remoteControlPreFlightCheckTimeoutInSeconds;
+    private int remoteControlMaxConnections;
+    private int remoteControlMaxConnectionsPerHost;
+    private double remoteControlConnectTimeoutInSeconds;
+    private double remoteControlReadTimeoutInSeconds;
+    private double remoteControlIdleConnectionTimeoutInSeconds;
+    private int commandExecutorThreads;
+    private int newSessionExecutorThreads;
+    private int commandExecutorQueueDepth;
+    private int maxRequestBodySizeInKilobytes;
+    private double slowCommandThresholdInSeconds;
+    private double slowCommandLogIntervalInSeconds;
+    private String sessionJournalFile;
+    private int sessionJournalSizeInKilobytes;
+    private String clusterStore;
+    private String clusterHubAddress;
+    private double clusterHubLeaseTimeoutInSeconds;
+    private String remoteControlPool;
+    private HttpServerConfiguration httpServer;
     private EnvironmentConfiguration[] environments;
 
     public HubConfiguration() {
         this.port = 4444;
         this.environments = new EnvironmentConfiguration[] {};
         this.remoteControlPollingIntervalInSeconds = 3 * 60;
+        this.remoteControlPollingMaxConcurrentProbes = 16;
+        this.remoteControlPollingTimeoutInSeconds = 30;
+        this.remoteControlHeartbeatTimeoutInSeconds = 0;
         this.sessionMaxIdleTimeInSeconds = 5 * 60;
         this.newSessionMaxWaitTimeInSeconds = Double.POSITIVE_INFINITY;
+        this.remoteControlPreFlightCheckTimeoutInSeconds = 5;
+        this.remoteControlMaxConnections = 200;
+        this.remoteControlMaxConnectionsPerHost = 20;
+        this.remoteControlConnectTimeoutInSeconds = 10;
+        this.remoteControlReadTimeoutInSeconds = 5 * 60;
+        this.remoteControlIdleConnectionTimeoutInSeconds = 60;
+        this.commandExecutorThreads = 200;
+        this.newSessionExecutorThreads = 50;
+        this.commandExecutorQueueDepth = 1000;
+        this.maxRequestBodySizeInKilobytes = 16 * 1024;
+        this.slowCommandThresholdInSeconds = 5;
+        this.slowCommandLogIntervalInSeconds = 1;
+        this.sessionJournalFile = null;
+        this.sessionJournalSizeInKilobytes = 1024;
+        this.clusterStore = null;
+        this.clusterHubAddress = null;
+        this.clusterHubLeaseTimeoutInSeconds = 30;
+        this.remoteControlPool = "global";
+        this.httpServer = new HttpServerConfiguration();
     }
 
     public int getPort() {
@@ -43,6 +87,42 @@ public class HubConfiguration {
         this.remoteControlPollingIntervalInSeconds = intervalInSeconds;
     }
 
+    /**
+     * Maximum number of remote controls polled in parallel while looking for unresponsive ones.
+     */
+    public int getRemoteControlPollingMaxConcurrentProbes() {
+        return remoteControlPollingMaxConcurrentProbes;
+    }
+
+    public void setRemoteControlPollingMaxConcurrentProbes(int maxConcurrentProbes) {
+        this.remoteControlPollingMaxConcurrentProbes = maxConcurrentProbes;
+    }
+
+    /**
+     * Time after which a remote control that is still being polled is considered unresponsive.
+     */
+    public double getRemoteControlPollingTimeoutInSeconds() {
+        return remoteControlPollingTimeoutInSeconds;
+    }
+
+    public void setRemoteControlPollingTimeoutInSeconds(double timeoutInSeconds) {
+        this.remoteControlPollingTimeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Time after which a remote control pushing its status to the hub is considered dead if it has
+     * not pushed it again. Remote controls pushing their status are not polled by the hub.
+     * Must be longer than the -heartbeatIntervalInSeconds of the remote controls (10 by default).
+     * 0 to ignore pushed statuses and poll all remote controls.
+     */
+    public double getRemoteControlHeartbeatTimeoutInSeconds() {
+        return remoteControlHeartbeatTimeoutInSeconds;
+    }
+
+    public void setRemoteControlHeartbeatTimeoutInSeconds(double timeoutInSeconds) {
+        this.remoteControlHeartbeatTimeoutInSeconds = timeoutInSeconds;
+    }
+
     public double getSessionMaxIdleTimeInSeconds() {
         return sessionMaxIdleTimeInSeconds;
     }
@@ -58,4 +138,227 @@ public class HubConfiguration {
     public void setNewSessionMaxWaitTimeInSeconds(final double newSessionMaxWaitTimeInSeconds) {
         this.newSessionMaxWaitTimeInSeconds = newSessionMaxWaitTimeInSeconds;
     }
-}
\ No newline at end of file
+
+    /**
+     * Maximum time to wait for the heartbeat of a remote control just before handing
+     * it over for a new session. 0 disables the check, in which case reservation only
+     * relies on the health state cached by the remote control poller.
+     */
+    public double getRemoteControlPreFlightCheckTimeoutInSeconds() {
+        return remoteControlPreFlightCheckTimeoutInSeconds;
+    }
+
+    public void setRemoteControlPreFlightCheckTimeoutInSeconds(double timeoutInSeconds) {
+        this.remoteControlPreFlightCheckTimeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Maximum number of connections from the hub to all remote controls.
+     */
+    public int getRemoteControlMaxConnections() {
+        return remoteControlMaxConnections;
+    }
+
+    public void setRemoteControlMaxConnections(int maxConnections) {
+        this.remoteControlMaxConnections = maxConnections;
+    }
+
+    /**
+     * Maximum number of connections from the hub to a single remote control.
+     */
+    public int getRemoteControlMaxConnectionsPerHost() {
+        return remoteControlMaxConnectionsPerHost;
+    }
+
+    public void setRemoteControlMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.remoteControlMaxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public double getRemoteControlConnectTimeoutInSeconds() {
+        return remoteControlConnectTimeoutInSeconds;
+    }
+
+    public void setRemoteControlConnectTimeoutInSeconds(double timeoutInSeconds) {
+        this.remoteControlConnectTimeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Maximum time to wait for a remote control reply. Defaults to 5 minutes, which leaves
+     * room for commands that legitimately take long while never waiting forever on a stalled
+     * remote control. 0 waits forever.
+     */
+    public double getRemoteControlReadTimeoutInSeconds() {
+        return remoteControlReadTimeoutInSeconds;
+    }
+
+    public void setRemoteControlReadTimeoutInSeconds(double timeoutInSeconds) {
+        this.remoteControlReadTimeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Time after which an unused connection to a remote control is closed.
+     */
+    public double getRemoteControlIdleConnectionTimeoutInSeconds() {
+        return remoteControlIdleConnectionTimeoutInSeconds;
+    }
+
+    public void setRemoteControlIdleConnectionTimeoutInSeconds(double timeoutInSeconds) {
+        this.remoteControlIdleConnectionTimeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Number of threads running commands for sessions in progress. Requests waiting
+     * for them are suspended and do not hold any Jetty thread.
+     */
+    public int getCommandExecutorThreads() {
+        return commandExecutorThreads;
+    }
+
+    public void setCommandExecutorThreads(int threads) {
+        this.commandExecutorThreads = threads;
+    }
+
+    /**
+     * Number of threads running new session requests once a remote control has been reserved for them.
+     * Requests waiting for a remote control do not hold a thread.
+     */
+    public int getNewSessionExecutorThreads() {
+        return newSessionExecutorThreads;
+    }
+
+    public void setNewSessionExecutorThreads(int threads) {
+        this.newSessionExecutorThreads = threads;
+    }
+
+    /**
+     * Maximum number of commands queued waiting for a thread, beyond which the hub rejects requests.
+     * New session requests waiting for a remote control count as queued.
+     */
+    public int getCommandExecutorQueueDepth() {
+        return commandExecutorQueueDepth;
+    }
+
+    public void setCommandExecutorQueueDepth(int queueDepth) {
+        this.commandExecutorQueueDepth = queueDepth;
+    }
+
+    /**
+     * Largest WebDriver request body the hub accepts. Larger requests are rejected with a
+     * 413 before the body is read.
+     */
+    public int getMaxRequestBodySizeInKilobytes() {
+        return maxRequestBodySizeInKilobytes;
+    }
+
+    public void setMaxRequestBodySizeInKilobytes(int sizeInKilobytes) {
+        this.maxRequestBodySizeInKilobytes = sizeInKilobytes;
+    }
+
+    /**
+     * Commands taking longer than this (from the time they are received to the time the reply
+     * is sent) are logged as slow commands. 0 or less to disable.
+     */
+    public double getSlowCommandThresholdInSeconds() {
+        return slowCommandThresholdInSeconds;
+    }
+
+    public void setSlowCommandThresholdInSeconds(double thresholdInSeconds) {
+        this.slowCommandThresholdInSeconds = thresholdInSeconds;
+    }
+
+    /**
+     * At most one slow command is logged per interval, the others are only counted.
+     */
+    public double getSlowCommandLogIntervalInSeconds() {
+        return slowCommandLogIntervalInSeconds;
+    }
+
+    public void setSlowCommandLogIntervalInSeconds(double intervalInSeconds) {
+        this.slowCommandLogIntervalInSeconds = intervalInSeconds;
+    }
+
+    /**
+     * File journaling remote control registrations and sessions, replayed when the hub starts so
+     * that sessions survive a hub restart. Null or empty to disable the journal.
+     */
+    public String getSessionJournalFile() {
+        return sessionJournalFile;
+    }
+
+    public void setSessionJournalFile(String file) {
+        this.sessionJournalFile = file;
+    }
+
+    /**
+     * Initial size of the memory-mapped session journal. It grows as needed.
+     */
+    public int getSessionJournalSizeInKilobytes() {
+        return sessionJournalSizeInKilobytes;
+    }
+
+    public void setSessionJournalSizeInKilobytes(int sizeInKilobytes) {
+        this.sessionJournalSizeInKilobytes = sizeInKilobytes;
+    }
+
+    /**
+     * Store shared by the hubs of a cluster: <code>local</code> for hubs running in the same JVM,
+     * <code>file:</code> followed by a directory shared by the hubs, or the class name of a custom
+     * store. Null or empty to run a standalone hub.
+     */
+    public String getClusterStore() {
+        return clusterStore;
+    }
+
+    public void setClusterStore(String clusterStore) {
+        this.clusterStore = clusterStore;
+    }
+
+    /**
+     * Address ("host:port") other hubs of the cluster use to reach this hub. Null to use the
+     * local host name and the hub port.
+     */
+    public String getClusterHubAddress() {
+        return clusterHubAddress;
+    }
+
+    public void setClusterHubAddress(String address) {
+        this.clusterHubAddress = address;
+    }
+
+    /**
+     * Time after which the other hubs of the cluster stop routing requests to a hub that did
+     * not renew its lease, e.g. because it died without cleaning up its remote controls and sessions.
+     */
+    public double getClusterHubLeaseTimeoutInSeconds() {
+        return clusterHubLeaseTimeoutInSeconds;
+    }
+
+    public void setClusterHubLeaseTimeoutInSeconds(double timeoutInSeconds) {
+        this.clusterHubLeaseTimeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Remote control pool implementation: <code>global</code> for a single pool shared by all
+     * environments, <code>sharded</code> for independent pools per environment, or the class name
+     * of a custom pool.
+     */
+    public String getRemoteControlPool() {
+        return remoteControlPool;
+    }
+
+    public void setRemoteControlPool(String remoteControlPool) {
+        this.remoteControlPool = remoteControlPool;
+    }
+
+    /**
+     * Connector and thread pool settings of the Jetty server accepting client requests.
+     */
+    public HttpServerConfiguration getHttpServer() {
+        return httpServer;
+    }
+
+    public void setHttpServer(HttpServerConfiguration httpServer) {
+        this.httpServer = httpServer;
+    }
+
+}
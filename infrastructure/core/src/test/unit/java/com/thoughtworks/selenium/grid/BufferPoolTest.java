@@ -0,0 +1,46 @@
+package com.thoughtworks.selenium.grid;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class BufferPoolTest {
+
+    @Test
+    public void acquireReturnsABufferOfTheConfiguredSize() {
+        assertEquals(12, new BufferPool(12, 1).acquire().length);
+    }
+
+    @Test
+    public void acquireReusesReleasedBuffers() {
+        final BufferPool pool;
+        final byte[] buffer;
+
+        pool = new BufferPool(12, 1);
+        buffer = pool.acquire();
+        pool.release(buffer);
+        assertEquals(1, pool.pooledBuffers());
+        assertSame(buffer, pool.acquire());
+        assertEquals(0, pool.pooledBuffers());
+    }
+
+    @Test
+    public void releaseDoesNotKeepMoreBuffersThanTheConfiguredMaximum() {
+        final BufferPool pool;
+
+        pool = new BufferPool(12, 1);
+        pool.release(new byte[12]);
+        pool.release(new byte[12]);
+        assertEquals(1, pool.pooledBuffers());
+    }
+
+    @Test
+    public void releaseIgnoresBuffersOfTheWrongSize() {
+        final BufferPool pool;
+
+        pool = new BufferPool(12, 1);
+        pool.release(new byte[3]);
+        assertEquals(0, pool.pooledBuffers());
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.thoughtworks.selenium.grid;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class CapturedBodyTest {
+
+    @Test
+    public void captureReadsExactlyContentLengthBytes() throws IOException {
+        final byte[] content = "{\"a\": \"b\"}trailing".getBytes("UTF-8");
+        final CapturedBody body;
+
+        body = CapturedBody.capture(new ByteArrayInputStream(content), 10, null);
+        assertEquals(10, body.length());
+        assertEquals("{\"a\": \"b\"}", body.text());
+    }
+
+    @Test
+    public void captureReadsKnownLengthBodiesDeliveredInSeveralChunks() throws IOException {
+        final byte[] content = largeBody(20000);
+        final CapturedBody body;
+
+        body = CapturedBody.capture(new TrickleInputStream(content, 100), content.length, null);
+        assertTrue(Arrays.equals(content, body.bytes()));
+    }
+
+    @Test
+    public void captureReadsUntilTheEndOfTheStreamWhenContentLengthIsUnknown() throws IOException {
+        final byte[] content = largeBody(50000);
+        final CapturedBody body;
+
+        body = CapturedBody.capture(new TrickleInputStream(content, 3000), -1, null);
+        assertEquals(content.length, body.length());
+        assertTrue(Arrays.equals(content, body.bytes()));
+    }
+
+    @Test
+    public void captureReturnsAnEmptyBodyForAnUnknownLengthEmptyStream() throws IOException {
+        assertEquals(0, CapturedBody.capture(new ByteArrayInputStream(new byte[0]), -1, null).length());
+    }
+
+    @Test
+    public void captureReturnsAnEmptyBodyWhenThereIsNoStream() throws IOException {
+        final CapturedBody body;
+
+        body = CapturedBody.capture(null, 12, null);
+        assertEquals(0, body.length());
+        assertEquals("", body.text());
+    }
+
+    @Test(expected = IOException.class)
+    public void captureFailsWhenTheStreamEndsBeforeContentLengthBytes() throws IOException {
+        CapturedBody.capture(new ByteArrayInputStream(new byte[5]), 10, null);
+    }
+
+    @Test(expected = RequestBodyTooLargeException.class)
+    public void captureRejectsAnAnnouncedContentLengthLargerThanTheMaxLength() throws IOException {
+        CapturedBody.capture(new ByteArrayInputStream(new byte[10]), 11, null, 10);
+    }
+
+    @Test(expected = RequestBodyTooLargeException.class)
+    public void captureRejectsAnUnknownLengthBodyLargerThanTheMaxLength() throws IOException {
+        final byte[] content = largeBody(20000);
+
+        CapturedBody.capture(new TrickleInputStream(content, 3000), -1, null, content.length - 1);
+    }
+
+    @Test
+    public void captureAcceptsABodyOfExactlyTheMaxLength() throws IOException {
+        final byte[] content = largeBody(20000);
+
+        assertTrue(Arrays.equals(content, CapturedBody.capture(new TrickleInputStream(content, 3000), -1, null, content.length).bytes()));
+        assertTrue(Arrays.equals(content, CapturedBody.capture(new ByteArrayInputStream(content), content.length, null, content.length).bytes()));
+    }
+
+    @Test(expected = IOException.class)
+    public void captureDoesNotTrustAHugeContentLengthFromAShortStream() throws IOException {
+        CapturedBody.capture(new ByteArrayInputStream(new byte[5]), Integer.MAX_VALUE - 8, null, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void textDecodesTheBodyAsUTF8ByDefault() throws IOException {
+        final String json = "{\"name\":\n \"caf\u00e9 \u2603\"}";
+        final byte[] content = json.getBytes("UTF-8");
+
+        assertEquals("UTF-8", CapturedBody.capture(new ByteArrayInputStream(content), content.length, null).charset());
+        assertEquals(json, CapturedBody.capture(new ByteArrayInputStream(content), content.length, null).text());
+    }
+
+    @Test
+    public void textDecodesTheBodyWithTheDeclaredCharset() throws IOException {
+        final byte[] content = "caf\u00e9".getBytes("ISO-8859-1");
+
+        assertEquals("caf\u00e9", CapturedBody.capture(new ByteArrayInputStream(content), content.length, "ISO-8859-1").text());
+    }
+
+    @Test
+    public void inputStreamCanBeReadSeveralTimes() throws IOException {
+        final byte[] content = largeBody(10000);
+        final CapturedBody body;
+        ByteArrayOutputStream out;
+
+        body = CapturedBody.capture(new ByteArrayInputStream(content), content.length, null);
+        for (int i = 0; i < 2; i++) {
+            out = new ByteArrayOutputStream();
+            IOHelper.copyStream(body.inputStream(), out);
+            assertTrue(Arrays.equals(content, out.toByteArray()));
+        }
+    }
+
+    protected byte[] largeBody(int length) {
+        final byte[] content = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    /**
+     * Stream returning at most chunkSize bytes per read, like a socket would.
+     */
+    protected static class TrickleInputStream extends InputStream {
+
+        private final ByteArrayInputStream in;
+        private final int chunkSize;
+
+        public TrickleInputStream(byte[] content, int chunkSize) {
+            this.in = new ByteArrayInputStream(content);
+            this.chunkSize = chunkSize;
+        }
+
+        public int read() {
+            return in.read();
+        }
+
+        public int read(byte[] buffer, int offset, int length) {
+            return in.read(buffer, offset, Math.min(length, chunkSize));
+        }
+    }
+
+}
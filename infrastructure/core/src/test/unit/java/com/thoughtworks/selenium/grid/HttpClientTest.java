@@ -1,14 +1,21 @@
 package com.thoughtworks.selenium.grid;
 
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
 
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.Arrays;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
@@ -177,4 +184,93 @@ public class HttpClientTest extends UsingClassMock {
         assertEquals(expectedResponse, httpClient.post("http://a.url/", new HttpParameters()));
     }
 
+    @Test
+    public void streamDoesNotReadNorReleaseTheResponseBody() throws IOException {
+        final Response response;
+        final Mock method;
+        final Mock httpClient;
+
+        httpClient = mock(org.apache.commons.httpclient.HttpClient.class);
+        httpClient.expects("executeMethod").will(returnValue(200));
+        method = mock(GetMethod.class);
+        method.stubs("getStatusCode").will(returnValue(200));
+        method.stubs("getResponseHeaders").will(returnValue(new Header[]{}));
+        method.expects("releaseConnection").never();
+        method.expects("getResponseBody").never();
+        response = new HttpClient((org.apache.commons.httpclient.HttpClient) httpClient).stream((GetMethod) method);
+        assertTrue(response.streamed());
+        assertEquals(200, response.statusCode());
+        verifyMocks();
+    }
+
+    @SuppressWarnings({"ThrowableInstanceNeverThrown"})
+    @Test(expected = ConnectException.class)
+    public void streamReleasesTheConnectionWhenAProblemOccurs() throws IOException {
+        final Mock method;
+        final Mock httpClient;
+
+        httpClient = mock(org.apache.commons.httpclient.HttpClient.class);
+        method = mock(GetMethod.class);
+        httpClient.expects("executeMethod").will(throwException(new ConnectException("an error")));
+        method.expects("releaseConnection");
+        new HttpClient((org.apache.commons.httpclient.HttpClient) httpClient).stream((GetMethod) method);
+        verifyMocks();
+    }
+
+    @Test
+    public void requestEntityPipesTheBodyOfTheIncomingRequestAsIs() throws IOException {
+        final byte[] body = "{\"a\":\n \"b\"}".getBytes("UTF-8");
+        final ByteArrayOutputStream out;
+        final RequestEntity entity;
+        final Mock request;
+
+        request = mock(HttpServletRequest.class);
+        request.stubs("getInputStream").will(returnValue(new ServletInputStream() {
+            private final ByteArrayInputStream in = new ByteArrayInputStream(body);
+
+            public int read() throws IOException {
+                return in.read();
+            }
+        }));
+        request.stubs("getContentLength").will(returnValue(body.length));
+        request.stubs("getContentType").will(returnValue("application/json"));
+
+        entity = new HttpClient().requestEntity((HttpServletRequest) request);
+        assertEquals(body.length, entity.getContentLength());
+        assertEquals("application/json", entity.getContentType());
+        out = new ByteArrayOutputStream();
+        entity.writeRequest(out);
+        assertTrue(Arrays.equals(body, out.toByteArray()));
+    }
+
+    @Test
+    public void requestEntityReusesTheBodyAlreadyCapturedByAGridRequestWrapper() throws IOException {
+        final byte[] body = "{\"a\": \"b\"}".getBytes("UTF-8");
+        final GridRequestWrapper wrapper;
+        final ByteArrayOutputStream out;
+        final RequestEntity entity;
+        final Mock request;
+
+        request = mock(HttpServletRequest.class);
+        request.expects("getInputStream").will(returnValue(new ServletInputStream() {
+            private final ByteArrayInputStream in = new ByteArrayInputStream(body);
+
+            public int read() throws IOException {
+                return in.read();
+            }
+        }));
+        request.stubs("getContentLength").will(returnValue(body.length));
+        request.stubs("getCharacterEncoding").will(returnValue(null));
+        request.stubs("getContentType").will(returnValue("application/json"));
+
+        wrapper = new GridRequestWrapper((HttpServletRequest) request);
+        assertEquals("{\"a\": \"b\"}", wrapper.getBody());
+        entity = new HttpClient().requestEntity(wrapper);
+        assertTrue(entity.isRepeatable());
+        out = new ByteArrayOutputStream();
+        entity.writeRequest(out);
+        assertTrue(Arrays.equals(body, out.toByteArray()));
+        verifyMocks();
+    }
+
 }
@@ -0,0 +1,52 @@
+package com.thoughtworks.selenium.grid;
+
+import com.thoughtworks.selenium.grid.configuration.HubConfiguration;
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+public class HttpConnectionPoolTest {
+
+    @Test
+    public void limitsAreTakenFromTheHubConfiguration() {
+        final HubConfiguration configuration;
+        final HttpConnectionPool pool;
+
+        configuration = new HubConfiguration();
+        configuration.setRemoteControlMaxConnections(12);
+        configuration.setRemoteControlMaxConnectionsPerHost(3);
+        pool = new HttpConnectionPool(configuration);
+        try {
+            assertEquals(12, pool.maxConnections());
+            assertEquals(3, pool.maxConnectionsPerHost());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void httpClientIsSharedAcrossCalls() {
+        final HttpConnectionPool pool;
+
+        pool = new HttpConnectionPool(10, 2, 1000, 0, 0);
+        try {
+            assertNotNull(pool.httpClient());
+            assertSame(pool.httpClient(), pool.httpClient());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void noConnectionIsOpenUntilAnRequestIsSent() {
+        final HttpConnectionPool pool;
+
+        pool = new HttpConnectionPool(10, 2, 1000, 0, 1000);
+        try {
+            assertEquals(0, pool.connectionsInPool());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -1,11 +1,13 @@
 package com.thoughtworks.selenium.grid;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -13,6 +15,7 @@ import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.Socket;
+import java.util.Arrays;
 
 public class IOHelperTest extends UsingClassMock {
 
@@ -151,4 +154,18 @@ public class IOHelperTest extends UsingClassMock {
             IOHelper.close(inputStream);
         }
     }
+    @Test
+    public void copyStreamCopiesAllBytesAsIs() throws IOException {
+        final byte[] content;
+        final ByteArrayOutputStream out;
+
+        content = new byte[3 * BufferPool.DEFAULT_BUFFER_SIZE + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        out = new ByteArrayOutputStream();
+        assertEquals(content.length, IOHelper.copyStream(new ByteArrayInputStream(content), out));
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+
 }
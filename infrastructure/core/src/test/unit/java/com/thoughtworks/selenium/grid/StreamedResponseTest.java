@@ -0,0 +1,90 @@
+package com.thoughtworks.selenium.grid;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.jbehave.classmock.UsingClassMock;
+import org.jbehave.core.mock.Mock;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static junit.framework.Assert.*;
+
+public class StreamedResponseTest extends UsingClassMock {
+
+    @Test
+    public void writeToPipesTheBodyByteForByteAndReleasesTheConnection() throws IOException {
+        final byte[] body = {'{', 0, (byte) 0xC3, (byte) 0xA9, '\n', '}'};
+        final ByteArrayOutputStream out;
+        final StreamedResponse response;
+        final Mock method;
+
+        method = methodReplying(200);
+        method.expects("getResponseBodyAsStream").will(returnValue(new ByteArrayInputStream(body)));
+        method.expects("releaseConnection");
+        response = new StreamedResponse((GetMethod) method);
+        assertTrue(response.streamed());
+
+        out = new ByteArrayOutputStream();
+        response.writeTo(out);
+        assertEquals(200, response.statusCode());
+        assertTrue(Arrays.equals(body, out.toByteArray()));
+        verifyMocks();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bodyCannotBeReadOnceStreamed() throws IOException {
+        final StreamedResponse response;
+        final Mock method;
+
+        method = methodReplying(200);
+        method.stubs("getResponseBodyAsStream").will(returnValue(new ByteArrayInputStream(new byte[0])));
+        method.stubs("releaseConnection");
+        response = new StreamedResponse((GetMethod) method);
+        response.writeTo(new ByteArrayOutputStream());
+        response.body();
+    }
+
+    @Test
+    public void bodyBuffersTheResponseWhichCanStillBeWrittenAfterwards() throws IOException {
+        final ByteArrayOutputStream out;
+        final StreamedResponse response;
+        final Mock method;
+
+        method = methodReplying(200);
+        method.expects("getResponseBody").will(returnValue("some content".getBytes("UTF-8")));
+        method.expects("releaseConnection");
+        response = new StreamedResponse((GetMethod) method);
+
+        assertEquals("some content", response.body());
+        assertFalse(response.streamed());
+        out = new ByteArrayOutputStream();
+        response.writeTo(out);
+        assertEquals("some content", out.toString("UTF-8"));
+        verifyMocks();
+    }
+
+    @Test
+    public void releaseAbortsTheRequestWhenTheBodyHasNeverBeenConsumed() {
+        final Mock method;
+
+        method = methodReplying(200);
+        method.expects("abort");
+        method.expects("releaseConnection");
+        new StreamedResponse((GetMethod) method).release();
+        verifyMocks();
+    }
+
+    protected Mock methodReplying(int statusCode) {
+        final Mock method;
+
+        method = mock(GetMethod.class);
+        method.stubs("getStatusCode").will(returnValue(statusCode));
+        method.stubs("getResponseHeaders").will(returnValue(new Header[]{}));
+        return method;
+    }
+
+}
@@ -38,6 +38,7 @@ public class GridConfigurationTest {
                 + "    - \n"
                 + "      browser: \"*firefox\"\n"
                 + "      name: \"*firefox\"\n"
+                + "  httpServer: {}\n"
                 + "  port: 3333\n";
         assertEquals(expected.replaceAll("\\s+", " "), configuration.toYAML().replaceAll("\\s+", " "));
     }
@@ -62,6 +63,22 @@ public class GridConfigurationTest {
         assertEquals(24.0, configuration.getHub().getRemoteControlPollingIntervalInSeconds());
     }
 
+    @Test
+    public void parseHttpServerSettingsAsDefinedInYaml() {
+        final GridConfiguration configuration;
+
+        configuration = GridConfiguration.parse(new StringReader(
+                "hub: \n"
+              + "  httpServer: \n"
+              + "    connector: socket\n"
+              + "    acceptQueueSize: 50\n"
+              + "    maxThreads: 2000"));
+        assertEquals("socket", configuration.getHub().getHttpServer().getConnector());
+        assertEquals(50, configuration.getHub().getHttpServer().getAcceptQueueSize());
+        assertEquals(2000, configuration.getHub().getHttpServer().getMaxThreads());
+        assertEquals(2, configuration.getHub().getHttpServer().getAcceptors());
+    }
+
     @Test
     public void parseSessionMaxIdleTimeInSecondsAsDefinedInYaml() {
         final GridConfiguration configuration;
@@ -82,6 +99,16 @@ public class GridConfigurationTest {
         assertEquals(120.0, configuration.getHub().getNewSessionMaxWaitTimeInSeconds());
     }
 
+    @Test
+    public void parseRemoteControlPreFlightCheckTimeoutInSecondsAsDefinedInYaml() {
+        final GridConfiguration configuration;
+
+        configuration = GridConfiguration.parse(new StringReader(
+                "hub: \n"
+              + "  remoteControlPreFlightCheckTimeoutInSeconds: 2"));
+        assertEquals(2.0, configuration.getHub().getRemoteControlPreFlightCheckTimeoutInSeconds());
+    }
+
     @Test
     public void parseHubEnvironmentsAsDefinedInYaml() {
         final EnvironmentConfiguration[] environments;
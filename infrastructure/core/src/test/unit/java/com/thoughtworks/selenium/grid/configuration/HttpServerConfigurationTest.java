@@ -0,0 +1,65 @@
+package com.thoughtworks.selenium.grid.configuration;
+
+import static junit.framework.Assert.assertEquals;
+import org.junit.Test;
+
+public class HttpServerConfigurationTest {
+
+    @Test
+    public void connectorIsNonBlockingByDefault() {
+        assertEquals("select-channel", new HttpServerConfiguration().getConnector());
+    }
+
+    @Test
+    public void connectorCanBeSetToANonDefaultValue() {
+        final HttpServerConfiguration configuration = new HttpServerConfiguration();
+        configuration.setConnector("socket");
+        assertEquals("socket", configuration.getConnector());
+    }
+
+    @Test
+    public void defaultConnectorHas2AcceptorsAndAnAcceptQueueOf1024() {
+        assertEquals(2, new HttpServerConfiguration().getAcceptors());
+        assertEquals(1024, new HttpServerConfiguration().getAcceptQueueSize());
+    }
+
+    @Test
+    public void acceptorsAndAcceptQueueSizeCanBeSetToNonDefaultValues() {
+        final HttpServerConfiguration configuration = new HttpServerConfiguration();
+        configuration.setAcceptors(4);
+        configuration.setAcceptQueueSize(50);
+        assertEquals(4, configuration.getAcceptors());
+        assertEquals(50, configuration.getAcceptQueueSize());
+    }
+
+    @Test
+    public void idleConnectionsAreClosedAfter200SecondsOr5SecondsWhenLowOnResourcesByDefault() {
+        assertEquals(200.0, new HttpServerConfiguration().getMaxIdleTimeInSeconds());
+        assertEquals(5.0, new HttpServerConfiguration().getLowResourcesMaxIdleTimeInSeconds());
+    }
+
+    @Test
+    public void idleTimeoutsCanBeSetToNonDefaultValues() {
+        final HttpServerConfiguration configuration = new HttpServerConfiguration();
+        configuration.setMaxIdleTimeInSeconds(30);
+        configuration.setLowResourcesMaxIdleTimeInSeconds(1);
+        assertEquals(30.0, configuration.getMaxIdleTimeInSeconds());
+        assertEquals(1.0, configuration.getLowResourcesMaxIdleTimeInSeconds());
+    }
+
+    @Test
+    public void defaultThreadPoolRunsBetween10And250Threads() {
+        assertEquals(10, new HttpServerConfiguration().getMinThreads());
+        assertEquals(250, new HttpServerConfiguration().getMaxThreads());
+    }
+
+    @Test
+    public void threadPoolSizeCanBeSetToNonDefaultValues() {
+        final HttpServerConfiguration configuration = new HttpServerConfiguration();
+        configuration.setMinThreads(20);
+        configuration.setMaxThreads(2000);
+        assertEquals(20, configuration.getMinThreads());
+        assertEquals(2000, configuration.getMaxThreads());
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.thoughtworks.selenium.grid.configuration;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import org.junit.Test;
 
 public class HubConfigurationTest {
@@ -45,6 +48,42 @@ public class HubConfigurationTest {
         assertEquals(5.0, configuration.getRemoteControlPollingIntervalInSeconds());
     }
 
+    @Test
+    public void defaultRemoteControlPollingMaxConcurrentProbesIs16() {
+        assertEquals(16, new HubConfiguration().getRemoteControlPollingMaxConcurrentProbes());
+    }
+
+    @Test
+    public void remoteControlPollingMaxConcurrentProbesCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setRemoteControlPollingMaxConcurrentProbes(64);
+        assertEquals(64, configuration.getRemoteControlPollingMaxConcurrentProbes());
+    }
+
+    @Test
+    public void defaultRemoteControlPollingTimeoutInSecondsIs30Seconds() {
+        assertEquals(30.0, new HubConfiguration().getRemoteControlPollingTimeoutInSeconds());
+    }
+
+    @Test
+    public void remoteControlPollingTimeoutInSecondsCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setRemoteControlPollingTimeoutInSeconds(12);
+        assertEquals(12.0, configuration.getRemoteControlPollingTimeoutInSeconds());
+    }
+
+    @Test
+    public void remoteControlsArePolledByDefault() {
+        assertEquals(0.0, new HubConfiguration().getRemoteControlHeartbeatTimeoutInSeconds());
+    }
+
+    @Test
+    public void remoteControlHeartbeatTimeoutInSecondsCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setRemoteControlHeartbeatTimeoutInSeconds(20);
+        assertEquals(20.0, configuration.getRemoteControlHeartbeatTimeoutInSeconds());
+    }
+
     @Test
     public void defaultSessionMaxIdleTimeInSecondsIs5Minutes() {
         assertEquals(300.0, new HubConfiguration().getSessionMaxIdleTimeInSeconds());
@@ -68,4 +107,155 @@ public class HubConfigurationTest {
         configuration.setNewSessionMaxWaitTimeInSeconds(24.0);
         assertEquals(24.0, configuration.getNewSessionMaxWaitTimeInSeconds());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void defaultRemoteControlPreFlightCheckTimeoutInSecondsIs5Seconds() {
+        assertEquals(5.0, new HubConfiguration().getRemoteControlPreFlightCheckTimeoutInSeconds());
+    }
+
+    @Test
+    public void remoteControlPreFlightCheckTimeoutInSecondsCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setRemoteControlPreFlightCheckTimeoutInSeconds(0);
+        assertEquals(0.0, configuration.getRemoteControlPreFlightCheckTimeoutInSeconds());
+    }
+
+    @Test
+    public void defaultRemoteControlConnectionPoolAllows200ConnectionsAnd20PerRemoteControl() {
+        assertEquals(200, new HubConfiguration().getRemoteControlMaxConnections());
+        assertEquals(20, new HubConfiguration().getRemoteControlMaxConnectionsPerHost());
+    }
+
+    @Test
+    public void defaultRemoteControlReadTimeoutIs5MinutesAndConnectTimeoutIs10Seconds() {
+        assertEquals(300.0, new HubConfiguration().getRemoteControlReadTimeoutInSeconds());
+        assertEquals(10.0, new HubConfiguration().getRemoteControlConnectTimeoutInSeconds());
+    }
+
+    @Test
+    public void defaultRemoteControlIdleConnectionTimeoutIs1Minute() {
+        assertEquals(60.0, new HubConfiguration().getRemoteControlIdleConnectionTimeoutInSeconds());
+    }
+
+    @Test
+    public void remoteControlConnectionPoolSettingsCanBeSetToNonDefaultValues() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setRemoteControlMaxConnections(12);
+        configuration.setRemoteControlMaxConnectionsPerHost(3);
+        configuration.setRemoteControlConnectTimeoutInSeconds(1.5);
+        configuration.setRemoteControlReadTimeoutInSeconds(30);
+        configuration.setRemoteControlIdleConnectionTimeoutInSeconds(5);
+        assertEquals(12, configuration.getRemoteControlMaxConnections());
+        assertEquals(3, configuration.getRemoteControlMaxConnectionsPerHost());
+        assertEquals(1.5, configuration.getRemoteControlConnectTimeoutInSeconds());
+        assertEquals(30.0, configuration.getRemoteControlReadTimeoutInSeconds());
+        assertEquals(5.0, configuration.getRemoteControlIdleConnectionTimeoutInSeconds());
+    }
+
+    @Test
+    public void defaultCommandExecutorRuns200SessionCommandsAnd50NewSessionsAndQueues1000() {
+        assertEquals(200, new HubConfiguration().getCommandExecutorThreads());
+        assertEquals(50, new HubConfiguration().getNewSessionExecutorThreads());
+        assertEquals(1000, new HubConfiguration().getCommandExecutorQueueDepth());
+    }
+
+    @Test
+    public void commandExecutorSettingsCanBeSetToNonDefaultValues() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setCommandExecutorThreads(3);
+        configuration.setNewSessionExecutorThreads(2);
+        configuration.setCommandExecutorQueueDepth(1);
+        assertEquals(3, configuration.getCommandExecutorThreads());
+        assertEquals(2, configuration.getNewSessionExecutorThreads());
+        assertEquals(1, configuration.getCommandExecutorQueueDepth());
+    }
+
+    @Test
+    public void defaultMaxRequestBodySizeIs16Megabytes() {
+        assertEquals(16 * 1024, new HubConfiguration().getMaxRequestBodySizeInKilobytes());
+    }
+
+    @Test
+    public void maxRequestBodySizeCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setMaxRequestBodySizeInKilobytes(64);
+        assertEquals(64, configuration.getMaxRequestBodySizeInKilobytes());
+    }
+
+    @Test
+    public void defaultSlowCommandLogLogsCommandsOver5SecondsAtMostOncePerSecond() {
+        assertEquals(5.0, new HubConfiguration().getSlowCommandThresholdInSeconds());
+        assertEquals(1.0, new HubConfiguration().getSlowCommandLogIntervalInSeconds());
+    }
+
+    @Test
+    public void slowCommandLogSettingsCanBeSetToNonDefaultValues() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setSlowCommandThresholdInSeconds(0.5);
+        configuration.setSlowCommandLogIntervalInSeconds(10);
+        assertEquals(0.5, configuration.getSlowCommandThresholdInSeconds());
+        assertEquals(10.0, configuration.getSlowCommandLogIntervalInSeconds());
+    }
+
+    @Test
+    public void sessionJournalIsDisabledByDefaultWithA1MegabyteInitialSize() {
+        assertNull(new HubConfiguration().getSessionJournalFile());
+        assertEquals(1024, new HubConfiguration().getSessionJournalSizeInKilobytes());
+    }
+
+    @Test
+    public void sessionJournalSettingsCanBeSetToNonDefaultValues() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setSessionJournalFile("/var/lib/selenium-grid/sessions.journal");
+        configuration.setSessionJournalSizeInKilobytes(64);
+        assertEquals("/var/lib/selenium-grid/sessions.journal", configuration.getSessionJournalFile());
+        assertEquals(64, configuration.getSessionJournalSizeInKilobytes());
+    }
+
+    @Test
+    public void hubIsStandaloneByDefault() {
+        assertNull(new HubConfiguration().getClusterStore());
+        assertNull(new HubConfiguration().getClusterHubAddress());
+    }
+
+    @Test
+    public void defaultClusterHubLeaseTimeoutIs30Seconds() {
+        assertEquals(30.0, new HubConfiguration().getClusterHubLeaseTimeoutInSeconds());
+    }
+
+    @Test
+    public void clusterSettingsCanBeSetToNonDefaultValues() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setClusterStore("file:/var/lib/selenium-grid/cluster");
+        configuration.setClusterHubAddress("hub1.example.com:4444");
+        configuration.setClusterHubLeaseTimeoutInSeconds(10);
+        assertEquals("file:/var/lib/selenium-grid/cluster", configuration.getClusterStore());
+        assertEquals("hub1.example.com:4444", configuration.getClusterHubAddress());
+        assertEquals(10.0, configuration.getClusterHubLeaseTimeoutInSeconds());
+    }
+
+    @Test
+    public void remoteControlPoolIsGlobalByDefault() {
+        assertEquals("global", new HubConfiguration().getRemoteControlPool());
+    }
+
+    @Test
+    public void remoteControlPoolCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        configuration.setRemoteControlPool("sharded");
+        assertEquals("sharded", configuration.getRemoteControlPool());
+    }
+
+    @Test
+    public void httpServerConfigurationHasADefaultValue() {
+        assertNotNull(new HubConfiguration().getHttpServer());
+    }
+
+    @Test
+    public void httpServerConfigurationCanBeSetToANonDefaultValue() {
+        final HubConfiguration configuration = new HubConfiguration();
+        final HttpServerConfiguration httpServer = new HttpServerConfiguration();
+        configuration.setHttpServer(httpServer);
+        assertSame(httpServer, configuration.getHttpServer());
+    }
+}
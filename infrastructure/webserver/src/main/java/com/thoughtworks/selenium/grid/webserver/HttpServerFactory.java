@@ -0,0 +1,87 @@
+package com.thoughtworks.selenium.grid.webserver;
+
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mortbay.jetty.AbstractConnector;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.bio.SocketConnector;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.thread.QueuedThreadPool;
+
+/**
+ * Builds Jetty servers whose connector and thread pool are tuned according to
+ * an HttpServerConfiguration instead of relying on Jetty defaults.
+ */
+public class HttpServerFactory {
+
+    private static final Log LOGGER = LogFactory.getLog(HttpServerFactory.class);
+
+    /**
+     * @param name          Name used for the server threads and in the logs.
+     * @param port          Port to listen on.
+     * @param configuration Connector and thread pool settings. Cannot be null.
+     * @return A new Jetty server, not started yet, and without any handler.
+     */
+    public Server create(String name, int port, HttpServerConfiguration configuration) {
+        final AbstractConnector connector;
+        final QueuedThreadPool threadPool;
+        final Server server;
+
+        threadPool = threadPool(name, configuration);
+        connector = connector(port, configuration);
+        server = new Server();
+        server.setThreadPool(threadPool);
+        server.addConnector(connector);
+
+        LOGGER.info(name + " listening on port " + port + " with " + connector.getClass().getSimpleName()
+                + " (acceptors=" + connector.getAcceptors()
+                + ", acceptQueueSize=" + connector.getAcceptQueueSize()
+                + ", maxIdleTime=" + connector.getMaxIdleTime() + "ms"
+                + ", lowResourceMaxIdleTime=" + connector.getLowResourceMaxIdleTime() + "ms"
+                + ") and " + threadPool.getMinThreads() + " to " + threadPool.getMaxThreads() + " threads");
+        return server;
+    }
+
+    /**
+     * @return A new connector, not attached to any server yet. Useful to listen on extra ports.
+     */
+    public AbstractConnector connector(int port, HttpServerConfiguration configuration) {
+        final AbstractConnector connector;
+
+        if (HttpServerConfiguration.SELECT_CHANNEL_CONNECTOR.equals(configuration.getConnector())) {
+            connector = new SelectChannelConnector();
+        } else if (HttpServerConfiguration.SOCKET_CONNECTOR.equals(configuration.getConnector())) {
+            connector = new SocketConnector();
+        } else {
+            throw new IllegalArgumentException("Unknown connector '" + configuration.getConnector()
+                    + "', must be '" + HttpServerConfiguration.SELECT_CHANNEL_CONNECTOR
+                    + "' or '" + HttpServerConfiguration.SOCKET_CONNECTOR + "'");
+        }
+        connector.setPort(port);
+        connector.setAcceptors(configuration.getAcceptors());
+        connector.setAcceptQueueSize(configuration.getAcceptQueueSize());
+        connector.setMaxIdleTime(milliseconds(configuration.getMaxIdleTimeInSeconds()));
+        connector.setLowResourceMaxIdleTime(milliseconds(configuration.getLowResourcesMaxIdleTimeInSeconds()));
+        return connector;
+    }
+
+    protected QueuedThreadPool threadPool(String name, HttpServerConfiguration configuration) {
+        final QueuedThreadPool threadPool;
+
+        if (configuration.getMinThreads() > configuration.getMaxThreads()) {
+            throw new IllegalArgumentException("minThreads (" + configuration.getMinThreads()
+                    + ") cannot be greater than maxThreads (" + configuration.getMaxThreads() + ")");
+        }
+        threadPool = new QueuedThreadPool();
+        threadPool.setName(name);
+        threadPool.setMinThreads(configuration.getMinThreads());
+        threadPool.setMaxThreads(configuration.getMaxThreads());
+        return threadPool;
+    }
+
+    protected int milliseconds(double seconds) {
+        return (int) (seconds * 1000);
+    }
+
+}
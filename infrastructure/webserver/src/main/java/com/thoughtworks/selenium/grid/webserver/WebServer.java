@@ -1,5 +1,6 @@
 package com.thoughtworks.selenium.grid.webserver;
 
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
 import org.mortbay.jetty.Server;
 import org.mortbay.jetty.handler.ContextHandlerCollection;
 import org.mortbay.jetty.servlet.Context;
@@ -12,12 +13,18 @@ public class WebServer {
 
     private final int port;
     private final Class routeResolverClass;
+    private final HttpServerConfiguration httpServerConfiguration;
     private Server httpServer;
 
 
     public WebServer(int port, Class routeResolverClass) {
+        this(port, routeResolverClass, new HttpServerConfiguration());
+    }
+
+    public WebServer(int port, Class routeResolverClass, HttpServerConfiguration httpServerConfiguration) {
         this.port = port;
         this.routeResolverClass = routeResolverClass;
+        this.httpServerConfiguration = httpServerConfiguration;
     }
 
     public int port() {
@@ -43,7 +50,7 @@ public class WebServer {
         final ServletHolder servletHolder;
         final Context root;
 
-        httpServer = new Server(port);
+        httpServer = new HttpServerFactory().create(getClass().getSimpleName(), port, httpServerConfiguration());
         contexts = new ContextHandlerCollection();
         httpServer.setHandler(contexts);
 
@@ -58,6 +65,10 @@ public class WebServer {
         return routeResolverClass;
     }
 
+    protected HttpServerConfiguration httpServerConfiguration() {
+        return httpServerConfiguration;
+    }
+
     protected Server httpServer() {
         return httpServer;
     }
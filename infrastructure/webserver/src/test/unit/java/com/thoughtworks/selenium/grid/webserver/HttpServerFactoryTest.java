@@ -0,0 +1,95 @@
+package com.thoughtworks.selenium.grid.webserver;
+
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.mortbay.jetty.AbstractConnector;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.bio.SocketConnector;
+import org.mortbay.jetty.nio.SelectChannelConnector;
+import org.mortbay.thread.QueuedThreadPool;
+
+public class HttpServerFactoryTest {
+
+    @Test
+    public void createUsesANonBlockingConnectorOnTheGivenPortByDefault() {
+        final Server server;
+
+        server = new HttpServerFactory().create("Test", 4567, new HttpServerConfiguration());
+        assertEquals(1, server.getConnectors().length);
+        assertTrue(server.getConnectors()[0] instanceof SelectChannelConnector);
+        assertEquals(4567, server.getConnectors()[0].getPort());
+    }
+
+    @Test
+    public void createUsesABlockingConnectorWhenConfiguredSo() {
+        final HttpServerConfiguration configuration;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setConnector("socket");
+        assertTrue(new HttpServerFactory().create("Test", 0, configuration).getConnectors()[0] instanceof SocketConnector);
+    }
+
+    @Test
+    public void createRejectsAnUnknownConnector() {
+        final HttpServerConfiguration configuration;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setConnector("carrier-pigeon");
+        try {
+            new HttpServerFactory().create("Test", 0, configuration);
+            fail("did not catch IllegalArgumentException as expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown connector 'carrier-pigeon', must be 'select-channel' or 'socket'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void connectorIsTunedAccordingToTheConfiguration() {
+        final HttpServerConfiguration configuration;
+        final AbstractConnector connector;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setAcceptors(3);
+        configuration.setAcceptQueueSize(42);
+        configuration.setMaxIdleTimeInSeconds(30);
+        configuration.setLowResourcesMaxIdleTimeInSeconds(1.5);
+        connector = (AbstractConnector) new HttpServerFactory().create("Test", 0, configuration).getConnectors()[0];
+        assertEquals(3, connector.getAcceptors());
+        assertEquals(42, connector.getAcceptQueueSize());
+        assertEquals(30000, connector.getMaxIdleTime());
+        assertEquals(1500, connector.getLowResourceMaxIdleTime());
+    }
+
+    @Test
+    public void threadPoolIsSizedAndNamedAccordingToTheConfiguration() {
+        final HttpServerConfiguration configuration;
+        final QueuedThreadPool threadPool;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setMinThreads(5);
+        configuration.setMaxThreads(500);
+        threadPool = (QueuedThreadPool) new HttpServerFactory().create("Test", 0, configuration).getThreadPool();
+        assertEquals(5, threadPool.getMinThreads());
+        assertEquals(500, threadPool.getMaxThreads());
+        assertEquals("Test", threadPool.getName());
+    }
+
+    @Test
+    public void createRejectsAThreadPoolWithMoreMinimumThanMaximumThreads() {
+        final HttpServerConfiguration configuration;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setMinThreads(10);
+        configuration.setMaxThreads(5);
+        try {
+            new HttpServerFactory().create("Test", 0, configuration);
+            fail("did not catch IllegalArgumentException as expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("minThreads (10) cannot be greater than maxThreads (5)", e.getMessage());
+        }
+    }
+
+}
@@ -1,11 +1,13 @@
 package com.thoughtworks.selenium.grid.webserver;
 
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.mortbay.jetty.Server;
+import org.mortbay.jetty.bio.SocketConnector;
 
 public class WebServerTest extends UsingClassMock {
 
@@ -20,6 +22,23 @@ public class WebServerTest extends UsingClassMock {
         assertEquals(String.class, new WebServer(0, String.class).routeResolverClass());
     }
 
+    @Test
+    public void httpServerConfigurationDefaultsToJettyTuningDefaults() {
+        assertEquals("select-channel", new WebServer(0, null).httpServerConfiguration().getConnector());
+    }
+
+    @Test
+    public void createHttpServerAppliesTheGivenHttpServerConfiguration() {
+        final HttpServerConfiguration configuration;
+        final WebServer webServer;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setConnector("socket");
+        webServer = new WebServer(24, String.class, configuration);
+        webServer.createHttpServer();
+        assertTrue(webServer.httpServer().getConnectors()[0] instanceof SocketConnector);
+        assertEquals(24, webServer.httpServer().getConnectors()[0].getPort());
+    }
 
     @Test
     public void waitForShutdownJoinsOnTheJettyServer() throws Exception {
@@ -0,0 +1,152 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.HttpParameters;
+import com.thoughtworks.selenium.grid.IOHelper;
+import com.thoughtworks.selenium.grid.Response;
+import com.thoughtworks.selenium.grid.configuration.HttpServerConfiguration;
+import com.thoughtworks.selenium.grid.webserver.HttpServerFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.mortbay.jetty.Request;
+import org.mortbay.jetty.Server;
+import org.mortbay.jetty.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * In-process farm of fake remote controls. All of them share a single Jetty server
+ * and thread pool, each listening on its own port so that the hub sees distinct
+ * remote controls. Every request is answered after a fixed latency.
+ */
+public class FakeRemoteControlFarm {
+
+    private static final Log LOGGER = LogFactory.getLog(FakeRemoteControlFarm.class);
+    private final int basePort;
+    private final int size;
+    private final long latencyInMilliseconds;
+    private final FakeRemoteControlProtocol protocol;
+    private Server server;
+
+    public FakeRemoteControlFarm(int basePort, int size, long latencyInMilliseconds, int payloadSizeInBytes) {
+        this.basePort = basePort;
+        this.size = size;
+        this.latencyInMilliseconds = latencyInMilliseconds;
+        this.protocol = new FakeRemoteControlProtocol(payloadSizeInBytes);
+    }
+
+    /**
+     * @param maxConcurrentRequests Maximum number of requests the farm should serve in parallel.
+     */
+    public void start(int maxConcurrentRequests) throws Exception {
+        final HttpServerConfiguration configuration;
+        final HttpServerFactory factory;
+
+        configuration = new HttpServerConfiguration();
+        configuration.setAcceptors(1);
+        // Each connector keeps one thread busy selecting
+        configuration.setMaxThreads(size + maxConcurrentRequests + 10);
+        factory = new HttpServerFactory();
+        server = factory.create("Fake RC Farm", basePort, configuration);
+        for (int i = 1; i < size; i++) {
+            server.addConnector(factory.connector(basePort + i, configuration));
+        }
+        server.setHandler(new FakeRemoteControlHandler());
+        server.start();
+        LOGGER.info("Started " + size + " fake remote controls on ports " + basePort + " to " + (basePort + size - 1));
+    }
+
+    public void stop() throws Exception {
+        if (null != server) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Register all fake remote controls to the hub.
+     *
+     * @param environmentSelector Picks the environment of each remote control.
+     */
+    public void register(HttpClient httpClient, String hubURL, EnvironmentSelector environmentSelector) throws IOException {
+        HttpParameters parameters;
+        Response response;
+
+        for (int i = 0; i < size; i++) {
+            parameters = new HttpParameters();
+            parameters.put("host", "localhost");
+            parameters.put("port", Integer.toString(basePort + i));
+            parameters.put("environment", environmentSelector.environmentFor(i));
+            response = httpClient.post(hubURL + "/registration-manager/register", parameters);
+            if (200 != response.statusCode()) {
+                throw new IllegalStateException("Could not register fake remote control on port "
+                        + (basePort + i) + ": " + response.body());
+            }
+        }
+        LOGGER.info("Registered " + size + " fake remote controls to " + hubURL);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public interface EnvironmentSelector {
+        String environmentFor(int remoteControlIndex);
+    }
+
+    protected class FakeRemoteControlHandler extends AbstractHandler {
+
+        public void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch)
+                throws IOException {
+            final String path;
+            final String reply;
+            final byte[] replyBytes;
+            final OutputStream out;
+
+            path = request.getRequestURI();
+            if (protocol.isHeartbeat(path)) {
+                reply = protocol.heartbeatReply();
+                response.setContentType("text/plain");
+            } else {
+                simulateLatency();
+                if (protocol.isWebDriver(path)) {
+                    IOHelper.copyStream(request.getInputStream(), new NullOutputStream());
+                    reply = protocol.webDriverReply(request.getMethod(), path);
+                    response.setContentType("application/json; charset=utf-8");
+                } else {
+                    reply = protocol.seleneseReply(request.getParameter("cmd"));
+                    response.setContentType("text/plain");
+                }
+            }
+            replyBytes = reply.getBytes("UTF-8");
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentLength(replyBytes.length);
+            out = response.getOutputStream();
+            out.write(replyBytes);
+            out.flush();
+            ((Request) request).setHandled(true);
+        }
+
+        protected void simulateLatency() {
+            if (latencyInMilliseconds <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(latencyInMilliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected static class NullOutputStream extends OutputStream {
+        public void write(int b) {
+        }
+
+        public void write(byte[] buffer, int offset, int length) {
+        }
+    }
+
+}
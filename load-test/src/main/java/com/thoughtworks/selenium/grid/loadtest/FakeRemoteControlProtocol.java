@@ -0,0 +1,62 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Canned replies of a fake remote control, speaking just enough of the Selenese
+ * and WebDriver wire protocols for the hub to create, drive and close sessions.
+ */
+public class FakeRemoteControlProtocol {
+
+    public static final String HEARTBEAT_PATH = "/selenium-server/heartbeat";
+    public static final String SELENESE_PATH = "/selenium-server/driver/";
+    public static final String WEBDRIVER_NEW_SESSION_PATH = "/wd/hub/session";
+    private static final AtomicLong SESSION_IDS = new AtomicLong(System.currentTimeMillis());
+    private final String payload;
+
+    /**
+     * @param payloadSizeInBytes Size of the value returned for regular commands.
+     */
+    public FakeRemoteControlProtocol(int payloadSizeInBytes) {
+        final char[] characters = new char[payloadSizeInBytes];
+
+        Arrays.fill(characters, 'x');
+        this.payload = new String(characters);
+    }
+
+    public boolean isHeartbeat(String path) {
+        return HEARTBEAT_PATH.equals(path);
+    }
+
+    public boolean isWebDriver(String path) {
+        return null != path && path.startsWith(WEBDRIVER_NEW_SESSION_PATH);
+    }
+
+    public String heartbeatReply() {
+        return "OK";
+    }
+
+    public String seleneseReply(String command) {
+        if ("getNewBrowserSession".equals(command)) {
+            return "OK," + SESSION_IDS.incrementAndGet();
+        } else if ("testComplete".equals(command)) {
+            return "OK";
+        }
+        return "OK," + payload;
+    }
+
+    /**
+     * Session ids are UUIDs, as issued by modern drivers.
+     */
+    public String webDriverReply(String method, String path) {
+        if ("POST".equals(method) && WEBDRIVER_NEW_SESSION_PATH.equals(path)) {
+            return "{\"status\":0,\"sessionId\":\"" + UUID.randomUUID() + "\",\"value\":{}}";
+        } else if ("DELETE".equals(method)) {
+            return "{\"status\":0,\"value\":null}";
+        }
+        return "{\"status\":0,\"value\":\"" + payload + "\"}";
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import com.thoughtworks.selenium.grid.IOHelper;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.NameValuePair;
+import org.apache.commons.httpclient.methods.DeleteMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Minimal Selenese and WebDriver client driving the hub on behalf of simulated tests.
+ */
+public class HubClient {
+
+    private final String hubURL;
+    private final HttpClient client;
+
+    public HubClient(String hubURL, int maxConnections) {
+        final MultiThreadedHttpConnectionManager connectionManager;
+
+        this.hubURL = hubURL;
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        connectionManager.getParams().setMaxTotalConnections(maxConnections);
+        connectionManager.getParams().setDefaultMaxConnectionsPerHost(maxConnections);
+        this.client = new HttpClient(connectionManager);
+    }
+
+    /**
+     * @param parameters Selenese parameter names and values, e.g. "cmd", "click", "1", "link=Home"
+     * @return Body of the response
+     * @throws IOException if the hub did not reply with "OK"
+     */
+    public String selenese(String... parameters) throws IOException {
+        final PostMethod method;
+        final String body;
+
+        method = new PostMethod(hubURL + "/selenium-server/driver/");
+        for (int i = 0; i < parameters.length; i += 2) {
+            method.addParameter(new NameValuePair(parameters[i], parameters[i + 1]));
+        }
+        body = execute(method);
+        if (!body.startsWith("OK")) {
+            throw new IOException("Selenese command failed: " + body);
+        }
+        return body;
+    }
+
+    public String webDriverPost(String path, String json) throws IOException {
+        final PostMethod method;
+
+        method = new PostMethod(hubURL + path);
+        method.setRequestEntity(new StringRequestEntity(json, "application/json", "UTF-8"));
+        return webDriver(method);
+    }
+
+    public String webDriverDelete(String path) throws IOException {
+        return webDriver(new DeleteMethod(hubURL + path));
+    }
+
+    protected String webDriver(HttpMethod method) throws IOException {
+        final String body;
+
+        body = execute(method);
+        if (!body.startsWith("{\"status\":0")) {
+            throw new IOException("WebDriver command failed: " + body);
+        }
+        return body;
+    }
+
+    protected String execute(HttpMethod method) throws IOException {
+        final ByteArrayOutputStream body;
+        final int statusCode;
+
+        try {
+            statusCode = client.executeMethod(method);
+            if (200 != statusCode) {
+                throw new IOException("Hub replied with HTTP " + statusCode + " to " + method.getURI());
+            }
+            body = new ByteArrayOutputStream();
+            IOHelper.copyStream(method.getResponseBodyAsStream(), body);
+            return body.toString("UTF-8");
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Thread-safe recording of latencies, keeping every single sample so that
+ * percentiles are exact.
+ */
+public class LatencyRecorder {
+
+    private long[] samplesInNanoseconds;
+    private int count;
+
+    public LatencyRecorder() {
+        this.samplesInNanoseconds = new long[1024];
+        this.count = 0;
+    }
+
+    public synchronized void record(long latencyInNanoseconds) {
+        if (count == samplesInNanoseconds.length) {
+            samplesInNanoseconds = copyOf(samplesInNanoseconds, count * 2);
+        }
+        samplesInNanoseconds[count++] = latencyInNanoseconds;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @param percentile Between 0 and 100, e.g. 99.9
+     * @return Latency under which the given percentage of samples fall. 0 if nothing was recorded.
+     */
+    public double percentileInMilliseconds(double percentile) {
+        final long[] sortedSamples;
+        final int rank;
+
+        sortedSamples = sortedSamples();
+        if (0 == sortedSamples.length) {
+            return 0;
+        }
+        // Nearest rank, ignoring floating point noise (99.9% of 1000 samples is rank 999, not 1000)
+        rank = (int) Math.ceil(percentile / 100 * sortedSamples.length - 1e-9);
+        return milliseconds(sortedSamples[Math.max(0, Math.min(rank, sortedSamples.length) - 1)]);
+    }
+
+    public double maxInMilliseconds() {
+        return percentileInMilliseconds(100);
+    }
+
+    protected synchronized long[] sortedSamples() {
+        final long[] samples;
+
+        samples = copyOf(samplesInNanoseconds, count);
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    protected static double milliseconds(long nanoseconds) {
+        return nanoseconds / 1000000.0;
+    }
+
+    protected static long[] copyOf(long[] source, int length) {
+        final long[] copy = new long[length];
+
+        System.arraycopy(source, 0, copy, 0, Math.min(source.length, length));
+        return copy;
+    }
+
+}
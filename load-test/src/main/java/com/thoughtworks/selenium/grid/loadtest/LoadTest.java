@@ -0,0 +1,129 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.HttpConnectionPool;
+import com.thoughtworks.selenium.grid.hub.HubRegistry;
+import com.thoughtworks.selenium.grid.hub.HubServer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test of the hub: registers a farm of in-process fake remote controls
+ * to a hub, drives concurrent simulated tests through it and reports the outcome.
+ */
+public class LoadTest {
+
+    private static final Log LOGGER = LogFactory.getLog(LoadTest.class);
+    private final LoadTestOptionParser.Options options;
+
+    public LoadTest(LoadTestOptionParser.Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestOptionParser.Options options;
+
+        options = new LoadTestOptionParser().parseOptions(args);
+        new LoadTest(options).run().print(System.out);
+        System.exit(0);
+    }
+
+    public LoadTestReport run() throws Exception {
+        final FakeRemoteControlFarm farm;
+        final HttpConnectionPool registrationConnections;
+        final LoadTestStatistics statistics;
+        final LoadTestReport report;
+        final List<Thread> sessions;
+        final String hubURL;
+        final HubClient hub;
+        final long deadline;
+
+        hubURL = (null == options.hubURL()) ? launchHubInProcess() : options.hubURL();
+        farm = new FakeRemoteControlFarm(options.basePort(), options.remoteControls(),
+                options.latencyInMilliseconds(), options.payloadSizeInBytes());
+        farm.start(options.sessions());
+        registrationConnections = new HttpConnectionPool(2, 2, 10000, 30000, 60000);
+        try {
+            farm.register(registrationConnections.httpClient(), hubURL, new FakeRemoteControlFarm.EnvironmentSelector() {
+                public String environmentFor(int remoteControlIndex) {
+                    return LoadTest.this.environmentFor(options.webDriver(remoteControlIndex));
+                }
+            });
+        } finally {
+            registrationConnections.shutdown();
+        }
+
+        statistics = new LoadTestStatistics();
+        report = new LoadTestReport(statistics);
+        hub = new HubClient(hubURL, options.sessions());
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.durationInSeconds());
+        sessions = new ArrayList<Thread>(options.sessions());
+        for (int i = 0; i < options.sessions(); i++) {
+            sessions.add(new Thread(new SimulatedSession(hub, options.webDriver(i), environmentFor(options.webDriver(i)),
+                    options.commandsPerSession(), deadline, statistics), "Simulated Session " + i));
+        }
+
+        LOGGER.info("Running " + options.sessions() + " simulated sessions against " + options.remoteControls()
+                + " fake remote controls for " + options.durationInSeconds() + " s");
+        report.start();
+        for (Thread session : sessions) {
+            session.start();
+        }
+        for (Thread session : sessions) {
+            while (session.isAlive()) {
+                session.join(1000);
+                report.sampleHeap();
+            }
+        }
+        report.finish();
+        farm.stop();
+        return report;
+    }
+
+    protected String environmentFor(boolean webDriver) {
+        return webDriver ? SimulatedSession.WEBDRIVER_ENVIRONMENT : options.environment();
+    }
+
+    /**
+     * Launch the hub in this JVM so that its heap and GC activity show up in the report.
+     *
+     * @return Base URL of the hub, once it accepts requests.
+     */
+    protected String launchHubInProcess() throws InterruptedException {
+        final Thread hubThread;
+        final String hubURL;
+        final HttpClient httpClient;
+
+        hubThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    HubServer.main(new String[0]);
+                } catch (Exception e) {
+                    LOGGER.error("In-process hub failed", e);
+                }
+            }
+        }, "In-process Hub");
+        hubThread.setDaemon(true);
+        hubThread.start();
+
+        hubURL = "http://localhost:" + HubRegistry.registry().gridConfiguration().getHub().getPort();
+        httpClient = new HttpClient();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                if (200 == httpClient.get(hubURL + "/heartbeat").statusCode()) {
+                    return hubURL;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Hub not up yet: " + e.getMessage());
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("In-process hub did not start on " + hubURL);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+/**
+ * Basic option parser for the hub load test.
+ */
+public class LoadTestOptionParser {
+
+    public static final String SELENESE = "selenese";
+    public static final String WEBDRIVER = "webdriver";
+    public static final String MIXED = "mixed";
+
+    public static class Options {
+
+        private String hubURL;
+        private int remoteControls;
+        private int basePort;
+        private int sessions;
+        private int commandsPerSession;
+        private int durationInSeconds;
+        private long latencyInMilliseconds;
+        private int payloadSizeInBytes;
+        private String protocol;
+        private String environment;
+
+        protected Options() {
+            this.hubURL = null;
+            this.remoteControls = 50;
+            this.basePort = 6000;
+            this.sessions = 100;
+            this.commandsPerSession = 20;
+            this.durationInSeconds = 60;
+            this.latencyInMilliseconds = 10;
+            this.payloadSizeInBytes = 256;
+            this.protocol = MIXED;
+            this.environment = "*firefox";
+        }
+
+        /**
+         * @return Base URL of the hub under test. Null to launch a hub in-process.
+         */
+        public String hubURL() {
+            return hubURL;
+        }
+
+        public int remoteControls() {
+            return remoteControls;
+        }
+
+        public int basePort() {
+            return basePort;
+        }
+
+        public int sessions() {
+            return sessions;
+        }
+
+        public int commandsPerSession() {
+            return commandsPerSession;
+        }
+
+        public int durationInSeconds() {
+            return durationInSeconds;
+        }
+
+        public long latencyInMilliseconds() {
+            return latencyInMilliseconds;
+        }
+
+        public int payloadSizeInBytes() {
+            return payloadSizeInBytes;
+        }
+
+        public String protocol() {
+            return protocol;
+        }
+
+        public String environment() {
+            return environment;
+        }
+
+        /**
+         * @return Whether the n-th remote control or simulated session speaks WebDriver rather than Selenese.
+         */
+        public boolean webDriver(int index) {
+            if (MIXED.equals(protocol)) {
+                return index % 2 == 1;
+            }
+            return WEBDRIVER.equals(protocol);
+        }
+    }
+
+    protected Options parseOptions(String[] args) {
+        final Options options = new Options();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--help".equalsIgnoreCase(args[i])) {
+                usage(null);
+                System.exit(1);
+            } else if ("-hubURL".equalsIgnoreCase(args[i])) {
+                options.hubURL = args[++i];
+            } else if ("-remoteControls".equalsIgnoreCase(args[i])) {
+                options.remoteControls = Integer.parseInt(args[++i]);
+            } else if ("-basePort".equalsIgnoreCase(args[i])) {
+                options.basePort = Integer.parseInt(args[++i]);
+            } else if ("-sessions".equalsIgnoreCase(args[i])) {
+                options.sessions = Integer.parseInt(args[++i]);
+            } else if ("-commandsPerSession".equalsIgnoreCase(args[i])) {
+                options.commandsPerSession = Integer.parseInt(args[++i]);
+            } else if ("-durationInSeconds".equalsIgnoreCase(args[i])) {
+                options.durationInSeconds = Integer.parseInt(args[++i]);
+            } else if ("-latencyInMilliseconds".equalsIgnoreCase(args[i])) {
+                options.latencyInMilliseconds = Long.parseLong(args[++i]);
+            } else if ("-payloadSizeInBytes".equalsIgnoreCase(args[i])) {
+                options.payloadSizeInBytes = Integer.parseInt(args[++i]);
+            } else if ("-protocol".equalsIgnoreCase(args[i])) {
+                options.protocol = args[++i];
+            } else if ("-env".equalsIgnoreCase(args[i])) {
+                options.environment = args[++i];
+            } else {
+                usage("Unknown option '" + args[i] + "'");
+                throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+            }
+        }
+        if (!SELENESE.equals(options.protocol) && !WEBDRIVER.equals(options.protocol) && !MIXED.equals(options.protocol)) {
+            throw new IllegalArgumentException("Unknown protocol '" + options.protocol + "'");
+        }
+        return options;
+    }
+
+    protected void usage(String msg) {
+        if (msg != null) {
+            println(msg + ":");
+        }
+        println("Usage: java -jar selenium-grid-load-test*.jar [options]\n");
+        println("-hubURL <url>: hub under test (default: launch a hub in-process, configured by grid_configuration.yml)");
+        println("-remoteControls <n>: number of fake remote controls (default 50)");
+        println("-basePort <nnnn>: port of the first fake remote control (default 6000)");
+        println("-sessions <n>: number of concurrent simulated tests (default 100)");
+        println("-commandsPerSession <n>: commands sent within each session (default 20)");
+        println("-durationInSeconds <n>: how long to keep starting new sessions (default 60)");
+        println("-latencyInMilliseconds <n>: time fake remote controls take to reply (default 10)");
+        println("-payloadSizeInBytes <n>: size of the value returned by regular commands (default 256)");
+        println("-protocol <selenese|webdriver|mixed>: protocol spoken by simulated tests (default mixed)");
+        println("-env <environment>: environment of Selenese remote controls (default *firefox)");
+    }
+
+    protected void println(String msg) {
+        System.err.println(msg);
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Summary of a load test: throughput, latency percentiles and heap/GC activity of
+ * the JVM (which includes the hub when it is launched in-process).
+ */
+public class LoadTestReport {
+
+    private final LoadTestStatistics statistics;
+    private long startedAt;
+    private long finishedAt;
+    private long gcCountAtStart;
+    private long gcTimeAtStart;
+    private long peakHeapUsedInBytes;
+
+    public LoadTestReport(LoadTestStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public void start() {
+        startedAt = System.nanoTime();
+        gcCountAtStart = gcCount();
+        gcTimeAtStart = gcTimeInMilliseconds();
+        sampleHeap();
+    }
+
+    /**
+     * Call periodically while the load test is running to track peak heap usage.
+     */
+    public void sampleHeap() {
+        peakHeapUsedInBytes = Math.max(peakHeapUsedInBytes, heap().getUsed());
+    }
+
+    public void finish() {
+        finishedAt = System.nanoTime();
+        sampleHeap();
+    }
+
+    public double durationInSeconds() {
+        return (finishedAt - startedAt) / 1000000000.0;
+    }
+
+    public double commandsPerSecond() {
+        return statistics.commandLatencies().count() / durationInSeconds();
+    }
+
+    public void print(PrintStream out) {
+        final LatencyRecorder commands;
+        final LatencyRecorder newSessions;
+
+        commands = statistics.commandLatencies();
+        newSessions = statistics.newSessionLatencies();
+        out.println("=== Hub load test ===");
+        out.println(String.format("Duration:            %.1f s", durationInSeconds()));
+        out.println(String.format("Sessions:            %d completed, %d errors",
+                statistics.completedSessions(), statistics.errors()));
+        out.println(String.format("Commands:            %d (%.1f commands/s)", commands.count(), commandsPerSecond()));
+        out.println(String.format("Command latency:     p50=%.2f ms p99=%.2f ms p999=%.2f ms max=%.2f ms",
+                commands.percentileInMilliseconds(50), commands.percentileInMilliseconds(99),
+                commands.percentileInMilliseconds(99.9), commands.maxInMilliseconds()));
+        out.println(String.format("New session wait:    p50=%.2f ms p99=%.2f ms max=%.2f ms",
+                newSessions.percentileInMilliseconds(50), newSessions.percentileInMilliseconds(99),
+                newSessions.maxInMilliseconds()));
+        out.println(String.format("Heap:                %d MB used, %d MB peak, %d MB max",
+                megabytes(heap().getUsed()), megabytes(peakHeapUsedInBytes), megabytes(heap().getMax())));
+        out.println(String.format("GC:                  %d collections, %d ms",
+                gcCount() - gcCountAtStart, gcTimeInMilliseconds() - gcTimeAtStart));
+    }
+
+    protected MemoryUsage heap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+
+    protected long gcCount() {
+        long count = 0;
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    protected long gcTimeInMilliseconds() {
+        long time = 0;
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    protected static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+}
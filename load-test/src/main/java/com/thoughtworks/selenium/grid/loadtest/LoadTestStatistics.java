@@ -0,0 +1,52 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outcome of a load test, shared by all simulated sessions.
+ */
+public class LoadTestStatistics {
+
+    private final LatencyRecorder commandLatencies;
+    private final LatencyRecorder newSessionLatencies;
+    private final AtomicInteger completedSessions;
+    private final AtomicInteger errors;
+
+    public LoadTestStatistics() {
+        this.commandLatencies = new LatencyRecorder();
+        this.newSessionLatencies = new LatencyRecorder();
+        this.completedSessions = new AtomicInteger(0);
+        this.errors = new AtomicInteger(0);
+    }
+
+    /**
+     * Latencies of all commands issued within a session, including the one closing it.
+     */
+    public LatencyRecorder commandLatencies() {
+        return commandLatencies;
+    }
+
+    /**
+     * Time to get a new session, mostly spent queued in the hub waiting for a remote control.
+     */
+    public LatencyRecorder newSessionLatencies() {
+        return newSessionLatencies;
+    }
+
+    public void sessionCompleted() {
+        completedSessions.incrementAndGet();
+    }
+
+    public int completedSessions() {
+        return completedSessions.get();
+    }
+
+    public void error() {
+        errors.incrementAndGet();
+    }
+
+    public int errors() {
+        return errors.get();
+    }
+
+}
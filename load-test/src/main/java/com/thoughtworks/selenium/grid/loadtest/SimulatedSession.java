@@ -0,0 +1,103 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Simulated test, running back to back sessions of a fixed number of commands
+ * against the hub until the load test is over.
+ */
+public class SimulatedSession implements Runnable {
+
+    /**
+     * Environment the hub derives from the capabilities of WebDriver new session requests.
+     */
+    public static final String WEBDRIVER_ENVIRONMENT = "firefox on windows";
+    private static final Log LOGGER = LogFactory.getLog(SimulatedSession.class);
+    private static final Pattern WEBDRIVER_SESSION_ID = Pattern.compile(".*\"sessionId\":\"([^\"]+)\".*");
+    private static final String NEW_WEBDRIVER_SESSION =
+            "{\"desiredCapabilities\":{\"browserName\":\"firefox\",\"platform\":\"WINDOWS\"}}";
+    private final HubClient hub;
+    private final boolean webDriver;
+    private final String environment;
+    private final int commandsPerSession;
+    private final long deadline;
+    private final LoadTestStatistics statistics;
+
+    /**
+     * @param environment Environment requested by Selenese sessions.
+     * @param deadline    Time (as returned by System.nanoTime()) after which no new session is started.
+     */
+    public SimulatedSession(HubClient hub, boolean webDriver, String environment, int commandsPerSession,
+                            long deadline, LoadTestStatistics statistics) {
+        this.hub = hub;
+        this.webDriver = webDriver;
+        this.environment = environment;
+        this.commandsPerSession = commandsPerSession;
+        this.deadline = deadline;
+        this.statistics = statistics;
+    }
+
+    public void run() {
+        while (System.nanoTime() < deadline) {
+            try {
+                runOneSession();
+                statistics.sessionCompleted();
+            } catch (IOException e) {
+                LOGGER.warn("Simulated session failed: " + e.getMessage());
+                statistics.error();
+            }
+        }
+    }
+
+    protected void runOneSession() throws IOException {
+        final String sessionId;
+        long start;
+
+        start = System.nanoTime();
+        sessionId = newSession();
+        statistics.newSessionLatencies().record(System.nanoTime() - start);
+        for (int i = 0; i < commandsPerSession; i++) {
+            start = System.nanoTime();
+            command(sessionId);
+            statistics.commandLatencies().record(System.nanoTime() - start);
+        }
+        start = System.nanoTime();
+        testComplete(sessionId);
+        statistics.commandLatencies().record(System.nanoTime() - start);
+    }
+
+    protected String newSession() throws IOException {
+        final Matcher matcher;
+
+        if (!webDriver) {
+            return hub.selenese("cmd", "getNewBrowserSession", "1", environment, "2", "http://localhost").substring(3);
+        }
+        matcher = WEBDRIVER_SESSION_ID.matcher(hub.webDriverPost("/wd/hub/session", NEW_WEBDRIVER_SESSION));
+        if (!matcher.matches()) {
+            throw new IOException("No session id in WebDriver new session response");
+        }
+        return matcher.group(1);
+    }
+
+    protected void command(String sessionId) throws IOException {
+        if (webDriver) {
+            hub.webDriverPost("/wd/hub/session/" + sessionId + "/element", "{\"using\":\"id\",\"value\":\"q\"}");
+        } else {
+            hub.selenese("cmd", "getTitle", "sessionId", sessionId);
+        }
+    }
+
+    protected void testComplete(String sessionId) throws IOException {
+        if (webDriver) {
+            hub.webDriverDelete("/wd/hub/session/" + sessionId);
+        } else {
+            hub.selenese("cmd", "testComplete", "sessionId", sessionId);
+        }
+    }
+
+}
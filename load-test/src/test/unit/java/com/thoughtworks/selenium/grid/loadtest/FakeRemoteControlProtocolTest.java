@@ -0,0 +1,60 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import org.junit.Test;
+
+public class FakeRemoteControlProtocolTest {
+
+    @Test
+    public void heartbeatIsRecognizedByItsPath() {
+        assertTrue(new FakeRemoteControlProtocol(0).isHeartbeat("/selenium-server/heartbeat"));
+        assertFalse(new FakeRemoteControlProtocol(0).isHeartbeat("/selenium-server/driver/"));
+    }
+
+    @Test
+    public void webDriverRequestsAreRecognizedByTheirPath() {
+        assertTrue(new FakeRemoteControlProtocol(0).isWebDriver("/wd/hub/session/123/url"));
+        assertFalse(new FakeRemoteControlProtocol(0).isWebDriver("/selenium-server/driver/"));
+    }
+
+    @Test
+    public void seleneseNewSessionRepliesWithANewSessionIdEachTime() {
+        final FakeRemoteControlProtocol protocol = new FakeRemoteControlProtocol(0);
+        final String first = protocol.seleneseReply("getNewBrowserSession");
+        final String second = protocol.seleneseReply("getNewBrowserSession");
+
+        assertTrue(first.matches("OK,\\d+"));
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void seleneseTestCompleteRepliesOK() {
+        assertEquals("OK", new FakeRemoteControlProtocol(10).seleneseReply("testComplete"));
+    }
+
+    @Test
+    public void seleneseCommandsReplyWithAPayloadOfTheConfiguredSize() {
+        assertEquals("OK,xxxx", new FakeRemoteControlProtocol(4).seleneseReply("getTitle"));
+    }
+
+    @Test
+    public void webDriverNewSessionRepliesWithAUUIDSessionId() {
+        assertTrue(new FakeRemoteControlProtocol(0).webDriverReply("POST", "/wd/hub/session")
+                .matches("\\{\"status\":0,\"sessionId\":\"[0-9a-f-]{36}\",\"value\":\\{\\}\\}"));
+    }
+
+    @Test
+    public void webDriverCommandsReplyWithAPayloadOfTheConfiguredSize() {
+        assertEquals("{\"status\":0,\"value\":\"xxx\"}",
+                new FakeRemoteControlProtocol(3).webDriverReply("POST", "/wd/hub/session/1/element"));
+    }
+
+    @Test
+    public void webDriverDeleteRepliesWithANullValue() {
+        assertEquals("{\"status\":0,\"value\":null}",
+                new FakeRemoteControlProtocol(3).webDriverReply("DELETE", "/wd/hub/session/1"));
+    }
+
+}
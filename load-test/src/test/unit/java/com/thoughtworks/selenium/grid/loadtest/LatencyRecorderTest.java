@@ -0,0 +1,47 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import static junit.framework.Assert.assertEquals;
+import org.junit.Test;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void percentilesAreZeroWhenNothingWasRecorded() {
+        assertEquals(0.0, new LatencyRecorder().percentileInMilliseconds(99));
+    }
+
+    @Test
+    public void countIsTheNumberOfRecordedSamples() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+
+        recorder.record(1);
+        recorder.record(2);
+        assertEquals(2, recorder.count());
+    }
+
+    @Test
+    public void percentilesAreComputedFromAllSamplesInMilliseconds() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+
+        for (int i = 1000; i >= 1; i--) {
+            recorder.record(i * 1000000L);
+        }
+        assertEquals(500.0, recorder.percentileInMilliseconds(50));
+        assertEquals(990.0, recorder.percentileInMilliseconds(99));
+        assertEquals(999.0, recorder.percentileInMilliseconds(99.9));
+        assertEquals(1000.0, recorder.maxInMilliseconds());
+    }
+
+    @Test
+    public void recordingKeepsEarlierSamplesWhenGrowing() {
+        final LatencyRecorder recorder = new LatencyRecorder();
+
+        recorder.record(5000000L);
+        for (int i = 0; i < 5000; i++) {
+            recorder.record(1000000L);
+        }
+        assertEquals(5001, recorder.count());
+        assertEquals(5.0, recorder.maxInMilliseconds());
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.thoughtworks.selenium.grid.loadtest;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import org.junit.Test;
+
+public class LoadTestOptionParserTest {
+
+    @Test
+    public void launchesAHubInProcessByDefault() {
+        assertNull(new LoadTestOptionParser().parseOptions(new String[0]).hubURL());
+    }
+
+    @Test
+    public void optionsCanBeSetFromTheCommandLine() {
+        final LoadTestOptionParser.Options options;
+
+        options = new LoadTestOptionParser().parseOptions(new String[]{
+                "-hubURL", "http://hub:4444", "-remoteControls", "1000", "-sessions", "2000",
+                "-commandsPerSession", "5", "-durationInSeconds", "30", "-latencyInMilliseconds", "0",
+                "-payloadSizeInBytes", "4096", "-protocol", "webdriver", "-env", "*chrome", "-basePort", "7000"});
+        assertEquals("http://hub:4444", options.hubURL());
+        assertEquals(1000, options.remoteControls());
+        assertEquals(2000, options.sessions());
+        assertEquals(5, options.commandsPerSession());
+        assertEquals(30, options.durationInSeconds());
+        assertEquals(0, options.latencyInMilliseconds());
+        assertEquals(4096, options.payloadSizeInBytes());
+        assertEquals("webdriver", options.protocol());
+        assertEquals("*chrome", options.environment());
+        assertEquals(7000, options.basePort());
+    }
+
+    @Test
+    public void mixedProtocolAlternatesBetweenSeleneseAndWebDriver() {
+        final LoadTestOptionParser.Options options;
+
+        options = new LoadTestOptionParser().parseOptions(new String[]{"-protocol", "mixed"});
+        assertFalse(options.webDriver(0));
+        assertTrue(options.webDriver(1));
+        assertFalse(options.webDriver(2));
+    }
+
+    @Test
+    public void seleneseProtocolNeverUsesWebDriver() {
+        assertFalse(new LoadTestOptionParser().parseOptions(new String[]{"-protocol", "selenese"}).webDriver(1));
+    }
+
+    @Test
+    public void unknownProtocolIsRejected() {
+        try {
+            new LoadTestOptionParser().parseOptions(new String[]{"-protocol", "telnet"});
+            fail("did not catch IllegalArgumentException as expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown protocol 'telnet'", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.thoughtworks.selenium.grid.remotecontrol;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Registration Request of many Remote Controls to Selenium Grid Hub at once, for agents
+ * hosting many Remote Controls.
+ */
+public class BatchRegistrationRequest {
+
+    private static final Log LOGGER = LogFactory.getLog(BatchRegistrationRequest.class);
+    private final String targetURL;
+    private final List<RegistrationInfo> registrations;
+
+    /**
+     * @param registrations Remote Controls to register, all with the same hub.
+     */
+    public BatchRegistrationRequest(String hubURL, List<RegistrationInfo> registrations) {
+        this.targetURL = hubURL + "/registration-manager/register-batch";
+        this.registrations = registrations;
+    }
+
+    public PostMethod postMethod() {
+        final PostMethod postMethod = new PostMethod(targetURL);
+
+        for (RegistrationInfo registration : registrations) {
+            postMethod.addParameter("host", registration.host());
+            postMethod.addParameter("port", registration.port());
+            postMethod.addParameter("environment", registration.environment());
+            postMethod.addParameter("maxConcurrentSessions", Integer.toString(registration.maxConcurrentSessions()));
+        }
+        return postMethod;
+    }
+
+    public int execute() throws IOException {
+        final int status;
+
+        LOGGER.info("Registering " + registrations.size() + " remote controls to " + targetURL);
+        status = new HttpClient().executeMethod(postMethod());
+        if (200 != status) {
+            throw new IllegalStateException("Could not register successfuly to " + targetURL
+                    + " " + registrations + ". Most likely one of these environments is not defined on the hub.");
+        }
+        return status;
+    }
+
+    public String targetURL() {
+        return targetURL;
+    }
+
+}
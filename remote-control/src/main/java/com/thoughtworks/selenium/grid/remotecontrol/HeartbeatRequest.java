@@ -6,30 +6,58 @@ import com.thoughtworks.selenium.grid.Response;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
 /**
  * Heartbeat Request to Selenium Grid Hub.
+ * <p/>
+ * When pushing its status, the remote control POSTs it to the hub, which then
+ * stops polling it: the hub unregisters it if it does not push it again in time.
  */
 public class HeartbeatRequest {
 
     private static final Log LOGGER = LogFactory.getLog(HeartbeatRequest.class);
     public static enum Status { DOWN, UNREGISTERED, OK }
-    private final String heartBeatURL;
+    private final RegistrationInfo registrationInfo;
+    private final boolean pushStatus;
+    private final HttpClient httpClient;
 
     public HeartbeatRequest(RegistrationInfo registrationInfo) {
-        heartBeatURL = registrationInfo.hubURL() + "/heartbeat?host=" + registrationInfo.host()
-                                                 + "&port=" + registrationInfo.port();
+        this(registrationInfo, false);
+    }
+
+    /**
+     * @param pushStatus Whether to push the status of the remote control to the hub, instead of
+     *                   only checking that the hub is up.
+     */
+    public HeartbeatRequest(RegistrationInfo registrationInfo, boolean pushStatus) {
+        this.registrationInfo = registrationInfo;
+        this.pushStatus = pushStatus;
+        this.httpClient = new HttpClient();
     }
 
     public String heartBeatURL() {
-        return heartBeatURL;
+        if (pushStatus) {
+            return registrationInfo.hubURL() + "/heartbeat";
+        }
+        return registrationInfo.hubURL() + "/heartbeat?host=" + registrationInfo.host()
+                                         + "&port=" + registrationInfo.port();
     }
 
     public Status execute() {
+        final String heartBeatURL;
         final Response response;
 
+        heartBeatURL = heartBeatURL();
         try {
-            LOGGER.info("Ping Hub at " + heartBeatURL);
-            response = httpClient().get(heartBeatURL);
+            if (pushStatus) {
+                LOGGER.debug("Push status to Hub at " + heartBeatURL);
+                response = httpClient().post(heartBeatURL, statusParameters());
+            } else {
+                LOGGER.info("Ping Hub at " + heartBeatURL);
+                response = httpClient().get(heartBeatURL);
+            }
         } catch (Exception e) {
             LOGGER.warn("Hub at " + heartBeatURL + " is unresponsive");
             return Status.DOWN;
@@ -46,9 +74,40 @@ public class HeartbeatRequest {
         return Status.OK;
     }
 
-    protected HttpClient httpClient() {
-        return new HttpClient();
+    public boolean pushStatus() {
+        return pushStatus;
+    }
+
+    protected HttpParameters statusParameters() {
+        final HttpParameters parameters;
+
+        parameters = new HttpParameters();
+        parameters.put("host", registrationInfo.host());
+        parameters.put("port", registrationInfo.port());
+        parameters.put("load", Double.toString(systemLoadAverage()));
+        return parameters;
     }
 
+    /**
+     * @return System load average over the last minute, or a negative value if it is not available
+     *         (Java 5, or platforms not providing it).
+     */
+    protected double systemLoadAverage() {
+        final OperatingSystemMXBean operatingSystem;
+
+        operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        try {
+            return (Double) OperatingSystemMXBean.class.getMethod("getSystemLoadAverage").invoke(operatingSystem);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return HTTP client shared by all heartbeats, so that they reuse the same connections.
+     */
+    protected HttpClient httpClient() {
+        return httpClient;
+    }
 
 }
\ No newline at end of file
@@ -15,6 +15,9 @@ public class OptionParser {
         private String environment;
         private String hubURL;
         private int hubPollerIntervalInSeconds;
+        private int heartbeatIntervalInSeconds;
+        private int maxConcurrentSessions;
+        private boolean pushStatus;
         private final List<String> seleniumServerOptions;
 
         protected Options() {
@@ -23,6 +26,8 @@ public class OptionParser {
             this.environment = "*firefox";
             this.hubURL = "http://localhost:4444";
             this.hubPollerIntervalInSeconds = 180;
+            this.heartbeatIntervalInSeconds = 10;
+            this.maxConcurrentSessions = 1;
             this.seleniumServerOptions = new ArrayList<String>(10);
         }
 
@@ -46,6 +51,33 @@ public class OptionParser {
             return hubPollerIntervalInSeconds;
         }
 
+        /**
+         * @return How often the remote control pushes its status to the hub. Should be well below
+         *         the remoteControlHeartbeatTimeoutInSeconds of the hub.
+         */
+        public int heartbeatIntervalInSeconds() {
+            return heartbeatIntervalInSeconds;
+        }
+
+        /**
+         * @return How often the remote control contacts the hub: the heartbeat interval when pushing
+         *         its status, the hub poller interval otherwise.
+         */
+        public int pollingIntervalInSeconds() {
+            return pushStatus ? heartbeatIntervalInSeconds : hubPollerIntervalInSeconds;
+        }
+
+        public int maxConcurrentSessions() {
+            return maxConcurrentSessions;
+        }
+
+        /**
+         * @return Whether the remote control pushes its status to the hub instead of being polled by it.
+         */
+        public boolean pushStatus() {
+            return pushStatus;
+        }
+
         public List<String> seleniumServerOptions() {
             return seleniumServerOptions;
         }
@@ -73,6 +105,24 @@ public class OptionParser {
         public void setHubPollerIntervalInSeconds(String hubPollerIntervalInSeconds) {
             this.hubPollerIntervalInSeconds = Integer.parseInt(hubPollerIntervalInSeconds);
         }
+
+        public void setHeartbeatIntervalInSeconds(String heartbeatIntervalInSeconds) {
+            this.heartbeatIntervalInSeconds = Integer.parseInt(heartbeatIntervalInSeconds);
+        }
+
+        public void setMaxConcurrentSessions(String maxConcurrentSessions) {
+            this.maxConcurrentSessions = Integer.parseInt(maxConcurrentSessions);
+        }
+
+        public void setHeartbeatMode(String heartbeatMode) {
+            if ("push".equalsIgnoreCase(heartbeatMode)) {
+                this.pushStatus = true;
+            } else if ("poll".equalsIgnoreCase(heartbeatMode)) {
+                this.pushStatus = false;
+            } else {
+                throw new IllegalArgumentException("Invalid heartbeat mode '" + heartbeatMode + "', should be poll or push");
+            }
+        }
     }
 
     protected Options parseOptions(String[] args) {
@@ -92,6 +142,12 @@ public class OptionParser {
                 options.setHubURL(args[++i]);
             } else if ("-hubPollerIntervalInSeconds".equalsIgnoreCase(args[i])) {
                 options.setHubPollerIntervalInSeconds(args[++i]);
+            } else if ("-maxConcurrentSessions".equalsIgnoreCase(args[i])) {
+                options.setMaxConcurrentSessions(args[++i]);
+            } else if ("-heartbeatMode".equalsIgnoreCase(args[i])) {
+                options.setHeartbeatMode(args[++i]);
+            } else if ("-heartbeatIntervalInSeconds".equalsIgnoreCase(args[i])) {
+                options.setHeartbeatIntervalInSeconds(args[++i]);
             } else {
                 options.seleniumServerOptions.add(args[i]);
             }
@@ -112,6 +168,12 @@ public class OptionParser {
         println("-host <hostname>: hostname of the machine the selenium server is launched on (default localhost)");
         println("-env <environment>: environment offered by this selenium server (default *firefox)");
         println("-hubURL <url>: base url of the central Hub to register to (default http://localhost:4444)");
+        println("-maxConcurrentSessions <n>: number of browsers this selenium server can run at the same time (default 1)");
+        println("-hubPollerIntervalInSeconds <n>: how often to check the hub when polled by it (default 180)");
+        println("-heartbeatMode <poll|push>: push the status of this selenium server to the hub instead of being polled by it,");
+        println("                            the hub must have a remoteControlHeartbeatTimeoutInSeconds (default poll)");
+        println("-heartbeatIntervalInSeconds <n>: how often to push the status to the hub, must be well below");
+        println("                                 the remoteControlHeartbeatTimeoutInSeconds of the hub (default 10)");
     }
 
     protected void println(String msg) {
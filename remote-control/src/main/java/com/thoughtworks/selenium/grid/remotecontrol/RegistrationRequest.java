@@ -1,5 +1,6 @@
 package com.thoughtworks.selenium.grid.remotecontrol;
 
+import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -11,12 +12,21 @@ import java.io.IOException;
 public class RegistrationRequest extends HubRequest {
 
     private static final Log LOGGER = LogFactory.getLog(RegistrationRequest.class);
+    private final int maxConcurrentSessions;
 
     public RegistrationRequest(RegistrationInfo registrationInfo) {
       super(registrationInfo.hubURL() + "/registration-manager/register",
             registrationInfo.host(),
             registrationInfo.port(),
             registrationInfo.environment());
+        this.maxConcurrentSessions = registrationInfo.maxConcurrentSessions();
+    }
+
+    public PostMethod postMethod() {
+        final PostMethod postMethod = super.postMethod();
+        postMethod.addParameter("maxConcurrentSessions", Integer.toString(maxConcurrentSessions));
+
+        return postMethod;
     }
 
 
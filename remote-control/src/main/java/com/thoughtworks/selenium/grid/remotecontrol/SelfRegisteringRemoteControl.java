@@ -15,10 +15,21 @@ public class SelfRegisteringRemoteControl {
     private static final Log logger = LogFactory.getLog(SelfRegisteringRemoteControlLauncher.class);
     private final RegistrationInfo registrationInfo;
     private final HubPoller hubPoller;
+    private final HeartbeatRequest heartbeatRequest;
 
     public SelfRegisteringRemoteControl(RegistrationInfo registrationInfo, int hubPollerIntervalInSeconds) {
+        this(registrationInfo, hubPollerIntervalInSeconds, false);
+    }
+
+    /**
+     * @param pushStatus Whether to push the status of the remote control to the hub on every poll,
+     *                   so that the hub does not poll the remote control.
+     */
+    public SelfRegisteringRemoteControl(RegistrationInfo registrationInfo, int hubPollerIntervalInSeconds,
+                                        boolean pushStatus) {
         this.registrationInfo = registrationInfo;
         this.hubPoller = new HubPoller(this, hubPollerIntervalInSeconds);
+        this.heartbeatRequest = new HeartbeatRequest(registrationInfo, pushStatus);
     }
 
     public RegistrationInfo registrationInfo() {
@@ -34,7 +45,7 @@ public class SelfRegisteringRemoteControl {
     }
 
     public HeartbeatRequest.Status canReachHub() {
-        return new HeartbeatRequest(registrationInfo).execute();
+        return heartbeatRequest.execute();
     }
 
     public void launch(String[] args) throws Exception {
@@ -55,6 +66,7 @@ public class SelfRegisteringRemoteControl {
     protected void logStartingMessages(String[] args) {
         logger.info("Starting selenium server with options:" + registrationInfo);
         logger.info("hubPollerInterval: " + hubPoller.pollingIntervalInMilliseconds() + " ms");
+        logger.info("heartbeatMode: " + (heartbeatRequest.pushStatus() ? "push" : "poll"));
         for (String arg : args) {
             logger.info(arg);
         }
@@ -20,9 +20,11 @@ public class SelfRegisteringRemoteControlLauncher {
 
         options = new OptionParser().parseOptions(args);
         registrationInfo = new RegistrationInfo(
-                options.hubURL(), options.environment(), options.host(), options.port());
+                options.hubURL(), options.environment(), options.host(), options.port(),
+                options.maxConcurrentSessions());
         server = new SelfRegisteringRemoteControl(registrationInfo,
-                                                  options.hubPollerIntervalInSeconds());
+                                                  options.pollingIntervalInSeconds(),
+                                                  options.pushStatus());
         try {
             server.register();
             server.ensureUnregisterOnShutdown();
@@ -0,0 +1,45 @@
+package com.thoughtworks.selenium.grid.remotecontrol;
+
+import org.apache.commons.httpclient.NameValuePair;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+
+public class BatchRegistrationRequestTest {
+
+    @Test
+    public void postToTheBatchRegistrationURLOfTheHub() throws IOException {
+        final BatchRegistrationRequest request;
+
+        request = new BatchRegistrationRequest("http://thehub.url:4444", Arrays.<RegistrationInfo>asList());
+        assertEquals("http://thehub.url:4444/registration-manager/register-batch",
+                     request.postMethod().getURI().toString());
+    }
+
+    @Test
+    public void postListsEachRemoteControlInOrder() throws IOException {
+        final PostMethod postMethod;
+        final NameValuePair[] parameters;
+
+        postMethod = new BatchRegistrationRequest("http://thehub.url:4444", Arrays.asList(
+                new RegistrationInfo("http://thehub.url:4444", "*chrome", "rc1", "5555"),
+                new RegistrationInfo("http://thehub.url:4444", "*firefox", "rc2", "5556", 4))).postMethod();
+
+        parameters = postMethod.getParameters();
+        assertEquals(8, parameters.length);
+        assertEquals("rc1", parameters[0].getValue());
+        assertEquals("5555", parameters[1].getValue());
+        assertEquals("*chrome", parameters[2].getValue());
+        assertEquals("1", parameters[3].getValue());
+        assertEquals("host", parameters[4].getName());
+        assertEquals("rc2", parameters[4].getValue());
+        assertEquals("5556", parameters[5].getValue());
+        assertEquals("*firefox", parameters[6].getValue());
+        assertEquals("4", parameters[7].getValue());
+    }
+
+}
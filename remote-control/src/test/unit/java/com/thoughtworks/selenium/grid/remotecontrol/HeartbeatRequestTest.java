@@ -1,12 +1,14 @@
 package com.thoughtworks.selenium.grid.remotecontrol;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import org.jbehave.classmock.UsingClassMock;
 import org.jbehave.core.mock.Mock;
 import org.junit.Test;
 import static org.junit.Assert.assertFalse;
 import com.thoughtworks.selenium.grid.HttpClient;
+import com.thoughtworks.selenium.grid.HttpParameters;
 import com.thoughtworks.selenium.grid.Response;
 import com.thoughtworks.selenium.grid.remotecontrol.HeartbeatRequest.Status;
 
@@ -108,5 +110,50 @@ public class HeartbeatRequestTest extends UsingClassMock {
         verifyMocks();
     }
 
+    @Test
+    public void heartbeatURLDoesNotIncludeTheRemoteControlWhenPushingItsStatus() {
+        final RegistrationInfo info;
+
+        info = new RegistrationInfo("http://thehub.url:4444", "", "aHost", "aPort");
+        assertEquals("http://thehub.url:4444/heartbeat", new HeartbeatRequest(info, true).heartBeatURL());
+    }
+
+    @Test
+    public void executePostsTheRemoteControlStatusWhenPushingIt() {
+        final RegistrationInfo info;
+        final HeartbeatRequest request;
+        final HttpParameters status;
+        final Mock httpClient;
+
+        httpClient = mock(HttpClient.class);
+        info = new RegistrationInfo("http://thehub.url:4444", "", "aHost", "aPort");
+        request = new HeartbeatRequest(info, true) {
+            @Override
+            protected HttpClient httpClient() {
+                return (HttpClient) httpClient;
+            }
+
+            @Override
+            protected double systemLoadAverage() {
+                return 0.5;
+            }
+        };
+        status = new HttpParameters();
+        status.put("host", "aHost");
+        status.put("port", "aPort");
+        status.put("load", "0.5");
+        httpClient.expects("post").with(eq("http://thehub.url:4444/heartbeat"), eq(status))
+                  .will(returnValue(new Response(200, "Hub : Not Registered")));
+        assertEquals(Status.UNREGISTERED, request.execute());
+        verifyMocks();
+    }
+
+    @Test
+    public void heartbeatsShareTheSameHttpClient() {
+        final HeartbeatRequest request;
+
+        request = new HeartbeatRequest(new RegistrationInfo("http://thehub.url:4444", "", "aHost", "aPort"), true);
+        assertSame(request.httpClient(), request.httpClient());
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.thoughtworks.selenium.grid.remotecontrol;
+
+import static junit.framework.Assert.assertEquals;
+import org.junit.Test;
+
+public class OptionParserTest {
+
+    @Test
+    public void remoteControlContactsTheHubAtTheHubPollerIntervalWhenPolled() {
+        final OptionParser.Options options;
+
+        options = new OptionParser().parseOptions(new String[]{"-hubPollerIntervalInSeconds", "60"});
+        assertEquals(60, options.pollingIntervalInSeconds());
+    }
+
+    @Test
+    public void remoteControlPushesItsStatusAtTheHeartbeatIntervalWhenPushing() {
+        final OptionParser.Options options;
+
+        options = new OptionParser().parseOptions(new String[]{
+                "-heartbeatMode", "push", "-hubPollerIntervalInSeconds", "60", "-heartbeatIntervalInSeconds", "5"});
+        assertEquals(5, options.pollingIntervalInSeconds());
+    }
+
+    @Test
+    public void heartbeatIntervalIsWellBelowTheSuggestedHubHeartbeatTimeoutByDefault() {
+        final OptionParser.Options options;
+
+        options = new OptionParser().parseOptions(new String[]{"-heartbeatMode", "push"});
+        assertEquals(10, options.pollingIntervalInSeconds());
+    }
+
+}
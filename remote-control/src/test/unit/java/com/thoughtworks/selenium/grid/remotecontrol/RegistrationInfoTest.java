@@ -29,7 +29,7 @@ public class RegistrationInfoTest extends UsingClassMock {
     @Test
     public void toStringReturhsAHumanFriendlyMessage() {
         assertEquals(
-            "[RegistrationInfo seleniumHubURL='http://the.hub:4444', env='*firefox', host='the.rc', port='5555']", 
+            "[RegistrationInfo seleniumHubURL='http://the.hub:4444', env='*firefox', host='the.rc', port='5555', maxConcurrentSessions='1']",
             new RegistrationInfo("http://the.hub:4444", "*firefox", "the.rc", "5555").toString());
     }
 
@@ -17,4 +17,12 @@ public class RegistrationRequestTest extends UsingClassMock {
                      new RegistrationRequest(info).postMethod().getURI().toString());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void postAdvertisesTheMaximumNumberOfConcurrentSessions() throws IOException {
+        final RegistrationInfo info;
+
+        info = new RegistrationInfo("http://thehub.url:4444", "", "", "", 8);
+        assertEquals("8", new RegistrationRequest(info).postMethod().getParameter("maxConcurrentSessions").getValue());
+    }
+
+}